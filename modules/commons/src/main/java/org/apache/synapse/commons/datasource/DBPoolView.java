@@ -21,6 +21,8 @@ package org.apache.synapse.commons.datasource;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
@@ -33,6 +35,11 @@ public class DBPoolView implements DBPoolViewMBean {
     private final Map<String, Long> connectionsUsage = new HashMap<String, Long>();
     private String name;
 
+    private final AtomicInteger bufferDepth = new AtomicInteger(0);
+    private final AtomicLong flushCount = new AtomicLong(0);
+    private final AtomicLong totalFlushTime = new AtomicLong(0);
+    private final AtomicLong maxFlushTime = new AtomicLong(0);
+
     public DBPoolView(String name) {
         this.name = name;
     }
@@ -81,10 +88,57 @@ public class DBPoolView implements DBPoolViewMBean {
         return connectionsUsage;
     }
 
+    /**
+     * Update the number of rows waiting to be written in a batch
+     *
+     * @param delta the number of rows added to (positive) or flushed from (negative) a buffer
+     */
+    public void updateBufferDepth(int delta) {
+        bufferDepth.addAndGet(delta);
+    }
+
+    /**
+     * Record the time taken to write a batch of rows
+     *
+     * @param nanos time taken to flush the batch, in nanoseconds
+     */
+    public void recordFlush(long nanos) {
+        flushCount.incrementAndGet();
+        totalFlushTime.addAndGet(nanos);
+        long currentMax = maxFlushTime.get();
+        while (nanos > currentMax && !maxFlushTime.compareAndSet(currentMax, nanos)) {
+            currentMax = maxFlushTime.get();
+        }
+    }
+
+    @Override
+    public int getBufferDepth() {
+        return bufferDepth.get();
+    }
+
+    @Override
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    @Override
+    public double getAverageFlushLatency() {
+        long count = flushCount.get();
+        return count == 0 ? 0 : totalFlushTime.get() / 1000000.0 / count;
+    }
+
+    @Override
+    public double getMaxFlushLatency() {
+        return maxFlushTime.get() / 1000000.0;
+    }
+
     @Override
     public void reset() {
         numActive = 0;
         numIdle = 0;
         connectionsUsage.clear();
+        flushCount.set(0);
+        totalFlushTime.set(0);
+        maxFlushTime.set(0);
     }
 }
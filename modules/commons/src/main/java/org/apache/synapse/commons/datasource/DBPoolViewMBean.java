@@ -52,6 +52,34 @@ public interface DBPoolViewMBean {
      */
     public Map getConnectionUsage();
 
+    /**
+     * Number of rows buffered by batching DB report mediators and not yet written
+     *
+     * @return <code>int</code> Number of buffered rows
+     */
+    public int getBufferDepth();
+
+    /**
+     * Number of batches written by batching DB report mediators
+     *
+     * @return <code>long</code> Number of batches written
+     */
+    public long getFlushCount();
+
+    /**
+     * Average time taken to write a batch
+     *
+     * @return <code>double</code> average flush latency in milliseconds
+     */
+    public double getAverageFlushLatency();
+
+    /**
+     * Maximum time taken to write a batch
+     *
+     * @return <code>double</code> maximum flush latency in milliseconds
+     */
+    public double getMaxFlushLatency();
+
     /**
      * reset statistics
      */
@@ -180,6 +180,9 @@ public final class SynapseConstants {
     /** An Axis2 message context property that indicates the maximum time to spend on sending the message */
     public static final String SEND_TIMEOUT = "SEND_TIMEOUT";
 
+    /** A Synapse MC property of an outgoing message which holds the handler for its response */
+    public static final String ASYNC_RESPONSE_HANDLER = "_SYNAPSE_ASYNC_RESPONSE_HANDLER";
+
     //- Axis2 Message Context Properties used by Synapse -
     /** an axis2 message context property set to hold the relates to for POX responses */
     public static final String RELATES_TO_FOR_POX = "synapse.RelatesToForPox";
@@ -351,6 +354,11 @@ public final class SynapseConstants {
 
     public static final String SYNAPSE_STARTUP_TASK_SCHEDULER = "synapse.startup.taskscheduler";
 
+    /** Number of threads used to parse and to initialize the artifacts at startup */
+    public static final String STARTUP_THREADS = "synapse.startup.threads";
+
+    public static final int DEFAULT_STARTUP_THREADS = 1;
+
     public static final String SYNAPSE_STARTUP_TASK_DESCRIPTIONS_REPOSITORY =
             "synapse.startup.taskdescriptions.repository";
 
@@ -392,6 +400,8 @@ public final class SynapseConstants {
     public static final int ENDPOINT_FO_NONE_READY   = 303000;
     public static final int ENDPOINT_ADDRESS_NONE_READY = 303001;
     public static final int ENDPOINT_WSDL_NONE_READY = 303002;
+    // Too many requests in flight to an endpoint with adaptive concurrency limiting
+    public static final int ENDPOINT_CONCURRENCY_LIMIT_REACHED = 303003;
     // Failure on endpoint in the session 
     public static final int ENDPOINT_SAL_NOT_READY = 309001;
     public static final int ENDPOINT_SAL_INVALID_PATH = 309002;
@@ -57,6 +57,7 @@ import java.util.Arrays;
 import java.util.Properties;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
 
 
 @SuppressWarnings({"UnusedDeclaration"})
@@ -913,5 +914,42 @@ public class SynapseConfigUtils {
         }
         return injectedValue;
     }
-}
 
+    /**
+     * Creates the pool of threads used to load the artifacts at startup
+     *
+     * @param threads the configured number of threads, as given by the
+     *                {@link SynapseConstants#STARTUP_THREADS} property, or null
+     * @return a pool with the given number of threads, or null if the artifacts are to be
+     * loaded sequentially
+     */
+    public static ForkJoinPool createStartupPool(String threads) {
+        int size = SynapseConstants.DEFAULT_STARTUP_THREADS;
+        if (threads != null) {
+            try {
+                size = Integer.parseInt(threads.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value : " + threads + " for " + SynapseConstants.STARTUP_THREADS
+                        + ", the artifacts will be loaded sequentially");
+            }
+        }
+        return size > 1 ? new ForkJoinPool(size) : null;
+    }
+
+    /**
+     * Appends the time taken by a phase of the startup to the given timings
+     *
+     * @param timings the timings of the phases completed so far
+     * @param phase name of the phase
+     * @param start the time at which the phase started
+     * @return the time at which the phase ended, which is when the next one starts
+     */
+    public static long recordPhase(StringBuilder timings, String phase, long start) {
+        long now = System.currentTimeMillis();
+        if (timings.length() > 0) {
+            timings.append(", ");
+        }
+        timings.append(phase).append(" : ").append(now - start).append(" ms");
+        return now;
+    }
+}
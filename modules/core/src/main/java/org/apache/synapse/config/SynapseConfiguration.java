@@ -46,6 +46,7 @@ import org.apache.synapse.core.axis2.ProxyService;
 import org.apache.synapse.endpoints.Endpoint;
 import org.apache.synapse.endpoints.dispatch.SALSessions;
 import org.apache.synapse.mediators.base.SequenceMediator;
+import org.apache.synapse.registry.AbstractRegistry;
 import org.apache.synapse.registry.Registry;
 import org.apache.axiom.om.OMNode;
 import org.apache.synapse.rest.API;
@@ -54,6 +55,9 @@ import javax.xml.namespace.QName;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
 
 /**
  * The SynapseConfiguration holds the global configuration for a Synapse
@@ -706,6 +710,7 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
             if (!entry.isDynamic() || (entry.isCached() && !entry.isExpired())) {
                 // If the entry is not dynamic or if it is a cached dynamic entry with the
                 // cache still not expired, return the existing value.
+                refreshAhead(entry);
                 return entry.getValue();
             }
 
@@ -747,6 +752,18 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
         return o;
     }
 
+    /**
+     * Refreshes the given entry in the background if it is a cached dynamic entry about to
+     * expire, and if the registry refreshes its resources ahead.
+     *
+     * @param entry an entry about to be used
+     */
+    private void refreshAhead(Entry entry) {
+        if (entry.isDynamic() && entry.isCached() && registry instanceof AbstractRegistry) {
+            ((AbstractRegistry) registry).refreshAhead(entry, getProperties());
+        }
+    }
+
     /**
      * Get the Entry object mapped to the given key
      *
@@ -769,6 +786,8 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
                     }
                 }
             }
+            // the callers use the cached value as it is until it expires
+            refreshAhead((Entry) o);
             return (Entry) o;
         } else {
             if (log.isDebugEnabled()) {
@@ -1339,27 +1358,46 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
     private void doInit(SynapseEnvironment se) {
         synapseTimer = new Timer(true);
 
+        // the artifacts are initialized in phases, so that the endpoints and the templates are
+        // ready before the sequences referring to them, and so on. The templates, sequences and
+        // APIs of a phase do not depend on each other, and are initialized by the pool if one
+        // is configured
+        ForkJoinPool pool = SynapseConfigUtils.createStartupPool(
+                getProperty(SynapseConstants.STARTUP_THREADS));
+        StringBuilder timings = new StringBuilder();
+        long start = System.currentTimeMillis();
+        try {
+            doInit(se, pool, timings);
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+        log.info("Initialized the artifacts in " + (System.currentTimeMillis() - start) +
+                " ms (" + timings + ")");
+    }
+
+    private void doInit(SynapseEnvironment se, ForkJoinPool pool, StringBuilder timings) {
+        long phaseStart = System.currentTimeMillis();
+
         // initialize registry
         if (registry != null && registry instanceof ManagedLifecycle) {
             ((ManagedLifecycle) registry).init(se);
         }
+        phaseStart = SynapseConfigUtils.recordPhase(timings, "registry", phaseStart);
 
-        //initialize endpoints
-        for (Endpoint endpoint : getDefinedEndpoints().values()) {
-            endpoint.init(se);
-        }
+        //initialize endpoints, one at a time since an endpoint initializes the endpoints it
+        //refers to by key, which are also in this phase
+        initArtifacts(getDefinedEndpoints(), se, null);
+        phaseStart = SynapseConfigUtils.recordPhase(timings, "endpoints", phaseStart);
 
         //initialize sequence templates
-        for (TemplateMediator seqTemplate : getSequenceTemplates().values()) {
-            seqTemplate.init(se);
-        }
+        initArtifacts(getSequenceTemplates(), se, pool);
+        phaseStart = SynapseConfigUtils.recordPhase(timings, "templates", phaseStart);
 
         // initialize managed mediators
-        for (ManagedLifecycle seq : getDefinedSequences().values()) {
-            if (seq != null) {
-                seq.init(se);
-            }
-        }
+        initArtifacts(getDefinedSequences(), se, pool);
+        phaseStart = SynapseConfigUtils.recordPhase(timings, "sequences", phaseStart);
 
         // initialize all the proxy services
         for (ProxyService proxy : getProxyServices()) {
@@ -1380,6 +1418,7 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
                 proxy.getTargetInLineFaultSequence().init(se);
             }
         }
+        phaseStart = SynapseConfigUtils.recordPhase(timings, "proxy services", phaseStart);
 
         // initialize the startups
         for (ManagedLifecycle stp : getStartups()) {
@@ -1387,6 +1426,7 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
                 stp.init(se);
             }
         }
+        phaseStart = SynapseConfigUtils.recordPhase(timings, "tasks", phaseStart);
 
         // initialize sequence executors
         for (PriorityExecutor executor : getPriorityExecutors().values()) {
@@ -1402,9 +1442,65 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
         for (MessageProcessor messageProcessor : messageProcessors.values()) {
             messageProcessor.init(se);
         }
+        phaseStart = SynapseConfigUtils.recordPhase(timings, "message stores and processors",
+                phaseStart);
 
-        for (API api : apiTable.values()) {
-            api.init(se);
+        initArtifacts(apiTable, se, pool);
+        SynapseConfigUtils.recordPhase(timings, "apis", phaseStart);
+    }
+
+    /**
+     * Initializes the given artifacts, on the given pool if there is one. The artifacts are
+     * handed over to the pool in the order of their keys, and the first failure in that order
+     * is the one reported, whatever the order in which they are actually initialized.
+     *
+     * @param artifacts the artifacts to be initialized, by their keys
+     * @param se the Synapse environment
+     * @param pool the pool to initialize the artifacts on, or null to initialize them here
+     */
+    private void initArtifacts(Map<String, ? extends ManagedLifecycle> artifacts,
+                               final SynapseEnvironment se, ForkJoinPool pool) {
+        if (pool == null) {
+            for (ManagedLifecycle artifact : artifacts.values()) {
+                if (artifact != null) {
+                    artifact.init(se);
+                }
+            }
+            return;
+        }
+
+        List<FutureTask<Object>> tasks = new ArrayList<FutureTask<Object>>();
+        for (final ManagedLifecycle artifact :
+                new TreeMap<String, ManagedLifecycle>(artifacts).values()) {
+            if (artifact != null) {
+                FutureTask<Object> task = new FutureTask<Object>(new Runnable() {
+                    @Override
+                    public void run() {
+                        artifact.init(se);
+                    }
+                }, null);
+                pool.execute(task);
+                tasks.add(task);
+            }
+        }
+
+        SynapseException error = null;
+        for (FutureTask<Object> task : tasks) {
+            try {
+                task.get();
+            } catch (ExecutionException e) {
+                if (error == null) {
+                    Throwable cause = e.getCause();
+                    error = cause instanceof SynapseException ? (SynapseException) cause :
+                            new SynapseException("Error while initializing the artifacts", cause);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SynapseException("Interrupted while initializing the artifacts", e);
+            }
+        }
+        if (error != null) {
+            throw error;
         }
     }
 
@@ -1469,6 +1565,11 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
         for (API api : apiTable.values()) {
             api.destroy();
         }
+
+        // stop refreshing the registry resources
+        if (registry instanceof AbstractRegistry) {
+            ((AbstractRegistry) registry).destroy();
+        }
     }
 
     private void handleException(String msg) {
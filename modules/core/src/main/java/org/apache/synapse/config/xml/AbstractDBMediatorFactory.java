@@ -24,6 +24,7 @@ import org.apache.axiom.om.OMElement;
 import org.apache.synapse.commons.datasource.DataSourceInformation;
 import org.apache.synapse.securevault.secret.SecretInformation;
 import org.apache.synapse.mediators.db.AbstractDBMediator;
+import org.apache.synapse.mediators.db.DBLookupMediator;
 import org.apache.synapse.mediators.db.Statement;
 import org.apache.synapse.util.xpath.SynapseXPath;
 import org.jaxen.JaxenException;
@@ -62,6 +63,7 @@ import java.util.Properties;
  *     &lt;sql>insert into table values (?, ?, ..) OR select target from destinations where src = ?&lt;/sql>
  *     &lt;parameter (value="const" | expression="xpath") type="INTEGER|VARCHAR|..."/>*
  *     &lt;result name="propName" column="target | number"/>*
+ *     &lt;cache [name="string"] [timeout="ms"] [maxEntries="int"] [maxSize="bytes"]/>?
  *   &lt;/statement>+
  * &lt;/dbreport | dblookup | .. etc>
  * </pre>
@@ -99,6 +101,15 @@ public abstract class AbstractDBMediatorFactory extends AbstractMediatorFactory
     static final QName SQL_Q = new QName(XMLConfigConstants.SYNAPSE_NAMESPACE, "sql");
     static final QName PARAM_Q = new QName(XMLConfigConstants.SYNAPSE_NAMESPACE, "parameter");
     static final QName RESULT_Q = new QName(XMLConfigConstants.SYNAPSE_NAMESPACE, "result");
+    static final QName CACHE_Q = new QName(XMLConfigConstants.SYNAPSE_NAMESPACE, "cache");
+    static final QName ATT_TIMEOUT = new QName("timeout");
+    static final QName ATT_MAX_ENTRIES = new QName("maxEntries");
+    static final QName ATT_MAX_SIZE = new QName("maxSize");
+
+    /** Default time in milliseconds a cached lookup result is valid */
+    public static final long DEFAULT_CACHE_TIMEOUT = 60000;
+    /** Default maximum number of cached lookup results per statement */
+    public static final int DEFAULT_CACHE_MAX_ENTRIES = 1000;
 
     static final QName ATT_COLUMN = new QName("column");
     static final QName ATT_TYPE = new QName("type");
@@ -310,6 +321,39 @@ public abstract class AbstractDBMediatorFactory extends AbstractMediatorFactory
                         getAttribute(resultElt, ATT_COLUMN));
             }
 
+            OMElement cacheElt = stmntElt.getFirstChildWithName(CACHE_Q);
+            if (cacheElt != null) {
+                if (!(mediator instanceof DBLookupMediator)) {
+                    handleException("Only the results of DB lookup statements can be cached");
+                }
+                long timeout = DEFAULT_CACHE_TIMEOUT;
+                int maxEntries = DEFAULT_CACHE_MAX_ENTRIES;
+                long maxSize = 0;
+                try {
+                    String value = getAttribute(cacheElt, ATT_TIMEOUT);
+                    if (value != null) {
+                        timeout = Long.parseLong(value.trim());
+                    }
+                    value = getAttribute(cacheElt, ATT_MAX_ENTRIES);
+                    if (value != null) {
+                        maxEntries = Integer.parseInt(value.trim());
+                    }
+                    value = getAttribute(cacheElt, ATT_MAX_SIZE);
+                    if (value != null) {
+                        maxSize = Long.parseLong(value.trim());
+                    }
+                } catch (NumberFormatException e) {
+                    handleException("Invalid timeout, maxEntries or maxSize for the " +
+                            "statement cache", e);
+                }
+                if (timeout <= 0 || maxEntries <= 0 || maxSize < 0) {
+                    handleException("The timeout, maxEntries and maxSize of the statement " +
+                            "cache must be positive");
+                }
+                statement.setCache(getAttribute(cacheElt, ATT_NAME), timeout, maxEntries,
+                        maxSize);
+            }
+
             mediator.addStatement(statement);
         }
     }
@@ -149,6 +149,29 @@ public abstract class AbstractDBMediatorSerializer extends AbstractMediatorSeria
             stmntElt.addChild(resultElt);
         }
 
+        if (statement.isCached()) {
+            OMElement cacheElt = fac.createOMElement(
+                AbstractDBMediatorFactory.CACHE_Q.getLocalPart(), synNS);
+            if (statement.getCacheName() != null) {
+                cacheElt.addAttribute(
+                    fac.createOMAttribute("name", nullNS, statement.getCacheName()));
+            }
+            if (statement.getCacheTimeout() != AbstractDBMediatorFactory.DEFAULT_CACHE_TIMEOUT) {
+                cacheElt.addAttribute(fac.createOMAttribute("timeout", nullNS,
+                    Long.toString(statement.getCacheTimeout())));
+            }
+            if (statement.getCacheMaxEntries() !=
+                    AbstractDBMediatorFactory.DEFAULT_CACHE_MAX_ENTRIES) {
+                cacheElt.addAttribute(fac.createOMAttribute("maxEntries", nullNS,
+                    Integer.toString(statement.getCacheMaxEntries())));
+            }
+            if (statement.getCacheMaxSize() > 0) {
+                cacheElt.addAttribute(fac.createOMAttribute("maxSize", nullNS,
+                    Long.toString(statement.getCacheMaxSize())));
+            }
+            stmntElt.addChild(cacheElt);
+        }
+
         return stmntElt;
     }
 
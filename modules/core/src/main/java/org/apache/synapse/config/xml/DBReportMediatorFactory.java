@@ -31,7 +31,7 @@ import java.util.Properties;
 /**
  * Factory for {@link DBReportMediator} instances.
  * <pre>
- * &lt;dbreport useTransaction="true|false"&gt;
+ * &lt;dbreport useTransaction="true|false" [batchSize="int"] [flushInterval="ms"]&gt;
  *   &lt;connection&gt;
  *     &lt;pool&gt;
  *      (
@@ -61,6 +61,8 @@ public class DBReportMediatorFactory extends AbstractDBMediatorFactory {
     private static final QName DBREPORT_Q =
             new QName(SynapseConstants.SYNAPSE_NAMESPACE, "dbreport");
     private static final QName DBREPORT_USE_TX = new QName("useTransaction");
+    private static final QName DBREPORT_BATCH_SIZE = new QName("batchSize");
+    private static final QName DBREPORT_FLUSH_INTERVAL = new QName("flushInterval");
 
     @Override
     public Mediator createSpecificMediator(OMElement elem, Properties properties) {
@@ -75,6 +77,36 @@ public class DBReportMediatorFactory extends AbstractDBMediatorFactory {
                 mediator.setUseTransaction(false);
             }
         }
+
+        OMAttribute batchSize = elem.getAttribute(DBREPORT_BATCH_SIZE);
+        if (batchSize != null) {
+            try {
+                mediator.setBatchSize(Integer.parseInt(batchSize.getAttributeValue().trim()));
+            } catch (NumberFormatException e) {
+                handleException("Invalid batchSize for the dbreport mediator : " +
+                        batchSize.getAttributeValue());
+            }
+        }
+
+        OMAttribute flushInterval = elem.getAttribute(DBREPORT_FLUSH_INTERVAL);
+        if (flushInterval != null) {
+            try {
+                mediator.setFlushInterval(
+                        Long.parseLong(flushInterval.getAttributeValue().trim()));
+            } catch (NumberFormatException e) {
+                handleException("Invalid flushInterval for the dbreport mediator : " +
+                        flushInterval.getAttributeValue());
+            }
+            if (mediator.getFlushInterval() <= 0) {
+                handleException("The flushInterval of the dbreport mediator must be positive");
+            }
+        }
+
+        if (mediator.getBatchSize() > 0 && mediator.isUseTransaction()) {
+            handleException("Batched writes of the dbreport mediator cannot participate " +
+                    "in a distributed transaction");
+        }
+
         buildDataSource(elem, mediator);
         processStatements(elem, mediator);
         return mediator;
@@ -42,6 +42,14 @@ public class DBReportMediatorSerializer extends AbstractDBMediatorSerializer {
         if (mediator.isUseTransaction()) {
             dbReport.addAttribute(fac.createOMAttribute("useTransaction", nullNS, "true"));
         }
+        if (mediator.getBatchSize() > 0) {
+            dbReport.addAttribute(fac.createOMAttribute("batchSize", nullNS,
+                    Integer.toString(mediator.getBatchSize())));
+            if (mediator.getFlushInterval() != DBReportMediator.DEFAULT_FLUSH_INTERVAL) {
+                dbReport.addAttribute(fac.createOMAttribute("flushInterval", nullNS,
+                        Long.toString(mediator.getFlushInterval())));
+            }
+        }
         saveTracingState(dbReport, mediator);
         serializeDBInformation(mediator, dbReport);
 
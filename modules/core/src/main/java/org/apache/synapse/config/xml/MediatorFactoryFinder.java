@@ -86,7 +86,8 @@ public class MediatorFactoryFinder implements XMLToObjectMapper {
         BeanMediatorFactory.class,
         EJBMediatorFactory.class,
         RespondMediatorFactory.class,
-        LoopbackMediatorFactory.class
+        LoopbackMediatorFactory.class,
+        StageMediatorFactory.class
     };
 
     private final static MediatorFactoryFinder instance  = new MediatorFactoryFinder();
@@ -46,8 +46,14 @@ import org.apache.synapse.rest.API;
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamException;
 import java.io.*;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
 
 /**
  * <p>
@@ -74,6 +80,12 @@ import java.util.Properties;
  *  <li>CONFIG_HOME/registry.xml</li>
  * </ul>
  * </p>
+ * <p>
+ * The files are parsed on a pool of <code>synapse.startup.threads</code> threads, when more
+ * than one is configured. The artifacts of each directory are still added to the configuration
+ * one at a time, in the order of their file names, so that the resulting configuration is the
+ * same regardless of the number of threads.
+ * </p>
  *
  */
 public class MultiXMLConfigurationBuilder {
@@ -123,19 +135,46 @@ public class MultiXMLConfigurationBuilder {
                     " will be neglected");
         }
 
-        createLocalEntries(synapseConfig, root, properties);
-        createEndpoints(synapseConfig, root, properties);
-        createSequences(synapseConfig, root, properties);
-        createTemplates(synapseConfig, root, properties);
-        createProxyServices(synapseConfig, root, properties);
-        createTasks(synapseConfig, root, properties);
-        createEventSources(synapseConfig, root, properties);
-        createExecutors(synapseConfig, root, properties);
-        createMessageStores(synapseConfig, root, properties);
-        createMessageProcessors(synapseConfig, root, properties);
-        createSynapseImports(synapseConfig, root, properties);
-        createAPIs(synapseConfig, root);
+        // the files of each directory are parsed by the pool if one is configured, while the
+        // artifacts are always added to the configuration in order, by the calling thread
+        ForkJoinPool pool = SynapseConfigUtils.createStartupPool(properties != null ?
+                properties.getProperty(SynapseConstants.STARTUP_THREADS) : null);
+        StringBuilder timings = new StringBuilder();
+        long start = System.currentTimeMillis();
+        long phaseStart = start;
+        try {
+            createLocalEntries(synapseConfig, root, properties, pool);
+            phaseStart = SynapseConfigUtils.recordPhase(timings, LOCAL_ENTRY_DIR, phaseStart);
+            createEndpoints(synapseConfig, root, properties, pool);
+            phaseStart = SynapseConfigUtils.recordPhase(timings, ENDPOINTS_DIR, phaseStart);
+            createSequences(synapseConfig, root, properties, pool);
+            phaseStart = SynapseConfigUtils.recordPhase(timings, SEQUENCES_DIR, phaseStart);
+            createTemplates(synapseConfig, root, properties, pool);
+            phaseStart = SynapseConfigUtils.recordPhase(timings, TEMPLATES_DIR, phaseStart);
+            createProxyServices(synapseConfig, root, properties, pool);
+            phaseStart = SynapseConfigUtils.recordPhase(timings, PROXY_SERVICES_DIR, phaseStart);
+            createTasks(synapseConfig, root, properties, pool);
+            phaseStart = SynapseConfigUtils.recordPhase(timings, TASKS_DIR, phaseStart);
+            createEventSources(synapseConfig, root, properties, pool);
+            phaseStart = SynapseConfigUtils.recordPhase(timings, EVENTS_DIR, phaseStart);
+            createExecutors(synapseConfig, root, properties, pool);
+            phaseStart = SynapseConfigUtils.recordPhase(timings, EXECUTORS_DIR, phaseStart);
+            createMessageStores(synapseConfig, root, properties, pool);
+            phaseStart = SynapseConfigUtils.recordPhase(timings, MESSAGE_STORE_DIR, phaseStart);
+            createMessageProcessors(synapseConfig, root, properties, pool);
+            phaseStart = SynapseConfigUtils.recordPhase(timings, MESSAGE_PROCESSOR_DIR, phaseStart);
+            createSynapseImports(synapseConfig, root, properties, pool);
+            phaseStart = SynapseConfigUtils.recordPhase(timings, SYNAPSE_IMPORTS_DIR, phaseStart);
+            createAPIs(synapseConfig, root, pool);
+            SynapseConfigUtils.recordPhase(timings, REST_API_DIR, phaseStart);
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
 
+        log.info("Loaded the artifacts in " + (System.currentTimeMillis() - start) + " ms ("
+                + timings + ")");
         return synapseConfig;
     }
 
@@ -186,7 +225,7 @@ public class MultiXMLConfigurationBuilder {
     }
 
     private static void createLocalEntries(SynapseConfiguration synapseConfig, String rootDirPath,
-                                           Properties properties) {
+                                           Properties properties, ForkJoinPool pool) {
 
         File localEntriesDir = new File(rootDirPath, LOCAL_ENTRY_DIR);
         if (localEntriesDir.exists()) {
@@ -194,13 +233,12 @@ public class MultiXMLConfigurationBuilder {
                 log.debug("Loading local entry definitions from : " + localEntriesDir.getPath());
             }
 
-            Iterator entryDefinitions = FileUtils.iterateFiles(localEntriesDir, extensions, false);
-            while (entryDefinitions.hasNext()) {
-                File file = (File) entryDefinitions.next();
+            for (ArtifactFile artifact : listArtifacts(localEntriesDir, pool)) {
+                File file = artifact.getFile();
 
                 OMElement document = null;
                 try {
-                    document = getOMElement(file);
+                    document = artifact.getDocument();
                 } catch (Exception e) {
                     String msg = "Error while building Local Entry from file : " + file.getName();
                     handleConfigurationError(SynapseConstants.FAIL_SAFE_MODE_LOCALENTRIES, msg, e);
@@ -220,7 +258,7 @@ public class MultiXMLConfigurationBuilder {
     }
 
     private static void createProxyServices(SynapseConfiguration synapseConfig, String rootDirPath,
-                                            Properties properties) {
+                                            Properties properties, ForkJoinPool pool) {
 
         File proxyServicesDir = new File(rootDirPath, PROXY_SERVICES_DIR);
         if (proxyServicesDir.exists()) {
@@ -228,13 +266,12 @@ public class MultiXMLConfigurationBuilder {
                 log.debug("Loading proxy services from : " + proxyServicesDir.getPath());
             }
 
-            Iterator proxyDefinitions = FileUtils.iterateFiles(proxyServicesDir, extensions, false);
-            while (proxyDefinitions.hasNext()) {
-                File file = (File) proxyDefinitions.next();
+            for (ArtifactFile artifact : listArtifacts(proxyServicesDir, pool)) {
+                File file = artifact.getFile();
 
                 OMElement document = null;
                 try {
-                    document = getOMElement(file);
+                    document = artifact.getDocument();
                 } catch (Exception e) {
                     String msg = "Error while building Proxy service configuration from file : " + file.getName();
                     handleConfigurationError(SynapseConstants.FAIL_SAFE_MODE_PROXY_SERVICES, msg, e);
@@ -254,7 +291,7 @@ public class MultiXMLConfigurationBuilder {
     }
 
     private static void createTasks(SynapseConfiguration synapseConfig, String rootDirPath,
-                                    Properties properties) {
+                                    Properties properties, ForkJoinPool pool) {
 
         File tasksDir = new File(rootDirPath, TASKS_DIR);
         if (tasksDir.exists()) {
@@ -262,13 +299,12 @@ public class MultiXMLConfigurationBuilder {
                 log.debug("Loading tasks from : " + tasksDir.getPath());
             }
 
-            Iterator taskDefinitions = FileUtils.iterateFiles(tasksDir, extensions, false);
-            while (taskDefinitions.hasNext()) {
-                File file = (File) taskDefinitions.next();
+            for (ArtifactFile artifact : listArtifacts(tasksDir, pool)) {
+                File file = artifact.getFile();
 
                 OMElement document = null;
                 try {
-                    document = getOMElement(file);
+                    document = artifact.getDocument();
                 } catch (Exception e) {
                     String msg = "Error while building Task configuration from file : " + file.getName();
                     handleConfigurationError(SynapseConstants.FAIL_SAFE_MODE_TASKS, msg, e);
@@ -286,7 +322,7 @@ public class MultiXMLConfigurationBuilder {
     }
 
     private static void createSequences(SynapseConfiguration synapseConfig, String rootDirPath,
-                                        Properties properties) {
+                                        Properties properties, ForkJoinPool pool) {
 
         File sequencesDir = new File(rootDirPath, SEQUENCES_DIR);
         if (sequencesDir.exists()) {
@@ -294,13 +330,12 @@ public class MultiXMLConfigurationBuilder {
                 log.debug("Loading sequences from : " + sequencesDir.getPath());
             }
 
-            Iterator sequences = FileUtils.iterateFiles(sequencesDir, extensions, false);
-            while (sequences.hasNext()) {
-                File file = (File) sequences.next();
+            for (ArtifactFile artifact : listArtifacts(sequencesDir, pool)) {
+                File file = artifact.getFile();
 
                 OMElement document = null;
                 try {
-                    document = getOMElement(file);
+                    document = artifact.getDocument();
                 } catch (Exception e) {
                     String msg = "Error while building Sequence configuration from file : " + file.getName();
                     handleConfigurationError(SynapseConstants.FAIL_SAFE_MODE_SEQUENCES, msg, e);
@@ -321,20 +356,19 @@ public class MultiXMLConfigurationBuilder {
     }
 
     private static void createTemplates(SynapseConfiguration synapseConfig, String rootDirPath,
-                                        Properties properties) {
+                                        Properties properties, ForkJoinPool pool) {
 
         File templatesDir = new File(rootDirPath, TEMPLATES_DIR);
         if (templatesDir.exists()) {
             if (log.isDebugEnabled()) {
                 log.debug("Loading template from : " + templatesDir.getPath());
             }
-            Iterator templates = FileUtils.iterateFiles(templatesDir, extensions, false);
-            while (templates.hasNext()) {
-                File file = (File) templates.next();
+            for (ArtifactFile artifact : listArtifacts(templatesDir, pool)) {
+                File file = artifact.getFile();
 
                 OMElement document = null;
                 try {
-                    document = getOMElement(file);
+                    document = artifact.getDocument();
                 } catch (Exception e) {
                     String msg = "Error while building Template configuration from file : " + file.getName();
                     handleConfigurationError(SynapseConstants.FAIL_SAFE_MODE_TEMPLATES, msg, e);
@@ -373,7 +407,7 @@ public class MultiXMLConfigurationBuilder {
     }
 
     private static void createEndpoints(SynapseConfiguration synapseConfig, String rootDirPath,
-                                        Properties properties) {
+                                        Properties properties, ForkJoinPool pool) {
 
         File endpointsDir = new File(rootDirPath, ENDPOINTS_DIR);
         if (endpointsDir.exists()) {
@@ -381,13 +415,12 @@ public class MultiXMLConfigurationBuilder {
                 log.debug("Loading endpoints from : " + endpointsDir.getPath());
             }
 
-            Iterator endpoints = FileUtils.iterateFiles(endpointsDir, extensions, false);
-            while (endpoints.hasNext()) {
-                File file = (File) endpoints.next();
+            for (ArtifactFile artifact : listArtifacts(endpointsDir, pool)) {
+                File file = artifact.getFile();
 
                 OMElement document = null;
                 try {
-                    document = getOMElement(file);
+                    document = artifact.getDocument();
                 } catch (Exception e) {
                     String msg = "Error while building Endpoint configuration from file : " + file.getName();
                     handleConfigurationError(SynapseConstants.FAIL_SAFE_MODE_EP, msg, e);
@@ -407,7 +440,7 @@ public class MultiXMLConfigurationBuilder {
     }
 
     private static void createEventSources(SynapseConfiguration synapseConfig, String rootDirPath,
-                                           Properties properties) {
+                                           Properties properties, ForkJoinPool pool) {
 
         File eventsDir = new File(rootDirPath, EVENTS_DIR);
         if (eventsDir.exists()) {
@@ -415,13 +448,12 @@ public class MultiXMLConfigurationBuilder {
                 log.debug("Loading event sources from : " + eventsDir.getPath());
             }
 
-            Iterator events = FileUtils.iterateFiles(eventsDir, extensions, false);
-            while (events.hasNext()) {
-                File file = (File) events.next();
+            for (ArtifactFile artifact : listArtifacts(eventsDir, pool)) {
+                File file = artifact.getFile();
 
                 OMElement document = null;
                 try {
-                    document = getOMElement(file);
+                    document = artifact.getDocument();
                 } catch (Exception e) {
                     String msg = "Error while building Event Source configuration from file : " + file.getName();
                     handleConfigurationError(SynapseConstants.FAIL_SAFE_MODE_EVENT_SOURCE, msg, e);
@@ -441,7 +473,7 @@ public class MultiXMLConfigurationBuilder {
     }
 
     private static void createExecutors(SynapseConfiguration synapseConfig, String rootDirPath,
-                                        Properties properties) {
+                                        Properties properties, ForkJoinPool pool) {
 
         File executorsDir = new File(rootDirPath, EXECUTORS_DIR);
         if (executorsDir.exists()) {
@@ -449,13 +481,12 @@ public class MultiXMLConfigurationBuilder {
                 log.debug("Loading event sources from : " + executorsDir.getPath());
             }
 
-            Iterator executors = FileUtils.iterateFiles(executorsDir, extensions, false);
-            while (executors.hasNext()) {
-                File file = (File) executors.next();
+            for (ArtifactFile artifact : listArtifacts(executorsDir, pool)) {
+                File file = artifact.getFile();
 
                 OMElement document = null;
                 try {
-                    document = getOMElement(file);
+                    document = artifact.getDocument();
                 } catch (Exception e) {
                     String msg = "Error while building Executor configuration from file : " + file.getName();
                     handleConfigurationError(SynapseConstants.FAIL_SAFE_MODE_EXECUTORS, msg, e);
@@ -475,7 +506,7 @@ public class MultiXMLConfigurationBuilder {
     }
 
     private static void createMessageStores(SynapseConfiguration synapseConfig ,
-                                            String rootDirPath, Properties properties) {
+                                            String rootDirPath, Properties properties, ForkJoinPool pool) {
 
         File messageStoresDir = new File(rootDirPath, MESSAGE_STORE_DIR);
         if (messageStoresDir.exists() ) {
@@ -483,13 +514,12 @@ public class MultiXMLConfigurationBuilder {
                 log.debug("Loading Message Stores from :" + messageStoresDir.getPath());
             }
 
-            Iterator messageStores = FileUtils.iterateFiles(messageStoresDir, extensions, false);
-            while (messageStores.hasNext()) {
-                File file = (File) messageStores.next();
+            for (ArtifactFile artifact : listArtifacts(messageStoresDir, pool)) {
+                File file = artifact.getFile();
 
                 OMElement document = null;
                 try {
-                    document = getOMElement(file);
+                    document = artifact.getDocument();
                 } catch (Exception e) {
                     String msg = "Error while building Message Store configuration from file : " + file.getName();
                     handleConfigurationError(SynapseConstants.FAIL_SAFE_MODE_MESSAGE_STORES, msg, e);
@@ -509,7 +539,7 @@ public class MultiXMLConfigurationBuilder {
     }
 
     private static void createMessageProcessors(SynapseConfiguration synapseConfig,
-                                            String rootDirPath, Properties properties) {
+                                            String rootDirPath, Properties properties, ForkJoinPool pool) {
 
         File messageProcessorDir = new File(rootDirPath, MESSAGE_PROCESSOR_DIR);
         if (messageProcessorDir.exists()) {
@@ -517,13 +547,12 @@ public class MultiXMLConfigurationBuilder {
                 log.debug("Loading Message Processors from :" + messageProcessorDir.getPath());
             }
 
-            Iterator messageProcessors = FileUtils.iterateFiles(messageProcessorDir, extensions, false);
-            while (messageProcessors.hasNext()) {
-                File file = (File) messageProcessors.next();
+            for (ArtifactFile artifact : listArtifacts(messageProcessorDir, pool)) {
+                File file = artifact.getFile();
 
                 OMElement document = null;
                 try {
-                    document = getOMElement(file);
+                    document = artifact.getDocument();
                 } catch (Exception e) {
                     String msg = "Error while building Message Processor configuration from file : " + file.getName();
                     handleConfigurationError(SynapseConstants.FAIL_SAFE_MODE_MESSAGE_PROCESSORS, msg, e);
@@ -542,19 +571,18 @@ public class MultiXMLConfigurationBuilder {
         }
     }
 
-    private static void createSynapseImports(SynapseConfiguration synapseConfig, String root, Properties properties) {
+    private static void createSynapseImports(SynapseConfiguration synapseConfig, String root, Properties properties, ForkJoinPool pool) {
         File synImportsDir = new File(root, SYNAPSE_IMPORTS_DIR);
         if (synImportsDir.exists()) {
             if (log.isDebugEnabled()) {
                 log.debug("Loading Synapse Imports from :" + synImportsDir.getPath());
             }
-            Iterator synImports = FileUtils.iterateFiles(synImportsDir, extensions, false);
-            while (synImports.hasNext()) {
-                File file = (File) synImports.next();
+            for (ArtifactFile artifact : listArtifacts(synImportsDir, pool)) {
+                File file = artifact.getFile();
 
                 OMElement document = null;
                 try {
-                    document = getOMElement(file);
+                    document = artifact.getDocument();
                 } catch (Exception e) {
                     String msg = "Error while building Synapse Import configuration from file : " + file.getName();
                     handleConfigurationError(SynapseConstants.FAIL_SAFE_MODE_IMPORTS, msg, e);
@@ -574,7 +602,7 @@ public class MultiXMLConfigurationBuilder {
 
     }
 
-    private static void createAPIs(SynapseConfiguration synapseConfig, String rootDirPath) {
+    private static void createAPIs(SynapseConfiguration synapseConfig, String rootDirPath, ForkJoinPool pool) {
 
         File apiDir = new File(rootDirPath, REST_API_DIR);
         if (apiDir.exists()) {
@@ -582,13 +610,12 @@ public class MultiXMLConfigurationBuilder {
                 log.debug("Loading APIs from :" + apiDir.getPath());
             }
 
-            Iterator apiIterator = FileUtils.iterateFiles(apiDir, extensions, false);
-            while (apiIterator.hasNext()) {
-                File file = (File) apiIterator.next();
+            for (ArtifactFile artifact : listArtifacts(apiDir, pool)) {
+                File file = artifact.getFile();
 
                 OMElement document = null;
                 try {
-                    document = getOMElement(file);
+                    document = artifact.getDocument();
                 } catch (Exception e) {
                     String msg = "Error while building API configuration from file : " + file.getName();
                     handleConfigurationError(SynapseConstants.FAIL_SAFE_MODE_APIS, msg, e);
@@ -606,6 +633,26 @@ public class MultiXMLConfigurationBuilder {
         }
     }
 
+    /**
+     * Lists the artifact files of the given directory sorted by their names, so that the
+     * artifacts are added to the configuration in the same order on every startup. If a pool
+     * is given, all the files are handed over to it to be parsed in the background.
+     */
+    private static List<ArtifactFile> listArtifacts(File dir, ForkJoinPool pool) {
+        List<File> files = new ArrayList<File>(FileUtils.listFiles(dir, extensions, false));
+        Collections.sort(files);
+
+        List<ArtifactFile> artifacts = new ArrayList<ArtifactFile>(files.size());
+        for (File file : files) {
+            ArtifactFile artifact = new ArtifactFile(file);
+            if (pool != null) {
+                pool.execute(artifact.parser);
+            }
+            artifacts.add(artifact);
+        }
+        return artifacts;
+    }
+
     private static OMElement getOMElement(File file) {
         FileInputStream is;
         try {
@@ -626,6 +673,47 @@ public class MultiXMLConfigurationBuilder {
         return document;
     }
 
+    /**
+     * An artifact file, along with the task which parses it
+     */
+    private static class ArtifactFile {
+
+        private final File file;
+        private final FutureTask<OMElement> parser;
+
+        ArtifactFile(final File file) {
+            this.file = file;
+            this.parser = new FutureTask<OMElement>(new Callable<OMElement>() {
+                @Override
+                public OMElement call() {
+                    return getOMElement(file);
+                }
+            });
+        }
+
+        File getFile() {
+            return file;
+        }
+
+        OMElement getDocument() throws Exception {
+            // parse the file right here, unless a pool thread has already picked it up
+            parser.run();
+            try {
+                return parser.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                }
+                throw e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SynapseException("Interrupted while parsing the file : " +
+                        file.getName(), e);
+            }
+        }
+    }
+
     private static void handleException(String msg, Exception e) {
         log.error(msg, e);
         throw new SynapseException(msg, e);
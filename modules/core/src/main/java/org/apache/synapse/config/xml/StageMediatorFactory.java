@@ -0,0 +1,124 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.config.xml;
+
+import org.apache.axiom.om.OMElement;
+import org.apache.synapse.Mediator;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.mediators.seda.StageMediator;
+
+import javax.xml.namespace.QName;
+import java.util.Properties;
+
+/**
+ * Factory for {@link StageMediator} instances.
+ * <pre>
+ * &lt;stage name="string" sequence="string" [queueSize="int"] [minWorkers="int"]
+ *        [maxWorkers="int"] [targetLatency="ms"] [keepAlive="ms"]
+ *        [onReject="drop|caller-runs|fault"]/&gt;
+ * </pre>
+ */
+public class StageMediatorFactory extends AbstractMediatorFactory {
+
+    public static final QName STAGE_Q = new QName(SynapseConstants.SYNAPSE_NAMESPACE, "stage");
+    public static final QName QUEUE_SIZE_ATT = new QName("queueSize");
+    public static final QName MIN_WORKERS_ATT = new QName("minWorkers");
+    public static final QName MAX_WORKERS_ATT = new QName("maxWorkers");
+    public static final QName TARGET_LATENCY_ATT = new QName("targetLatency");
+    public static final QName KEEP_ALIVE_ATT = new QName("keepAlive");
+    public static final QName ON_REJECT_ATT = new QName("onReject");
+
+    @Override
+    public Mediator createSpecificMediator(OMElement elem, Properties properties) {
+        StageMediator mediator = new StageMediator();
+
+        String name = elem.getAttributeValue(ATT_NAME);
+        if (name != null && !"".equals(name.trim())) {
+            mediator.setName(name.trim());
+        } else {
+            handleException("name is a required attribute for the stage mediator");
+        }
+
+        String sequence = elem.getAttributeValue(ATT_SEQUENCE);
+        if (sequence != null && !"".equals(sequence.trim())) {
+            mediator.setSequenceName(sequence.trim());
+        } else {
+            handleException("sequence is a required attribute for the stage mediator");
+        }
+
+        String value = elem.getAttributeValue(QUEUE_SIZE_ATT);
+        if (value != null) {
+            mediator.setQueueSize((int) parseNumber(QUEUE_SIZE_ATT, value));
+        }
+        value = elem.getAttributeValue(MIN_WORKERS_ATT);
+        if (value != null) {
+            mediator.setMinWorkers((int) parseNumber(MIN_WORKERS_ATT, value));
+        }
+        value = elem.getAttributeValue(MAX_WORKERS_ATT);
+        if (value != null) {
+            mediator.setMaxWorkers((int) parseNumber(MAX_WORKERS_ATT, value));
+        }
+        value = elem.getAttributeValue(TARGET_LATENCY_ATT);
+        if (value != null) {
+            mediator.setTargetLatency(parseNumber(TARGET_LATENCY_ATT, value));
+        }
+        value = elem.getAttributeValue(KEEP_ALIVE_ATT);
+        if (value != null) {
+            mediator.setKeepAlive(parseNumber(KEEP_ALIVE_ATT, value));
+        }
+
+        if (mediator.getQueueSize() <= 0 || mediator.getMaxWorkers() <= 0 ||
+                mediator.getMinWorkers() < 0 ||
+                mediator.getMinWorkers() > mediator.getMaxWorkers()) {
+            handleException("Invalid queue or worker pool configuration for the stage : " + name);
+        }
+
+        String onReject = elem.getAttributeValue(ON_REJECT_ATT);
+        if (onReject != null) {
+            onReject = onReject.trim();
+            if (StageMediator.REJECT_DROP.equals(onReject) ||
+                    StageMediator.REJECT_CALLER_RUNS.equals(onReject) ||
+                    StageMediator.REJECT_FAULT.equals(onReject)) {
+                mediator.setRejectionPolicy(onReject);
+            } else {
+                handleException("Unknown rejection policy : " + onReject + " for the stage : " +
+                        name);
+            }
+        }
+
+        processAuditStatus(mediator, elem);
+        return mediator;
+    }
+
+    private long parseNumber(QName attribute, String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            handleException("Invalid value : " + value + " for the attribute : " +
+                    attribute.getLocalPart() + " of the stage mediator");
+        }
+        return -1;
+    }
+
+    @Override
+    public QName getTagQName() {
+        return STAGE_Q;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.config.xml;
+
+import org.apache.axiom.om.OMElement;
+import org.apache.synapse.Mediator;
+import org.apache.synapse.mediators.seda.StageMediator;
+
+/**
+ * Serializer for {@link StageMediator} instances.
+ *
+ * @see StageMediatorFactory
+ */
+public class StageMediatorSerializer extends AbstractMediatorSerializer {
+
+    @Override
+    public OMElement serializeSpecificMediator(Mediator m) {
+        assert m instanceof StageMediator :
+                "Unsupported mediator passed in for serialization : " + m.getType();
+
+        StageMediator mediator = (StageMediator) m;
+        OMElement stage = fac.createOMElement("stage", synNS);
+        saveTracingState(stage, mediator);
+
+        if (mediator.getName() != null) {
+            stage.addAttribute(fac.createOMAttribute("name", nullNS, mediator.getName()));
+        } else {
+            handleException("Invalid stage mediator. name is required");
+        }
+
+        if (mediator.getSequenceName() != null) {
+            stage.addAttribute(fac.createOMAttribute(
+                    "sequence", nullNS, mediator.getSequenceName()));
+        } else {
+            handleException("Invalid stage mediator. sequence is required");
+        }
+
+        if (mediator.getQueueSize() != StageMediator.DEFAULT_QUEUE_SIZE) {
+            stage.addAttribute(fac.createOMAttribute(
+                    "queueSize", nullNS, Integer.toString(mediator.getQueueSize())));
+        }
+        if (mediator.getMinWorkers() != StageMediator.DEFAULT_MIN_WORKERS) {
+            stage.addAttribute(fac.createOMAttribute(
+                    "minWorkers", nullNS, Integer.toString(mediator.getMinWorkers())));
+        }
+        if (mediator.getMaxWorkers() != StageMediator.DEFAULT_MAX_WORKERS) {
+            stage.addAttribute(fac.createOMAttribute(
+                    "maxWorkers", nullNS, Integer.toString(mediator.getMaxWorkers())));
+        }
+        if (mediator.getTargetLatency() != StageMediator.DEFAULT_TARGET_LATENCY) {
+            stage.addAttribute(fac.createOMAttribute(
+                    "targetLatency", nullNS, Long.toString(mediator.getTargetLatency())));
+        }
+        if (mediator.getKeepAlive() != StageMediator.DEFAULT_KEEP_ALIVE) {
+            stage.addAttribute(fac.createOMAttribute(
+                    "keepAlive", nullNS, Long.toString(mediator.getKeepAlive())));
+        }
+        if (!StageMediator.REJECT_DROP.equals(mediator.getRejectionPolicy())) {
+            stage.addAttribute(fac.createOMAttribute(
+                    "onReject", nullNS, mediator.getRejectionPolicy()));
+        }
+
+        return stage;
+    }
+
+    @Override
+    public String getMediatorClassName() {
+        return StageMediator.class.getName();
+    }
+}
@@ -26,6 +26,7 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.SynapseConstants;
 import org.apache.synapse.SynapseException;
 import org.apache.synapse.config.xml.XMLConfigConstants;
+import org.apache.synapse.endpoints.AdaptiveConcurrencyLimiter;
 import org.apache.synapse.endpoints.EndpointDefinition;
 
 import javax.xml.namespace.QName;
@@ -128,6 +129,44 @@ public class EndpointDefinitionFactory implements DefinitionFactory {
             }
         }
 
+        OMElement http2 = elem.getFirstChildWithName(
+                new QName(XMLConfigConstants.SYNAPSE_NAMESPACE, "enableHttp2"));
+        if (http2 != null) {
+            definition.setUseHttp2(true);
+        }
+
+        OMElement concurrency = elem.getFirstChildWithName(
+                new QName(XMLConfigConstants.SYNAPSE_NAMESPACE, "adaptiveConcurrency"));
+        if (concurrency != null) {
+            String algorithm = concurrency.getAttributeValue(new QName("algorithm"));
+            if (algorithm == null) {
+                handleException("The algorithm attribute is required for the " +
+                        "adaptiveConcurrency element");
+            }
+            definition.setConcurrencyAlgorithm(algorithm.trim());
+            try {
+                String initialLimit = concurrency.getAttributeValue(new QName("initialLimit"));
+                if (initialLimit != null) {
+                    definition.setConcurrencyInitialLimit(Integer.parseInt(initialLimit.trim()));
+                }
+                String minLimit = concurrency.getAttributeValue(new QName("minLimit"));
+                if (minLimit != null) {
+                    definition.setConcurrencyMinLimit(Integer.parseInt(minLimit.trim()));
+                }
+                String maxLimit = concurrency.getAttributeValue(new QName("maxLimit"));
+                if (maxLimit != null) {
+                    definition.setConcurrencyMaxLimit(Integer.parseInt(maxLimit.trim()));
+                }
+                // validate the configuration before the endpoint is initialized
+                new AdaptiveConcurrencyLimiter(definition.getConcurrencyAlgorithm(),
+                        definition.getConcurrencyInitialLimit(),
+                        definition.getConcurrencyMinLimit(), definition.getConcurrencyMaxLimit());
+            } catch (IllegalArgumentException e) {
+                handleException("Invalid adaptive concurrency configuration : " +
+                        e.getMessage(), e);
+            }
+        }
+
         // set the timeout configuration
         OMElement timeout = elem.getFirstChildWithName(
                 new QName(XMLConfigConstants.SYNAPSE_NAMESPACE, "timeout"));
@@ -25,6 +25,7 @@ import org.apache.axiom.om.OMFactory;
 import org.apache.synapse.SynapseConstants;
 import org.apache.synapse.aspects.statistics.StatisticsConfigurable;
 import org.apache.synapse.config.xml.XMLConfigConstants;
+import org.apache.synapse.endpoints.AdaptiveConcurrencyLimiter;
 import org.apache.synapse.endpoints.EndpointDefinition;
 
 public class EndpointDefinitionSerializer {
@@ -96,6 +97,34 @@ public class EndpointDefinitionSerializer {
             element.addChild(sec);
         }
 
+        if (endpointDefinition.isUseHttp2()) {
+            element.addChild(fac.createOMElement(
+                    "enableHttp2", SynapseConstants.SYNAPSE_OMNAMESPACE));
+        }
+
+        if (endpointDefinition.getConcurrencyAlgorithm() != null) {
+            OMElement concurrency = fac.createOMElement(
+                    "adaptiveConcurrency", SynapseConstants.SYNAPSE_OMNAMESPACE);
+            concurrency.addAttribute(fac.createOMAttribute(
+                    "algorithm", null, endpointDefinition.getConcurrencyAlgorithm()));
+            if (endpointDefinition.getConcurrencyInitialLimit() !=
+                    AdaptiveConcurrencyLimiter.DEFAULT_INITIAL_LIMIT) {
+                concurrency.addAttribute(fac.createOMAttribute("initialLimit", null,
+                        Integer.toString(endpointDefinition.getConcurrencyInitialLimit())));
+            }
+            if (endpointDefinition.getConcurrencyMinLimit() !=
+                    AdaptiveConcurrencyLimiter.DEFAULT_MIN_LIMIT) {
+                concurrency.addAttribute(fac.createOMAttribute("minLimit", null,
+                        Integer.toString(endpointDefinition.getConcurrencyMinLimit())));
+            }
+            if (endpointDefinition.getConcurrencyMaxLimit() !=
+                    AdaptiveConcurrencyLimiter.DEFAULT_MAX_LIMIT) {
+                concurrency.addAttribute(fac.createOMAttribute("maxLimit", null,
+                        Integer.toString(endpointDefinition.getConcurrencyMaxLimit())));
+            }
+            element.addChild(concurrency);
+        }
+
         if (endpointDefinition.getTimeoutAction() != SynapseConstants.NONE ||
                 endpointDefinition.getTimeoutDuration() > 0) {
 
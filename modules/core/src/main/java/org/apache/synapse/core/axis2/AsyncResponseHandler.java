@@ -0,0 +1,39 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.core.axis2;
+
+import org.apache.synapse.MessageContext;
+
+/**
+ * Receives the response of a message sent by a non-blocking mediator. When the outgoing
+ * message carries a handler under the {@link org.apache.synapse.SynapseConstants#ASYNC_RESPONSE_HANDLER}
+ * property, the {@link SynapseCallbackReceiver} hands the response over to it instead of
+ * injecting the response into the mediation engine. Faults and timeouts are reported through
+ * the fault stack of the outgoing message as usual.
+ */
+public interface AsyncResponseHandler {
+
+    /**
+     * Handle the response received for the outgoing message
+     *
+     * @param response the Synapse message context of the response
+     */
+    void handleResponse(MessageContext response);
+}
@@ -41,6 +41,7 @@ import org.apache.synapse.SynapseConstants;
 import org.apache.synapse.endpoints.EndpointDefinition;
 import org.apache.synapse.rest.RESTConstants;
 import org.apache.synapse.transport.nhttp.NhttpConstants;
+import org.apache.synapse.transport.passthru.PassThroughConstants;
 import org.apache.synapse.util.MessageHelper;
 
 import javax.xml.namespace.QName;
@@ -101,6 +102,7 @@ public class Axis2FlexibleMEPClient {
                 (endpoint != null ?
                     "] [mtom = " + endpoint.isUseMTOM() +
                     "] [swa = " + endpoint.isUseSwa() +
+                    "] [http2 = " + endpoint.isUseHttp2() +
                     "] [format = " + endpoint.getFormat() +
                     "] [force soap11=" + endpoint.isForceSOAP11() +
                     "] [force soap12=" + endpoint.isForceSOAP12() +
@@ -371,6 +373,11 @@ public class Axis2FlexibleMEPClient {
             axisOutMsgCtx.setProperty(SynapseConstants.SEND_TIMEOUT, endpoint.getTimeoutDuration());
         }
 
+        // ask the pass-through sender to talk HTTP/2 to this endpoint
+        if (endpoint != null && endpoint.isUseHttp2()) {
+            axisOutMsgCtx.setProperty(PassThroughConstants.FORCE_HTTP_2, Boolean.TRUE);
+        }
+
         if (!outOnlyMessage) {
             // always set a callback as we decide if the send it blocking or non blocking within
             // the MEP client. This does not cause an overhead, as we simply create a 'holder'
@@ -43,6 +43,7 @@ import org.apache.synapse.aspects.statistics.StatisticsReporter;
 import org.apache.synapse.commons.jmx.MBeanRegistrar;
 import org.apache.synapse.config.SynapseConfigUtils;
 import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.endpoints.AdaptiveConcurrencyLimiter;
 import org.apache.synapse.endpoints.Endpoint;
 import org.apache.synapse.endpoints.dispatch.Dispatcher;
 import org.apache.synapse.transport.nhttp.NhttpConstants;
@@ -182,7 +183,11 @@ public class SynapseCallbackReceiver implements MessageReceiver {
         if (messageCtx.getProperty(NhttpConstants.HTTP_202_RECEIVED) != null && "true".equals(
                 messageCtx.getProperty(NhttpConstants.HTTP_202_RECEIVED))) {
             if (callbackStore.containsKey(messageCtx.getMessageID())) {
-                callbackStore.remove(messageCtx.getMessageID());
+                AsyncCallback callback =
+                        (AsyncCallback) callbackStore.remove(messageCtx.getMessageID());
+                if (callback != null) {
+                    AdaptiveConcurrencyLimiter.complete(callback.getSynapseOutMsgCtx(), false);
+                }
                 if (log.isDebugEnabled()) {
                     log.debug("CallBack registered with Message id : " + messageCtx.getMessageID() +
                             " removed from the " +
@@ -269,6 +274,8 @@ public class SynapseCallbackReceiver implements MessageReceiver {
 
             StatisticsReporter.reportFaultForAll(synapseOutMsgCtx,
                     ErrorLogFactory.createErrorLog(response));
+            // give back the access to the endpoint before the message may be retried elsewhere
+            AdaptiveConcurrencyLimiter.complete(synapseOutMsgCtx, true);
             // there is a sending fault. propagate the fault to fault handlers.
 
             Stack faultStack = synapseOutMsgCtx.getFaultStack();
@@ -303,9 +310,11 @@ public class SynapseCallbackReceiver implements MessageReceiver {
                 int errorCode = (Integer)response.getProperty(SynapseConstants.ERROR_CODE);
 
                 // If a timeout has occurred and the timeout action of the callback is to
-                // discard the message
+                // discard the message, unless a suspended flow is waiting for the outcome
                 if (errorCode == SynapseConstants.NHTTP_CONNECTION_TIMEOUT &&
-                        callback.getTimeOutAction() == SynapseConstants.DISCARD) {
+                        callback.getTimeOutAction() == SynapseConstants.DISCARD &&
+                        synapseOutMsgCtx.getProperty(
+                                SynapseConstants.ASYNC_RESPONSE_HANDLER) == null) {
                     // Do not execute any fault sequences. Discard message
                     log.warn("Synapse timed out for the request with Message ID : " + messageID +
                             ". Ignoring fault handlers since the timeout action is DISCARD.");
@@ -317,6 +326,8 @@ public class SynapseCallbackReceiver implements MessageReceiver {
 
         } else {
 
+            AdaptiveConcurrencyLimiter.complete(synapseOutMsgCtx, false);
+
             // there can always be only one instance of an Endpoint in the faultStack of a message
             // if the send was successful, so remove it before we proceed any further
             Stack faultStack = synapseOutMsgCtx.getFaultStack();
@@ -456,6 +467,14 @@ public class SynapseCallbackReceiver implements MessageReceiver {
             }
 
             StatisticsReporter.reportForAllOnResponseReceived(synapseInMessageContext);
+
+            // hand the response over to the mediator which is waiting for it, if any
+            AsyncResponseHandler responseHandler = (AsyncResponseHandler)
+                    synapseOutMsgCtx.getProperty(SynapseConstants.ASYNC_RESPONSE_HANDLER);
+            if (responseHandler != null) {
+                responseHandler.handleResponse(synapseInMessageContext);
+                return;
+            }
             
             // send the response message through the synapse mediation flow
             try {
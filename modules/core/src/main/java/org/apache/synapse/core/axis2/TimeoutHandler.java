@@ -28,6 +28,7 @@ import org.apache.synapse.ServerContextInformation;
 import org.apache.synapse.aspects.statistics.StatisticsCleaner;
 import org.apache.synapse.aspects.statistics.StatisticsCollector;
 import org.apache.synapse.config.SynapseConfigUtils;
+import org.apache.synapse.endpoints.AdaptiveConcurrencyLimiter;
 import org.apache.synapse.endpoints.dispatch.SALSessions;
 
 import java.util.Map;
@@ -128,28 +129,14 @@ public class TimeoutHandler extends TimerTask {
 
                         if (callback.getTimeOutOn() <= currentTime) {
                             callbackStore.remove(key);
+                            AdaptiveConcurrencyLimiter.complete(
+                                    callback.getSynapseOutMsgCtx(), true);
 
-                            if (callback.getTimeOutAction() == SynapseConstants.DISCARD_AND_FAULT) {
+                            if (callback.getTimeOutAction() == SynapseConstants.DISCARD_AND_FAULT
+                                    || isAwaited(callback)) {
 
                                 // actiavte the fault sequence of the current sequence mediator
-                                MessageContext msgContext = callback.getSynapseOutMsgCtx();
-
-                                // add an error code to the message context, so that error sequences
-                                // can identify the cause of error
-                                msgContext.setProperty(SynapseConstants.ERROR_CODE,
-                                        SynapseConstants.HANDLER_TIME_OUT);
-                                msgContext.setProperty(SynapseConstants.ERROR_MESSAGE,
-                                        SEND_TIMEOUT_MESSAGE);
-
-                                Stack faultStack = msgContext.getFaultStack();
-
-                                for (int j = 0; j < faultStack.size(); j++) {
-                                    Object o = faultStack.pop();
-                                    if (o instanceof FaultHandler) {
-                                        ((FaultHandler) o).handleFault(msgContext);
-                                    }
-                                }
-
+                                fault(callback.getSynapseOutMsgCtx());
                             }
                         }
 
@@ -157,12 +144,43 @@ public class TimeoutHandler extends TimerTask {
                         log.warn("Expiring message ID : " + key + "; dropping message after " +
                                 "global timeout of : " + (globalTimeout / 1000) + " seconds");
                         callbackStore.remove(key);
+                        AdaptiveConcurrencyLimiter.complete(callback.getSynapseOutMsgCtx(), true);
+                        if (isAwaited(callback)) {
+                            fault(callback.getSynapseOutMsgCtx());
+                        }
                     }
                 }
             }
         }
     }
 
+    private void fault(MessageContext msgContext) {
+        // add an error code to the message context, so that error sequences
+        // can identify the cause of error
+        msgContext.setProperty(SynapseConstants.ERROR_CODE,
+                SynapseConstants.HANDLER_TIME_OUT);
+        msgContext.setProperty(SynapseConstants.ERROR_MESSAGE,
+                SEND_TIMEOUT_MESSAGE);
+
+        Stack faultStack = msgContext.getFaultStack();
+
+        for (int j = 0; j < faultStack.size(); j++) {
+            Object o = faultStack.pop();
+            if (o instanceof FaultHandler) {
+                ((FaultHandler) o).handleFault(msgContext);
+            }
+        }
+    }
+
+    /**
+     * A mediation flow suspended by a non-blocking mediator waits for the outcome of the
+     * message, so it must be faulted on a timeout regardless of the timeout action
+     */
+    private boolean isAwaited(AsyncCallback callback) {
+        return callback.getSynapseOutMsgCtx().getProperty(
+                SynapseConstants.ASYNC_RESPONSE_HANDLER) != null;
+    }
+
     /**
      * Returns the current time.
      *
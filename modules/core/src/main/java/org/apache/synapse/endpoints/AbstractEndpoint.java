@@ -92,6 +92,9 @@ public abstract class AbstractEndpoint extends FaultHandler implements Endpoint,
 
     private boolean contentAware = false;
 
+    /** Limits the requests in flight to this endpoint - if adaptive concurrency is configured */
+    private AdaptiveConcurrencyLimiter concurrencyLimiter = null;
+
     protected AbstractEndpoint() {
         log = LogFactory.getLog(this.getClass());
     }
@@ -118,6 +121,10 @@ public abstract class AbstractEndpoint extends FaultHandler implements Endpoint,
         return initialized;
     }
 
+    public AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
     public EndpointDefinition getDefinition() {
         return definition;
     }
@@ -221,6 +228,13 @@ public abstract class AbstractEndpoint extends FaultHandler implements Endpoint,
 
             context = new EndpointContext(getName(), getDefinition(), isClusteringEnabled,
                     cc, metricsMBean);
+
+            if (definition != null && definition.getConcurrencyAlgorithm() != null) {
+                concurrencyLimiter = new AdaptiveConcurrencyLimiter(
+                        definition.getConcurrencyAlgorithm(),
+                        definition.getConcurrencyInitialLimit(),
+                        definition.getConcurrencyMinLimit(), definition.getConcurrencyMaxLimit());
+            }
         }
         initialized = true;
 
@@ -235,8 +249,23 @@ public abstract class AbstractEndpoint extends FaultHandler implements Endpoint,
                 definition.isSecurityOn() || definition.isAddressingOn());
     }
 
+    /**
+     * An endpoint which already has as many requests in flight as its concurrency limit allows
+     * is not ready to send, so that load balance and failover parents move on to another child
+     * instead of retrying the saturated one over and over
+     */
     @Override
     public boolean readyToSend() {
+        return isEndpointReady() &&
+                (concurrencyLimiter == null || concurrencyLimiter.hasCapacity());
+    }
+
+    /**
+     * Checks whether this endpoint is active, regardless of the requests it has in flight
+     *
+     * @return true if the endpoint is neither suspended nor timed out
+     */
+    protected boolean isEndpointReady() {
         if (!initialized) {
             //can't send to a non-initialized endpoint. This is a program fault
             throw new IllegalStateException("not initialized, " +
@@ -258,6 +287,12 @@ public abstract class AbstractEndpoint extends FaultHandler implements Endpoint,
                     "endpoint must be in initialized state");
         }
 
+        // shed the request if the endpoint already has as many requests in flight as it can take
+        if (concurrencyLimiter != null && !concurrencyLimiter.tryAcquire(synCtx)) {
+            shed(synCtx);
+            return;
+        }
+
         prepareForEndpointStatistics(synCtx);
 
         if (traceOrDebugOn) {
@@ -326,7 +361,17 @@ public abstract class AbstractEndpoint extends FaultHandler implements Endpoint,
         }
 
         // Send the message through this endpoint
-        synCtx.getEnvironment().send(definition, synCtx);
+        try {
+            synCtx.getEnvironment().send(definition, synCtx);
+        } catch (RuntimeException e) {
+            AdaptiveConcurrencyLimiter.complete(synCtx, true);
+            throw e;
+        }
+        if (concurrencyLimiter != null &&
+                "true".equals(synCtx.getProperty(SynapseConstants.OUT_ONLY))) {
+            // there will be no response to give the access back
+            AdaptiveConcurrencyLimiter.release(synCtx);
+        }
     }
 
     /**
@@ -581,6 +626,26 @@ public abstract class AbstractEndpoint extends FaultHandler implements Endpoint,
     }
 
 
+    /**
+     * Fails a request which is above the concurrency limit of this endpoint, without
+     * suspending the endpoint. The error code is set as a number, as it is for sending faults,
+     * since a load balance or failover parent reads it before retrying on another child
+     *
+     * @param synCtx the request which cannot be sent
+     */
+    private void shed(MessageContext synCtx) {
+        String errorMsg = "Concurrency limit of " + concurrencyLimiter.getLimit() +
+                " requests reached for : " + this;
+        log.warn("Endpoint failure - Error Code: " +
+                SynapseConstants.ENDPOINT_CONCURRENCY_LIMIT_REACHED +
+                ", Error Message: " + errorMsg);
+        synCtx.setProperty(SynapseConstants.ERROR_CODE,
+                SynapseConstants.ENDPOINT_CONCURRENCY_LIMIT_REACHED);
+        synCtx.setProperty(SynapseConstants.ERROR_MESSAGE, errorMsg);
+        synCtx.setProperty(SynapseConstants.ERROR_DETAIL, errorMsg);
+        invokeNextFaultHandler(synCtx);
+    }
+
     protected void setErrorOnMessage(MessageContext synCtx, String errorCode, String errorMsg) {
 
         synCtx.setProperty(SynapseConstants.ERROR_CODE, errorCode);
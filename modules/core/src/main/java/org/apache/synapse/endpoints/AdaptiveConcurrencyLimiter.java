@@ -0,0 +1,286 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.endpoints;
+
+import org.apache.synapse.MessageContext;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the number of requests in flight to an endpoint, to a limit which adapts itself to
+ * the round trip times of the responses. The limit grows while the endpoint keeps up, and
+ * shrinks as soon as it slows down or starts failing, so that a struggling backend is not
+ * flooded with requests until the timeouts pile up. Two algorithms are supported:
+ * <ul>
+ *  <li>aimd - the limit grows by one for each round trip of a full window of requests, and
+ *      is cut down by a constant ratio on each timeout or sending fault</li>
+ *  <li>gradient - the limit follows the ratio of the long term round trip time to the round
+ *      trip time of each response, which drops below one as soon as requests start queueing
+ *      in the backend</li>
+ * </ul>
+ * The access taken by a request is kept on the message, and given back when its response, its
+ * sending fault or its timeout is received.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    /** Additive increase, multiplicative decrease */
+    public static final String AIMD = "aimd";
+
+    /** Follows the gradient of the round trip time */
+    public static final String GRADIENT = "gradient";
+
+    public static final int DEFAULT_INITIAL_LIMIT = 20;
+    public static final int DEFAULT_MIN_LIMIT = 1;
+    public static final int DEFAULT_MAX_LIMIT = 200;
+
+    /** The message property holding the access taken by a request */
+    private static final String PERMIT_PROPERTY = "synapse.endpoint.concurrency.permit";
+
+    /** The ratio the limit is cut down by on a timeout or a sending fault */
+    private static final double BACKOFF_RATIO = 0.9;
+    /** How much slower than the long term round trip time a response may be */
+    private static final double RTT_TOLERANCE = 1.5;
+    /** The weight of a sample in the smoothed round trip time */
+    private static final double SHORT_RTT_WEIGHT = 0.1;
+    /** The weight of a sample in the long term round trip time */
+    private static final double LONG_RTT_WEIGHT = 0.01;
+    /** The weight of a new estimate in the limit of the gradient algorithm */
+    private static final double LIMIT_SMOOTHING = 0.2;
+
+    private final String algorithm;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+
+    private volatile double limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong shedCount = new AtomicLong();
+
+    /* round trip times in nanoseconds, updated while holding the lock of this limiter */
+    private volatile long minRtt = Long.MAX_VALUE;
+    private volatile double smoothedRtt = 0;
+    private double longRtt = 0;
+
+    /**
+     * Creates an adaptive concurrency limiter
+     *
+     * @param algorithm the algorithm to use, either {@link #AIMD} or {@link #GRADIENT}
+     * @param initialLimit the number of requests allowed in flight at the start
+     * @param minLimit the lowest limit the algorithm may set
+     * @param maxLimit the highest limit the algorithm may set
+     * @throws IllegalArgumentException if the algorithm or the limits are not valid
+     */
+    public AdaptiveConcurrencyLimiter(String algorithm, int initialLimit, int minLimit,
+                                      int maxLimit) {
+        if (!AIMD.equals(algorithm) && !GRADIENT.equals(algorithm)) {
+            throw new IllegalArgumentException("Unknown concurrency limiting algorithm : " +
+                    algorithm);
+        }
+        if (minLimit <= 0 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("The concurrency limits must be positive, " +
+                    "with minLimit <= initialLimit <= maxLimit");
+        }
+        this.algorithm = algorithm;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Takes an access for the given request, if the limit has not been reached
+     *
+     * @param synCtx the request to be sent
+     * @return true if the request may be sent, o.w. false if it should be shed
+     */
+    public boolean tryAcquire(MessageContext synCtx) {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                shedCount.incrementAndGet();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                break;
+            }
+        }
+        synCtx.setProperty(PERMIT_PROPERTY, new Permit(this, System.nanoTime()));
+        return true;
+    }
+
+    /**
+     * Checks whether another request may be sent without reaching the limit
+     *
+     * @return true if the number of requests in flight is below the limit
+     */
+    public boolean hasCapacity() {
+        return inFlight.get() < (int) limit;
+    }
+
+    /**
+     * Gives back the access taken by a request once its outcome is known, and adjusts the
+     * limit of the endpoint the request was sent to
+     *
+     * @param synCtx the request which has been sent
+     * @param dropped true if the request timed out or could not be sent, o.w. false if a
+     *                response has been received
+     */
+    public static void complete(MessageContext synCtx, boolean dropped) {
+        Permit permit = takePermit(synCtx);
+        if (permit != null) {
+            permit.limiter.onSample(System.nanoTime() - permit.sentAt, dropped);
+        }
+    }
+
+    /**
+     * Gives back the access taken by a request without adjusting the limit, for requests
+     * which will not get any response
+     *
+     * @param synCtx the request which has been sent
+     */
+    public static void release(MessageContext synCtx) {
+        Permit permit = takePermit(synCtx);
+        if (permit != null) {
+            permit.limiter.inFlight.decrementAndGet();
+        }
+    }
+
+    private static Permit takePermit(MessageContext synCtx) {
+        Object permit = synCtx.getProperty(PERMIT_PROPERTY);
+        if (permit instanceof Permit) {
+            synCtx.getPropertyKeySet().remove(PERMIT_PROPERTY);
+            return (Permit) permit;
+        }
+        return null;
+    }
+
+    /**
+     * Adjusts the limit with the outcome of a request
+     *
+     * @param rtt the round trip time of the request in nanoseconds
+     * @param dropped true if the request timed out or could not be sent
+     */
+    synchronized void onSample(long rtt, boolean dropped) {
+        // the in flight count is taken before this request leaves it
+        int inFlightCount = inFlight.getAndDecrement();
+        if (dropped) {
+            limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+            return;
+        }
+
+        if (rtt < minRtt) {
+            minRtt = rtt;
+        }
+        if (smoothedRtt == 0) {
+            smoothedRtt = rtt;
+            longRtt = rtt;
+        } else {
+            smoothedRtt += (rtt - smoothedRtt) * SHORT_RTT_WEIGHT;
+            longRtt += (rtt - longRtt) * LONG_RTT_WEIGHT;
+        }
+
+        // do not grow the limit while the endpoint is not even sent half as many requests
+        boolean appLimited = inFlightCount * 2 < limit;
+        double newLimit;
+        if (AIMD.equals(algorithm)) {
+            newLimit = appLimited ? limit : limit + 1 / limit;
+        } else {
+            // recover faster from a long term round trip time inflated by a past slowdown
+            if (longRtt / smoothedRtt > 2) {
+                longRtt *= 0.95;
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * longRtt / rtt));
+            newLimit = limit * gradient + Math.sqrt(limit);
+            if (appLimited && newLimit > limit) {
+                newLimit = limit;
+            }
+            newLimit = limit * (1 - LIMIT_SMOOTHING) + newLimit * LIMIT_SMOOTHING;
+        }
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    /**
+     * Returns the current limit
+     *
+     * @return the number of requests currently allowed in flight
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getShedCount() {
+        return shedCount.get();
+    }
+
+    /**
+     * Returns the lowest round trip time seen
+     *
+     * @return the lowest round trip time in milliseconds, or zero if there is none yet
+     */
+    public double getMinRtt() {
+        long rtt = minRtt;
+        return rtt == Long.MAX_VALUE ? 0 : rtt / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Returns the recent round trip time, as an exponentially weighted moving average
+     *
+     * @return the smoothed round trip time in milliseconds, or zero if there is none yet
+     */
+    public double getSmoothedRtt() {
+        return smoothedRtt / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * The access taken by a request
+     */
+    private static class Permit {
+
+        private final AdaptiveConcurrencyLimiter limiter;
+        private final long sentAt;
+
+        Permit(AdaptiveConcurrencyLimiter limiter, long sentAt) {
+            this.limiter = limiter;
+            this.sentAt = sentAt;
+        }
+    }
+}
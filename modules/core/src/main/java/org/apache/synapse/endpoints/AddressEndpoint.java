@@ -54,7 +54,7 @@ public class AddressEndpoint extends AbstractEndpoint {
     @Override
     public void send(MessageContext synCtx) {
 
-        if (getParentEndpoint() == null && !readyToSend()) {
+        if (getParentEndpoint() == null && !isEndpointReady()) {
             // if the this leaf endpoint is too a root endpoint and is in inactive 
             informFailure(synCtx, SynapseConstants.ENDPOINT_ADDRESS_NONE_READY,
                     "Currently , Address endpoint : " + getContext());
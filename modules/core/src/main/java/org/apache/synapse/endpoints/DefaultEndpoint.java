@@ -52,7 +52,7 @@ public class DefaultEndpoint extends AbstractEndpoint {
 
     @Override
     public void send(MessageContext synCtx) {
-        if (getParentEndpoint() == null && !readyToSend()) {
+        if (getParentEndpoint() == null && !isEndpointReady()) {
             // if the this leaf endpoint is too a root endpoint and is in inactive
             informFailure(synCtx, SynapseConstants.ENDPOINT_ADDRESS_NONE_READY,
                     "Currently , Default endpoint : " + getContext());
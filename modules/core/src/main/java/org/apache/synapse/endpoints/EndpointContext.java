@@ -24,13 +24,31 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.SynapseConstants;
 import org.apache.synapse.SynapseException;
 import org.apache.synapse.util.Replicator;
+import org.apache.synapse.util.UUIDGenerator;
 
+import java.io.Serializable;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * This class is one of the key classes of the Endpoint management in Synapse. It maintains the
  * runtime state of an endpoint for local and clustered endpoint configurations.
+ * <p>
+ * The state, the remaining retries, the number of consecutive suspensions and the next retry
+ * time are packed into a single word, which is changed with compare and set, so that concurrent
+ * failures cannot leave the endpoint with an inconsistent retry count, and so that checking
+ * whether the endpoint is ready to send never takes a lock. In a clustered environment the word
+ * is shared through a single property of the configuration context. It is replicated by a
+ * background thread, and state changes made while a replication is pending are coalesced into
+ * the next one, so that sending a message never waits for the cluster. Each published word is
+ * tagged with the context which published it, so that a context never reads back one of its
+ * own, possibly outdated, words as a change made by another member of the cluster.
  */
 public class EndpointContext {
 
@@ -38,9 +56,6 @@ public class EndpointContext {
 
     private static final String KEY_PREFIX = "synapse.endpoint.";
     private static final String STATE = ".state";
-    private static final String NEXT_RETRY_TIME = ".next_retry_time";
-    private static final String REMAINING_RETRIES = ".remaining_retries";
-    private static final String LAST_SUSPEND_DURATION = ".last_suspend_duration";
 
     // The different states an endpoint could exist at any point in time
     /** And active endpoint known to be functioning properly */
@@ -58,17 +73,39 @@ public class EndpointContext {
      */
     public static final int ST_OFF = 4;
 
-    /** The state of the endpoint at present */
-    private int  localState = ST_ACTIVE;
-    /** The time in ms, until the next retry - depending on a timeout or suspension */
-    private long localNextRetryTime = -1;
-    /** The number of attempts left for timeout failures, until they make the endpoint suspended */
-    private int  localRemainingRetries = -1;
-    /** The duration in ms for the last suspension */
-    private long localLastSuspendDuration = -1;
+    // The layout of the packed state : bits 0-2 hold the state, bits 3-14 the remaining retries
+    // plus one (zero until set), bits 15-20 the consecutive suspensions, and bits 21-62 the next
+    // retry time in ms. The sign bit is never set.
+    private static final int RETRIES_SHIFT = 3;
+    private static final int SUSPENSIONS_SHIFT = 15;
+    private static final int RETRY_TIME_SHIFT = 21;
+    private static final long STATE_MASK = 0x7;
+    private static final long RETRIES_MASK = 0xfff;
+    private static final long SUSPENSIONS_MASK = 0x3f;
+    private static final long MAX_RETRY_TIME = (1L << 42) - 1;
+
+    /** Returned by a transition which has not been made */
+    private static final long NO_TRANSITION = -1;
+
+    /** Replicates the state of the clustered endpoints in the background */
+    private static final ExecutorService replicator = Executors.newSingleThreadExecutor(
+        new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "endpoint-state-replicator");
+                t.setDaemon(true);
+                return t;
+            }
+        }
+    );
+
+    /** The packed state of the endpoint at present */
+    private final AtomicLong state = new AtomicLong(pack(ST_ACTIVE, -1, 0, 0));
 
     /** Is the environment clustered ? */
     private boolean isClustered = false;
+    /** Is the state of this endpoint shared with the cluster ? */
+    private boolean isReplicated = false;
     /** Name of the endpoint - mainly for logging */
     private String endpointName = SynapseConstants.ANONYMOUS_ENDPOINT;
     /** The Axis2 configuration context - to replicate state in a cluster */
@@ -79,11 +116,14 @@ public class EndpointContext {
     /** Metrics bean to notify the state changes */
     private EndpointView metricsBean = null;
 
-    // for clustered mode operation, keys pre-computed and used for replication
+    // for clustered mode operation, key pre-computed and used for replication
     private final String STATE_KEY;
-    private final String NEXT_RETRY_TIME_KEY;
-    private final String REMAINING_RETRIES_KEY;
-    private final String LAST_SUSPEND_DURATION_KEY;
+    /** Identifies the states published by this context */
+    private final String publisherId = UUIDGenerator.getUUID();
+    /** The shared state last seen in the configuration context */
+    private final AtomicReference<Object> seenState = new AtomicReference<Object>();
+    /** Is a replication of the state waiting to be run ? */
+    private final AtomicBoolean replicationPending = new AtomicBoolean(false);
 
     /**
      * Create an EndpointContext to hold runtime state of an Endpoint
@@ -118,18 +158,18 @@ public class EndpointContext {
         this.metricsBean = metricsBean;
 
         STATE_KEY = KEY_PREFIX + endpointName + STATE;
-        NEXT_RETRY_TIME_KEY = KEY_PREFIX + endpointName + NEXT_RETRY_TIME;
-        REMAINING_RETRIES_KEY = KEY_PREFIX + endpointName + REMAINING_RETRIES;
-        LAST_SUSPEND_DURATION_KEY = KEY_PREFIX + endpointName + LAST_SUSPEND_DURATION;
 
         if (isClustered && (endpointDefinition == null ||
                 !endpointDefinition.isReplicationDisabled())) {
             //In a clustered environment, we need to set the state of an Endpoint when it is created.
-            cfgCtx.setNonReplicableProperty(STATE_KEY, ST_ACTIVE);
+            isReplicated = true;
+            SharedState initial = new SharedState(state.get(), publisherId);
+            seenState.set(initial);
+            cfgCtx.setNonReplicableProperty(STATE_KEY, initial);
         }
     }
 
-    private void recordStatistics(int state) {
+    private void recordStatistics(int state, int previousState) {
         if (metricsBean == null) {
             return;
         }
@@ -145,7 +185,7 @@ public class EndpointContext {
             case ST_TIMEOUT:
                 metricsBean.resetConsecutiveSuspensions();
                 metricsBean.incrementTimeouts();
-                if (localState != ST_TIMEOUT) {
+                if (previousState != ST_TIMEOUT) {
                     metricsBean.setTimedoutAt(Calendar.getInstance().getTime());
                     metricsBean.setSuspendedAt(null);
                 }
@@ -154,7 +194,7 @@ public class EndpointContext {
             case ST_SUSPENDED:
                 metricsBean.resetConsecutiveTimeouts();
                 metricsBean.incrementSuspensions();
-                if (localState != ST_SUSPENDED) {
+                if (previousState != ST_SUSPENDED) {
                     metricsBean.setSuspendedAt(Calendar.getInstance().getTime());
                     metricsBean.setTimedoutAt(null);
                 }
@@ -165,126 +205,203 @@ public class EndpointContext {
     /**
      * Update the internal state of the endpoint
      *
-     * @param state the new state of the endpoint
+     * @param newState the new state of the endpoint
      */
-    private void setState(int state) {
-
-        recordStatistics(state);
-
-        if (isClustered) {
-            Replicator.setAndReplicateState(STATE_KEY, state, cfgCtx);
-            if (definition == null) return;
-            switch (state) {
-                case ST_ACTIVE: {
-                    Replicator.setAndReplicateState(REMAINING_RETRIES_KEY,
-                            definition.getRetriesOnTimeoutBeforeSuspend(), cfgCtx);
-                    Replicator.setAndReplicateState(LAST_SUSPEND_DURATION_KEY, null, cfgCtx);
-                    break;
-                }
-                case ST_TIMEOUT: {
-                    Integer retries
-                            = (Integer) cfgCtx.getPropertyNonReplicable(REMAINING_RETRIES_KEY);
-                    if (retries == null) {
-                        retries = definition.getRetriesOnTimeoutBeforeSuspend();
-                    }
-
-                    if (retries <= 0) {
-                        log.info("Endpoint : " + endpointName + " has been marked for SUSPENSION," +
-                                " but no further retries remain. Thus it will be SUSPENDED.");
+    private void setState(int newState) {
+        setState(newState, false);
+    }
 
-                        setState(ST_SUSPENDED);
+    /**
+     * Update the internal state of the endpoint with a single atomic transition
+     *
+     * @param newState the new state of the endpoint
+     * @param onlyIfFailing make the transition only if the endpoint is timed out or suspended
+     * @return the packed state before the transition, or NO_TRANSITION if none was made
+     */
+    private long setState(int newState, boolean onlyIfFailing) {
 
-                    } else {
-                        Replicator.setAndReplicateState(
-                                REMAINING_RETRIES_KEY, (retries - 1), cfgCtx);
-                        long nextRetry = System.currentTimeMillis()
-                                + definition.getRetryDurationOnTimeout();
-                        Replicator.setAndReplicateState(NEXT_RETRY_TIME_KEY, nextRetry, cfgCtx);
+        while (true) {
+            long current = readState();
+            int currentState = getState(current);
+            if (onlyIfFailing && (currentState == ST_ACTIVE || currentState == ST_OFF)) {
+                return NO_TRANSITION;
+            }
 
-                        log.warn("Endpoint : " + endpointName + " is marked as TIMEOUT and " +
-                                "will be retried : " + (retries - 1) + " more time/s after : " +
-                                new Date(nextRetry) + " until its marked SUSPENDED for failure");
+            long now = System.currentTimeMillis();
+            long next;
+            if (definition == null) {
+                next = pack(newState, getRemainingRetries(current), getSuspensions(current),
+                        getNextRetryTime(current));
+            } else {
+                switch (newState) {
+                    case ST_TIMEOUT: {
+                        int retries = getRemainingRetries(current);
+                        if (retries == -1) {
+                            retries = definition.getRetriesOnTimeoutBeforeSuspend();
+                        }
+                        if (retries <= 0) {
+                            next = suspend(current, now);
+                        } else {
+                            next = pack(ST_TIMEOUT, retries - 1, getSuspensions(current),
+                                    now + definition.getRetryDurationOnTimeout());
+                        }
+                        break;
+                    }
+                    case ST_SUSPENDED: {
+                        next = suspend(current, now);
+                        break;
+                    }
+                    default: {
+                        // mark as active or in maintenance, and reset all other information
+                        next = pack(newState, definition.getRetriesOnTimeoutBeforeSuspend(), 0, 0);
                     }
-                    break;
-                }
-                case ST_SUSPENDED: {
-                    computeNextRetryTimeForSuspended();
-                    break;
-                }
-                case ST_OFF: {
-                    // mark as in maintenance, and reset all other information
-                    Replicator.setAndReplicateState(REMAINING_RETRIES_KEY,
-                            definition.getRetriesOnTimeoutBeforeSuspend(), cfgCtx);
-                    Replicator.setAndReplicateState(LAST_SUSPEND_DURATION_KEY, null, cfgCtx);
-                    break;
                 }
             }
 
-        } else {
+            if (state.compareAndSet(current, next)) {
+                onTransition(current, next, newState);
+                return current;
+            }
+        }
+    }
 
-            localState = state;
-            if (definition == null) return;
-            switch (state) {
-                case ST_ACTIVE: {
-                    localRemainingRetries = definition.getRetriesOnTimeoutBeforeSuspend();
-                    localLastSuspendDuration = -1;
-                    break;
-                }
-                case ST_TIMEOUT: {
-                    int retries = localRemainingRetries;
-                    if (retries == -1) {
-                        retries = definition.getRetriesOnTimeoutBeforeSuspend();
-                    }
+    /**
+     * Compute the suspension duration according to the geometric series parameters defined
+     *
+     * @param current the packed state before the suspension
+     * @param now the current time
+     * @return the packed suspended state
+     */
+    private long suspend(long current, long now) {
+        int suspensions = getSuspensions(current);
+        return pack(ST_SUSPENDED, getRemainingRetries(current),
+                Math.min(suspensions + 1, (int) SUSPENSIONS_MASK),
+                now + getSuspendDuration(suspensions));
+    }
 
-                    if (retries <= 0) {
-                        log.info("Endpoint : " + endpointName + " has been marked for SUSPENSION, "
-                                + "but no further retries remain. Thus it will be SUSPENDED.");
+    /**
+     * Returns the duration of a suspension, which grows by the progression factor with each
+     * consecutive suspension up to the maximum duration
+     *
+     * @param suspensions the number of consecutive suspensions before this one
+     * @return the suspend duration in ms
+     */
+    private long getSuspendDuration(int suspensions) {
+        long duration = definition.getInitialSuspendDuration();
+        if (duration > definition.getSuspendMaximumDuration()) {
+            duration = definition.getSuspendMaximumDuration();
+        } else if (duration < 0) {
+            duration = SynapseConstants.DEFAULT_ENDPOINT_SUSPEND_TIME;
+        }
+        if (suspensions > 0) {
+            double next = duration *
+                    Math.pow(definition.getSuspendProgressionFactor(), suspensions);
+            duration = next > definition.getSuspendMaximumDuration() ?
+                    definition.getSuspendMaximumDuration() : (long) next;
+            if (duration < 0) {
+                duration = SynapseConstants.DEFAULT_ENDPOINT_SUSPEND_TIME;
+            }
+        }
+        return duration;
+    }
 
-                        setState(ST_SUSPENDED);
+    /**
+     * Records, logs and replicates a state change once it has been made
+     *
+     * @param previous the packed state before the transition
+     * @param next the packed state after the transition
+     * @param requestedState the state the endpoint was asked to move to
+     */
+    private void onTransition(long previous, long next, int requestedState) {
+        int previousState = getState(previous);
+        int nextState = getState(next);
+
+        if (requestedState == ST_TIMEOUT && nextState == ST_SUSPENDED) {
+            log.info("Endpoint : " + endpointName + " has been marked for SUSPENSION, "
+                    + "but no further retries remain. Thus it will be SUSPENDED.");
+            recordStatistics(ST_TIMEOUT, previousState);
+            previousState = ST_TIMEOUT;
+        }
+        recordStatistics(nextState, previousState);
+
+        if (definition != null) {
+            if (nextState == ST_TIMEOUT) {
+                log.warn("Endpoint : " + endpointName + " is marked as TIMEOUT and " +
+                        "will be retried : " + getRemainingRetries(next) + " more time/s " +
+                        "after : " + new Date(getNextRetryTime(next))
+                        + " until its marked SUSPENDED for failure");
+            } else if (nextState == ST_SUSPENDED) {
+                int suspensions = getSuspensions(previous);
+                log.warn("Suspending endpoint : " + endpointName +
+                        (suspensions == 0 ? " -" : " - last suspend duration was : " +
+                                getSuspendDuration(suspensions - 1) + "ms and") +
+                        " current suspend duration is : " + getSuspendDuration(suspensions) +
+                        "ms - " + "Next retry after : " + new Date(getNextRetryTime(next)));
+            }
+        }
 
-                    } else {
-                        localRemainingRetries = retries - 1;
-                        localNextRetryTime =
-                                System.currentTimeMillis() + definition.getRetryDurationOnTimeout();
+        if (isReplicated) {
+            scheduleReplication();
+        }
+    }
 
-                        log.warn("Endpoint : " + endpointName + " is marked as TIMEOUT and " +
-                                "will be retried : " + localRemainingRetries + " more time/s " +
-                                "after : " + new Date(localNextRetryTime)
-                                + " until its marked SUSPENDED for failure");
-                    }
-                    break;
-                }
-                case ST_SUSPENDED: {
-                    computeNextRetryTimeForSuspended();
-                    break;
+    /**
+     * Replicates the current state in the background, unless a replication is already pending,
+     * in which case it will pick up this change as well
+     */
+    private void scheduleReplication() {
+        if (!replicationPending.compareAndSet(false, true)) {
+            return;
+        }
+        replicator.execute(new Runnable() {
+            @Override
+            public void run() {
+                replicationPending.set(false);
+                try {
+                    Replicator.setAndReplicateState(STATE_KEY,
+                            new SharedState(state.get(), publisherId), cfgCtx);
+                } catch (SynapseException e) {
+                    log.warn("Could not replicate the state of endpoint : " + endpointName, e);
                 }
-                case ST_OFF: {
-                    // mark as in maintenance, and reset all other information
-                    localRemainingRetries = definition.getRetriesOnTimeoutBeforeSuspend();
-                    localLastSuspendDuration = -1;
-                    break;
+            }
+        });
+    }
+
+    /**
+     * Returns the current packed state. In a clustered environment, a state replicated by
+     * another member of the cluster replaces the local state, once.
+     *
+     * @return the current packed state
+     */
+    private long readState() {
+        long current = state.get();
+        if (isReplicated) {
+            Object shared = cfgCtx.getPropertyNonReplicable(STATE_KEY);
+            Object seen = seenState.get();
+            if (shared instanceof SharedState && shared != seen &&
+                    seenState.compareAndSet(seen, shared)) {
+                SharedState remote = (SharedState) shared;
+                if (!publisherId.equals(remote.publisherId) &&
+                        state.compareAndSet(current, remote.state)) {
+                    current = remote.state;
+                } else {
+                    current = state.get();
                 }
             }
         }
+        return current;
     }
 
     /**
      * Endpoint has processed a message successfully
      */
     public void onSuccess() {
-        if (isClustered) {
-            Integer state = (Integer) cfgCtx.getPropertyNonReplicable(STATE_KEY);
-
-            if ((state != null) && ((state != ST_ACTIVE) && (state != ST_OFF))) {
-                log.info("Endpoint : " + endpointName + " currently " + getStateAsString() +
-                        " will now be marked active since it processed its last message");
-                setState(ST_ACTIVE);
-            }
-        } else {
-            if (localState != ST_ACTIVE && localState != ST_OFF) {
-                log.info("Endpoint : " + endpointName + " currently " + getStateAsString() +
+        if (isFailing(getState(readState()))) {
+            long previous = setState(ST_ACTIVE, true);
+            if (previous != NO_TRANSITION) {
+                log.info("Endpoint : " + endpointName + " currently " +
+                        getStateAsString(getState(previous)) +
                         " will now be marked active since it processed its last message");
-                setState(ST_ACTIVE);
             }
         }
     }
@@ -309,142 +426,48 @@ public class EndpointContext {
     }
 
     /**
-     * Compute the suspension duration according to the geometric series parameters defined
-     */
-    private void computeNextRetryTimeForSuspended() {
-        boolean notYetSuspended = true;
-        long lastSuspendDuration = definition.getInitialSuspendDuration();
-        if (isClustered) {
-            Long lastDuration = (Long) cfgCtx.getPropertyNonReplicable(LAST_SUSPEND_DURATION_KEY);
-            if (lastDuration != null) {
-                lastSuspendDuration = lastDuration;
-                notYetSuspended = false;
-            }
-        } else if (localLastSuspendDuration > 0) {
-            lastSuspendDuration = localLastSuspendDuration;
-            notYetSuspended = false;
-        }
-
-        long nextSuspendDuration = (notYetSuspended ?
-                definition.getInitialSuspendDuration() :
-                (long) (lastSuspendDuration * definition.getSuspendProgressionFactor()));
-
-        if (nextSuspendDuration > definition.getSuspendMaximumDuration()) {
-            nextSuspendDuration = definition.getSuspendMaximumDuration();
-        } else if (nextSuspendDuration < 0) {
-            nextSuspendDuration = SynapseConstants.DEFAULT_ENDPOINT_SUSPEND_TIME;
-        }
-
-        long nextRetryTime = System.currentTimeMillis() + nextSuspendDuration;
-
-        if (isClustered) {
-            Replicator.setAndReplicateState(LAST_SUSPEND_DURATION_KEY, nextSuspendDuration, cfgCtx);
-            Replicator.setAndReplicateState(NEXT_RETRY_TIME_KEY, nextRetryTime, cfgCtx);
-        } else {
-            localLastSuspendDuration = nextSuspendDuration;
-            localNextRetryTime = nextRetryTime;
-        }
-
-        log.warn("Suspending endpoint : " + endpointName +
-                (notYetSuspended ? " -" :
-                        " - last suspend duration was : " + lastSuspendDuration + "ms and") +
-                " current suspend duration is : " + nextSuspendDuration + "ms - " +
-                "Next retry after : " + new Date(nextRetryTime));
-    }
-
-    /**
-     * Checks if the endpoint is in the state ST_ACTIVE. In a clustered environment, the non
-     * availability of a clustered STATE_KEY implies that this endpoint is active
+     * Checks if the endpoint is in the state ST_ACTIVE, or if a timed out or suspended endpoint
+     * has reached its next retry time. This only reads the current state.
      *
      * @return Returns true if the endpoint should be considered as active
      */
     public boolean readyToSend() {
 
+        long current = readState();
+        int currentState = getState(current);
+
         if (log.isDebugEnabled()) {
             log.debug("Checking if endpoint : " + endpointName + " currently at state " +
-                    getStateAsString() + " can be used now?");
+                    getStateAsString(currentState) + " can be used now?");
         }
 
-        if (isClustered) {
-
-            // gets the value from configuration context (The shared state across all instances)
-            Integer state = (Integer) cfgCtx.getPropertyNonReplicable(STATE_KEY);
-            Integer remainingRetries
-                    = (Integer) cfgCtx.getPropertyNonReplicable(REMAINING_RETRIES_KEY);
-            Long nextRetryTime = (Long) cfgCtx.getPropertyNonReplicable(NEXT_RETRY_TIME_KEY);
-
-            if (state == null) {
-                // state has not yet been replicated..
-                // first replication occurs on first timeout or fault
-                return true;
-
-            } else {
-                if (state == ST_ACTIVE) {
-                    return true;
-
-                } else if (state == ST_OFF) {
-                    return false;
-
-                } else if (System.currentTimeMillis() >= nextRetryTime) {
-                    // if we are not active, but reached the next retry time, return true but do not
-                    // make a state change. We will make the state change on a successful send
-                    // if we are in the ST_TIMEOUT state, reduce a remaining retry
-                    if (state == ST_TIMEOUT) {
-                        remainingRetries--;
-                        Replicator.setAndReplicateState(
-                                REMAINING_RETRIES_KEY, remainingRetries, cfgCtx);
-
-                        if (log.isDebugEnabled()) {
-                            log.debug("Endpoint : " + endpointName + " which is currently in " +
-                                    "timeout state is ready to be retried. Remaining retries " +
-                                    "before suspension : " + remainingRetries);
-                        }
-
-                    } else {
-                        if (log.isDebugEnabled()) {
-                            log.debug("Endpoint : " + endpointName + " which is currently " +
-                                    "SUSPENDED, is ready to be retried now");
-                        }
-                    }
-                    return true;
-                }
-            }
-
-        } else {
-
-            if (localState == ST_ACTIVE) {
-                return true;
+        if (currentState == ST_ACTIVE) {
+            return true;
 
-            } else if (localState == ST_OFF) {
-                return false;
+        } else if (currentState == ST_OFF) {
+            return false;
 
-            } else if (System.currentTimeMillis() >= localNextRetryTime) {
-
-                // if we are not active, but reached the next retry time, return true but do not
-                // make a state change. We will make the state change on a successful send
-                // if we are in the ST_TIMEOUT state, reduce a remaining retry
-                if (localState == ST_TIMEOUT) {
-
-                    if (log.isDebugEnabled()) {
-                        log.debug("Endpoint : " + endpointName + " which is currently in timeout " +
-                                "state is ready to be retried. Remaining retries before " +
-                                "suspension : " + localRemainingRetries);
-                    }
+        } else if (System.currentTimeMillis() >= getNextRetryTime(current)) {
 
+            // if we are not active, but reached the next retry time, return true but do not
+            // make a state change. We will make the state change on a successful send
+            if (log.isDebugEnabled()) {
+                if (currentState == ST_TIMEOUT) {
+                    log.debug("Endpoint : " + endpointName + " which is currently in timeout " +
+                            "state is ready to be retried. Remaining retries before " +
+                            "suspension : " + getRemainingRetries(current));
                 } else {
-                    if (log.isDebugEnabled()) {
-                        log.debug("Endpoint : " + endpointName + " which is currently SUSPENDED," +
-                                " is ready to be retried now");
-                    }
+                    log.debug("Endpoint : " + endpointName + " which is currently SUSPENDED," +
+                            " is ready to be retried now");
                 }
-                return true;
             }
+            return true;
         }
 
         if (log.isDebugEnabled()) {
             log.debug("Endpoint : " + endpointName + " not ready and is currently : "
-                    + getStateAsString() + ". Next retry will be after : "
-                    + new Date(localNextRetryTime));
+                    + getStateAsString(currentState) + ". Next retry will be after : "
+                    + new Date(getNextRetryTime(current)));
         }
 
         return false;
@@ -467,30 +490,44 @@ public class EndpointContext {
     }
 
     public boolean isState(int s) {
-        if (isClustered) {
-            Integer state = (Integer) cfgCtx.getPropertyNonReplicable(STATE_KEY);
-            // state has not yet been replicated..
-            // first replication occurs on first timeout or fault
-            return state == null || state == s;
-        } else {
-            return localState == s;
-        }
+        return getState(readState()) == s;
+    }
+
+    private static boolean isFailing(int state) {
+        return state == ST_TIMEOUT || state == ST_SUSPENDED;
+    }
+
+    static long pack(int state, int remainingRetries, int suspensions, long nextRetryTime) {
+        long retries = Math.min(remainingRetries + 1, RETRIES_MASK);
+        long retryTime = Math.max(0, Math.min(nextRetryTime, MAX_RETRY_TIME));
+        return (state & STATE_MASK) | (retries << RETRIES_SHIFT) |
+                ((suspensions & SUSPENSIONS_MASK) << SUSPENSIONS_SHIFT) |
+                (retryTime << RETRY_TIME_SHIFT);
+    }
+
+    static int getState(long packed) {
+        return (int) (packed & STATE_MASK);
+    }
+
+    static int getRemainingRetries(long packed) {
+        return (int) ((packed >>> RETRIES_SHIFT) & RETRIES_MASK) - 1;
+    }
+
+    static int getSuspensions(long packed) {
+        return (int) ((packed >>> SUSPENSIONS_SHIFT) & SUSPENSIONS_MASK);
     }
 
+    static long getNextRetryTime(long packed) {
+        return packed >>> RETRY_TIME_SHIFT;
+    }
 
     /**
-     * Private method to return the current state as a loggable string
+     * Private method to return a state as a loggable string
      *
-     * @return the current state as a string
+     * @param state the state
+     * @return the state as a string
      */
-    private String getStateAsString() {
-        Integer state = localState;
-        if (isClustered) {
-            state = (Integer) cfgCtx.getPropertyNonReplicable(STATE_KEY);
-            if (state == null) {
-                return "ACTIVE";
-            }
-        }
+    private static String getStateAsString(int state) {
         switch (state) {
             case ST_ACTIVE : return "ACTIVE";
             case ST_TIMEOUT : return "TIMEOUT";
@@ -514,7 +551,24 @@ public class EndpointContext {
     public String toString() {
         StringBuffer sb = new StringBuffer();
         sb.append("[ Name : ").append(endpointName).
-                append(" ] [ State : ").append(getStateAsString()).append(" ]");
+                append(" ] [ State : ").append(getStateAsString(getState(readState())))
+                .append(" ]");
         return sb.toString();
     }
+
+    /**
+     * A packed state as shared with the cluster, along with the context which published it
+     */
+    static class SharedState implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long state;
+        private final String publisherId;
+
+        SharedState(long state, String publisherId) {
+            this.state = state;
+            this.publisherId = publisherId;
+        }
+    }
 }
@@ -101,6 +101,10 @@ public class EndpointDefinition implements AspectConfigurable {
      * use SWA *
      */
     private boolean useSwa = false;
+    /**
+     * send over HTTP/2 *
+     */
+    private boolean useHttp2 = false;
     /**
      * Endpoint message format. pox/soap11/soap12
      */
@@ -154,6 +158,14 @@ public class EndpointDefinition implements AspectConfigurable {
     /** A list of error codes which permit the retries */
     private final List<Integer> retryDisabledErrorCodes = new ArrayList<Integer>();
 
+    /** The adaptive concurrency limiting algorithm, or null if the concurrency is not limited */
+    private String concurrencyAlgorithm = null;
+    /** The number of requests allowed in flight at the start */
+    private int concurrencyInitialLimit = AdaptiveConcurrencyLimiter.DEFAULT_INITIAL_LIMIT;
+    /** The lowest and highest number of requests the algorithm may allow in flight */
+    private int concurrencyMinLimit = AdaptiveConcurrencyLimiter.DEFAULT_MIN_LIMIT;
+    private int concurrencyMaxLimit = AdaptiveConcurrencyLimiter.DEFAULT_MAX_LIMIT;
+
     /**
      * Variable to persist original address before parameter injection
      */
@@ -404,6 +416,46 @@ public class EndpointDefinition implements AspectConfigurable {
         this.useSwa = useSwa;
     }
 
+    public boolean isUseHttp2() {
+        return useHttp2;
+    }
+
+    public void setUseHttp2(boolean useHttp2) {
+        this.useHttp2 = useHttp2;
+    }
+
+    public String getConcurrencyAlgorithm() {
+        return concurrencyAlgorithm;
+    }
+
+    public void setConcurrencyAlgorithm(String concurrencyAlgorithm) {
+        this.concurrencyAlgorithm = concurrencyAlgorithm;
+    }
+
+    public int getConcurrencyInitialLimit() {
+        return concurrencyInitialLimit;
+    }
+
+    public void setConcurrencyInitialLimit(int concurrencyInitialLimit) {
+        this.concurrencyInitialLimit = concurrencyInitialLimit;
+    }
+
+    public int getConcurrencyMinLimit() {
+        return concurrencyMinLimit;
+    }
+
+    public void setConcurrencyMinLimit(int concurrencyMinLimit) {
+        this.concurrencyMinLimit = concurrencyMinLimit;
+    }
+
+    public int getConcurrencyMaxLimit() {
+        return concurrencyMaxLimit;
+    }
+
+    public void setConcurrencyMaxLimit(int concurrencyMaxLimit) {
+        this.concurrencyMaxLimit = concurrencyMaxLimit;
+    }
+
     public long getTimeoutDuration() {
         return timeoutDuration;
     }
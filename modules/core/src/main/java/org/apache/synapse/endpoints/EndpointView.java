@@ -422,6 +422,62 @@ public class EndpointView implements EndpointViewMBean, MessageLevelMetricsColle
         return getTotal(timeoutCounts, 15);
     }
 
+    /**
+     * The number of requests currently allowed in flight to this endpoint
+     * @return the adaptive concurrency limit, or -1 if the concurrency is not limited
+     */
+    @Override
+    public int getConcurrencyLimit() {
+        AdaptiveConcurrencyLimiter limiter = getConcurrencyLimiter();
+        return limiter != null ? limiter.getLimit() : -1;
+    }
+
+    /**
+     * The number of requests sent to this endpoint which are waiting for their outcome
+     * @return the requests in flight, or -1 if the concurrency is not limited
+     */
+    @Override
+    public int getRequestsInFlight() {
+        AdaptiveConcurrencyLimiter limiter = getConcurrencyLimiter();
+        return limiter != null ? limiter.getInFlight() : -1;
+    }
+
+    /**
+     * The number of requests not sent to this endpoint since its concurrency limit was reached
+     * @return the shed requests, or -1 if the concurrency is not limited
+     */
+    @Override
+    public long getRequestsShed() {
+        AdaptiveConcurrencyLimiter limiter = getConcurrencyLimiter();
+        return limiter != null ? limiter.getShedCount() : -1;
+    }
+
+    /**
+     * The lowest round trip time measured by the adaptive concurrency limiter
+     * @return the lowest round trip time in milliseconds, or -1 if the concurrency is not limited
+     */
+    @Override
+    public double getMinRoundTripTime() {
+        AdaptiveConcurrencyLimiter limiter = getConcurrencyLimiter();
+        return limiter != null ? limiter.getMinRtt() : -1;
+    }
+
+    /**
+     * The recent round trip time measured by the adaptive concurrency limiter
+     * @return the smoothed round trip time in milliseconds, or -1 if the concurrency is not
+     * limited
+     */
+    @Override
+    public double getSmoothedRoundTripTime() {
+        AdaptiveConcurrencyLimiter limiter = getConcurrencyLimiter();
+        return limiter != null ? limiter.getSmoothedRtt() : -1;
+    }
+
+    private AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return endpoint instanceof AbstractEndpoint ?
+                ((AbstractEndpoint) endpoint).getConcurrencyLimiter() : null;
+    }
+
     private int getTotal(Queue<Integer> queue, int count) {
         int sum = 0;
         Integer[] array = queue.toArray(new Integer[queue.size()]);
@@ -57,6 +57,12 @@ public interface EndpointViewMBean {
     public int getLast5MinuteEndpointTimeouts();
     public int getLast15MinuteEndpointTimeouts();
 
+    public int getConcurrencyLimit();
+    public int getRequestsInFlight();
+    public long getRequestsShed();
+    public double getMinRoundTripTime();
+    public double getSmoothedRoundTripTime();
+
     // JMX Operations
     public void switchOn() throws Exception;
     public void switchOff() throws Exception;
@@ -37,8 +37,14 @@ import java.util.List;
  */
 public class IndirectEndpoint extends AbstractEndpoint {
 
+    /** Guards the initialization of the real endpoints */
+    private static final Object INIT_LOCK = new Object();
+
     private String key = null;
-    private Endpoint realEndpoint = null;
+    private volatile Endpoint realEndpoint = null;
+
+    /** The real endpoint last seen initialized by this endpoint */
+    private volatile Endpoint initializedEndpoint = null;
 
     /**
      * Send by calling to the real endpoint
@@ -47,11 +53,11 @@ public class IndirectEndpoint extends AbstractEndpoint {
     @Override
     public void send(MessageContext synCtx) {
 
-        reLoadAndInitEndpoint(((Axis2MessageContext) synCtx).
+        Endpoint endpoint = reLoadAndInitEndpoint(((Axis2MessageContext) synCtx).
                 getAxis2MessageContext().getConfigurationContext());
 
-        if (realEndpoint != null) {
-            realEndpoint.send(synCtx);
+        if (endpoint != null) {
+            endpoint.send(synCtx);
         } else {
             informFailure(synCtx, SynapseConstants.ENDPOINT_IN_DIRECT_NOT_READY,
                     "Couldn't find the endpoint with the key : " + key);
@@ -120,27 +126,32 @@ public class IndirectEndpoint extends AbstractEndpoint {
      * @return real endpoint which is referred by the indirect endpoint
      */
     public Endpoint getRealEndpoint(MessageContext synCtx) {
-        reLoadAndInitEndpoint(((Axis2MessageContext) synCtx).
+        return reLoadAndInitEndpoint(((Axis2MessageContext) synCtx).
                 getAxis2MessageContext().getConfigurationContext());
-        return realEndpoint;
     }
 
     /**
      * Reload as needed , either from registry , local entries or predefined endpoints 
      * @param cc ConfigurationContext
+     * @return the real endpoint, initialized, or null if there is none
      */
-    private synchronized void reLoadAndInitEndpoint(ConfigurationContext cc) {
+    private Endpoint reLoadAndInitEndpoint(ConfigurationContext cc) {
         Parameter parameter = cc.getAxisConfiguration().getParameter(
                 SynapseConstants.SYNAPSE_CONFIG);
         Parameter synEnvParameter = cc.getAxisConfiguration().getParameter(
                 SynapseConstants.SYNAPSE_ENV);
-        if (parameter.getValue() instanceof SynapseConfiguration &&
-                synEnvParameter.getValue() instanceof SynapseEnvironment) {
+        if (!(parameter.getValue() instanceof SynapseConfiguration &&
+                synEnvParameter.getValue() instanceof SynapseEnvironment)) {
+            return realEndpoint;
+        }
 
-            SynapseConfiguration synCfg = (SynapseConfiguration) parameter.getValue();
-            SynapseEnvironment synapseEnvironment = (SynapseEnvironment) synEnvParameter.getValue();
+        SynapseConfiguration synCfg = (SynapseConfiguration) parameter.getValue();
+        SynapseEnvironment synapseEnvironment = (SynapseEnvironment) synEnvParameter.getValue();
 
-            boolean reLoad = (realEndpoint == null);
+        Endpoint endpoint;
+        synchronized (this) {
+            endpoint = realEndpoint;
+            boolean reLoad = (endpoint == null);
             if (!reLoad) {
 
                 Entry entry = synCfg.getEntryDefinition(key);
@@ -161,19 +172,41 @@ public class IndirectEndpoint extends AbstractEndpoint {
                     log.debug("Loading real endpoint with key : " + key);
                 }
 
-                realEndpoint = synCfg.getEndpoint(key);
-                if (realEndpoint != null && !realEndpoint.isInitialized()) {
-                    realEndpoint.init(synapseEnvironment);
-                }
+                endpoint = synCfg.getEndpoint(key);
+                realEndpoint = endpoint;
             } else {
                 Endpoint epr = synCfg.getEndpoint(key);
-                if (epr != realEndpoint) {
+                if (epr != endpoint) {
+                    endpoint = epr;
                     realEndpoint = epr;
-                    if (realEndpoint != null && !realEndpoint.isInitialized()) {
-                        realEndpoint.init(synapseEnvironment);
-                    }
                 }
             }
         }
+
+        // outside the lock of this endpoint, since an endpoint being initialized on another
+        // thread, under the init lock, may contain this endpoint and need its lock
+        initRealEndpoint(endpoint, synapseEnvironment);
+        return endpoint;
+    }
+
+    /**
+     * Initialize the real endpoint unless it already is. The same endpoint may be referred to
+     * by indirect endpoints of sequences initialized on other threads, hence the lock. A single
+     * lock is used so that endpoints referring to each other cannot deadlock. Once this
+     * endpoint has seen the real endpoint initialized, it no longer takes the lock.
+     *
+     * @param endpoint           the real endpoint
+     * @param synapseEnvironment the Synapse environment
+     */
+    private void initRealEndpoint(Endpoint endpoint, SynapseEnvironment synapseEnvironment) {
+        if (endpoint == null || endpoint == initializedEndpoint) {
+            return;
+        }
+        synchronized (INIT_LOCK) {
+            if (!endpoint.isInitialized()) {
+                endpoint.init(synapseEnvironment);
+            }
+        }
+        initializedEndpoint = endpoint;
     }
 }
@@ -0,0 +1,125 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.eventing;
+
+import org.apache.axiom.om.OMCloneOptions;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMNamespace;
+import org.apache.axiom.om.OMNode;
+import org.apache.axiom.om.ds.ByteArrayDataSource;
+import org.apache.axiom.soap.SOAPEnvelope;
+import org.apache.axiom.soap.SOAPFactory;
+import org.apache.axiom.soap.SOAPHeader;
+import org.apache.axiom.soap.SOAPHeaderBlock;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The payload of an event, serialized once so that it can be delivered to any number of
+ * subscribers without copying the message for each one of them. Every subscriber gets an
+ * envelope of its own, with a copy of the SOAP headers and a body element which is backed by
+ * the shared, serialized payload. The body element is written out as it is when the message
+ * is sent, unless something navigates into it along the way.
+ */
+class SharedEventPayload {
+
+    private static final String ENCODING = "UTF-8";
+
+    private final SOAPFactory factory;
+    private final List<SOAPHeaderBlock> headerBlocks = new ArrayList<SOAPHeaderBlock>();
+    private final String localName;
+    private final String namespaceURI;
+    private final String prefix;
+    private final byte[] payload;
+
+    private SharedEventPayload(SOAPEnvelope envelope, OMElement element, byte[] payload) {
+        this.factory = (SOAPFactory) envelope.getOMFactory();
+        // take a fully built copy of the headers, which can be read by the delivery threads
+        SOAPHeader header = envelope.getHeader();
+        if (header != null) {
+            for (Iterator it = header.examineAllHeaderBlocks(); it.hasNext();) {
+                headerBlocks.add(cloneHeaderBlock((SOAPHeaderBlock) it.next()));
+            }
+        }
+        this.localName = element.getLocalName();
+        OMNamespace ns = element.getNamespace();
+        this.namespaceURI = ns != null ? ns.getNamespaceURI() : null;
+        this.prefix = ns != null ? ns.getPrefix() : null;
+        this.payload = payload;
+    }
+
+    /**
+     * Serializes the payload of the given envelope
+     *
+     * @param envelope the envelope of the event
+     * @return the shared payload, or null if the body does not consist of a single element
+     * @throws XMLStreamException if the payload cannot be serialized
+     */
+    static SharedEventPayload create(SOAPEnvelope envelope) throws XMLStreamException {
+        if (envelope.getBody() == null) {
+            return null;
+        }
+        OMElement element = null;
+        for (Iterator it = envelope.getBody().getChildren(); it.hasNext();) {
+            OMNode node = (OMNode) it.next();
+            if (node instanceof OMElement) {
+                if (element != null) {
+                    return null;
+                }
+                element = (OMElement) node;
+            }
+        }
+        if (element == null) {
+            return null;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        element.serialize(out);
+        return new SharedEventPayload(envelope, element, out.toByteArray());
+    }
+
+    /**
+     * Creates a new envelope for a subscriber, which shares the serialized payload
+     *
+     * @return a new envelope
+     */
+    SOAPEnvelope createEnvelope() {
+        SOAPEnvelope envelope = factory.getDefaultEnvelope();
+        for (SOAPHeaderBlock block : headerBlocks) {
+            envelope.getHeader().addChild(cloneHeaderBlock(block));
+        }
+
+        OMNamespace ns = namespaceURI != null ?
+                factory.createOMNamespace(namespaceURI, prefix) : null;
+        envelope.getBody().addChild(factory.createOMElement(
+                new ByteArrayDataSource(payload, ENCODING), localName, ns));
+        return envelope;
+    }
+
+    private static SOAPHeaderBlock cloneHeaderBlock(SOAPHeaderBlock block) {
+        OMCloneOptions options = new OMCloneOptions();
+        options.setPreserveModel(true);
+        return (SOAPHeaderBlock) block.clone(options);
+    }
+}
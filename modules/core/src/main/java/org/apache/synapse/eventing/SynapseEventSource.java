@@ -36,6 +36,7 @@ import org.apache.synapse.endpoints.Endpoint;
 import org.apache.synapse.endpoints.AddressEndpoint;
 import org.apache.synapse.endpoints.EndpointDefinition;
 import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.config.SynapsePropertiesLoader;
 import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.core.axis2.SynapseMessageReceiver;
@@ -49,9 +50,15 @@ import org.wso2.eventing.SubscriptionManager;
 import org.wso2.eventing.exceptions.EventException;
 
 import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 
 /**
  * Eventsource that accepts the event requests using a message receiver.
@@ -71,6 +78,13 @@ public class SynapseEventSource extends SynapseMessageReceiver {
     /* Contains properties used in the configuration and possess confidential information such as
      encrypted passwords  */
     private Map<String, String> configurationProperties = new HashMap<String, String>();
+    /* Endpoints of the subscribers, by the subscription URL */
+    private final ConcurrentMap<String, Endpoint> subscriberEndpoints =
+            new ConcurrentHashMap<String, Endpoint>();
+    /* Limits the number of event deliveries handed over to the executor at a time */
+    private final Semaphore deliveryWindow = new Semaphore(Integer.parseInt(
+            SynapsePropertiesLoader.getPropertyValue(SynapseEventingConstants.DELIVERY_WINDOW,
+                    String.valueOf(SynapseEventingConstants.DEFAULT_DELIVERY_WINDOW))));
 
     public SynapseEventSource(String name) {
         this.name = name;
@@ -195,7 +209,11 @@ public class SynapseEventSource extends SynapseMessageReceiver {
     }
 
     /**
-     * Dispatching events async on a different thread
+     * Dispatching events async on a different thread. When an event has more than one
+     * subscriber, its payload is serialized once and shared by the messages sent to the
+     * subscribers, instead of cloning the whole message for each one of them. The deliveries
+     * are handed over to the executor as long as the delivery window has room, and are made
+     * on the dispatcher thread otherwise.
      */
     class EventDispatcher implements Runnable {
         private org.apache.synapse.MessageContext synCtx;
@@ -215,18 +233,77 @@ public class SynapseEventSource extends SynapseMessageReceiver {
                 handleException("Matching subscriptions fetching error", e);
             }
 
-            for (Subscription subscription : subscriptions) {
-                synCtx.setProperty(SynapseConstants.OUT_ONLY,
-                        "true");    // Set one way message for events
+            synCtx.setProperty(SynapseConstants.OUT_ONLY,
+                    "true");    // Set one way message for events
+
+            SharedEventPayload payload = null;
+            if (subscriptions.size() > 1) {
                 try {
-                    getEndpointFromURL(subscription.getEndpointUrl(), synCtx.getEnvironment())
-                            .send(MessageHelper.cloneMessageContext(synCtx));
-                } catch (AxisFault axisFault) {
-                    log.error("Event sending failure " + axisFault.toString());
+                    payload = SharedEventPayload.create(synCtx.getEnvelope());
+                } catch (XMLStreamException e) {
+                    log.warn("Unable to serialize the event payload. The event will be " +
+                            "copied for each subscriber", e);
                 }
-                if (log.isDebugEnabled()) {
-                    log.debug("Event push to  : " + subscription.getEndpointUrl());
+            }
+
+            ExecutorService executor = synCtx.getEnvironment().getExecutorService();
+            for (Subscription subscription : subscriptions) {
+                final EventDelivery delivery = new EventDelivery(synCtx, subscription, payload);
+                if (deliveryWindow.tryAcquire()) {
+                    try {
+                        executor.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    delivery.run();
+                                } finally {
+                                    deliveryWindow.release();
+                                }
+                            }
+                        });
+                    } catch (RejectedExecutionException e) {
+                        deliveryWindow.release();
+                        delivery.run();
+                    }
+                } else {
+                    delivery.run();
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends an event to a single subscriber
+     */
+    class EventDelivery implements Runnable {
+        private final org.apache.synapse.MessageContext synCtx;
+        private final Subscription subscription;
+        private final SharedEventPayload payload;
+
+        EventDelivery(org.apache.synapse.MessageContext synCtx, Subscription subscription,
+                      SharedEventPayload payload) {
+            this.synCtx = synCtx;
+            this.subscription = subscription;
+            this.payload = payload;
+        }
+
+        @Override
+        public void run() {
+            try {
+                org.apache.synapse.MessageContext eventCtx;
+                if (payload != null) {
+                    eventCtx = MessageHelper.cloneMessageContext(synCtx, false);
+                    eventCtx.setEnvelope(payload.createEnvelope());
+                } else {
+                    eventCtx = MessageHelper.cloneMessageContext(synCtx);
                 }
+                getEndpointFromURL(subscription.getEndpointUrl(), synCtx.getEnvironment())
+                        .send(eventCtx);
+            } catch (AxisFault axisFault) {
+                log.error("Event sending failure " + axisFault.toString());
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Event push to  : " + subscription.getEndpointUrl());
             }
         }
     }
@@ -300,7 +377,12 @@ public class SynapseEventSource extends SynapseMessageReceiver {
             log.debug("UnSubscribe response recived for SynapseSubscription ID : " +
                     subscription.getId());
         }
+        Subscription existing = subscriptionManager.getSubscription(subscription.getId());
         if (subscriptionManager.unsubscribe(subscription.getId())) {
+            if (existing != null && existing.getEndpointUrl() != null) {
+                // created again on demand, if another subscription uses the same URL
+                subscriberEndpoints.remove(existing.getEndpointUrl().trim());
+            }
             //send the response
             if (log.isDebugEnabled()) {
                 log.debug("Sending UnSubscribe responce for SynapseSubscription ID : " +
@@ -412,21 +494,33 @@ public class SynapseEventSource extends SynapseMessageReceiver {
     }
 
     /**
-     * Create a Endpoint for a given URL
+     * Get the Endpoint for a given URL, creating it on first use
      *
      * @param endpointUrl      URL
      * @param se    synapse environment
-     * @return AddressEndpoint address endpoint
+     * @return AddressEndpoint address endpoint, shared by the subscribers of the same URL
      */
     private Endpoint getEndpointFromURL(String endpointUrl, SynapseEnvironment se) {
-        AddressEndpoint endpoint = new AddressEndpoint();
+        String address = endpointUrl.trim();
+        Endpoint endpoint = subscriberEndpoints.get(address);
+        if (endpoint != null) {
+            return endpoint;
+        }
+
+        AddressEndpoint newEndpoint = new AddressEndpoint();
         EndpointDefinition def = new EndpointDefinition();
-        def.setAddress(endpointUrl.trim());
-        endpoint.setDefinition(def);
+        def.setAddress(address);
+        newEndpoint.setDefinition(def);
 
-        endpoint.init(se);
+        newEndpoint.init(se);
 
-        return endpoint;
+        endpoint = subscriberEndpoints.putIfAbsent(address, newEndpoint);
+        if (endpoint != null) {
+            // another delivery created the endpoint first, release the one that lost the race
+            newEndpoint.destroy();
+            return endpoint;
+        }
+        return newEndpoint;
     }
 
     /**
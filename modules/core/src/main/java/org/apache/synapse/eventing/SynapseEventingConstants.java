@@ -25,7 +25,11 @@ package org.apache.synapse.eventing;
 public class SynapseEventingConstants {
     public static final String TOPIC_FILTER_DIALECT =
             "http://synapse.apache.org/eventing/dialect/topicFilter";
+    public static final String XPATH_FILTER_DIALECT =
+            "http://www.w3.org/TR/1999/REC-xpath-19991116";
     public static final String STATIC_ENTRY = "staticEntry";
     public static final String SERVICE_TYPE = "serviceType";
     public static final String EVENTING_ST  = "eventing";
+    public static final String DELIVERY_WINDOW = "synapse.eventing.delivery_window";
+    public static final int DEFAULT_DELIVERY_WINDOW = 32;
 }
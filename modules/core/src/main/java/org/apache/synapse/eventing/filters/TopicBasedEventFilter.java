@@ -37,7 +37,7 @@ public class TopicBasedEventFilter implements EventFilter<MessageContext> {
 
     private AXIOMXPath sourceXpath;
     private String resultValue;
-    private static final String FILTER_SEP = "/";
+    public static final String FILTER_SEP = "/";
 
     private static final Log log = LogFactory.getLog(TopicBasedEventFilter.class);
 
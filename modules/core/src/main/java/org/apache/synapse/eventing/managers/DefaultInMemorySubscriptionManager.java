@@ -172,6 +172,10 @@ public boolean unsubscribe(String id) throws EventException {
         }
     }
 
+    protected SynapseXPath getTopicXPath() {
+        return topicXPath;
+    }
+
     @Override
     public void addProperty(String name, String value) {
         properties.put(name, value);
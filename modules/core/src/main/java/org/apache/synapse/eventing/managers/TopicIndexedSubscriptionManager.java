@@ -0,0 +1,250 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.eventing.managers;
+
+import org.apache.axiom.om.OMElement;
+import org.apache.axis2.context.MessageContext;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.eventing.SynapseEventingConstants;
+import org.apache.synapse.eventing.filters.TopicBasedEventFilter;
+import org.apache.synapse.util.xpath.SynapseXPath;
+import org.jaxen.JaxenException;
+import org.wso2.eventing.Event;
+import org.wso2.eventing.Subscription;
+import org.wso2.eventing.exceptions.EventException;
+
+import java.util.Calendar;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-memory subscription manager which indexes the subscriptions, so that the cost of
+ * finding the subscribers of an event does not grow with the number of subscriptions.
+ * <p/>
+ * Topic subscriptions are kept in a tree keyed by the segments of the topic (separated by
+ * {@link TopicBasedEventFilter#FILTER_SEP}). The topic of an event is extracted once and the
+ * tree is walked along its segments, collecting the subscriptions for the topic itself and
+ * for all of its parent topics, which gives the same matches as the
+ * {@link TopicBasedEventFilter}. Subscriptions using the XPath filter dialect are grouped by
+ * their expression, so that every distinct expression is evaluated only once per event.
+ * <p/>
+ * Subscriptions of any other dialect are treated as topic subscriptions, as done by the
+ * {@link DefaultInMemorySubscriptionManager}.
+ */
+public class TopicIndexedSubscriptionManager extends DefaultInMemorySubscriptionManager {
+
+    private static final Log log = LogFactory.getLog(TopicIndexedSubscriptionManager.class);
+
+    private final TopicNode topics = new TopicNode(null, null);
+    private final Map<String, XPathGroup> xpathGroups =
+            new ConcurrentHashMap<String, XPathGroup>();
+
+    @Override
+    public synchronized String subscribe(Subscription subscription) throws EventException {
+        Subscription existing = null;
+        if (subscription.getId() != null) {
+            existing = getSubscription(subscription.getId());
+        }
+        String id = super.subscribe(subscription);
+        if (existing != null) {
+            removeFromIndex(existing);
+        }
+        addToIndex(subscription);
+        return id;
+    }
+
+    @Override
+    public synchronized boolean unsubscribe(String id) throws EventException {
+        Subscription subscription = getSubscription(id);
+        if (super.unsubscribe(id)) {
+            removeFromIndex(subscription);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public List<Subscription> getMatchingSubscriptions(Event<MessageContext> event)
+            throws EventException {
+
+        List<Subscription> list = new LinkedList<Subscription>();
+        Calendar current = Calendar.getInstance();
+        MessageContext msgCtx = event.getMessage();
+
+        String topic = getTopic(msgCtx);
+        if (topic != null) {
+            TopicNode node = topics;
+            for (String segment : split(topic)) {
+                node = node.children.get(segment);
+                if (node == null) {
+                    break;
+                }
+                addValidSubscriptions(node.subscriptions, current, list);
+            }
+        }
+
+        for (XPathGroup group : xpathGroups.values()) {
+            if (group.matches(msgCtx)) {
+                addValidSubscriptions(group.subscriptions, current, list);
+            }
+        }
+        return list;
+    }
+
+    private String getTopic(MessageContext msgCtx) {
+        try {
+            OMElement topicNode = (OMElement) getTopicXPath().selectSingleNode(
+                    msgCtx.getEnvelope());
+            if (topicNode != null) {
+                return topicNode.getText();
+            }
+        } catch (JaxenException e) {
+            log.error("Error evaluating the topic xpath", e);
+        }
+        return null;
+    }
+
+    private void addValidSubscriptions(Map<String, Subscription> subscriptions,
+                                       Calendar current, List<Subscription> list) {
+        for (Subscription subscription : subscriptions.values()) {
+            // add only valid subscriptions by checking the expiration
+            if (subscription.getExpires() == null || current.before(subscription.getExpires())) {
+                list.add(subscription);
+            }
+        }
+    }
+
+    private void addToIndex(Subscription subscription) {
+        String filter = subscription.getFilterValue();
+        if (filter == null) {
+            // the topic filter never matches a subscription without a filter value
+            return;
+        }
+
+        if (SynapseEventingConstants.XPATH_FILTER_DIALECT.equals(
+                subscription.getFilterDialect())) {
+            XPathGroup group = xpathGroups.get(filter);
+            if (group == null) {
+                try {
+                    group = new XPathGroup(new SynapseXPath(filter));
+                } catch (JaxenException e) {
+                    log.error("Invalid XPath filter : " + filter + " in the subscription : " +
+                            subscription.getId() + ". It will not receive any events", e);
+                    return;
+                }
+                xpathGroups.put(filter, group);
+            }
+            group.subscriptions.put(subscription.getId(), subscription);
+        } else {
+            TopicNode node = topics;
+            for (String segment : split(filter)) {
+                TopicNode child = node.children.get(segment);
+                if (child == null) {
+                    child = new TopicNode(node, segment);
+                    node.children.put(segment, child);
+                }
+                node = child;
+            }
+            node.subscriptions.put(subscription.getId(), subscription);
+        }
+    }
+
+    private void removeFromIndex(Subscription subscription) {
+        String filter = subscription.getFilterValue();
+        if (filter == null) {
+            return;
+        }
+
+        if (SynapseEventingConstants.XPATH_FILTER_DIALECT.equals(
+                subscription.getFilterDialect())) {
+            XPathGroup group = xpathGroups.get(filter);
+            if (group != null) {
+                group.subscriptions.remove(subscription.getId());
+                if (group.subscriptions.isEmpty()) {
+                    xpathGroups.remove(filter);
+                }
+            }
+        } else {
+            TopicNode node = topics;
+            for (String segment : split(filter)) {
+                node = node.children.get(segment);
+                if (node == null) {
+                    return;
+                }
+            }
+            node.subscriptions.remove(subscription.getId());
+            // prune the branches which no longer lead to a subscription
+            while (node.parent != null && node.subscriptions.isEmpty() &&
+                    node.children.isEmpty()) {
+                node.parent.children.remove(node.segment);
+                node = node.parent;
+            }
+        }
+    }
+
+    private static String[] split(String topic) {
+        return topic.split(TopicBasedEventFilter.FILTER_SEP, -1);
+    }
+
+    /**
+     * A segment of the topic tree, with the subscriptions of the topic ending at this segment
+     */
+    private static class TopicNode {
+
+        private final TopicNode parent;
+        private final String segment;
+        private final Map<String, TopicNode> children = new ConcurrentHashMap<String, TopicNode>();
+        /** The subscriptions by id, like in the store of the parent manager */
+        private final Map<String, Subscription> subscriptions =
+                new ConcurrentHashMap<String, Subscription>();
+
+        TopicNode(TopicNode parent, String segment) {
+            this.parent = parent;
+            this.segment = segment;
+        }
+    }
+
+    /**
+     * The subscriptions sharing the same XPath filter expression
+     */
+    private static class XPathGroup {
+
+        private final SynapseXPath xpath;
+        /** The subscriptions by id */
+        private final Map<String, Subscription> subscriptions =
+                new ConcurrentHashMap<String, Subscription>();
+
+        XPathGroup(SynapseXPath xpath) {
+            this.xpath = xpath;
+        }
+
+        boolean matches(MessageContext msgCtx) {
+            try {
+                return xpath.booleanValueOf(msgCtx.getEnvelope());
+            } catch (JaxenException e) {
+                log.error("Error evaluating the XPath filter : " + xpath, e);
+                return false;
+            }
+        }
+    }
+}
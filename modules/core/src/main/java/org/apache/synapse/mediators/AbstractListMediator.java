@@ -42,6 +42,19 @@ public abstract class AbstractListMediator extends AbstractMediator
 
     @Override
     public boolean mediate(MessageContext synCtx) {
+        return mediate(synCtx, 0);
+    }
+
+    /**
+     * Mediate the message through the child mediators, starting from the given position. This
+     * is used to continue the mediation of a message suspended by a non-blocking mediator.
+     *
+     * @param synCtx the message to be mediated
+     * @param startPosition position of the first child mediator to be invoked
+     * @return false if a child mediator stopped the flow, true otherwise
+     * @see Continuation
+     */
+    public boolean mediate(MessageContext synCtx, int startPosition) {
 
         int parentsEffectiveTraceState = synCtx.getTracingState();
         // if I have been explicitly asked to enable or disable tracing, set it to the message
@@ -49,6 +62,7 @@ public abstract class AbstractListMediator extends AbstractMediator
         setEffectiveTraceState(synCtx);
         int myEffectiveTraceState = synCtx.getTracingState();
 
+        Continuation.enter(synCtx);
         try {
             SynapseLog synLog = getLog(synCtx);
             if (synLog.isTraceOrDebugEnabled()) {
@@ -63,10 +77,12 @@ public abstract class AbstractListMediator extends AbstractMediator
                 }
             }
 
-            for (Mediator mediator : mediators) {
+            for (int i = startPosition; i < mediators.size(); i++) {
                 // ensure correct trace state after each invocation of a mediator
                 synCtx.setTracingState(myEffectiveTraceState);
-                if (!mediator.mediate(synCtx)) {
+                int faultDepth = synCtx.getFaultStack().size();
+                if (!mediators.get(i).mediate(synCtx)) {
+                    Continuation.stopped(synCtx, this, i + 1, faultDepth);
                     return false;
                 }
             }
@@ -76,6 +92,7 @@ public abstract class AbstractListMediator extends AbstractMediator
             handleException("Runtime error occurred while mediating the message", e, synCtx);
         } finally {
             synCtx.setTracingState(parentsEffectiveTraceState);
+            Continuation.exit(synCtx);
         }
         return true;
     }
@@ -0,0 +1,322 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.FaultHandler;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Stack;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Allows a mediator to suspend the mediation of a message without blocking the calling thread,
+ * and to continue the mediation later from the mediator following it. A non-blocking mediator
+ * calls {@link #suspend(MessageContext)} and returns false. While the flow unwinds, every
+ * enclosing {@link AbstractListMediator} records the position it has to continue from. Once
+ * the flow has completely unwound and the mediator has called {@link #resume(Runnable)}, the
+ * recorded positions are mediated on the thread which completed last.
+ * <p/>
+ * The fault handlers which were active at the point of suspension are restored for the
+ * continued flow, so that errors are still handled by the enclosing onError sequences.
+ */
+public final class Continuation {
+
+    private static final Log log = LogFactory.getLog(Continuation.class);
+
+    private static final String CONTINUATION_STATE = "_SYNAPSE_CONTINUATION_STATE";
+
+    /** the flow has unwound and the mediator has resumed */
+    private static final int READY = 2;
+
+    private final MessageContext synCtx;
+    private final State state;
+    private final AtomicInteger signals = new AtomicInteger(0);
+    private final AtomicBoolean resumed = new AtomicBoolean(false);
+
+    private final List<Frame> frames = new ArrayList<Frame>();
+    private List<FaultHandler> faultHandlers = null;
+    private Callable<Boolean> onResume = null;
+
+    private Continuation(MessageContext synCtx, State state) {
+        this.synCtx = synCtx;
+        this.state = state;
+    }
+
+    /**
+     * Suspend the mediation of the given message. The calling mediator must return false
+     * immediately afterwards and call {@link #resume(Runnable)} once its work is complete.
+     *
+     * @param synCtx the message being mediated
+     * @return the continuation to be resumed
+     */
+    public static Continuation suspend(MessageContext synCtx) {
+        State state = getState(synCtx, true);
+        if (state.depth == 0) {
+            throw new SynapseException("The mediation of a message can only be suspended " +
+                    "within a sequence");
+        }
+        if (state.suspension != null) {
+            throw new SynapseException("The mediation of the message has already been suspended");
+        }
+        state.suspension = new Continuation(synCtx, state);
+        return state.suspension;
+    }
+
+    /**
+     * Withdraw a suspension before the calling mediator returns, e.g. because the operation it
+     * started has failed synchronously
+     */
+    public void cancel() {
+        if (state.suspension == this) {
+            state.suspension = null;
+        }
+    }
+
+    /**
+     * Continue the mediation of the message. The given task is executed before the remaining
+     * mediators, and may throw a {@link SynapseException} to hand the message over to the
+     * fault handlers instead. Only the first call has any effect.
+     *
+     * @param task the task completing the work of the suspended mediator
+     */
+    public void resume(final Runnable task) {
+        resume(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                task.run();
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Continue the mediation of the message with a task which takes the place of the suspended
+     * mediator, e.g. by mediating a sequence. The remaining mediators are only executed if the
+     * task returns true, and follow the mediators of the task if it suspends the mediation
+     * again. Only the first call has any effect.
+     *
+     * @param task the task completing the work of the suspended mediator
+     */
+    public void resume(Callable<Boolean> task) {
+        if (resumed.compareAndSet(false, true)) {
+            this.onResume = task;
+            signal();
+        }
+    }
+
+    /**
+     * Called by a mediator entering a list of mediators which may suspend the flow. A suspended
+     * flow is only continued once every mediator which entered has exited.
+     *
+     * @param synCtx the message being mediated
+     */
+    public static void enter(MessageContext synCtx) {
+        getState(synCtx, true).depth++;
+    }
+
+    /**
+     * Checks whether the flow of the given message is unwinding due to a suspension. This is
+     * only meaningful between {@link #enter(MessageContext)} and {@link #exit(MessageContext)}.
+     *
+     * @param synCtx the message being mediated
+     * @return true if the mediation of the message will be continued later
+     */
+    public static boolean isSuspended(MessageContext synCtx) {
+        State state = getState(synCtx, false);
+        return state != null && state.suspension != null;
+    }
+
+    /**
+     * Called by a list mediator when one of its children returned false
+     *
+     * @param synCtx the message being mediated
+     * @param mediator the list mediator
+     * @param next position of the mediator to continue from
+     * @param faultDepth the number of fault handlers active when the child was invoked. The
+     *                   handlers the child pushed itself are not restored for this list
+     */
+    static void stopped(MessageContext synCtx, AbstractListMediator mediator, int next,
+                        int faultDepth) {
+        State state = getState(synCtx, false);
+        if (state == null || state.suspension == null) {
+            return;
+        }
+
+        Continuation continuation = state.suspension;
+        if (continuation.faultHandlers == null) {
+            // the innermost list mediator sees all the fault handlers active for the mediator
+            continuation.faultHandlers =
+                    new ArrayList<FaultHandler>(synCtx.getFaultStack());
+        }
+        continuation.frames.add(new Frame(mediator, next, faultDepth));
+    }
+
+    /**
+     * Called by a mediator leaving a list of mediators entered with
+     * {@link #enter(MessageContext)}
+     *
+     * @param synCtx the message being mediated
+     */
+    public static void exit(MessageContext synCtx) {
+        State state = getState(synCtx, false);
+        if (state == null || --state.depth > 0 || state.suspension == null) {
+            return;
+        }
+
+        Continuation continuation = state.suspension;
+        state.suspension = null;
+        if (state.remaining != null) {
+            // suspended again while being resumed, carry over what was left of the old flow
+            continuation.frames.addAll(state.remaining);
+            state.remaining = null;
+        }
+        continuation.signal();
+    }
+
+    private void signal() {
+        if (signals.incrementAndGet() == READY) {
+            run();
+        }
+    }
+
+    private void run() {
+        List<Frame> remaining = null;
+        try {
+            if (!frames.isEmpty()) {
+                restoreFaultStack(frames.get(0).faultDepth);
+            }
+            remaining = new ArrayList<Frame>(frames);
+            state.remaining = remaining;
+            boolean result = Boolean.TRUE.equals(onResume.call());
+            if (state.remaining != remaining) {
+                // suspended again by the task, all the frames now belong to the new continuation
+                return;
+            }
+            state.remaining = null;
+            if (!result) {
+                return;
+            }
+
+            for (int i = 0; i < frames.size(); i++) {
+                Frame frame = frames.get(i);
+                restoreFaultStack(frame.faultDepth);
+
+                remaining = new ArrayList<Frame>(frames.subList(i + 1, frames.size()));
+                state.remaining = remaining;
+                result = frame.mediator.mediate(synCtx, frame.position);
+                if (state.remaining != remaining) {
+                    // suspended again, the remaining frames now belong to the new continuation
+                    return;
+                }
+                state.remaining = null;
+                if (!result) {
+                    return;
+                }
+            }
+
+        } catch (SynapseException e) {
+            clearRemaining(remaining);
+            handleFault(e);
+        } catch (Exception e) {
+            clearRemaining(remaining);
+            log.error("Unexpected error continuing the mediation of a suspended message", e);
+            handleFault(e);
+        } catch (Throwable t) {
+            clearRemaining(remaining);
+            log.error("Unexpected error continuing the mediation of a suspended message, " +
+                    "message dropped", t);
+        }
+    }
+
+    private void clearRemaining(List<Frame> remaining) {
+        if (remaining != null && state.remaining == remaining) {
+            state.remaining = null;
+        }
+    }
+
+    private void restoreFaultStack(int depth) {
+        Stack<FaultHandler> faultStack = synCtx.getFaultStack();
+        faultStack.clear();
+        if (faultHandlers != null) {
+            faultStack.addAll(faultHandlers.subList(0, Math.min(depth, faultHandlers.size())));
+        }
+    }
+
+    private void handleFault(Exception e) {
+        Stack<FaultHandler> faultStack = synCtx.getFaultStack();
+        if (!faultStack.isEmpty()) {
+            faultStack.pop().handleFault(synCtx, e);
+        } else {
+            log.warn("Exception encountered but no fault handler found - message dropped");
+        }
+    }
+
+    private static State getState(MessageContext synCtx, boolean create) {
+        Object o = synCtx.getProperty(CONTINUATION_STATE);
+        // properties are copied to cloned messages, which must not share the state
+        if (o instanceof State && ((State) o).owner == synCtx) {
+            return (State) o;
+        }
+        if (!create) {
+            return null;
+        }
+        State state = new State(synCtx);
+        synCtx.setProperty(CONTINUATION_STATE, state);
+        return state;
+    }
+
+    /**
+     * Per message bookkeeping of the list mediators currently executing the message
+     */
+    private static class State {
+
+        private final MessageContext owner;
+        private int depth = 0;
+        private Continuation suspension = null;
+        private List<Frame> remaining = null;
+
+        State(MessageContext owner) {
+            this.owner = owner;
+        }
+    }
+
+    /**
+     * A list mediator and the position within it to continue the mediation from
+     */
+    private static class Frame {
+
+        private final AbstractListMediator mediator;
+        private final int position;
+        private final int faultDepth;
+
+        Frame(AbstractListMediator mediator, int position, int faultDepth) {
+            this.mediator = mediator;
+            this.position = position;
+            this.faultDepth = faultDepth;
+        }
+    }
+}
@@ -24,6 +24,7 @@ import org.apache.synapse.aspects.ComponentType;
 import org.apache.synapse.aspects.statistics.StatisticsReporter;
 import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.mediators.AbstractListMediator;
+import org.apache.synapse.mediators.Continuation;
 import org.apache.synapse.mediators.Value;
 import org.apache.synapse.mediators.MediatorFaultHandler;
 
@@ -63,11 +64,17 @@ public class SequenceMediator extends AbstractListMediator implements Nameable {
      * change of the synapse configuration. It is the responsibility of the
      * SynapseConfiguration builder to ensure that dead references are not present.
      *
+     * <p/>
+     * When the mediation of the message is continued from the given position after a
+     * suspension, the error handler is already in place and the start of the sequence has
+     * already been reported, so only the end of the sequence is processed.
+     *
      * @param synCtx the synapse message
+     * @param startPosition position of the first child mediator to be invoked
      * @return as per standard mediator result
      */
     @Override
-    public boolean mediate(MessageContext synCtx) {
+    public boolean mediate(MessageContext synCtx, int startPosition) {
 
         SynapseLog synLog = getLog(synCtx);
 
@@ -89,8 +96,10 @@ public class SequenceMediator extends AbstractListMediator implements Nameable {
 
             // Setting Required property to reportForComponent the sequence aspects
 
+            boolean suspended = false;
+            Continuation.enter(synCtx);
             try {
-                if (isStatisticsEnable()) {
+                if (startPosition == 0 && isStatisticsEnable()) {
                     StatisticsReporter.reportForComponent(synCtx,
                             getAspectConfiguration(), ComponentType.SEQUENCE);
                 }
@@ -99,20 +108,31 @@ public class SequenceMediator extends AbstractListMediator implements Nameable {
                 if (errorHandler != null) {
                     errorHandlerMediator = synCtx.getSequence(errorHandler);
 
-                    if (errorHandlerMediator != null) {
+                    // when continued after a suspension, the error handler is already in place
+                    if (startPosition == 0 && errorHandlerMediator != null) {
                         if (synLog.isTraceOrDebugEnabled()) {
                             synLog.traceOrDebug("Setting the onError handler : " +
                                     errorHandler + " for the sequence : " + name);
                         }
                         synCtx.pushFaultHandler(
                                 new MediatorFaultHandler(errorHandlerMediator));
-                    } else {
+                    } else if (startPosition == 0) {
                         synLog.auditWarn("onError handler : " + errorHandler + " for sequence : " +
                                 name + " cannot be found");
                     }
                 }
 
-                boolean result = super.mediate(synCtx);
+                boolean result = super.mediate(synCtx, startPosition);
+
+                if (!result && Continuation.isSuspended(synCtx)) {
+                    // the end of the sequence is processed when the mediation continues
+                    suspended = true;
+                    if (synLog.isTraceOrDebugEnabled()) {
+                        synLog.traceOrDebug("Suspended : Sequence <" +
+                                (name == null ? "anonymous" : name) + ">");
+                    }
+                    return false;
+                }
 
                 // if we pushed an error handler, pop it from the fault stack
                 // before we exit normally without an exception
@@ -142,7 +162,7 @@ public class SequenceMediator extends AbstractListMediator implements Nameable {
 
             } finally {
 
-                if (isStatisticsEnable()) {
+                if (!suspended && isStatisticsEnable()) {
                     boolean shouldReport = Boolean.parseBoolean(
                             String.valueOf(synCtx.getProperty(SynapseConstants.OUT_ONLY)));
                     if (!shouldReport) {
@@ -154,6 +174,8 @@ public class SequenceMediator extends AbstractListMediator implements Nameable {
                                 getAspectConfiguration(), ComponentType.SEQUENCE);
                     }
                 }
+                // the flow must not be continued before the end of the sequence is processed
+                Continuation.exit(synCtx);
             }
 
         } else {
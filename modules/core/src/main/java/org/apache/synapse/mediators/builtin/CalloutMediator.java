@@ -25,12 +25,14 @@ import org.apache.axiom.soap.SOAPBody;
 import org.apache.axiom.soap.SOAPHeader;
 import org.apache.axis2.AxisFault;
 import org.apache.axis2.Constants;
+import org.apache.synapse.FaultHandler;
 import org.apache.synapse.ManagedLifecycle;
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseConstants;
 import org.apache.synapse.SynapseException;
 import org.apache.synapse.SynapseLog;
 import org.apache.synapse.core.SynapseEnvironment;
+import org.apache.synapse.core.axis2.AsyncResponseHandler;
 import org.apache.synapse.core.axis2.Axis2BlockingClient;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.endpoints.AbstractEndpoint;
@@ -39,6 +41,7 @@ import org.apache.synapse.endpoints.DefaultEndpoint;
 import org.apache.synapse.endpoints.Endpoint;
 import org.apache.synapse.endpoints.EndpointDefinition;
 import org.apache.synapse.mediators.AbstractMediator;
+import org.apache.synapse.mediators.Continuation;
 import org.apache.synapse.util.MessageHelper;
 import org.apache.synapse.util.xpath.SynapseXPath;
 import org.jaxen.JaxenException;
@@ -46,13 +49,18 @@ import org.jaxen.JaxenException;
 import java.util.List;
 
 /**
- * <callout [serviceURL="string"] [action="string"][passHeaders="true|false"] [initAxis2ClientOptions="true|false"]>
+ * <callout [serviceURL="string"] [action="string"][passHeaders="true|false"] [initAxis2ClientOptions="true|false"] [async="true|false"]>
  * <configuration [axis2xml="string"] [repository="string"]/>?
  * <endpoint/>?
  * <source xpath="expression" | key="string">? <!-- key can be a MC property or entry key -->
  * <target xpath="expression" | key="string"/>?
  * <enableSec policy="string" | outboundPolicy="String" | inboundPolicy="String"/>?
  * </callout>
+ *
+ * By default the calling thread is blocked until the response arrives. When async is set,
+ * the request is sent through the non-blocking transport and the mediation of the current
+ * message is suspended. The calling thread is released, and the mediators following the
+ * callout are invoked once the response (or a fault) has been received.
  */
 public class CalloutMediator extends AbstractMediator implements ManagedLifecycle {
 
@@ -90,6 +98,8 @@ public class CalloutMediator extends AbstractMediator implements ManagedLifecycl
 
     private Axis2BlockingClient blockingMsgSender = null;
 
+    private boolean async = false;
+
     @Override
     public boolean mediate(MessageContext synCtx) {
 
@@ -159,6 +169,10 @@ public class CalloutMediator extends AbstractMediator implements ManagedLifecycl
                 }
             }
 
+            if (async) {
+                return sendAsync(synCtx, synapseOutMsgCtx, synLog);
+            }
+
             MessageContext resultMsgCtx = null;
             try {
                 if ("true".equals(synCtx.getProperty(SynapseConstants.OUT_ONLY))) {
@@ -173,33 +187,8 @@ public class CalloutMediator extends AbstractMediator implements ManagedLifecycl
                 handleFault(synCtx, ex);
             }
 
-            if (synLog.isTraceTraceEnabled()) {
-                synLog.traceTrace("Response payload received : " + resultMsgCtx.getEnvelope());
-            }
-
             if (resultMsgCtx != null) {
-                if (targetXPath != null) {
-                    Object o = targetXPath.evaluate(synCtx);
-                    OMElement result = resultMsgCtx.getEnvelope().getBody().getFirstElement();
-                    if (o != null && o instanceof OMElement) {
-                        OMNode tgtNode = (OMElement) o;
-                        tgtNode.insertSiblingAfter(result);
-                        tgtNode.detach();
-                    } else if (o != null && o instanceof List && !((List) o).isEmpty()) {
-                        // Always fetches *only* the first
-                        OMNode tgtNode = (OMElement) ((List) o).get(0);
-                        tgtNode.insertSiblingAfter(result);
-                        tgtNode.detach();
-                    } else {
-                        handleException("Evaluation of target XPath expression : " +
-                                        targetXPath.toString() + " did not yeild an OMNode", synCtx);
-                    }
-                } else if (targetKey != null) {
-                    OMElement result = resultMsgCtx.getEnvelope().getBody().getFirstElement();
-                    synCtx.setProperty(targetKey, result);
-                } else {
-                    synCtx.setEnvelope(resultMsgCtx.getEnvelope());
-                }
+                applyResult(synCtx, resultMsgCtx);
             } else {
                 synLog.traceOrDebug("Service returned a null response");
             }
@@ -216,6 +205,136 @@ public class CalloutMediator extends AbstractMediator implements ManagedLifecycl
         return true;
     }
 
+    /**
+     * Send the request through the non-blocking transport and suspend the mediation of the
+     * current message until the response arrives
+     */
+    private boolean sendAsync(final MessageContext synCtx, MessageContext synapseOutMsgCtx,
+                              SynapseLog synLog) {
+
+        // the fault handlers of the current flow must not be triggered by the outgoing message
+        synapseOutMsgCtx.getFaultStack().clear();
+
+        if ("true".equals(synCtx.getProperty(SynapseConstants.OUT_ONLY))) {
+            endpoint.send(synapseOutMsgCtx);
+            synLog.traceOrDebug("End : Callout mediator");
+            return true;
+        }
+
+        final Continuation continuation = Continuation.suspend(synCtx);
+        synapseOutMsgCtx.setProperty(SynapseConstants.ASYNC_RESPONSE_HANDLER,
+                new AsyncResponseHandler() {
+                    @Override
+                    public void handleResponse(final MessageContext response) {
+                        continuation.resume(new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    applyResult(synCtx, response);
+                                } catch (AxisFault e) {
+                                    handleException("Error invoking service : " + serviceURL +
+                                            (action != null ? " with action : " + action : ""),
+                                            e, synCtx);
+                                } catch (JaxenException e) {
+                                    handleException("Error while evaluating the XPath " +
+                                            "expression: " + targetXPath, e, synCtx);
+                                }
+                            }
+                        });
+                    }
+                });
+        synapseOutMsgCtx.pushFaultHandler(new FaultHandler() {
+            @Override
+            public void onFault(final MessageContext outCtx) {
+                continuation.resume(new Runnable() {
+                    @Override
+                    public void run() {
+                        handleAsyncFault(synCtx, outCtx);
+                    }
+                });
+            }
+        });
+
+        // the response to the client is written by the continued flow
+        org.apache.axis2.context.OperationContext opCtx =
+                ((Axis2MessageContext) synCtx).getAxis2MessageContext().getOperationContext();
+        if (opCtx != null) {
+            opCtx.setProperty(Constants.RESPONSE_WRITTEN, "SKIP");
+        }
+
+        try {
+            endpoint.send(synapseOutMsgCtx);
+        } catch (RuntimeException e) {
+            continuation.cancel();
+            throw e;
+        }
+
+        if (synLog.isTraceOrDebugEnabled()) {
+            synLog.traceOrDebug("Mediation suspended until the response is received");
+            synLog.traceOrDebug("End : Callout mediator");
+        }
+        return false;
+    }
+
+    private void applyResult(MessageContext synCtx, MessageContext resultMsgCtx)
+            throws JaxenException, AxisFault {
+
+        SynapseLog synLog = getLog(synCtx);
+        if (synLog.isTraceTraceEnabled()) {
+            synLog.traceTrace("Response payload received : " + resultMsgCtx.getEnvelope());
+        }
+
+        if (targetXPath != null) {
+            Object o = targetXPath.evaluate(synCtx);
+            OMElement result = resultMsgCtx.getEnvelope().getBody().getFirstElement();
+            if (o != null && o instanceof OMElement) {
+                OMNode tgtNode = (OMElement) o;
+                tgtNode.insertSiblingAfter(result);
+                tgtNode.detach();
+            } else if (o != null && o instanceof List && !((List) o).isEmpty()) {
+                // Always fetches *only* the first
+                OMNode tgtNode = (OMElement) ((List) o).get(0);
+                tgtNode.insertSiblingAfter(result);
+                tgtNode.detach();
+            } else {
+                handleException("Evaluation of target XPath expression : " +
+                                targetXPath.toString() + " did not yeild an OMNode", synCtx);
+            }
+        } else if (targetKey != null) {
+            OMElement result = resultMsgCtx.getEnvelope().getBody().getFirstElement();
+            synCtx.setProperty(targetKey, result);
+        } else {
+            synCtx.setEnvelope(resultMsgCtx.getEnvelope());
+        }
+    }
+
+    /**
+     * Copy the error details of a failed non-blocking callout to the suspended message and
+     * hand it over to its fault handlers
+     */
+    private void handleAsyncFault(MessageContext synCtx, MessageContext outCtx) {
+        Object errorCode = outCtx.getProperty(SynapseConstants.ERROR_CODE);
+        synCtx.setProperty(SynapseConstants.ERROR_CODE, errorCode != null ?
+                errorCode : SynapseConstants.CALLOUT_OPERATION_FAILED);
+        Object errorMessage = outCtx.getProperty(SynapseConstants.ERROR_MESSAGE);
+        synCtx.setProperty(SynapseConstants.ERROR_MESSAGE, errorMessage != null ?
+                errorMessage : "Error while performing the callout operation");
+        if (outCtx.getProperty(SynapseConstants.ERROR_DETAIL) != null) {
+            synCtx.setProperty(SynapseConstants.ERROR_DETAIL,
+                    outCtx.getProperty(SynapseConstants.ERROR_DETAIL));
+        }
+        synCtx.setProperty(SynapseConstants.SENDING_FAULT, Boolean.TRUE);
+
+        Object e = outCtx.getProperty(SynapseConstants.ERROR_EXCEPTION);
+        if (e instanceof Exception) {
+            synCtx.setProperty(SynapseConstants.ERROR_EXCEPTION, e);
+            throw new SynapseException("Error while performing the callout operation",
+                    (Exception) e);
+        }
+        throw new SynapseException("Error while performing the callout operation : " +
+                synCtx.getProperty(SynapseConstants.ERROR_MESSAGE));
+    }
+
     private void handleFault(MessageContext synCtx, Exception ex) {
         synCtx.setProperty(SynapseConstants.SENDING_FAULT, Boolean.TRUE);
 
@@ -287,8 +406,10 @@ public class CalloutMediator extends AbstractMediator implements ManagedLifecycl
 
     @Override
     public void init(SynapseEnvironment synEnv) {
-        blockingMsgSender = new Axis2BlockingClient(clientRepository, axis2xml);
-        blockingMsgSender.setInitClientOptions(initClientOptions);
+        if (!async) {
+            blockingMsgSender = new Axis2BlockingClient(clientRepository, axis2xml);
+            blockingMsgSender.setInitClientOptions(initClientOptions);
+        }
 
         EndpointDefinition endpointDefinition = null;
 
@@ -323,16 +444,23 @@ public class CalloutMediator extends AbstractMediator implements ManagedLifecycl
                 }
             }
         }
+
+        if (async && isWrappingEndpointCreated) {
+            // the non-blocking transport sends through an initialized endpoint
+            endpoint.init(synEnv);
+        }
     }
 
     @Override
     public void destroy() {
-        if (!isWrappingEndpointCreated) {
+        if (!isWrappingEndpointCreated || async) {
             endpoint.destroy();
         }
-        try {
-            blockingMsgSender.cleanup();
-        } catch (AxisFault ignore) {}
+        if (blockingMsgSender != null) {
+            try {
+                blockingMsgSender.cleanup();
+            } catch (AxisFault ignore) {}
+        }
     }
 
     public String getServiceURL() {
@@ -415,6 +543,14 @@ public class CalloutMediator extends AbstractMediator implements ManagedLifecycl
         this.initClientOptions = initClientOptions;
     }
 
+    public boolean isAsync() {
+        return async;
+    }
+
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
     /**
      * Is WS-Security turned on?
      *
@@ -262,8 +262,7 @@ public abstract class AbstractDBMediator extends AbstractMediator implements Man
             if (param == null) {
                 continue;
             }
-            String value = (param.getPropertyName() != null ?
-                    param.getPropertyName() : param.getXpath().stringValueOf(msgCtx));
+            String value = getParameterValue(param, msgCtx);
 
             if (synLog.isTraceOrDebugEnabled()) {
                 synLog.traceOrDebug("Setting as parameter : " + column + " value : " + value +
@@ -271,133 +270,163 @@ public abstract class AbstractDBMediator extends AbstractMediator implements Man
                         "types)");
             }
 
-            switch (param.getType()) {
-                // according to J2SE 1.5 /docs/guide/jdbc/getstart/mapping.html
-                case Types.CHAR:
-                case Types.VARCHAR:
-                case Types.LONGVARCHAR: {
-                    if (value != null && value.length() != 0) {
-                        ps.setString(column++, value);
-                    } else {
-                        ps.setString(column++, null);
-                    }
-                    break;
-                }
-                case Types.NUMERIC:
-                case Types.DECIMAL: {
-                    if (value != null && value.length() != 0) {
-                        ps.setBigDecimal(column++, new BigDecimal(value));
-                    } else {
-                        ps.setBigDecimal(column++, null);
-                    }
-                    break;
+            if (!setParameter(ps, column, param.getType(), value)) {
+                String msg = "Trying to set an un-supported JDBC Type : " + param.getType() +
+                        " against column : " + column + " and statement : " +
+                        stmnt.getRawStatement() +
+                        " used by a DB mediator against DataSource : " + getDSName() +
+                        " (see java.sql.Types for valid type values)";
+                handleException(msg, msgCtx);
+            }
+            column++;
+        }
+
+        if (synLog.isTraceOrDebugEnabled()) {
+            synLog.traceOrDebug("Successfully prepared statement : " + stmnt.getRawStatement() +
+                " against DataSource : " + getDSName());
+        }
+        return ps;
+    }
+
+    /**
+     * Evaluate the value of a statement parameter against the current message
+     *
+     * @param param the statement parameter
+     * @param msgCtx current message
+     * @return the string value of the parameter
+     */
+    protected String getParameterValue(Statement.Parameter param, MessageContext msgCtx) {
+        return param.getPropertyName() != null ?
+                param.getPropertyName() : param.getXpath().stringValueOf(msgCtx);
+    }
+
+    /**
+     * Set the value of a statement parameter, converting it to the given JDBC type
+     *
+     * @param ps the prepared statement
+     * @param column index of the parameter
+     * @param type the JDBC type of the parameter (see java.sql.Types)
+     * @param value string value of the parameter, null or empty for SQL NULL
+     * @return false if the given JDBC type is not supported
+     * @throws SQLException on error
+     */
+    protected boolean setParameter(PreparedStatement ps, int column, int type,
+                                   String value) throws SQLException {
+        switch (type) {
+            // according to J2SE 1.5 /docs/guide/jdbc/getstart/mapping.html
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR: {
+                if (value != null && value.length() != 0) {
+                    ps.setString(column, value);
+                } else {
+                    ps.setString(column, null);
                 }
-                case Types.BIT: {
-                    if (value != null && value.length() != 0) {
-                        ps.setBoolean(column++, Boolean.parseBoolean(value));
-                    } else {
-                        ps.setNull(column++, Types.BIT);
-                    }
-                    break;
+                return true;
+            }
+            case Types.NUMERIC:
+            case Types.DECIMAL: {
+                if (value != null && value.length() != 0) {
+                    ps.setBigDecimal(column, new BigDecimal(value));
+                } else {
+                    ps.setBigDecimal(column, null);
                 }
-                case Types.TINYINT: {
-                    if (value != null && value.length() != 0) {
-                        ps.setByte(column++, Byte.parseByte(value));
-                    } else {
-                        ps.setNull(column++, Types.TINYINT);
-                    }
-                    break;
+                return true;
+            }
+            case Types.BIT: {
+                if (value != null && value.length() != 0) {
+                    ps.setBoolean(column, Boolean.parseBoolean(value));
+                } else {
+                    ps.setNull(column, Types.BIT);
                 }
-                case Types.SMALLINT: {
-                    if (value != null && value.length() != 0) {
-                        ps.setShort(column++, Short.parseShort(value));
-                    } else {
-                        ps.setNull(column++, Types.SMALLINT);
-                    }
-                    break;
+                return true;
+            }
+            case Types.TINYINT: {
+                if (value != null && value.length() != 0) {
+                    ps.setByte(column, Byte.parseByte(value));
+                } else {
+                    ps.setNull(column, Types.TINYINT);
                 }
-                case Types.INTEGER: {
-                    if (value != null && value.length() != 0) {
-                        ps.setInt(column++, Integer.parseInt(value));
-                    } else {
-                        ps.setNull(column++, Types.INTEGER);
-                    }
-                    break;
+                return true;
+            }
+            case Types.SMALLINT: {
+                if (value != null && value.length() != 0) {
+                    ps.setShort(column, Short.parseShort(value));
+                } else {
+                    ps.setNull(column, Types.SMALLINT);
                 }
-                case Types.BIGINT: {
-                    if (value != null && value.length() != 0) {
-                        ps.setLong(column++, Long.parseLong(value));
-                    } else {
-                        ps.setNull(column++, Types.BIGINT);
-                    }
-                    break;
+                return true;
+            }
+            case Types.INTEGER: {
+                if (value != null && value.length() != 0) {
+                    ps.setInt(column, Integer.parseInt(value));
+                } else {
+                    ps.setNull(column, Types.INTEGER);
                 }
-                case Types.REAL: {
-                    if (value != null && value.length() != 0) {
-                        ps.setFloat(column++, Float.parseFloat(value));
-                    } else {
-                        ps.setNull(column++, Types.REAL);
-                    }
-                    break;
+                return true;
+            }
+            case Types.BIGINT: {
+                if (value != null && value.length() != 0) {
+                    ps.setLong(column, Long.parseLong(value));
+                } else {
+                    ps.setNull(column, Types.BIGINT);
                 }
-                case Types.FLOAT: {
-                    if (value != null && value.length() != 0) {
-                        ps.setDouble(column++, Double.parseDouble(value));
-                    } else {
-                        ps.setNull(column++, Types.FLOAT);
-                    }
-                    break;
+                return true;
+            }
+            case Types.REAL: {
+                if (value != null && value.length() != 0) {
+                    ps.setFloat(column, Float.parseFloat(value));
+                } else {
+                    ps.setNull(column, Types.REAL);
                 }
-                case Types.DOUBLE: {
-                    if (value != null && value.length() != 0) {
-                        ps.setDouble(column++, Double.parseDouble(value));
-                    } else {
-                        ps.setNull(column++, Types.DOUBLE);
-                    }
-                    break;
+                return true;
+            }
+            case Types.FLOAT: {
+                if (value != null && value.length() != 0) {
+                    ps.setDouble(column, Double.parseDouble(value));
+                } else {
+                    ps.setNull(column, Types.FLOAT);
                 }
-                // skip BINARY, VARBINARY and LONGVARBINARY
-                case Types.DATE: {
-                    if (value != null && value.length() != 0) {
-                        ps.setDate(column++, Date.valueOf(value));
-                    } else {
-                        ps.setNull(column++, Types.DATE);
-                    }
-                    break;
+                return true;
+            }
+            case Types.DOUBLE: {
+                if (value != null && value.length() != 0) {
+                    ps.setDouble(column, Double.parseDouble(value));
+                } else {
+                    ps.setNull(column, Types.DOUBLE);
                 }
-                case Types.TIME: {
-                    if (value != null && value.length() != 0) {
-                        ps.setTime(column++, Time.valueOf(value));
-                    } else {
-                        ps.setNull(column++, Types.TIME);
-                    }
-                    break;
+                return true;
+            }
+            // skip BINARY, VARBINARY and LONGVARBINARY
+            case Types.DATE: {
+                if (value != null && value.length() != 0) {
+                    ps.setDate(column, Date.valueOf(value));
+                } else {
+                    ps.setNull(column, Types.DATE);
                 }
-                case Types.TIMESTAMP: {
-                    if (value != null && value.length() != 0) {
-                        ps.setTimestamp(column++, Timestamp.valueOf(value));
-                    } else {
-                        ps.setNull(column++, Types.TIMESTAMP);
-                    }
-                    break;
+                return true;
+            }
+            case Types.TIME: {
+                if (value != null && value.length() != 0) {
+                    ps.setTime(column, Time.valueOf(value));
+                } else {
+                    ps.setNull(column, Types.TIME);
                 }
-                // skip CLOB, BLOB, ARRAY, DISTINCT, STRUCT, REF, JAVA_OBJECT
-                default: {
-                    String msg = "Trying to set an un-supported JDBC Type : " + param.getType() +
-                            " against column : " + column + " and statement : " +
-                            stmnt.getRawStatement() +
-                            " used by a DB mediator against DataSource : " + getDSName() +
-                            " (see java.sql.Types for valid type values)";
-                    handleException(msg, msgCtx);
+                return true;
+            }
+            case Types.TIMESTAMP: {
+                if (value != null && value.length() != 0) {
+                    ps.setTimestamp(column, Timestamp.valueOf(value));
+                } else {
+                    ps.setNull(column, Types.TIMESTAMP);
                 }
+                return true;
+            }
+            // skip CLOB, BLOB, ARRAY, DISTINCT, STRUCT, REF, JAVA_OBJECT
+            default: {
+                return false;
             }
         }
-
-        if (synLog.isTraceOrDebugEnabled()) {
-            synLog.traceOrDebug("Successfully prepared statement : " + stmnt.getRawStatement() +
-                " against DataSource : " + getDSName());
-        }
-        return ps;
     }
 
     /**
@@ -21,29 +21,120 @@ package org.apache.synapse.mediators.db;
 
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseLog;
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
+import org.apache.synapse.core.SynapseEnvironment;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
- * Simple database table lookup mediator. Designed only for read/lookup
+ * Simple database table lookup mediator. Designed only for read/lookup. The results of a
+ * statement may optionally be cached, keyed by the values bound to its parameters.
  */
 public class DBLookupMediator extends AbstractDBMediator {
 
+    private static final String MBEAN_CATEGORY = "DBLookupCache";
+
+    /** Result caches of the cached statements */
+    private final Map<Statement, LookupCache> caches = new HashMap<Statement, LookupCache>();
+
+    @Override
+    public void init(SynapseEnvironment se) {
+        super.init(se);
+        for (Statement stmnt : getStatementList()) {
+            if (stmnt != null && stmnt.isCached()) {
+                LookupCache cache = new LookupCache(stmnt.getCacheTimeout(),
+                        stmnt.getCacheMaxEntries(), stmnt.getCacheMaxSize());
+                caches.put(stmnt, cache);
+                MBeanRegistrar.getInstance().registerMBean(
+                        new LookupCacheView(cache), MBEAN_CATEGORY, getCacheName(stmnt));
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        for (Statement stmnt : caches.keySet()) {
+            MBeanRegistrar.getInstance().unRegisterMBean(MBEAN_CATEGORY, getCacheName(stmnt));
+        }
+        caches.clear();
+        super.destroy();
+    }
+
+    private String getCacheName(Statement stmnt) {
+        if (stmnt.getCacheName() != null) {
+            return stmnt.getCacheName();
+        }
+        // the same statement may be cached by several mediators, each with its own cache
+        return "dblookup-" + Integer.toHexString(System.identityHashCode(this)) +
+                "-statement-" + Integer.toHexString(stmnt.getRawStatement().hashCode());
+    }
+
+    public LookupCache getCache(Statement stmnt) {
+        return caches.get(stmnt);
+    }
+
     @Override
-    protected void processStatement(Statement stmnt, MessageContext msgCtx) {
+    protected void processStatement(final Statement stmnt, final MessageContext msgCtx) {
 
         SynapseLog synLog = getLog(msgCtx);
 
+        Map<String, String> results;
+        LookupCache cache = caches.get(stmnt);
+        if (cache != null) {
+            List<String> key = new ArrayList<String>(stmnt.getParameters().size());
+            for (Statement.Parameter param : stmnt.getParameters()) {
+                if (param != null) {
+                    key.add(getParameterValue(param, msgCtx));
+                }
+            }
+            if (synLog.isTraceOrDebugEnabled()) {
+                synLog.traceOrDebug("Looking up the result cache of statement : " +
+                        stmnt.getRawStatement() + " for the parameters : " + key);
+            }
+            results = cache.get(key, new Callable<Map<String, String>>() {
+                @Override
+                public Map<String, String> call() {
+                    return executeQuery(stmnt, msgCtx);
+                }
+            });
+        } else {
+            results = executeQuery(stmnt, msgCtx);
+        }
+
+        for (Map.Entry<String, String> result : results.entrySet()) {
+            msgCtx.setProperty(result.getKey(), result.getValue());
+        }
+    }
+
+    /**
+     * Execute the statement and read the requested columns of the first row returned
+     *
+     * @param stmnt the statement to be executed
+     * @param msgCtx the current message
+     * @return the column values by property name, without the columns which are null
+     */
+    private Map<String, String> executeQuery(Statement stmnt, MessageContext msgCtx) {
+
+        SynapseLog synLog = getLog(msgCtx);
+        Map<String, String> results = new HashMap<String, String>();
+
         // execute the prepared statement, and extract the first result row and
         // set as message context properties, any results that have been specified
         Connection con = null;
+        PreparedStatement ps = null;
         ResultSet rs = null;
         try {
             con = this.getDataSource().getConnection();
-            PreparedStatement ps = getPreparedStatement(stmnt, con, msgCtx);
+            ps = getPreparedStatement(stmnt, con, msgCtx);
             rs = ps.executeQuery();
 
             if (rs.next()) {
@@ -69,7 +160,7 @@ public class DBLookupMediator extends AbstractDBMediator {
                                     " returned value : " + obj +
                                     " Setting this as the message property : " + propName);
                         }
-                        msgCtx.setProperty(propName, obj.toString());
+                        results.put(propName, obj.toString());
                     } else {
                         if (synLog.isTraceOrDebugEnabled()) {
                             synLog.traceOrDebugWarn("Column : " + columnStr +
@@ -97,12 +188,19 @@ public class DBLookupMediator extends AbstractDBMediator {
                     rs.close();
                 } catch (SQLException ignore) {}
             }
+            if (ps != null) {
+                // returns the statement to the statement pool of the connection, if any
+                try {
+                    ps.close();
+                } catch (SQLException ignore) {}
+            }
             if (con != null) {
                 try {
                     con.close();
                 } catch (SQLException ignore) {}
             }
         }
+        return Collections.unmodifiableMap(results);
     }
 
 }
@@ -21,16 +21,29 @@ package org.apache.synapse.mediators.db;
 
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseLog;
+import org.apache.synapse.core.SynapseEnvironment;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Connection;
 
 /**
- * A mediator that writes (i.e. inserts one row) to a table using message information
+ * A mediator that writes (i.e. inserts one row) to a table using message information.
+ * When a batch size is configured, rows are buffered and written asynchronously in JDBC
+ * batches instead of one round-trip per message.
  */
 public class DBReportMediator extends AbstractDBMediator {
 
+    public static final long DEFAULT_FLUSH_INTERVAL = 1000;
+
+    /** Number of rows written per batch, batching is disabled when not positive */
+    private int batchSize = 0;
+
+    /** Maximum time in milliseconds a buffered row waits before it is written */
+    private long flushInterval = DEFAULT_FLUSH_INTERVAL;
+
+    private ReportBatcher batcher = null;
+
     public boolean isUseTransaction() {
         return useTransaction;
     }
@@ -43,16 +56,66 @@ public class DBReportMediator extends AbstractDBMediator {
     // default do not participate in a distribute tx
     boolean useTransaction = false;
 
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(long flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * @return the number of rows buffered and not yet written to the database
+     */
+    public int getBufferDepth() {
+        return batcher != null ? batcher.getBufferDepth() : 0;
+    }
+
+    @Override
+    public void init(SynapseEnvironment se) {
+        super.init(se);
+        if (batchSize > 0) {
+            batcher = new ReportBatcher(this, batchSize, flushInterval);
+            batcher.start();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (batcher != null) {
+            batcher.stop();
+            batcher = null;
+        }
+        super.destroy();
+    }
+
     @Override
     protected void processStatement(Statement stmnt, MessageContext msgCtx) {
 
 
         SynapseLog synLog = getLog(msgCtx);
 
+        if (batcher != null) {
+            batcher.add(stmnt, msgCtx);
+            if (synLog.isTraceOrDebugEnabled()) {
+                synLog.traceOrDebug("Buffered a row for statement : " + stmnt.getRawStatement());
+            }
+            return;
+        }
+
         Connection con = null;
+        PreparedStatement ps = null;
         try {
             con = this.getDataSource().getConnection();
-            PreparedStatement ps = getPreparedStatement(stmnt, con, msgCtx);
+            ps = getPreparedStatement(stmnt, con, msgCtx);
             con = ps.getConnection();
             int count = ps.executeUpdate();
 
@@ -82,6 +145,13 @@ public class DBReportMediator extends AbstractDBMediator {
                     " against DataSource : " + getDSName(), e, msgCtx);
         }
         finally {
+            if (ps != null) {
+                // returns the statement to the statement pool of the connection, if any
+                try {
+                    ps.close();
+                } catch (SQLException ignore) {
+                }
+            }
             if (con != null) {
                 try {
                     con.close();
@@ -0,0 +1,336 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.db;
+
+import org.apache.synapse.SynapseException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A read-through cache for the results of a {@link DBLookupMediator} statement, keyed by the
+ * values bound to the statement parameters. Entries expire after a fixed time to live. Once the
+ * cache holds more than the maximum number of entries, or more than the maximum number of
+ * bytes, the least recently used entries are evicted until it is back under a tenth below the
+ * limits, so that evictions are done in batches instead of on every load.
+ * <p/>
+ * Lookups do not take a lock. Loads are single-flight: an entry is published before its result
+ * is loaded, so when several messages miss the same key at the same time only one of them
+ * queries the database, and the others wait for and share its result.
+ */
+public class LookupCache {
+
+    /** Approximate memory taken by an entry besides its keys and values, in bytes */
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private static final Comparator<CachedResult> LEAST_RECENTLY_USED =
+            new Comparator<CachedResult>() {
+        @Override
+        public int compare(CachedResult o1, CachedResult o2) {
+            return o1.lastAccess < o2.lastAccess ? -1 : (o1.lastAccess == o2.lastAccess ? 0 : 1);
+        }
+    };
+
+    private final long timeToLive;
+    private final int maxEntries;
+    private final long maxSize;
+
+    private final ConcurrentMap<List<String>, CachedResult> entries =
+            new ConcurrentHashMap<List<String>, CachedResult>();
+    private final AtomicLong size = new AtomicLong(0);
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong loads = new AtomicLong(0);
+    private final AtomicLong loadFailures = new AtomicLong(0);
+    private final AtomicLong totalLoadTime = new AtomicLong(0);
+    private final AtomicLong maxLoadTime = new AtomicLong(0);
+    private final AtomicLong evictions = new AtomicLong(0);
+
+    /**
+     * Create a new cache
+     *
+     * @param timeToLive time in milliseconds a result is served from the cache
+     * @param maxEntries maximum number of results held by the cache
+     * @param maxSize approximate maximum number of bytes taken by the cached results, or zero
+     *                if the cache is only bounded by the number of results
+     */
+    public LookupCache(long timeToLive, int maxEntries, long maxSize) {
+        this.timeToLive = timeToLive;
+        this.maxEntries = maxEntries;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get the result for the given parameter values, loading it if it is not cached
+     *
+     * @param key the values bound to the statement parameters
+     * @param loader queries the database for the result of the statement
+     * @return the columns of the result row by property name, empty if no row was found
+     */
+    public Map<String, String> get(List<String> key, Callable<Map<String, String>> loader) {
+        CachedResult cached = entries.get(key);
+        if (cached != null && cached.isExpired()) {
+            remove(key, cached);
+            cached = null;
+        }
+
+        if (cached != null && cached.task.isDone()) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            if (cached == null) {
+                CachedResult loading = new CachedResult(new FutureTask<Map<String, String>>(loader));
+                cached = entries.putIfAbsent(key, loading);
+                if (cached == null) {
+                    cached = loading;
+                    load(key, loading);
+                }
+            }
+        }
+        cached.lastAccess = System.nanoTime();
+
+        try {
+            return cached.task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SynapseException("Interrupted while waiting for a database lookup", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SynapseException) {
+                throw (SynapseException) cause;
+            }
+            throw new SynapseException("Error loading the result of a database lookup", cause);
+        }
+    }
+
+    private void load(List<String> key, CachedResult cached) {
+        long start = System.nanoTime();
+        try {
+            cached.task.run();
+            Map<String, String> result = cached.task.get();
+            cached.loaded(System.currentTimeMillis() + timeToLive, weigh(key, result));
+            loads.incrementAndGet();
+        } catch (Exception e) {
+            // the waiting threads get the failure from the task itself, and the next lookup of
+            // the key queries the database again
+            remove(key, cached);
+            loadFailures.incrementAndGet();
+        } finally {
+            long time = System.nanoTime() - start;
+            totalLoadTime.addAndGet(time);
+            long currentMax = maxLoadTime.get();
+            while (time > currentMax && !maxLoadTime.compareAndSet(currentMax, time)) {
+                currentMax = maxLoadTime.get();
+            }
+        }
+
+        if (isFull(maxEntries, maxSize)) {
+            evict();
+        }
+    }
+
+    private void remove(List<String> key, CachedResult cached) {
+        if (entries.remove(key, cached)) {
+            cached.removed();
+        }
+    }
+
+    private boolean isFull(int entryLimit, long sizeLimit) {
+        return entries.size() > entryLimit || (maxSize > 0 && size.get() > sizeLimit);
+    }
+
+    /**
+     * Evict the expired and the least recently used results until the cache is a tenth below
+     * its limits. Only one thread evicts at a time, the others carry on.
+     */
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            int entryLimit = maxEntries - maxEntries / 10;
+            long sizeLimit = maxSize - maxSize / 10;
+
+            List<Map.Entry<List<String>, CachedResult>> candidates =
+                    new ArrayList<Map.Entry<List<String>, CachedResult>>();
+            for (Map.Entry<List<String>, CachedResult> entry : entries.entrySet()) {
+                CachedResult cached = entry.getValue();
+                if (cached.isExpired()) {
+                    remove(entry.getKey(), cached);
+                } else if (cached.task.isDone()) {
+                    candidates.add(entry);
+                }
+            }
+
+            Collections.sort(candidates, new Comparator<Map.Entry<List<String>, CachedResult>>() {
+                @Override
+                public int compare(Map.Entry<List<String>, CachedResult> o1,
+                                   Map.Entry<List<String>, CachedResult> o2) {
+                    return LEAST_RECENTLY_USED.compare(o1.getValue(), o2.getValue());
+                }
+            });
+            for (int i = 0; i < candidates.size() && isFull(entryLimit, sizeLimit); i++) {
+                Map.Entry<List<String>, CachedResult> entry = candidates.get(i);
+                if (entries.remove(entry.getKey(), entry.getValue())) {
+                    entry.getValue().removed();
+                    evictions.incrementAndGet();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Estimate the number of bytes taken by a cached result
+     */
+    private static long weigh(List<String> key, Map<String, String> result) {
+        long weight = ENTRY_OVERHEAD;
+        for (String value : key) {
+            weight += value == null ? 0 : 2 * value.length();
+        }
+        for (Map.Entry<String, String> column : result.entrySet()) {
+            weight += 2 * column.getKey().length();
+            weight += column.getValue() == null ? 0 : 2 * column.getValue().length();
+        }
+        return weight;
+    }
+
+    /**
+     * Remove all the cached results
+     */
+    public void clear() {
+        for (Map.Entry<List<String>, CachedResult> entry : entries.entrySet()) {
+            remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * @return approximate number of bytes taken by the cached results
+     */
+    public long getSizeInBytes() {
+        return size.get();
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getLoads() {
+        return loads.get();
+    }
+
+    public long getLoadFailures() {
+        return loadFailures.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return average time in milliseconds taken to load a result from the database
+     */
+    public double getAverageLoadTime() {
+        long count = loads.get() + loadFailures.get();
+        return count == 0 ? 0 : totalLoadTime.get() / 1000000.0 / count;
+    }
+
+    public double getMaxLoadTime() {
+        return maxLoadTime.get() / 1000000.0;
+    }
+
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+        loads.set(0);
+        loadFailures.set(0);
+        totalLoadTime.set(0);
+        maxLoadTime.set(0);
+        evictions.set(0);
+    }
+
+    /**
+     * A cached result, which is published before it is loaded
+     */
+    private class CachedResult {
+
+        private final FutureTask<Map<String, String>> task;
+        private volatile long expiry = Long.MAX_VALUE;
+        private volatile long lastAccess = System.nanoTime();
+        private long weight = 0;
+        private boolean removed = false;
+
+        CachedResult(FutureTask<Map<String, String>> task) {
+            this.task = task;
+        }
+
+        boolean isExpired() {
+            return expiry <= System.currentTimeMillis();
+        }
+
+        synchronized void loaded(long expiry, long weight) {
+            this.expiry = expiry;
+            if (!removed) {
+                this.weight = weight;
+                size.addAndGet(weight);
+            }
+        }
+
+        synchronized void removed() {
+            if (!removed) {
+                removed = true;
+                size.addAndGet(-weight);
+            }
+        }
+    }
+}
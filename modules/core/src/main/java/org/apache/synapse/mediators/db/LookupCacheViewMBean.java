@@ -0,0 +1,71 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.db;
+
+/**
+ * JMX view of the result cache of a DB lookup statement
+ */
+public interface LookupCacheViewMBean {
+
+    public int getSize();
+
+    public int getMaxEntries();
+
+    /**
+     * @return approximate number of bytes taken by the cached results
+     */
+    public long getSizeInBytes();
+
+    /**
+     * @return approximate maximum number of bytes taken by the cached results, zero if unbounded
+     */
+    public long getMaxSize();
+
+    public long getTimeToLive();
+
+    public long getHits();
+
+    public long getMisses();
+
+    /**
+     * @return fraction of lookups served from the cache
+     */
+    public double getHitRatio();
+
+    public long getLoads();
+
+    public long getLoadFailures();
+
+    public long getEvictions();
+
+    /**
+     * @return average time in milliseconds taken to load a result from the database
+     */
+    public double getAverageLoadTime();
+
+    /**
+     * @return maximum time in milliseconds taken to load a result from the database
+     */
+    public double getMaxLoadTime();
+
+    public void clear();
+
+    public void resetStatistics();
+}
@@ -0,0 +1,268 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.db;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.commons.datasource.DBPoolView;
+import org.apache.synapse.util.concurrent.SynapseThreadFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffers the rows reported by a {@link DBReportMediator} and writes them to the database
+ * using JDBC batches. A background thread flushes the buffer whenever a full batch is
+ * available, or when the oldest buffered row has waited for the flush interval. If the
+ * buffer fills up faster than it can be written, the reporting thread flushes a batch
+ * itself, so that producers are slowed down instead of rows being dropped.
+ * <p/>
+ * The parameter values of a row are evaluated against the message when the row is added,
+ * hence the message is not referenced after the mediator returns.
+ */
+class ReportBatcher {
+
+    private static final Log log = LogFactory.getLog(ReportBatcher.class);
+
+    /** The buffer holds this many batches before the reporting threads have to help out */
+    private static final int BUFFERED_BATCHES = 10;
+
+    private final DBReportMediator mediator;
+    private final int batchSize;
+    private final long flushInterval;
+    private final BlockingQueue<Row> buffer;
+
+    private volatile boolean running = false;
+    private Thread flusher = null;
+
+    ReportBatcher(DBReportMediator mediator, int batchSize, long flushInterval) {
+        this.mediator = mediator;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.buffer = new ArrayBlockingQueue<Row>(batchSize * BUFFERED_BATCHES);
+    }
+
+    void start() {
+        running = true;
+        flusher = new SynapseThreadFactory(new ThreadGroup("dbreport-batch-thread-group"),
+                "DBReportBatchFlusher").newThread(new Flusher());
+        flusher.start();
+    }
+
+    /**
+     * Stop the background flusher and write out any rows still buffered
+     */
+    void stop() {
+        running = false;
+        if (flusher != null) {
+            try {
+                flusher.join(flushInterval + 10000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flusher = null;
+        }
+
+        List<Row> rows = new ArrayList<Row>();
+        while (buffer.drainTo(rows, batchSize) > 0) {
+            flush(rows);
+            rows.clear();
+        }
+    }
+
+    /**
+     * Buffer a row for the given statement, evaluating its parameters against the message
+     *
+     * @param stmnt the statement to be executed
+     * @param msgCtx the current message
+     */
+    void add(Statement stmnt, MessageContext msgCtx) {
+        List<Statement.Parameter> params = stmnt.getParameters();
+        List<Statement.Parameter> columns = new ArrayList<Statement.Parameter>(params.size());
+        List<String> values = new ArrayList<String>(params.size());
+        for (Statement.Parameter param : params) {
+            if (param != null) {
+                columns.add(param);
+                values.add(mediator.getParameterValue(param, msgCtx));
+            }
+        }
+
+        Row row = new Row(stmnt, columns, values);
+        while (!buffer.offer(row)) {
+            // the buffer is full, write the oldest batch on the calling thread
+            List<Row> rows = new ArrayList<Row>(batchSize);
+            buffer.drainTo(rows, batchSize);
+            flush(rows);
+        }
+        updateBufferDepth(1);
+    }
+
+    int getBufferDepth() {
+        return buffer.size();
+    }
+
+    private void flush(List<Row> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        Connection con = null;
+        // one batch per statement, executed in the order the statements were first used
+        Map<Statement, PreparedStatement> batches =
+                new LinkedHashMap<Statement, PreparedStatement>();
+        try {
+            con = mediator.getDataSource().getConnection();
+            for (Row row : rows) {
+                PreparedStatement ps = batches.get(row.statement);
+                if (ps == null) {
+                    ps = con.prepareStatement(row.statement.getRawStatement());
+                    batches.put(row.statement, ps);
+                }
+
+                for (int i = 0; i < row.columns.size(); i++) {
+                    int type = row.columns.get(i).getType();
+                    if (!mediator.setParameter(ps, i + 1, type, row.values.get(i))) {
+                        throw new SQLException("Trying to set an un-supported JDBC Type : " +
+                                type + " against column : " + (i + 1) + " and statement : " +
+                                row.statement.getRawStatement());
+                    }
+                }
+                ps.addBatch();
+            }
+
+            for (PreparedStatement ps : batches.values()) {
+                ps.executeBatch();
+            }
+            if (!con.getAutoCommit()) {
+                con.commit();
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug("Inserted a batch of " + rows.size() + " row/s against DataSource : " +
+                        mediator.getDSName());
+            }
+
+        } catch (SQLException e) {
+            log.error("Error writing a batch of " + rows.size() + " row/s against DataSource : " +
+                    mediator.getDSName() + ". The rows are discarded", e);
+            if (con != null) {
+                try {
+                    if (!con.getAutoCommit()) {
+                        con.rollback();
+                    }
+                } catch (SQLException ignore) {
+                }
+            }
+        } finally {
+            for (PreparedStatement ps : batches.values()) {
+                try {
+                    ps.close();
+                } catch (SQLException ignore) {
+                }
+            }
+            if (con != null) {
+                try {
+                    con.close();
+                } catch (SQLException ignore) {
+                }
+            }
+            updateBufferDepth(-rows.size());
+            DBPoolView dbPoolView = mediator.getDbPoolView();
+            if (dbPoolView != null) {
+                dbPoolView.recordFlush(System.nanoTime() - start);
+            }
+        }
+    }
+
+    private void updateBufferDepth(int delta) {
+        DBPoolView dbPoolView = mediator.getDbPoolView();
+        if (dbPoolView != null) {
+            dbPoolView.updateBufferDepth(delta);
+        }
+    }
+
+    private static class Row {
+
+        private final Statement statement;
+        private final List<Statement.Parameter> columns;
+        private final List<String> values;
+        private final long time = System.nanoTime();
+
+        Row(Statement statement, List<Statement.Parameter> columns, List<String> values) {
+            this.statement = statement;
+            this.columns = columns;
+            this.values = values;
+        }
+    }
+
+    private class Flusher implements Runnable {
+
+        @Override
+        public void run() {
+            long intervalNanos = TimeUnit.MILLISECONDS.toNanos(flushInterval);
+            while (running) {
+                List<Row> rows = new ArrayList<Row>(batchSize);
+                try {
+                    Row first = buffer.poll(flushInterval, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    rows.add(first);
+
+                    // wait for a full batch, but not beyond the interval of the oldest row
+                    long deadline = first.time + intervalNanos;
+                    while (rows.size() < batchSize && running) {
+                        buffer.drainTo(rows, batchSize - rows.size());
+                        long wait = deadline - System.nanoTime();
+                        if (rows.size() >= batchSize || wait <= 0) {
+                            break;
+                        }
+                        Row next = buffer.poll(wait, TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        rows.add(next);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    flush(rows);
+                    return;
+                }
+
+                try {
+                    flush(rows);
+                } catch (Throwable t) {
+                    log.error("Unexpected error writing a batch against DataSource : " +
+                            mediator.getDSName(), t);
+                }
+            }
+        }
+    }
+}
@@ -38,6 +38,13 @@ public class Statement {
     private final List<Parameter> parameters = new ArrayList<Parameter>();
     private final Map<String, String> resultsMap = new HashMap<String, String>();
 
+    /** Whether the results of this statement are cached */
+    private boolean cached = false;
+    private String cacheName = null;
+    private long cacheTimeout = 0;
+    private int cacheMaxEntries = 0;
+    private long cacheMaxSize = 0;
+
     public Statement(String rawStatement) {
         this.rawStatement = rawStatement;
     }
@@ -62,6 +69,43 @@ public class Statement {
         return resultsMap;
     }
 
+    /**
+     * Cache the results of this statement, keyed by the values bound to its parameters
+     *
+     * @param name name of the cache used to identify it over JMX, optional
+     * @param timeout time in milliseconds a result is served from the cache
+     * @param maxEntries maximum number of results kept in the cache
+     * @param maxSize approximate maximum number of bytes taken by the cached results, or zero
+     *                if the cache is only bounded by the number of results
+     */
+    public void setCache(String name, long timeout, int maxEntries, long maxSize) {
+        this.cached = true;
+        this.cacheName = name;
+        this.cacheTimeout = timeout;
+        this.cacheMaxEntries = maxEntries;
+        this.cacheMaxSize = maxSize;
+    }
+
+    public boolean isCached() {
+        return cached;
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    public long getCacheTimeout() {
+        return cacheTimeout;
+    }
+
+    public int getCacheMaxEntries() {
+        return cacheMaxEntries;
+    }
+
+    public long getCacheMaxSize() {
+        return cacheMaxSize;
+    }
+
     public static class Parameter {
         String propertyName = null;
         SynapseXPath xpath = null;
@@ -0,0 +1,358 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.seda;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.util.concurrent.SynapseThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A single stage of a staged event driven mediation flow. A stage owns a bounded queue and
+ * a pool of worker threads which drain it. The pool starts with the configured minimum
+ * number of workers and grows up to the maximum whenever the oldest queued task has been
+ * waiting longer than the target queue latency. Workers which stay idle for longer than the
+ * keep alive time are retired until the pool is back at its minimum size.
+ * <p/>
+ * The stage never blocks the producer. If the queue is full {@link #offer(Runnable)} simply
+ * returns false and it is up to the caller to apply a rejection policy.
+ */
+public class Stage {
+
+    private static final Log log = LogFactory.getLog(Stage.class);
+
+    /** Upper bound on how long an idle worker waits before re-checking its state */
+    private static final long IDLE_CHECK_INTERVAL = 1000;
+
+    private final String name;
+    private final BlockingQueue<StageTask> queue;
+    private final int capacity;
+    private final int minWorkers;
+    private final int maxWorkers;
+    private final long targetLatencyNanos;
+    private final long keepAlive;
+    private final ThreadFactory threadFactory;
+
+    private final AtomicInteger workers = new AtomicInteger(0);
+    private final AtomicInteger activeWorkers = new AtomicInteger(0);
+
+    private final AtomicLong submittedCount = new AtomicLong(0);
+    private final AtomicLong completedCount = new AtomicLong(0);
+    private final AtomicLong rejectedCount = new AtomicLong(0);
+    private final AtomicLong totalWaitTime = new AtomicLong(0);
+    private final AtomicLong maxWaitTime = new AtomicLong(0);
+    private final AtomicLong totalServiceTime = new AtomicLong(0);
+    private final AtomicLong maxServiceTime = new AtomicLong(0);
+
+    private volatile boolean running = false;
+
+    /**
+     * Create a new stage
+     *
+     * @param name          name of the stage, used for thread names and JMX
+     * @param capacity      maximum number of tasks that can wait in the queue
+     * @param minWorkers    number of workers always kept alive
+     * @param maxWorkers    maximum number of workers the pool may grow up to
+     * @param targetLatency queue wait time in milliseconds above which the pool grows
+     * @param keepAlive     time in milliseconds an idle worker above the minimum is retained
+     */
+    public Stage(String name, int capacity, int minWorkers, int maxWorkers,
+                 long targetLatency, long keepAlive) {
+        if (capacity <= 0 || minWorkers < 0 || maxWorkers <= 0 || minWorkers > maxWorkers) {
+            throw new IllegalArgumentException("Invalid configuration for stage : " + name);
+        }
+        this.name = name;
+        this.capacity = capacity;
+        this.minWorkers = minWorkers;
+        this.maxWorkers = maxWorkers;
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatency);
+        this.keepAlive = keepAlive;
+        this.queue = new ArrayBlockingQueue<StageTask>(capacity);
+        this.threadFactory = new SynapseThreadFactory(
+                new ThreadGroup("stage-" + name + "-thread-group"), "StageWorker-" + name);
+    }
+
+    /**
+     * Start the minimum number of workers and begin accepting tasks
+     */
+    public void start() {
+        running = true;
+        for (int i = 0; i < minWorkers; i++) {
+            addWorker();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Stage : " + name + " started with " + workers.get() + " workers");
+        }
+    }
+
+    /**
+     * Stop accepting new tasks. Tasks which are already queued are processed by the
+     * existing workers, which then terminate.
+     */
+    public void stop() {
+        running = false;
+        if (log.isDebugEnabled()) {
+            log.debug("Stage : " + name + " stopped with " + queue.size() + " pending tasks");
+        }
+    }
+
+    /**
+     * Hand over a task to this stage
+     *
+     * @param task the task to be executed by a stage worker
+     * @return true if the task was queued, false if the stage is not running or saturated
+     */
+    public boolean offer(Runnable task) {
+        if (!running) {
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+
+        if (!queue.offer(new StageTask(task))) {
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+        submittedCount.incrementAndGet();
+
+        int current = workers.get();
+        if (current == 0 || (current < maxWorkers && isLagging())) {
+            addWorker();
+        }
+        return true;
+    }
+
+    private boolean isLagging() {
+        StageTask head = queue.peek();
+        return head != null && System.nanoTime() - head.enqueueTime > targetLatencyNanos;
+    }
+
+    private void addWorker() {
+        while (true) {
+            int current = workers.get();
+            if (current >= maxWorkers) {
+                return;
+            }
+            if (workers.compareAndSet(current, current + 1)) {
+                break;
+            }
+        }
+
+        try {
+            threadFactory.newThread(new StageWorker()).start();
+        } catch (Throwable t) {
+            workers.decrementAndGet();
+            log.error("Error starting a worker for the stage : " + name, t);
+        }
+    }
+
+    private void execute(StageTask task) {
+        long start = System.nanoTime();
+        record(totalWaitTime, maxWaitTime, start - task.enqueueTime);
+
+        activeWorkers.incrementAndGet();
+        try {
+            task.task.run();
+        } catch (Throwable t) {
+            log.error("Unexpected error executing a task on the stage : " + name, t);
+        } finally {
+            activeWorkers.decrementAndGet();
+            completedCount.incrementAndGet();
+            record(totalServiceTime, maxServiceTime, System.nanoTime() - start);
+        }
+    }
+
+    private void record(AtomicLong total, AtomicLong max, long value) {
+        total.addAndGet(value);
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * A worker exits when the stage is stopped and the queue is drained, or when it has
+     * been idle for longer than the keep alive time and the pool is above its minimum size
+     */
+    private boolean retire(long idleTime) {
+        if (!running && queue.isEmpty()) {
+            workers.decrementAndGet();
+            return true;
+        }
+
+        if (idleTime >= keepAlive) {
+            int current = workers.get();
+            if (current > minWorkers && workers.compareAndSet(current, current - 1)) {
+                // a task queued while the last worker was retiring would see a live worker
+                // and not start a new one, so keep working if the queue is not empty anymore
+                if (queue.isEmpty() || !reinstate()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean reinstate() {
+        while (true) {
+            int current = workers.get();
+            if (current >= maxWorkers) {
+                return false;
+            }
+            if (workers.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getQueueCapacity() {
+        return capacity;
+    }
+
+    public int getMinWorkers() {
+        return minWorkers;
+    }
+
+    public int getMaxWorkers() {
+        return maxWorkers;
+    }
+
+    public int getWorkerCount() {
+        return workers.get();
+    }
+
+    public int getActiveWorkerCount() {
+        return activeWorkers.get();
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @return average time in milliseconds a task waited in the queue
+     */
+    public double getAverageWaitTime() {
+        return average(totalWaitTime.get());
+    }
+
+    public double getMaxWaitTime() {
+        return toMillis(maxWaitTime.get());
+    }
+
+    /**
+     * @return average time in milliseconds a worker spent executing a task
+     */
+    public double getAverageServiceTime() {
+        return average(totalServiceTime.get());
+    }
+
+    public double getMaxServiceTime() {
+        return toMillis(maxServiceTime.get());
+    }
+
+    public void resetStatistics() {
+        submittedCount.set(0);
+        completedCount.set(0);
+        rejectedCount.set(0);
+        totalWaitTime.set(0);
+        maxWaitTime.set(0);
+        totalServiceTime.set(0);
+        maxServiceTime.set(0);
+    }
+
+    private double average(long totalNanos) {
+        long count = completedCount.get();
+        return count == 0 ? 0 : toMillis(totalNanos) / count;
+    }
+
+    private double toMillis(long nanos) {
+        return nanos / 1000000.0;
+    }
+
+    private static class StageTask {
+
+        private final Runnable task;
+        private final long enqueueTime;
+
+        StageTask(Runnable task) {
+            this.task = task;
+            this.enqueueTime = System.nanoTime();
+        }
+    }
+
+    private class StageWorker implements Runnable {
+
+        @Override
+        public void run() {
+            long idleTime = 0;
+            while (true) {
+                StageTask task;
+                long pollTime = Math.max(1, Math.min(IDLE_CHECK_INTERVAL, keepAlive));
+                try {
+                    task = queue.poll(pollTime, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    workers.decrementAndGet();
+                    return;
+                }
+
+                if (task == null) {
+                    idleTime += pollTime;
+                    if (retire(idleTime)) {
+                        return;
+                    }
+                    continue;
+                }
+
+                idleTime = 0;
+                if (isLagging()) {
+                    addWorker();
+                }
+                execute(task);
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.seda;
+
+import org.apache.axis2.context.OperationContext;
+import org.apache.synapse.ManagedLifecycle;
+import org.apache.synapse.Mediator;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseLog;
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
+import org.apache.synapse.core.SynapseEnvironment;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.mediators.AbstractMediator;
+import org.apache.synapse.mediators.MediatorWorker;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hands the current message over to a named mediation {@link Stage}, where the given
+ * sequence is executed by the stage's own worker pool. This isolates slow mediation steps
+ * (database access, callouts etc.) from the rest of the flow, so that they cannot exhaust
+ * the transport worker threads.
+ *
+ * <pre>
+ * &lt;stage name="string" sequence="string" [queueSize="int"] [minWorkers="int"]
+ *        [maxWorkers="int"] [targetLatency="ms"] [keepAlive="ms"]
+ *        [onReject="drop|caller-runs|fault"]/&gt;
+ * </pre>
+ *
+ * When the stage queue is full the message is either dropped, mediated on the calling
+ * thread, or handed to the fault handler of the calling flow, depending on the rejection
+ * policy.
+ * <p/>
+ * Stage mediators with the same name share a single stage, which is created with the
+ * settings of the first of them to be initialized, and stopped when the last of them is
+ * destroyed.
+ */
+public class StageMediator extends AbstractMediator implements ManagedLifecycle {
+
+    public static final String REJECT_DROP = "drop";
+    public static final String REJECT_CALLER_RUNS = "caller-runs";
+    public static final String REJECT_FAULT = "fault";
+
+    public static final int DEFAULT_QUEUE_SIZE = 1000;
+    public static final int DEFAULT_MIN_WORKERS = 1;
+    public static final int DEFAULT_MAX_WORKERS = 10;
+    public static final long DEFAULT_TARGET_LATENCY = 100;
+    public static final long DEFAULT_KEEP_ALIVE = 60000;
+
+    private static final String MBEAN_CATEGORY = "MediationStage";
+
+    /** The stages in use, by name */
+    private static final Map<String, SharedStage> stages = new HashMap<String, SharedStage>();
+
+    private String name = null;
+    private String sequenceName = null;
+    private int queueSize = DEFAULT_QUEUE_SIZE;
+    private int minWorkers = DEFAULT_MIN_WORKERS;
+    private int maxWorkers = DEFAULT_MAX_WORKERS;
+    private long targetLatency = DEFAULT_TARGET_LATENCY;
+    private long keepAlive = DEFAULT_KEEP_ALIVE;
+    private String rejectionPolicy = REJECT_DROP;
+
+    private Stage stage = null;
+
+    @Override
+    public boolean mediate(MessageContext synCtx) {
+        SynapseLog synLog = getLog(synCtx);
+        if (synLog.isTraceOrDebugEnabled()) {
+            synLog.traceOrDebug("Start : Stage mediator");
+        }
+
+        Mediator seq = synCtx.getSequence(sequenceName);
+        if (seq == null) {
+            handleException("Sequence cannot be found : " + sequenceName, synCtx);
+            return false;
+        }
+
+        if (stage == null) {
+            handleException("Stage : " + name + " has not been initialized", synCtx);
+            return false;
+        }
+
+        // mark the response as deferred before the stage worker gets a chance to reply
+        OperationContext opCtx = getOperationContext(synCtx);
+        Object responseWritten = null;
+        if (opCtx != null) {
+            responseWritten = opCtx.getProperty(org.apache.axis2.Constants.RESPONSE_WRITTEN);
+            opCtx.setProperty(org.apache.axis2.Constants.RESPONSE_WRITTEN, "SKIP");
+        }
+
+        if (stage.offer(new MediatorWorker(seq, synCtx))) {
+            if (synLog.isTraceOrDebugEnabled()) {
+                synLog.traceOrDebug("Message handed over to the stage : " + name);
+                synLog.traceOrDebug("End : Stage mediator");
+            }
+            return false;
+        }
+
+        if (opCtx != null) {
+            opCtx.setProperty(org.apache.axis2.Constants.RESPONSE_WRITTEN, responseWritten);
+        }
+
+        if (REJECT_DROP.equals(rejectionPolicy)) {
+            synLog.auditWarn("Stage : " + name + " is saturated. Dropping the message");
+            return false;
+        }
+
+        if (REJECT_CALLER_RUNS.equals(rejectionPolicy)) {
+            if (synLog.isTraceOrDebugEnabled()) {
+                synLog.traceOrDebug("Stage : " + name + " is saturated. " +
+                        "Mediating the message on the calling thread");
+            }
+            seq.mediate(synCtx);
+            return false;
+        }
+
+        handleException("Stage : " + name + " is saturated. Unable to accept the message", synCtx);
+        return false;
+    }
+
+    private OperationContext getOperationContext(MessageContext synCtx) {
+        if (synCtx instanceof Axis2MessageContext) {
+            return ((Axis2MessageContext) synCtx).getAxis2MessageContext().getOperationContext();
+        }
+        return null;
+    }
+
+    @Override
+    public void init(SynapseEnvironment se) {
+        synchronized (stages) {
+            SharedStage shared = stages.get(name);
+            if (shared == null) {
+                shared = new SharedStage(new Stage(name, queueSize, minWorkers, maxWorkers,
+                        targetLatency, keepAlive));
+                shared.stage.start();
+                MBeanRegistrar.getInstance().registerMBean(
+                        new StageView(shared.stage), MBEAN_CATEGORY, name);
+                stages.put(name, shared);
+            } else if (log.isDebugEnabled()) {
+                log.debug("Stage : " + name + " is already running. The settings of this " +
+                        "stage mediator are ignored");
+            }
+            shared.references++;
+            stage = shared.stage;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (stage == null) {
+            return;
+        }
+        synchronized (stages) {
+            SharedStage shared = stages.get(name);
+            if (shared != null && shared.stage == stage && --shared.references == 0) {
+                stages.remove(name);
+                stage.stop();
+                MBeanRegistrar.getInstance().unRegisterMBean(MBEAN_CATEGORY, name);
+            }
+            stage = null;
+        }
+    }
+
+    public Stage getStage() {
+        return stage;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getSequenceName() {
+        return sequenceName;
+    }
+
+    public void setSequenceName(String sequenceName) {
+        this.sequenceName = sequenceName;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public int getMinWorkers() {
+        return minWorkers;
+    }
+
+    public void setMinWorkers(int minWorkers) {
+        this.minWorkers = minWorkers;
+    }
+
+    public int getMaxWorkers() {
+        return maxWorkers;
+    }
+
+    public void setMaxWorkers(int maxWorkers) {
+        this.maxWorkers = maxWorkers;
+    }
+
+    public long getTargetLatency() {
+        return targetLatency;
+    }
+
+    public void setTargetLatency(long targetLatency) {
+        this.targetLatency = targetLatency;
+    }
+
+    public long getKeepAlive() {
+        return keepAlive;
+    }
+
+    public void setKeepAlive(long keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    public String getRejectionPolicy() {
+        return rejectionPolicy;
+    }
+
+    public void setRejectionPolicy(String rejectionPolicy) {
+        this.rejectionPolicy = rejectionPolicy;
+    }
+
+    @Override
+    public boolean isContentAware() {
+        return false;
+    }
+
+    /**
+     * A stage along with the number of stage mediators using it
+     */
+    private static class SharedStage {
+
+        private final Stage stage;
+        private int references = 0;
+
+        SharedStage(Stage stage) {
+            this.stage = stage;
+        }
+    }
+}
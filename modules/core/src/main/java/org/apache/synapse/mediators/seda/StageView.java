@@ -0,0 +1,99 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.seda;
+
+public class StageView implements StageViewMBean {
+
+    private final Stage stage;
+
+    public StageView(Stage stage) {
+        this.stage = stage;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return stage.getQueueDepth();
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        return stage.getQueueCapacity();
+    }
+
+    @Override
+    public int getWorkerCount() {
+        return stage.getWorkerCount();
+    }
+
+    @Override
+    public int getActiveWorkerCount() {
+        return stage.getActiveWorkerCount();
+    }
+
+    @Override
+    public int getMinWorkers() {
+        return stage.getMinWorkers();
+    }
+
+    @Override
+    public int getMaxWorkers() {
+        return stage.getMaxWorkers();
+    }
+
+    @Override
+    public long getSubmittedCount() {
+        return stage.getSubmittedCount();
+    }
+
+    @Override
+    public long getCompletedCount() {
+        return stage.getCompletedCount();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return stage.getRejectedCount();
+    }
+
+    @Override
+    public double getAverageWaitTime() {
+        return stage.getAverageWaitTime();
+    }
+
+    @Override
+    public double getMaxWaitTime() {
+        return stage.getMaxWaitTime();
+    }
+
+    @Override
+    public double getAverageServiceTime() {
+        return stage.getAverageServiceTime();
+    }
+
+    @Override
+    public double getMaxServiceTime() {
+        return stage.getMaxServiceTime();
+    }
+
+    @Override
+    public void resetStatistics() {
+        stage.resetStatistics();
+    }
+}
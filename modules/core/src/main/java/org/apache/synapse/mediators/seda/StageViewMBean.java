@@ -0,0 +1,54 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.seda;
+
+/**
+ * JMX view of a mediation {@link Stage}. All times are reported in milliseconds.
+ */
+public interface StageViewMBean {
+
+    public int getQueueDepth();
+
+    public int getQueueCapacity();
+
+    public int getWorkerCount();
+
+    public int getActiveWorkerCount();
+
+    public int getMinWorkers();
+
+    public int getMaxWorkers();
+
+    public long getSubmittedCount();
+
+    public long getCompletedCount();
+
+    public long getRejectedCount();
+
+    public double getAverageWaitTime();
+
+    public double getMaxWaitTime();
+
+    public double getAverageServiceTime();
+
+    public double getMaxServiceTime();
+
+    public void resetStatistics();
+}
@@ -23,6 +23,7 @@ import org.apache.synapse.SynapseConstants;
 import org.apache.synapse.SynapseLog;
 import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.mediators.AbstractListMediator;
+import org.apache.synapse.mediators.Continuation;
 import org.apache.synapse.mediators.TemplateParameter;
 
 import javax.sound.midi.Sequence;
@@ -72,14 +73,38 @@ public class TemplateMediator extends AbstractListMediator {
                 synLog.traceTrace("Message : " + synCtx.getEnvelope());
             }
         }
-        pushFuncContextTo(synCtx);
-        boolean result = false;
+        return mediate(synCtx, 0);
+    }
+
+    /**
+     * Mediate the message through the template, starting from the given position. The function
+     * context of the template is pushed when the template is entered, and is left on the
+     * function stack while the mediation is suspended, so that a continued flow still sees
+     * the parameters of the template.
+     *
+     * @param synCtx the synapse message
+     * @param startPosition position of the first child mediator to be invoked
+     * @return as per standard mediator result
+     */
+    @Override
+    public boolean mediate(MessageContext synCtx, int startPosition) {
+        if (startPosition == 0) {
+            pushFuncContextTo(synCtx);
+        }
+
+        boolean suspended = false;
+        Continuation.enter(synCtx);
         try {
-            result = super.mediate(synCtx);
+            boolean result = super.mediate(synCtx, startPosition);
+            // the function context is popped when the mediation continues
+            suspended = !result && Continuation.isSuspended(synCtx);
+            return result;
         } finally {
-            popFuncContextFrom(synCtx);
+            Continuation.exit(synCtx);
+            if (!suspended) {
+                popFuncContextFrom(synCtx);
+            }
         }
-        return result;
     }
 
     /**
@@ -22,12 +22,26 @@ package org.apache.synapse.registry;
 import org.apache.axiom.om.OMNode;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.SynapseException;
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
 import org.apache.synapse.config.Entry;
 import org.apache.synapse.config.XMLToObjectMapper;
 import org.apache.synapse.endpoints.Endpoint;
 import org.apache.synapse.mediators.base.SequenceMediator;
+import org.apache.synapse.util.concurrent.SynapseThreadFactory;
 
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Implements the core Registry lookup algorithm
@@ -36,11 +50,43 @@ public abstract class AbstractRegistry implements Registry {
 
     private static final Log log = LogFactory.getLog(AbstractRegistry.class);
 
+    /**
+     * Registry parameter giving how long (in milliseconds) before its expiry a resource which
+     * is in use gets refreshed in the background. Refreshing ahead is disabled by default.
+     */
+    public static final String REFRESH_AHEAD = "refreshAhead";
+
+    /** Registry parameter giving the number of threads refreshing resources in the background */
+    public static final String REFRESH_THREADS = "refreshThreads";
+
+    private static final int DEFAULT_REFRESH_THREADS = 2;
+
+    private static final String MBEAN_CATEGORY = "Registry";
+
     /** The list of configuration properties */
     protected final Properties properties = new Properties();
 
+    /** The lookups in progress, by the keys of the resources being looked up */
+    private final ConcurrentMap<String, Lookup> lookups = new ConcurrentHashMap<String, Lookup>();
+
+    private long refreshAhead = 0;
+    private volatile ThreadPoolExecutor refreshExecutor = null;
+
+    private String mbeanName = null;
+
+    private final AtomicLong cacheHitCount = new AtomicLong();
+    private final AtomicLong cacheMissCount = new AtomicLong();
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong refreshFailureCount = new AtomicLong();
+    private final AtomicLong totalRefreshTime = new AtomicLong();
+    private final AtomicLong maxRefreshTime = new AtomicLong();
+
     /**
-     * Get the resource for the given key from this registry
+     * Get the resource for the given key from this registry. Only one lookup for a given key
+     * is made against the registry at a time. Callers asking for a resource which is not
+     * cached yet wait for the lookup in progress, while callers holding an expired copy keep
+     * using it until the refreshed resource is available, or when the refresh fails.
+     *
      * @param entry The Entry instance that contains meta-data
      * @param properties bag of properties with additional information
      * @return the matching resultant object
@@ -48,6 +94,230 @@ public abstract class AbstractRegistry implements Registry {
     @Override
     public Object getResource(Entry entry, Properties properties) {
 
+        // if we have an unexpired cached copy, return the cached object
+        if (entry.isCached() && !entry.isExpired()) {
+            refreshAhead(entry, properties);
+            return entry.getValue();
+        }
+
+        if (entry.isCached() && refreshExecutor != null) {
+            // serve the expired copy while the resource is being refreshed in the background
+            cacheHitCount.incrementAndGet();
+            refreshInBackground(entry, properties);
+            return entry.getValue();
+        }
+
+        boolean cached = entry.isCached();
+        Lookup lookup = new Lookup(entry, properties);
+        Lookup inProgress = lookups.putIfAbsent(entry.getKey(), lookup);
+        if (inProgress == null) {
+            try {
+                lookup.run();
+            } finally {
+                lookups.remove(entry.getKey(), lookup);
+            }
+        } else if (cached) {
+            return entry.getValue();
+        } else {
+            lookup = inProgress;
+        }
+
+        try {
+            Object value = lookup.get();
+            if (lookup.entry != entry) {
+                // someone else looked it up, for an entry of its own
+                copyEntry(lookup.entry, entry);
+            }
+            return value;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cached) {
+                log.warn("Error while refreshing the resource : " + entry.getKey() +
+                        " from the registry. Previously cached value will be used", cause);
+                return entry.getValue();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SynapseException("Error while loading the resource : " + entry.getKey() +
+                    " from the registry", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SynapseException("Interrupted while loading the resource : " +
+                    entry.getKey() + " from the registry", e);
+        }
+    }
+
+    /**
+     * Refreshes the given cached resource in the background if it is about to expire, and if
+     * refreshing ahead is enabled for this registry. Meant to be called every time a cached
+     * resource is used, so that the resources in use do not expire while the registry is
+     * available. Each call is counted as a cache hit.
+     *
+     * @param entry an entry holding a cached resource
+     * @param properties bag of properties with additional information
+     */
+    public void refreshAhead(Entry entry, Properties properties) {
+        if (entry.isCached()) {
+            cacheHitCount.incrementAndGet();
+        }
+        if (refreshExecutor != null && entry.isDynamic() && entry.isCached() &&
+                entry.getExpiryTime() > 0 &&
+                entry.getExpiryTime() - System.currentTimeMillis() < refreshAhead) {
+            refreshInBackground(entry, properties);
+        }
+    }
+
+    private void refreshInBackground(Entry entry, Properties properties) {
+        ExecutorService executor = refreshExecutor;
+        if (executor == null) {
+            return;
+        }
+        final String key = entry.getKey();
+        final Lookup lookup = new Lookup(entry, properties);
+        if (lookups.putIfAbsent(key, lookup) != null) {
+            return;
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        lookup.run();
+                        lookup.get();
+                    } catch (ExecutionException e) {
+                        log.warn("Error while refreshing the resource : " + key + " from the " +
+                                "registry. Previously cached value will be used", e.getCause());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        lookups.remove(key, lookup);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            lookups.remove(key, lookup);
+        }
+    }
+
+    /**
+     * Returns the number of times a cached resource was used
+     *
+     * @return the number of cache hits
+     */
+    public long getCacheHitCount() {
+        return cacheHitCount.get();
+    }
+
+    /**
+     * Returns the number of resources looked up from the registry as they were not cached
+     *
+     * @return the number of cache misses
+     */
+    public long getCacheMissCount() {
+        return cacheMissCount.get();
+    }
+
+    /**
+     * Returns the number of cached resources refreshed from the registry
+     *
+     * @return the number of refreshes, including the failed ones
+     */
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    /**
+     * Returns the number of failed refreshes of cached resources
+     *
+     * @return the number of failed refreshes
+     */
+    public long getRefreshFailureCount() {
+        return refreshFailureCount.get();
+    }
+
+    /**
+     * Returns the average time taken to refresh a cached resource
+     *
+     * @return the average refresh time in milliseconds
+     */
+    public double getAverageRefreshTime() {
+        long count = refreshCount.get();
+        return count > 0 ? (double) totalRefreshTime.get() / count : 0;
+    }
+
+    /**
+     * Returns the longest time taken to refresh a cached resource
+     *
+     * @return the maximum refresh time in milliseconds
+     */
+    public long getMaxRefreshTime() {
+        return maxRefreshTime.get();
+    }
+
+    private void recordRefresh(long time, boolean failed) {
+        refreshCount.incrementAndGet();
+        if (failed) {
+            refreshFailureCount.incrementAndGet();
+        }
+        totalRefreshTime.addAndGet(time);
+        long max;
+        while (time > (max = maxRefreshTime.get()) && !maxRefreshTime.compareAndSet(max, time)) {
+            // retry
+        }
+    }
+
+    private static void copyEntry(Entry from, Entry to) {
+        to.setMapper(from.getMapper());
+        to.setValue(from.getValue());
+        to.setEntryProperties(from.getEntryProperties());
+        to.setVersion(from.getVersion());
+        to.setExpiryTime(from.getExpiryTime());
+    }
+
+    /**
+     * A lookup of a resource from the registry, which fills in the given entry
+     */
+    private class Lookup extends FutureTask<Object> {
+
+        private final Entry entry;
+
+        Lookup(final Entry entry, final Properties properties) {
+            super(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    boolean refresh = entry.isCached();
+                    if (!refresh) {
+                        cacheMissCount.incrementAndGet();
+                    }
+                    long start = System.currentTimeMillis();
+                    boolean failed = true;
+                    try {
+                        Object value = fetchResource(entry, properties, refresh);
+                        failed = false;
+                        return value;
+                    } finally {
+                        if (refresh) {
+                            recordRefresh(System.currentTimeMillis() - start, failed);
+                        }
+                    }
+                }
+            });
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * Fetches the resource of the given entry from the registry, unless there is an
+     * unexpired cached copy which need not be refreshed
+     *
+     * @param entry The Entry instance that contains meta-data
+     * @param properties bag of properties with additional information
+     * @param refresh whether a cached copy should be refreshed even if it has not expired
+     * @return the matching resultant object
+     */
+    private Object fetchResource(Entry entry, Properties properties, boolean refresh) {
+
         OMNode omNode = null;
         RegistryEntry re = null;
 
@@ -55,7 +325,7 @@ public abstract class AbstractRegistry implements Registry {
         // it at least once and have it cached already?
 
         // if we have an unexpired cached copy, return the cached object
-        if (entry.isCached() && !entry.isExpired()) {
+        if (entry.isCached() && !entry.isExpired() && !refresh) {
             return entry.getValue();
 
         // if we have not cached the referenced object, fetch it and its RegistryEntry
@@ -82,9 +352,9 @@ public abstract class AbstractRegistry implements Registry {
                 re = getRegistryEntry(entry.getKey());
             }
 
-        // if we have cached it before, and now the cache has expired
+        // if we have cached it before, and now the cache has expired (or is about to)
         // get its *new* registry entry and compare versions and pick new cache duration
-        } else if (entry.isExpired()) {
+        } else {
             if (log.isDebugEnabled()) {
                 log.debug("Cached object has expired for key : " + entry.getKey());
             }
@@ -209,6 +479,43 @@ public abstract class AbstractRegistry implements Registry {
     @Override
     public void init(Properties properties) {
         this.properties.putAll(properties);
+
+        String value = properties.getProperty(REFRESH_AHEAD);
+        if (value != null) {
+            refreshAhead = Long.parseLong(value.trim());
+        }
+        if (refreshAhead > 0 && refreshExecutor == null) {
+            value = properties.getProperty(REFRESH_THREADS);
+            int threads = value != null ? Integer.parseInt(value.trim()) : DEFAULT_REFRESH_THREADS;
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 10,
+                    TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new SynapseThreadFactory(
+                            new ThreadGroup("Registry refresh thread group"),
+                            "RegistryRefreshWorker"));
+            executor.allowCoreThreadTimeOut(true);
+            refreshExecutor = executor;
+        }
+
+        if (mbeanName == null) {
+            mbeanName = getClass().getSimpleName() + "-" + System.identityHashCode(this);
+            MBeanRegistrar.getInstance().registerMBean(
+                    new RegistryCacheView(this), MBEAN_CATEGORY, mbeanName);
+        }
+    }
+
+    /**
+     * Stops the background refreshes of this registry, and withdraws its JMX view. Refreshes
+     * in progress are interrupted, and the cached copies are kept.
+     */
+    public void destroy() {
+        ThreadPoolExecutor executor = refreshExecutor;
+        if (executor != null) {
+            refreshExecutor = null;
+            executor.shutdownNow();
+        }
+        if (mbeanName != null) {
+            MBeanRegistrar.getInstance().unRegisterMBean(MBEAN_CATEGORY, mbeanName);
+            mbeanName = null;
+        }
     }
 
     @Override
@@ -0,0 +1,66 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.registry;
+
+public class RegistryCacheView implements RegistryCacheViewMBean {
+
+    private final AbstractRegistry registry;
+
+    public RegistryCacheView(AbstractRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public long getCacheHits() {
+        return registry.getCacheHitCount();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return registry.getCacheMissCount();
+    }
+
+    @Override
+    public double getHitRatio() {
+        long hits = registry.getCacheHitCount();
+        long total = hits + registry.getCacheMissCount();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public long getRefreshes() {
+        return registry.getRefreshCount();
+    }
+
+    @Override
+    public long getRefreshFailures() {
+        return registry.getRefreshFailureCount();
+    }
+
+    @Override
+    public double getAverageRefreshTime() {
+        return registry.getAverageRefreshTime();
+    }
+
+    @Override
+    public long getMaxRefreshTime() {
+        return registry.getMaxRefreshTime();
+    }
+}
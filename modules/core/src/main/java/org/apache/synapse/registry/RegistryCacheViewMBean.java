@@ -0,0 +1,58 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.registry;
+
+/**
+ * JMX view of the resources cached from a registry, and of their refreshes
+ */
+public interface RegistryCacheViewMBean {
+
+    /**
+     * @return number of times a cached resource was used
+     */
+    public long getCacheHits();
+
+    /**
+     * @return number of resources looked up from the registry as they were not cached
+     */
+    public long getCacheMisses();
+
+    /**
+     * @return fraction of the uses served from the cache
+     */
+    public double getHitRatio();
+
+    /**
+     * @return number of cached resources refreshed from the registry, including failures
+     */
+    public long getRefreshes();
+
+    public long getRefreshFailures();
+
+    /**
+     * @return average time in milliseconds taken to refresh a cached resource
+     */
+    public double getAverageRefreshTime();
+
+    /**
+     * @return maximum time in milliseconds taken to refresh a cached resource
+     */
+    public long getMaxRefreshTime();
+}
@@ -29,7 +29,9 @@ import org.apache.synapse.registry.AbstractRegistry;
 import org.apache.synapse.registry.Registry;
 import org.apache.synapse.registry.RegistryEntry;
 import org.apache.synapse.registry.RegistryEntryImpl;
+import org.apache.synapse.util.SynapseBinaryDataSource;
 
+import javax.activation.DataHandler;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
@@ -50,8 +52,16 @@ public class SimpleURLRegistry extends AbstractRegistry implements Registry {
 
     private static final Log log = LogFactory.getLog(SimpleURLRegistry.class);
 
+    /**
+     * Registry parameter giving a local directory to keep the resources fetched over HTTP in.
+     * Cached resources are revalidated with conditional requests, and are available from the
+     * disk after a restart.
+     */
+    public static final String CACHE_DIRECTORY = "cacheDirectory";
+
     private static final int MAX_KEYS = 200;
     private String root = "";
+    private URLResourceCache cache = null;
     private final OMFactory omFactory = OMAbstractFactory.getOMFactory();
 
     @Override
@@ -67,6 +77,9 @@ public class SimpleURLRegistry extends AbstractRegistry implements Registry {
         if (url == null) {
             return null;
         }
+        if (cache != null && URLResourceCache.isCachable(url)) {
+            return lookupCached(url);
+        }
 
         BufferedInputStream inputStream;
         try {
@@ -141,6 +154,42 @@ public class SimpleURLRegistry extends AbstractRegistry implements Registry {
         return result;
     }
 
+    private OMNode lookupCached(URL url) {
+        URLResourceCache.Resource resource;
+        try {
+            resource = cache.get(url, false, getCachableDuration());
+        } catch (IOException e) {
+            return null;
+        }
+        if (resource == null) {
+            return null;
+        }
+
+        OMNode result;
+        try {
+            InputStream inputStream = resource.openStream();
+            try {
+                OMXMLParserWrapper builder = OMXMLBuilderFactory.createOMBuilder(inputStream);
+                result = builder.getDocumentElement();
+                result.detach();
+                omFactory.createOMDocument().addChild(result);
+            } catch (OMException ignored) {
+                if (log.isDebugEnabled()) {
+                    log.debug("The resource at the provided URL isn't " +
+                            "well-formed XML,So,takes it as a text");
+                }
+                result = omFactory.createOMText(new DataHandler(new SynapseBinaryDataSource(
+                        resource.openStream(), resource.getContentType())), true);
+            } finally {
+                inputStream.close();
+            }
+        } catch (IOException e) {
+            handleException("Error while reading the cached resource at : " + url, e);
+            return null;
+        }
+        return result;
+    }
+
     @Override
     public RegistryEntry getRegistryEntry(String key) {
 
@@ -153,6 +202,9 @@ public class SimpleURLRegistry extends AbstractRegistry implements Registry {
         if (url == null) {
             return null;
         }
+        if (cache != null && URLResourceCache.isCachable(url)) {
+            return getCachedRegistryEntry(key, url);
+        }
         URLConnection connection = SynapseConfigUtils.getURLConnection(url);
         if (connection == null) {
             if (log.isDebugEnabled()) {
@@ -177,6 +229,31 @@ public class SimpleURLRegistry extends AbstractRegistry implements Registry {
         return wre;
     }
 
+    private RegistryEntry getCachedRegistryEntry(String key, URL url) {
+        URLResourceCache.Resource resource;
+        try {
+            // always ask the remote server whether the cached copy is still valid
+            resource = cache.get(url, true, getCachableDuration());
+        } catch (IOException e) {
+            handleException("Error while fetching the resource at : " + url, e);
+            return null;
+        }
+        if (resource == null) {
+            return null;
+        }
+
+        RegistryEntryImpl wre = new RegistryEntryImpl();
+        wre.setKey(key);
+        wre.setName(url.getFile());
+        wre.setType(resource.getContentType());
+        wre.setDescription("Resource at : " + url.toString());
+        wre.setLastModified(resource.getLastModified());
+        wre.setVersion(resource.getVersion());
+        long timeToLive = resource.getTimeToLive();
+        wre.setCachableDuration(timeToLive > 0 ? timeToLive : getCachableDuration());
+        return wre;
+    }
+
     @Override
     public void init(Properties properties) {
         super.init(properties);
@@ -197,6 +274,11 @@ public class SimpleURLRegistry extends AbstractRegistry implements Registry {
             handleException("Parameter root is null");
         }
 
+        value = properties.getProperty(CACHE_DIRECTORY);
+        if (value != null) {
+            cache = new URLResourceCache(new File(value));
+        }
+
     }
 
 
@@ -323,4 +405,9 @@ public class SimpleURLRegistry extends AbstractRegistry implements Registry {
         throw new SynapseException(msg);
     }
 
+    private void handleException(String msg, Exception e) {
+        log.error(msg, e);
+        throw new SynapseException(msg, e);
+    }
+
 }
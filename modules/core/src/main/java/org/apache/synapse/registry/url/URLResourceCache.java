@@ -0,0 +1,464 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.registry.url;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.config.SynapseConfigUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A local disk cache of the resources fetched over HTTP by the {@link SimpleURLRegistry}.
+ * The content of the resources is stored by its hash, and a small descriptor file keyed by
+ * the hash of the URL records the validators (ETag and Last-Modified) of each resource.
+ * Cached resources are revalidated with conditional requests, so that the remote server only
+ * sends a resource again when it has changed. The descriptors are read back when the cache is
+ * created, which allows the resources to be served from the disk after a restart. Only one
+ * request for a given URL is made at a time, concurrent callers wait for its outcome.
+ */
+class URLResourceCache {
+
+    private static final Log log = LogFactory.getLog(URLResourceCache.class);
+
+    private static final String DESCRIPTOR_SUFFIX = ".properties";
+    private static final String CONTENT_SUFFIX = ".content";
+
+    private static final String URL = "url";
+    private static final String HASH = "hash";
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "lastModified";
+    private static final String CONTENT_TYPE = "contentType";
+
+    private final File directory;
+    private final Map<String, Resource> resources = new ConcurrentHashMap<String, Resource>();
+
+    /** The requests in progress, by the URLs of the resources being fetched */
+    private final ConcurrentMap<String, FutureTask<Resource>> fetches =
+            new ConcurrentHashMap<String, FutureTask<Resource>>();
+
+    /**
+     * Guards the content files, which are shared by the resources of the same content. A
+     * content file is only deleted when no resource refers to it anymore.
+     */
+    private final Object contentLock = new Object();
+
+    URLResourceCache(File directory) {
+        this.directory = directory;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            log.warn("Cannot create the registry cache directory : " + directory.getPath());
+        }
+
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.getName().endsWith(DESCRIPTOR_SUFFIX)) {
+                Resource resource = readDescriptor(file);
+                if (resource != null && resource.getContentFile().isFile()) {
+                    resources.put(resource.url, resource);
+                }
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Loaded " + resources.size() + " cached resources from : " +
+                    directory.getPath());
+        }
+    }
+
+    /**
+     * Checks whether a URL is fetched through this cache
+     *
+     * @param url a resource URL
+     * @return true for HTTP and HTTPS URLs, which support conditional requests
+     */
+    static boolean isCachable(URL url) {
+        return "http".equalsIgnoreCase(url.getProtocol()) ||
+                "https".equalsIgnoreCase(url.getProtocol());
+    }
+
+    /**
+     * Returns the cached copy of the resource at the given URL. The cached copy is revalidated
+     * with the remote server when asked to, or when it has not been validated within its
+     * cachable duration, and the resource is downloaded again if it has changed. The cached
+     * copy is returned as it is if the remote server cannot be reached.
+     *
+     * @param url the URL of the resource
+     * @param revalidate whether the cached copy should always be revalidated
+     * @param cachableDuration the default number of milliseconds a validated copy is fresh for
+     * @return the cached resource, or null if the resource is not available
+     * @throws IOException if the resource is not cached and cannot be downloaded
+     */
+    Resource get(final URL url, boolean revalidate, final long cachableDuration)
+            throws IOException {
+        String key = url.toString();
+        Resource cached = resources.get(key);
+        if (cached != null && !revalidate && cached.freshUntil > System.currentTimeMillis()) {
+            return cached;
+        }
+
+        FutureTask<Resource> fetch = new FutureTask<Resource>(new Callable<Resource>() {
+            @Override
+            public Resource call() throws IOException {
+                return fetch(url, cachableDuration);
+            }
+        });
+        FutureTask<Resource> inProgress = fetches.putIfAbsent(key, fetch);
+        if (inProgress == null) {
+            try {
+                fetch.run();
+            } finally {
+                fetches.remove(key, fetch);
+            }
+        } else {
+            fetch = inProgress;
+        }
+
+        try {
+            return fetch.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException("Cannot fetch the resource at : " + url, cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while fetching the resource at : " +
+                    url);
+        }
+    }
+
+    private Resource fetch(URL url, long cachableDuration) throws IOException {
+        String key = url.toString();
+        Resource cached = resources.get(key);
+        long now = System.currentTimeMillis();
+
+        HttpURLConnection connection;
+        try {
+            connection = (HttpURLConnection) SynapseConfigUtils.getURLConnection(url);
+            if (connection == null) {
+                return cached;
+            }
+            if (cached != null) {
+                if (cached.etag != null) {
+                    connection.setRequestProperty("If-None-Match", cached.etag);
+                }
+                if (cached.lastModified > 0) {
+                    connection.setIfModifiedSince(cached.lastModified);
+                }
+            }
+            connection.connect();
+        } catch (IOException e) {
+            return unavailable(url, cached, e);
+        }
+
+        try {
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Cached copy of the resource at : " + url + " is up to date");
+                }
+                cached.freshUntil = getFreshUntil(connection, now, cachableDuration);
+                return cached;
+            } else if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+                remove(cached);
+                return null;
+            } else if (status != HttpURLConnection.HTTP_OK) {
+                return unavailable(url, cached,
+                        new IOException("Unexpected response status : " + status));
+            }
+
+            Resource resource = store(key, connection);
+            resource.freshUntil = getFreshUntil(connection, now, cachableDuration);
+            if (cached != null && !cached.hash.equals(resource.hash)) {
+                removeContent(cached);
+            }
+            return resource;
+        } catch (IOException e) {
+            return unavailable(url, cached, e);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private Resource unavailable(URL url, Resource cached, IOException e) throws IOException {
+        if (cached == null) {
+            throw e;
+        }
+        log.warn("Cannot revalidate the resource at : " + url + " (" + e.getMessage() +
+                "). The cached copy will be used");
+        return cached;
+    }
+
+    private Resource store(String key, URLConnection connection) throws IOException {
+        byte[] content;
+        InputStream in = connection.getInputStream();
+        try {
+            content = IOUtils.toByteArray(in);
+        } finally {
+            in.close();
+        }
+
+        Resource resource = new Resource(key, toHex(digest(content)),
+                connection.getHeaderField("ETag"), connection.getLastModified(),
+                connection.getContentType());
+
+        Properties descriptor = new Properties();
+        descriptor.setProperty(URL, resource.url);
+        descriptor.setProperty(HASH, resource.hash);
+        descriptor.setProperty(LAST_MODIFIED, Long.toString(resource.lastModified));
+        if (resource.etag != null) {
+            descriptor.setProperty(ETAG, resource.etag);
+        }
+        if (resource.contentType != null) {
+            descriptor.setProperty(CONTENT_TYPE, resource.contentType);
+        }
+
+        synchronized (contentLock) {
+            // the content is stored by its hash, so unchanged content need not be written again
+            File contentFile = resource.getContentFile();
+            if (!contentFile.isFile()) {
+                writeFile(contentFile, content);
+            }
+            writeDescriptor(getDescriptorFile(key), descriptor);
+            resources.put(key, resource);
+        }
+        return resource;
+    }
+
+    private void remove(Resource resource) {
+        if (resource != null) {
+            resources.remove(resource.url);
+            if (!getDescriptorFile(resource.url).delete()) {
+                log.debug("Cannot delete the descriptor of the cached resource : " +
+                        resource.url);
+            }
+            removeContent(resource);
+        }
+    }
+
+    private void removeContent(Resource resource) {
+        synchronized (contentLock) {
+            for (Resource other : resources.values()) {
+                if (other.hash.equals(resource.hash)) {
+                    return;
+                }
+            }
+            if (!resource.getContentFile().delete()) {
+                log.debug("Cannot delete the cached content : " + resource.hash);
+            }
+        }
+    }
+
+    private static long getFreshUntil(URLConnection connection, long now,
+                                      long cachableDuration) {
+        long expiration = connection.getExpiration();
+        return expiration > now ? expiration : now + cachableDuration;
+    }
+
+    private File getDescriptorFile(String key) {
+        return new File(directory, toHex(digest(key.getBytes(Charset.forName("UTF-8")))) +
+                DESCRIPTOR_SUFFIX);
+    }
+
+    private Resource readDescriptor(File file) {
+        Properties descriptor = new Properties();
+        try {
+            InputStream in = new FileInputStream(file);
+            try {
+                descriptor.load(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            log.warn("Cannot read the cached resource descriptor : " + file.getPath(), e);
+            return null;
+        }
+
+        String url = descriptor.getProperty(URL);
+        String hash = descriptor.getProperty(HASH);
+        if (url == null || hash == null) {
+            return null;
+        }
+        return new Resource(url, hash, descriptor.getProperty(ETAG),
+                Long.parseLong(descriptor.getProperty(LAST_MODIFIED, "0")),
+                descriptor.getProperty(CONTENT_TYPE));
+    }
+
+    private static void writeDescriptor(File file, Properties descriptor) throws IOException {
+        File tempFile = createTempFile(file);
+        try {
+            OutputStream out = new FileOutputStream(tempFile);
+            try {
+                descriptor.store(out, null);
+            } finally {
+                out.close();
+            }
+            rename(tempFile, file);
+        } finally {
+            deleteTempFile(tempFile);
+        }
+    }
+
+    private static void writeFile(File file, byte[] content) throws IOException {
+        File tempFile = createTempFile(file);
+        try {
+            OutputStream out = new FileOutputStream(tempFile);
+            try {
+                out.write(content);
+            } finally {
+                out.close();
+            }
+            rename(tempFile, file);
+        } finally {
+            deleteTempFile(tempFile);
+        }
+    }
+
+    /**
+     * Creates a temporary file next to the given file, with a name of its own, so that other
+     * registries sharing the cache directory do not write to the same temporary file
+     */
+    private static File createTempFile(File file) throws IOException {
+        return File.createTempFile(file.getName() + ".", ".tmp", file.getParentFile());
+    }
+
+    private static void deleteTempFile(File tempFile) {
+        if (tempFile.exists() && !tempFile.delete()) {
+            log.debug("Cannot delete the temporary file : " + tempFile.getPath());
+        }
+    }
+
+    private static void rename(File from, File to) throws IOException {
+        try {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static byte[] digest(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * A resource held in the cache
+     */
+    class Resource {
+
+        private final String url;
+        private final String hash;
+        private final String etag;
+        private final long lastModified;
+        private final String contentType;
+        private volatile long freshUntil;
+
+        private Resource(String url, String hash, String etag, long lastModified,
+                         String contentType) {
+            this.url = url;
+            this.hash = hash;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.contentType = contentType;
+        }
+
+        String getContentType() {
+            return contentType;
+        }
+
+        long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Returns a version number for the resource, which changes when its content changes.
+         * The last modified time is used when the server gives one, like it is done for the
+         * resources which are not cached.
+         *
+         * @return the version of the resource
+         */
+        long getVersion() {
+            if (lastModified > 0) {
+                return lastModified;
+            }
+            return Long.parseLong(hash.substring(0, 15), 16);
+        }
+
+        /**
+         * Returns the number of milliseconds the resource is known to be up to date for
+         *
+         * @return the remaining time to live, or zero if the resource should be revalidated
+         */
+        long getTimeToLive() {
+            return Math.max(0, freshUntil - System.currentTimeMillis());
+        }
+
+        File getContentFile() {
+            return new File(directory, hash + CONTENT_SUFFIX);
+        }
+
+        InputStream openStream() throws IOException {
+            return new FileInputStream(getContentFile());
+        }
+    }
+}
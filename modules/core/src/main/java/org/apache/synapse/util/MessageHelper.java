@@ -80,13 +80,29 @@ public class MessageHelper {
      * @see MessageHelper#cloneAxis2MessageContext 
      */
     public static MessageContext cloneMessageContext(MessageContext synCtx) throws AxisFault {
+        return cloneMessageContext(synCtx, true);
+    }
+
+    /**
+     * Clones the message context as {@link #cloneMessageContext(MessageContext)} does, but
+     * optionally leaves out the SOAPEnvelope. This is useful when the caller is going to set
+     * an envelope of its own on the clone, and copying the original envelope would be a waste.
+     *
+     * @param synCtx - this will be cloned
+     * @param cloneSOAPEnvelope whether the SOAPEnvelope should be cloned as well
+     * @return cloned Synapse MessageContext, without an envelope if cloneSOAPEnvelope is false
+     * @throws AxisFault if there is a failure in creating the new Synapse MC or in a failure in
+     *          cloning the underlying axis2 MessageContext
+     */
+    public static MessageContext cloneMessageContext(MessageContext synCtx,
+                                                     boolean cloneSOAPEnvelope) throws AxisFault {
 
         // creates the new MessageContext and clone the internal axis2 MessageContext
         // inside the synapse message context and place that in the new one
         MessageContext newCtx = synCtx.getEnvironment().createMessageContext();
         Axis2MessageContext axis2MC = (Axis2MessageContext) newCtx;
-        axis2MC.setAxis2MessageContext(
-            cloneAxis2MessageContext(((Axis2MessageContext) synCtx).getAxis2MessageContext()));
+        axis2MC.setAxis2MessageContext(cloneAxis2MessageContext(
+                ((Axis2MessageContext) synCtx).getAxis2MessageContext(), cloneSOAPEnvelope));
 
         newCtx.setConfiguration(synCtx.getConfiguration());
         newCtx.setEnvironment(synCtx.getEnvironment());
@@ -167,9 +183,16 @@ public class MessageHelper {
      */
     public static org.apache.axis2.context.MessageContext cloneAxis2MessageContext(
         org.apache.axis2.context.MessageContext mc) throws AxisFault {
+        return cloneAxis2MessageContext(mc, true);
+    }
+
+    private static org.apache.axis2.context.MessageContext cloneAxis2MessageContext(
+        org.apache.axis2.context.MessageContext mc, boolean cloneSOAPEnvelope) throws AxisFault {
 
         org.apache.axis2.context.MessageContext newMC = clonePartially(mc);
-        newMC.setEnvelope(cloneSOAPEnvelope(mc.getEnvelope()));
+        if (cloneSOAPEnvelope) {
+            newMC.setEnvelope(cloneSOAPEnvelope(mc.getEnvelope()));
+        }
         newMC.setOptions(cloneOptions(mc.getOptions()));
         
         newMC.setServiceContext(mc.getServiceContext());
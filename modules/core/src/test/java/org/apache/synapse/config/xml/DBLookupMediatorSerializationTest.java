@@ -80,4 +80,21 @@ public class DBLookupMediatorSerializationTest extends AbstractTestCase {
         assertTrue(serialization(inputXml, dbLookupFactory, dbLookupSerializer));
         assertTrue(serialization(inputXml, dbLookupSerializer));
     }
+
+    public void testDBLookupMediatorSerializationWithCache() throws Exception {
+
+        String inputXml =
+            "<syn:dblookup xmlns:syn=\"http://ws.apache.org/ns/synapse\">" +
+                    "<syn:connection><syn:pool><syn:dsName>lookupdb</syn:dsName>" +
+                    "</syn:pool></syn:connection><syn:statement><syn:sql>" +
+                    "<![CDATA[select code from countries where name = ?]]></syn:sql>" +
+                    "<syn:parameter expression=\"//country\" type=\"VARCHAR\"/>" +
+                    "<syn:result name=\"code\" column=\"code\"/>" +
+                    "<syn:cache name=\"countries\" timeout=\"300000\" maxEntries=\"250\" " +
+                    "maxSize=\"1048576\"/>" +
+                    "</syn:statement></syn:dblookup>";
+
+        assertTrue(serialization(inputXml, dbLookupFactory, dbLookupSerializer));
+        assertTrue(serialization(inputXml, dbLookupSerializer));
+    }
 }
@@ -25,6 +25,7 @@ import java.io.File;
 import java.net.URL;
 import java.util.Properties;
 
+import org.apache.synapse.SynapseConstants;
 import org.apache.synapse.config.SynapseConfiguration;
 import org.apache.synapse.mediators.base.SequenceMediator;
 import org.apache.axis2.util.JavaUtils;
@@ -70,4 +71,29 @@ public class MultiXMLConfigurationBuilderTest extends TestCase {
         assertTrue(JavaUtils.isTrueExplicitly(synapseConfig.getProperty(
                 MultiXMLConfigurationBuilder.SEPARATE_REGISTRY_DEFINITION)));
     }
+
+    public void testParallelConfigurationBuilder() throws Exception {
+        URL u = this.getClass().getClassLoader().getResource("synapse-config");
+        if (u == null) {
+            fail("Failed to load the synapse-config resource files");
+        }
+        String root = new File(u.toURI()).getAbsolutePath();
+
+        SynapseConfiguration sequential =
+                MultiXMLConfigurationBuilder.getConfiguration(root, new Properties());
+        Properties properties = new Properties();
+        properties.setProperty(SynapseConstants.STARTUP_THREADS, "4");
+        SynapseConfiguration parallel =
+                MultiXMLConfigurationBuilder.getConfiguration(root, properties);
+
+        assertEquals(sequential.getDefinedSequences().keySet(),
+                parallel.getDefinedSequences().keySet());
+        assertEquals(sequential.getDefinedEndpoints().keySet(),
+                parallel.getDefinedEndpoints().keySet());
+        assertEquals("foo.xml", parallel.getDefinedSequences().get("foo").getFileName());
+        assertNotNull(parallel.getProxyService("proxy1"));
+        assertNotNull(parallel.getStartup("task1"));
+        assertEquals("foo", parallel.getArtifactDeploymentStore().getArtifactNameForFile(
+                new File(root, "sequences/foo.xml").getAbsolutePath()));
+    }
 }
@@ -0,0 +1,48 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.config.xml;
+
+public class StageMediatorSerializationTest extends AbstractTestCase {
+
+    private StageMediatorFactory factory;
+    private StageMediatorSerializer serializer;
+
+    public StageMediatorSerializationTest() {
+        super(StageMediatorSerializationTest.class.getName());
+        factory = new StageMediatorFactory();
+        serializer = new StageMediatorSerializer();
+    }
+
+    public void testStageMediatorSerializationScenarioOne() throws Exception {
+        String inputXml = "<stage xmlns=\"http://ws.apache.org/ns/synapse\" " +
+                "name=\"db\" sequence=\"foo\"/>";
+        assertTrue(serialization(inputXml, factory, serializer));
+        assertTrue(serialization(inputXml, serializer));
+    }
+
+    public void testStageMediatorSerializationScenarioTwo() throws Exception {
+        String inputXml = "<stage xmlns=\"http://ws.apache.org/ns/synapse\" " +
+                "name=\"db\" sequence=\"foo\" queueSize=\"50\" minWorkers=\"2\" " +
+                "maxWorkers=\"20\" targetLatency=\"25\" keepAlive=\"5000\" " +
+                "onReject=\"caller-runs\"/>";
+        assertTrue(serialization(inputXml, factory, serializer));
+        assertTrue(serialization(inputXml, serializer));
+    }
+}
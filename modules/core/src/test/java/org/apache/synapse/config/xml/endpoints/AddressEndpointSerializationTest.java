@@ -121,4 +121,19 @@ public class AddressEndpointSerializationTest extends AbstractTestCase {
         assertTrue(compare(serializedOut,inputElement));
     }
 
+    public void testAddressEndpointWithAdaptiveConcurrency() throws Exception {
+        String inputXML =
+                "<endpoint name=\"testEndpoint\" xmlns=\"http://ws.apache.org/ns/synapse\">" +
+                        "<address uri=\"http://localhost:9000/services/SimpleStockQuoteService\">" +
+                        "<adaptiveConcurrency algorithm=\"gradient\" initialLimit=\"50\" " +
+                        "maxLimit=\"500\"/></address></endpoint>" ;
+
+        OMElement inputElement = createOMElement(inputXML);
+        AddressEndpoint endpoint = (AddressEndpoint) AddressEndpointFactory.getEndpointFromElement(
+                inputElement, false, null);
+        assertEquals("gradient", endpoint.getDefinition().getConcurrencyAlgorithm());
+        OMElement serializedOut = AddressEndpointSerializer.getElementFromEndpoint(endpoint);
+        assertTrue(compare(serializedOut,inputElement));
+    }
+
 }
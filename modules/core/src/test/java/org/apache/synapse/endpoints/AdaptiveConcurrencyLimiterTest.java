@@ -0,0 +1,133 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.endpoints;
+
+import junit.framework.TestCase;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.mediators.TestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+public class AdaptiveConcurrencyLimiterTest extends TestCase {
+
+    private static final long RTT = TimeUnit.MILLISECONDS.toNanos(10);
+
+    public void testShedding() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                AdaptiveConcurrencyLimiter.AIMD, 2, 1, 10);
+        MessageContext first = createMessage();
+        MessageContext second = createMessage();
+        assertTrue(limiter.tryAcquire(first));
+        assertTrue(limiter.tryAcquire(second));
+        assertFalse(limiter.tryAcquire(createMessage()));
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(1, limiter.getShedCount());
+
+        AdaptiveConcurrencyLimiter.complete(first, false);
+        assertEquals(1, limiter.getInFlight());
+        // the access can only be given back once
+        AdaptiveConcurrencyLimiter.complete(first, false);
+        assertEquals(1, limiter.getInFlight());
+        AdaptiveConcurrencyLimiter.release(second);
+        assertEquals(0, limiter.getInFlight());
+        assertTrue(limiter.getSmoothedRtt() >= 0);
+    }
+
+    public void testAimd() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                AdaptiveConcurrencyLimiter.AIMD, 10, 2, 20);
+        // the limit does not grow while the endpoint is not even sent half as many requests
+        sample(limiter, 1, RTT, false, 100);
+        assertEquals(10, limiter.getLimit());
+
+        // a full window of responses grows the limit by about one
+        sample(limiter, 10, RTT, false, 10);
+        assertEquals(10, limiter.getLimit());
+        sample(limiter, 10, RTT, false, 1);
+        assertEquals(11, limiter.getLimit());
+        sample(limiter, 20, RTT, false, 1000);
+        assertEquals(20, limiter.getLimit());
+
+        // each timeout cuts the limit down
+        sample(limiter, 20, RTT, true, 1);
+        assertEquals(18, limiter.getLimit());
+        sample(limiter, 20, RTT, true, 100);
+        assertEquals(2, limiter.getLimit());
+    }
+
+    public void testGradient() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                AdaptiveConcurrencyLimiter.GRADIENT, 20, 1, 100);
+        // a busy endpoint with steady round trip times gets a higher limit
+        sample(limiter, 20, RTT, false, 20);
+        int grown = limiter.getLimit();
+        assertTrue(grown > 20);
+        assertEquals(10.0, limiter.getMinRtt(), 0.001);
+        assertEquals(10.0, limiter.getSmoothedRtt(), 0.001);
+
+        // the limit comes down as soon as the endpoint slows down
+        sample(limiter, grown, RTT * 10, false, 20);
+        assertTrue(limiter.getLimit() < grown);
+        assertTrue(limiter.getSmoothedRtt() > 10.0);
+        assertEquals(10.0, limiter.getMinRtt(), 0.001);
+    }
+
+    public void testInvalidConfiguration() throws Exception {
+        try {
+            new AdaptiveConcurrencyLimiter("vegas", 10, 1, 100);
+            fail("Unknown algorithms must be rejected");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+        try {
+            new AdaptiveConcurrencyLimiter(AdaptiveConcurrencyLimiter.AIMD, 10, 20, 100);
+            fail("The initial limit cannot be below the minimum limit");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    /**
+     * Feeds the limiter with the outcomes of requests sent while the given number of requests
+     * are in flight
+     */
+    private static void sample(AdaptiveConcurrencyLimiter limiter, int inFlight, long rtt,
+                               boolean dropped, int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            MessageContext[] messages = new MessageContext[inFlight];
+            int taken = 0;
+            while (taken < inFlight) {
+                messages[taken] = createMessage();
+                if (!limiter.tryAcquire(messages[taken])) {
+                    break;
+                }
+                taken++;
+            }
+            limiter.onSample(rtt, dropped);
+            for (int j = 1; j < taken; j++) {
+                AdaptiveConcurrencyLimiter.release(messages[j]);
+            }
+        }
+    }
+
+    private static MessageContext createMessage() throws Exception {
+        return TestUtils.createLightweightSynapseMessageContext("<test/>");
+    }
+}
@@ -30,6 +30,9 @@ import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
 import org.apache.synapse.mediators.TestUtils;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class BasicEndpointTest extends TestCase {
 
     private static final int CUSTOM_ERROR = 911911;
@@ -177,6 +180,105 @@ public class BasicEndpointTest extends TestCase {
         endpoint.destroy();
     }
 
+    public void testFailoverSkipsSaturatedEndpoint() throws Exception {
+        SynapseConfiguration synapseConfig = new SynapseConfiguration();
+        AxisConfiguration axisConfig = new AxisConfiguration();
+        ConfigurationContext configContext = new ConfigurationContext(axisConfig);
+        SynapseEnvironment env = new Axis2SynapseEnvironment(configContext, synapseConfig) {
+            @Override
+            public void send(EndpointDefinition endpoint, MessageContext synCtx) {
+                synCtx.setProperty("__test__", endpoint.getAddress());
+            }
+        };
+
+        FailoverEndpoint failover = new FailoverEndpoint();
+        List<Endpoint> children = new ArrayList<Endpoint>();
+        children.add(createLimitedEndpoint("http://primary.com", failover));
+        children.add(createLimitedEndpoint("http://backup.com", failover));
+        failover.setChildren(children);
+        failover.init(env);
+
+        // the primary takes requests up to its limit, the backup takes the overflow
+        assertEquals("http://primary.com", sendThrough(failover, env, null));
+        assertEquals("http://backup.com", sendThrough(failover, env, null));
+
+        // once every child is saturated the request fails, instead of being retried on the
+        // saturated primary until the stack overflows
+        TestFaultHandler faultHandler = new TestFaultHandler();
+        assertNull(sendThrough(failover, env, faultHandler));
+        assertTrue(faultHandler.invoked);
+        failover.destroy();
+    }
+
+    public void testFailoverRetriesShedRequest() throws Exception {
+        SynapseConfiguration synapseConfig = new SynapseConfiguration();
+        AxisConfiguration axisConfig = new AxisConfiguration();
+        ConfigurationContext configContext = new ConfigurationContext(axisConfig);
+        SynapseEnvironment env = new Axis2SynapseEnvironment(configContext, synapseConfig) {
+            @Override
+            public void send(EndpointDefinition endpoint, MessageContext synCtx) {
+                synCtx.setProperty("__test__", endpoint.getAddress());
+            }
+        };
+
+        FailoverEndpoint failover = new FailoverEndpoint();
+        // the primary fills up between the check of the failover and the send
+        AddressEndpoint primary = new AddressEndpoint() {
+            private boolean raced = false;
+
+            @Override
+            public boolean readyToSend() {
+                if (!raced) {
+                    raced = true;
+                    return isEndpointReady();
+                }
+                return super.readyToSend();
+            }
+        };
+        configureLimitedEndpoint(primary, "http://primary.com", failover);
+        List<Endpoint> children = new ArrayList<Endpoint>();
+        children.add(primary);
+        children.add(createLimitedEndpoint("http://backup.com", failover));
+        failover.setChildren(children);
+        failover.init(env);
+        assertTrue(primary.getConcurrencyLimiter().tryAcquire(
+                TestUtils.createLightweightSynapseMessageContext("<test/>")));
+
+        // the request shed by the primary is retried on the backup
+        assertEquals("http://backup.com", sendThrough(failover, env, null));
+        assertEquals(1, primary.getConcurrencyLimiter().getInFlight());
+        failover.destroy();
+    }
+
+    private static AddressEndpoint createLimitedEndpoint(String address, Endpoint parent) {
+        AddressEndpoint endpoint = new AddressEndpoint();
+        configureLimitedEndpoint(endpoint, address, parent);
+        return endpoint;
+    }
+
+    private static void configureLimitedEndpoint(AddressEndpoint endpoint, String address,
+                                                 Endpoint parent) {
+        EndpointDefinition def = new EndpointDefinition();
+        def.setAddress(address);
+        def.setConcurrencyAlgorithm(AdaptiveConcurrencyLimiter.AIMD);
+        def.setConcurrencyInitialLimit(1);
+        def.setConcurrencyMinLimit(1);
+        def.setConcurrencyMaxLimit(1);
+        endpoint.setDefinition(def);
+        endpoint.setParentEndpoint(parent);
+    }
+
+    private static Object sendThrough(Endpoint endpoint, SynapseEnvironment env,
+                                      FaultHandler faultHandler) throws Exception {
+        MessageContext messageContext = TestUtils.createLightweightSynapseMessageContext("<test/>");
+        messageContext.setEnvironment(env);
+        if (faultHandler != null) {
+            messageContext.pushFaultHandler(faultHandler);
+        }
+        endpoint.send(messageContext);
+        return messageContext.getProperty("__test__");
+    }
+
     private static class TestFaultHandler extends FaultHandler {
 
         boolean invoked = false;
@@ -0,0 +1,197 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.endpoints;
+
+import junit.framework.TestCase;
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.axis2.engine.AxisConfiguration;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class EndpointContextTest extends TestCase {
+
+    private static final String STATE_KEY = "synapse.endpoint.ep.state";
+
+    public void testPackedState() {
+        long packed = EndpointContext.pack(EndpointContext.ST_TIMEOUT, 3, 5, 1234567890123L);
+        assertEquals(EndpointContext.ST_TIMEOUT, EndpointContext.getState(packed));
+        assertEquals(3, EndpointContext.getRemainingRetries(packed));
+        assertEquals(5, EndpointContext.getSuspensions(packed));
+        assertEquals(1234567890123L, EndpointContext.getNextRetryTime(packed));
+
+        packed = EndpointContext.pack(EndpointContext.ST_ACTIVE, -1, 0, 0);
+        assertEquals(-1, EndpointContext.getRemainingRetries(packed));
+        assertTrue(packed >= 0);
+    }
+
+    public void testTimeoutsLeadToSuspension() {
+        EndpointDefinition definition = newDefinition(2);
+        EndpointContext context = new EndpointContext("ep", definition, false, null, null);
+        assertTrue(context.readyToSend());
+
+        context.onTimeout();
+        assertTrue(context.isState(EndpointContext.ST_TIMEOUT));
+        context.onTimeout();
+        assertTrue(context.isState(EndpointContext.ST_TIMEOUT));
+        assertFalse(context.readyToSend());
+
+        context.onTimeout();
+        assertTrue(context.isState(EndpointContext.ST_SUSPENDED));
+        assertFalse(context.readyToSend());
+
+        context.onSuccess();
+        assertTrue(context.isState(EndpointContext.ST_ACTIVE));
+        assertTrue(context.readyToSend());
+
+        // the retries are available again once the endpoint is active
+        context.onTimeout();
+        assertTrue(context.isState(EndpointContext.ST_TIMEOUT));
+    }
+
+    public void testReadyToSendAfterRetryTime() throws Exception {
+        EndpointDefinition definition = newDefinition(1);
+        definition.setRetryDurationOnTimeout(50);
+        EndpointContext context = new EndpointContext("ep", definition, false, null, null);
+
+        context.onTimeout();
+        assertFalse(context.readyToSend());
+        Thread.sleep(100);
+        assertTrue(context.readyToSend());
+        // checking whether an endpoint is ready does not use up its retries
+        assertTrue(context.readyToSend());
+        assertTrue(context.isState(EndpointContext.ST_TIMEOUT));
+    }
+
+    public void testSwitchOff() {
+        EndpointContext context = new EndpointContext("ep", newDefinition(0), false, null, null);
+        context.switchOff();
+        assertFalse(context.readyToSend());
+        context.onSuccess();
+        assertTrue(context.isState(EndpointContext.ST_OFF));
+        context.switchOn();
+        assertTrue(context.readyToSend());
+    }
+
+    public void testConcurrentTimeouts() throws Exception {
+        final int threads = 8;
+        final int retries = 1000;
+        final EndpointContext context = new EndpointContext("ep", newDefinition(retries),
+                false, null, null);
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < retries / threads; j++) {
+                            context.onTimeout();
+                        }
+                    } catch (InterruptedException ignore) {
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+        start.countDown();
+        done.await();
+
+        // every timeout used up exactly one retry, so the next one suspends the endpoint
+        assertTrue(context.isState(EndpointContext.ST_TIMEOUT));
+        context.onTimeout();
+        assertTrue(context.isState(EndpointContext.ST_SUSPENDED));
+    }
+
+    public void testClusteredStateIsShared() throws Exception {
+        ConfigurationContext cfgCtx = new ConfigurationContext(new AxisConfiguration());
+        EndpointContext first = new EndpointContext("ep", newDefinition(0), true, cfgCtx, null);
+        EndpointContext second = new EndpointContext("ep", newDefinition(0), true, cfgCtx, null);
+
+        first.onFault();
+        assertTrue(first.isState(EndpointContext.ST_SUSPENDED));
+
+        // the state is replicated in the background
+        for (int i = 0; i < 100 && !second.isState(EndpointContext.ST_SUSPENDED); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(second.isState(EndpointContext.ST_SUSPENDED));
+        assertFalse(second.readyToSend());
+    }
+
+    public void testOwnStateIsNotReadBack() throws Exception {
+        final ConfigurationContext cfgCtx = new ConfigurationContext(new AxisConfiguration());
+        final EndpointContext context =
+                new EndpointContext("ep", newDefinition(100), true, cfgCtx, null);
+
+        // readers keep checking the endpoint while its state is being replicated
+        final AtomicBoolean stop = new AtomicBoolean(false);
+        Thread[] readers = new Thread[4];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread() {
+                @Override
+                public void run() {
+                    while (!stop.get()) {
+                        context.readyToSend();
+                    }
+                }
+            };
+            readers[i].start();
+        }
+
+        try {
+            for (int i = 0; i < 1000; i++) {
+                Object published = cfgCtx.getPropertyNonReplicable(STATE_KEY);
+                context.switchOff();
+                awaitReplication(cfgCtx, published);
+                assertTrue(context.isState(EndpointContext.ST_OFF));
+
+                published = cfgCtx.getPropertyNonReplicable(STATE_KEY);
+                context.switchOn();
+                awaitReplication(cfgCtx, published);
+                assertTrue(context.isState(EndpointContext.ST_ACTIVE));
+            }
+        } finally {
+            stop.set(true);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+        }
+    }
+
+    private static void awaitReplication(ConfigurationContext cfgCtx, Object published)
+            throws InterruptedException {
+        for (int i = 0; i < 500 && cfgCtx.getPropertyNonReplicable(STATE_KEY) == published; i++) {
+            Thread.sleep(1);
+        }
+        assertNotSame(published, cfgCtx.getPropertyNonReplicable(STATE_KEY));
+    }
+
+    private EndpointDefinition newDefinition(int retries) {
+        EndpointDefinition definition = new EndpointDefinition();
+        definition.setRetriesOnTimeoutBeforeSuspend(retries);
+        definition.setRetryDurationOnTimeout(30000);
+        definition.setInitialSuspendDuration(30000);
+        return definition;
+    }
+}
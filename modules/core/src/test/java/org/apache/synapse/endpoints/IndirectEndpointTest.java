@@ -0,0 +1,96 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.endpoints;
+
+import junit.framework.TestCase;
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.axis2.engine.AxisConfiguration;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.core.SynapseEnvironment;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
+import org.apache.synapse.mediators.TestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IndirectEndpointTest extends TestCase {
+
+    public void testRealEndpointIsInitializedOnce() throws Exception {
+        final AtomicInteger inits = new AtomicInteger();
+        AddressEndpoint real = new AddressEndpoint() {
+            @Override
+            public void init(SynapseEnvironment synapseEnvironment) {
+                inits.incrementAndGet();
+                try {
+                    // widen the window in which other threads look at the endpoint
+                    Thread.sleep(50);
+                } catch (InterruptedException ignore) {
+                }
+                super.init(synapseEnvironment);
+            }
+        };
+        real.setDefinition(new EndpointDefinition());
+
+        SynapseConfiguration synapseConfig = new SynapseConfiguration();
+        AxisConfiguration axisConfig = new AxisConfiguration();
+        synapseConfig.setAxisConfiguration(axisConfig);
+        ConfigurationContext cfgCtx = new ConfigurationContext(axisConfig);
+        SynapseEnvironment env = new Axis2SynapseEnvironment(cfgCtx, synapseConfig);
+        axisConfig.addParameter(SynapseConstants.SYNAPSE_CONFIG, synapseConfig);
+        axisConfig.addParameter(SynapseConstants.SYNAPSE_ENV, env);
+        synapseConfig.addEndpoint("real", real);
+
+        final Axis2MessageContext synCtx = TestUtils.getAxis2MessageContext("<test/>", null);
+        synCtx.getAxis2MessageContext().setConfigurationContext(cfgCtx);
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Endpoint>> results = new ArrayList<Future<Endpoint>>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(new Callable<Endpoint>() {
+                    @Override
+                    public Endpoint call() {
+                        // as used by different sequences, each with an indirect endpoint
+                        IndirectEndpoint indirect = new IndirectEndpoint();
+                        indirect.setKey("real");
+                        return indirect.getRealEndpoint(synCtx);
+                    }
+                }));
+            }
+            for (Future<Endpoint> result : results) {
+                Endpoint endpoint = result.get();
+                // every caller gets the endpoint back only once it is initialized
+                assertSame(real, endpoint);
+                assertTrue(endpoint.isInitialized());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, inits.get());
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.eventing;
+
+import junit.framework.TestCase;
+import org.apache.axiom.om.OMSourcedElement;
+import org.apache.axiom.om.OMXMLBuilderFactory;
+import org.apache.axiom.soap.SOAPEnvelope;
+import org.apache.axiom.soap.SOAPHeaderBlock;
+
+import javax.xml.namespace.QName;
+import java.io.StringReader;
+
+public class SharedEventPayloadTest extends TestCase {
+
+    private static final String EVENT =
+            "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+            "<soapenv:Header>" +
+            "<aip:Topic xmlns:aip=\"http://apache.org/aip\">weather</aip:Topic>" +
+            "</soapenv:Header>" +
+            "<soapenv:Body xmlns:x=\"urn:x\">" +
+            "<m:event xmlns:m=\"urn:m\"><x:condition>snow &amp; ice</x:condition></m:event>" +
+            "</soapenv:Body></soapenv:Envelope>";
+
+    public void testSubscriberEnvelopes() throws Exception {
+        SOAPEnvelope event = OMXMLBuilderFactory.createSOAPModelBuilder(
+                new StringReader(EVENT)).getSOAPEnvelope();
+        SharedEventPayload payload = SharedEventPayload.create(event);
+        assertNotNull(payload);
+
+        SOAPEnvelope first = payload.createEnvelope();
+        SOAPEnvelope second = payload.createEnvelope();
+        assertNotSame(first.getBody().getFirstElement(), second.getBody().getFirstElement());
+
+        // the payload is written out without building it again
+        OMSourcedElement element = (OMSourcedElement) first.getBody().getFirstElement();
+        assertEquals(new QName("urn:m", "event"), element.getQName());
+        assertTrue(first.toString().contains("snow &amp; ice"));
+        assertFalse(element.isExpanded());
+
+        SOAPHeaderBlock topic = (SOAPHeaderBlock) second.getHeader().getFirstElement();
+        assertEquals("weather", topic.getText());
+        assertEquals("snow & ice", second.getBody().getFirstElement().getFirstElement().getText());
+    }
+
+    public void testMultipleBodyElements() throws Exception {
+        SOAPEnvelope event = OMXMLBuilderFactory.createSOAPModelBuilder(new StringReader(
+                "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+                "<soapenv:Body><a/><b/></soapenv:Body></soapenv:Envelope>")).getSOAPEnvelope();
+        assertNull(SharedEventPayload.create(event));
+    }
+}
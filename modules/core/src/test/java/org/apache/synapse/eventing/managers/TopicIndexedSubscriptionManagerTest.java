@@ -0,0 +1,145 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.eventing.managers;
+
+import junit.framework.TestCase;
+import org.apache.axis2.context.MessageContext;
+import org.apache.synapse.eventing.SynapseEventingConstants;
+import org.apache.synapse.eventing.SynapseSubscription;
+import org.apache.synapse.mediators.TestUtils;
+import org.wso2.eventing.Event;
+import org.wso2.eventing.Subscription;
+
+import javax.xml.namespace.QName;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class TopicIndexedSubscriptionManagerTest extends TestCase {
+
+    private static final String TOPIC_NS = "http://apache.org/aip";
+
+    private TopicIndexedSubscriptionManager manager;
+
+    @Override
+    protected void setUp() throws Exception {
+        manager = new TopicIndexedSubscriptionManager();
+        manager.addProperty("topicHeaderName", "Topic");
+        manager.addProperty("topicHeaderNS", TOPIC_NS);
+        manager.init();
+    }
+
+    public void testTopicMatching() throws Exception {
+        subscribe("weather", null);
+        subscribe("weather/storms", null);
+        subscribe("weather/storms/snow", null);
+        subscribe("weather/sun", null);
+        subscribe("weatherman", null);
+
+        assertEquals(set("weather", "weather/storms"), match("weather/storms"));
+        assertEquals(set("weather", "weather/storms", "weather/storms/snow"),
+                match("weather/storms/snow"));
+        assertEquals(set("weather", "weather/storms"), match("weather/storms/rain"));
+        assertEquals(set("weather"), match("weather/"));
+        assertEquals(set("weatherman"), match("weatherman"));
+        assertEquals(set(), match("news"));
+    }
+
+    public void testUnsubscribeAndExpiry() throws Exception {
+        String id = subscribe("weather/storms", null).getId();
+        Subscription expired = subscribe("weather", null);
+        Calendar past = Calendar.getInstance();
+        past.add(Calendar.HOUR, -1);
+        expired.setExpires(past);
+
+        assertEquals(set("weather/storms"), match("weather/storms"));
+        assertTrue(manager.unsubscribe(id));
+        assertFalse(manager.unsubscribe(id));
+        assertEquals(set(), match("weather/storms"));
+    }
+
+    public void testXPathSubscriptionsAreGrouped() throws Exception {
+        subscribe("//weatherCondition = 'snow'", SynapseEventingConstants.XPATH_FILTER_DIALECT);
+        subscribe("//weatherCondition = 'snow'", SynapseEventingConstants.XPATH_FILTER_DIALECT);
+        subscribe("//weatherCondition = 'rain'", SynapseEventingConstants.XPATH_FILTER_DIALECT);
+
+        List<Subscription> matches = manager.getMatchingSubscriptions(event("news"));
+        assertEquals(2, matches.size());
+        for (Subscription subscription : matches) {
+            assertEquals("//weatherCondition = 'snow'", subscription.getFilterValue());
+        }
+    }
+
+    public void testRenewedSubscriptionIsUnsubscribed() throws Exception {
+        // a subscription whose hash code covers its expiry, which a renewal changes
+        SynapseSubscription subscription = new SynapseSubscription() {
+            @Override
+            public int hashCode() {
+                return getExpires() != null ? getExpires().hashCode() : 0;
+            }
+        };
+        subscription.setFilterValue("weather");
+        String id = manager.subscribe(subscription);
+
+        SynapseSubscription renewal = new SynapseSubscription();
+        renewal.setId(id);
+        Calendar expires = Calendar.getInstance();
+        expires.add(Calendar.HOUR, 1);
+        renewal.setExpires(expires);
+        assertTrue(manager.renew(renewal));
+        assertEquals(set("weather"), match("weather"));
+
+        assertTrue(manager.unsubscribe(id));
+        assertEquals(set(), match("weather"));
+    }
+
+    private Subscription subscribe(String filter, String dialect) throws Exception {
+        SynapseSubscription subscription = new SynapseSubscription();
+        subscription.setFilterValue(filter);
+        subscription.setFilterDialect(dialect);
+        subscription.setEndpointUrl("http://localhost/" + filter);
+        manager.subscribe(subscription);
+        return subscription;
+    }
+
+    private Set<String> match(String topic) throws Exception {
+        Set<String> filters = new HashSet<String>();
+        for (Subscription subscription : manager.getMatchingSubscriptions(event(topic))) {
+            filters.add(subscription.getFilterValue());
+        }
+        return filters;
+    }
+
+    private Event<MessageContext> event(String topic) throws Exception {
+        MessageContext msgCtx = TestUtils.getAxis2MessageContext(
+                "<weatherCondition>snow</weatherCondition>", null).getAxis2MessageContext();
+        TestUtils.addSOAPHeaderBlock(msgCtx, new QName(TOPIC_NS, "Topic", "aip"), topic);
+        return new Event<MessageContext>(msgCtx);
+    }
+
+    private static Set<String> set(String... values) {
+        Set<String> set = new HashSet<String>();
+        for (String value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators;
+
+import junit.framework.TestCase;
+import org.apache.synapse.FaultHandler;
+import org.apache.synapse.Mediator;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.SynapseException;
+import org.apache.synapse.mediators.base.SequenceMediator;
+import org.apache.synapse.mediators.eip.EIPUtils;
+import org.apache.synapse.mediators.template.TemplateMediator;
+import org.apache.synapse.util.xpath.SynapseXPath;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Stack;
+import java.util.concurrent.Callable;
+
+public class ContinuationTest extends TestCase {
+
+    private final List<String> trail = new ArrayList<String>();
+    private Continuation continuation = null;
+
+    public void testResumeAfterUnwinding() throws Exception {
+        SequenceMediator seq = createFlow(false);
+        MessageContext synCtx = TestUtils.getTestContext("<empty/>");
+
+        assertFalse(seq.mediate(synCtx));
+        assertEquals("a,b", join());
+
+        continuation.resume(record("resumed"));
+        assertEquals("a,b,resumed,c,d", join());
+    }
+
+    public void testResumeBeforeUnwinding() throws Exception {
+        SequenceMediator seq = createFlow(true);
+        MessageContext synCtx = TestUtils.getTestContext("<empty/>");
+
+        assertFalse(seq.mediate(synCtx));
+        assertEquals("a,b,resumed,c,d", join());
+    }
+
+    public void testResumeOnlyOnce() throws Exception {
+        SequenceMediator seq = createFlow(false);
+        MessageContext synCtx = TestUtils.getTestContext("<empty/>");
+
+        seq.mediate(synCtx);
+        continuation.resume(record("resumed"));
+        continuation.resume(record("again"));
+        assertEquals("a,b,resumed,c,d", join());
+    }
+
+    public void testTaskEndsTheFlow() throws Exception {
+        SequenceMediator seq = createFlow(false);
+        MessageContext synCtx = TestUtils.getTestContext("<empty/>");
+
+        seq.mediate(synCtx);
+        continuation.resume(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                trail.add("resumed");
+                return false;
+            }
+        });
+        assertEquals("a,b,resumed", join());
+    }
+
+    public void testTaskSuspendsAgain() throws Exception {
+        SequenceMediator seq = createFlow(false);
+        final SequenceMediator task = new SequenceMediator();
+        task.addChild(recorder("x"));
+        task.addChild(suspender());
+        task.addChild(recorder("y"));
+        final MessageContext synCtx = TestUtils.getTestContext("<empty/>");
+
+        seq.mediate(synCtx);
+        continuation.resume(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return task.mediate(synCtx);
+            }
+        });
+        assertEquals("a,b,x", join());
+
+        continuation.resume(record("resumed"));
+        // the flow of the task completes first, then the flow it took the place of
+        assertEquals("a,b,x,resumed,y,c,d", join());
+    }
+
+    public void testFaultOnResume() throws Exception {
+        SequenceMediator seq = createFlow(false);
+        MessageContext synCtx = TestUtils.getTestContext("<empty/>");
+        synCtx.pushFaultHandler(new FaultHandler() {
+            @Override
+            public void onFault(MessageContext synCtx) {
+                trail.add("fault");
+            }
+        });
+
+        seq.mediate(synCtx);
+        continuation.resume(new Runnable() {
+            @Override
+            public void run() {
+                throw new SynapseException("callout failed");
+            }
+        });
+        assertEquals("a,b,fault", join());
+    }
+
+    public void testSequenceEndIsProcessedOnResume() throws Exception {
+        SequenceMediator seq = createFlow(false);
+        SequenceMediator inner = (SequenceMediator) seq.getChild(1);
+        inner.setErrorHandler("onError");
+        seq.addChild(new AbstractMediator() {
+            @Override
+            public boolean mediate(MessageContext synCtx) {
+                trail.add("handlers=" + synCtx.getFaultStack().size());
+                return true;
+            }
+        });
+        MessageContext synCtx = TestUtils.getTestContext("<empty/>");
+        synCtx.getConfiguration().addSequence("onError", new SequenceMediator());
+
+        assertFalse(seq.mediate(synCtx));
+        continuation.resume(record("resumed"));
+        // the error handler of the inner sequence is removed once it completes
+        assertEquals("a,b,resumed,c,d,handlers=0", join());
+    }
+
+    public void testTemplateParametersAfterResume() throws Exception {
+        TemplateParameter parameter = new TemplateParameter();
+        parameter.setName("p1");
+        TemplateMediator template = new TemplateMediator();
+        template.setName("suspending");
+        template.setParameters(Collections.singletonList(parameter));
+        template.addChild(funcRecorder("before"));
+        template.addChild(suspender());
+        template.addChild(funcRecorder("after"));
+
+        SequenceMediator seq = new SequenceMediator();
+        seq.addChild(template);
+        seq.addChild(recorder("d"));
+        MessageContext synCtx = TestUtils.getTestContext("<empty/>");
+        synCtx.setProperty(EIPUtils.getTemplatePropertyMapping("suspending", "p1"),
+                new Value("hello"));
+
+        assertFalse(seq.mediate(synCtx));
+        continuation.resume(record("resumed"));
+        assertEquals("before=hello,resumed,after=hello,d", join());
+        // the function context is removed once the template completes
+        Stack stack = (Stack) synCtx.getProperty(SynapseConstants.SYNAPSE__FUNCTION__STACK);
+        assertTrue(stack.isEmpty());
+    }
+
+    public void testSuspendOutsideSequence() throws Exception {
+        MessageContext synCtx = TestUtils.getTestContext("<empty/>");
+        try {
+            Continuation.suspend(synCtx);
+            fail("Suspending a message outside a sequence must fail");
+        } catch (SynapseException expected) {
+        }
+    }
+
+    /**
+     * Creates the flow a, (b, suspend, c), d where the inner list is a nested sequence
+     */
+    private SequenceMediator createFlow(final boolean resumeImmediately) {
+        SequenceMediator inner = new SequenceMediator();
+        inner.addChild(recorder("b"));
+        inner.addChild(new AbstractMediator() {
+            @Override
+            public boolean mediate(MessageContext synCtx) {
+                continuation = Continuation.suspend(synCtx);
+                if (resumeImmediately) {
+                    continuation.resume(record("resumed"));
+                }
+                return false;
+            }
+        });
+        inner.addChild(recorder("c"));
+
+        SequenceMediator seq = new SequenceMediator();
+        seq.addChild(recorder("a"));
+        seq.addChild(inner);
+        seq.addChild(recorder("d"));
+        return seq;
+    }
+
+    private Mediator suspender() {
+        return new AbstractMediator() {
+            @Override
+            public boolean mediate(MessageContext synCtx) {
+                continuation = Continuation.suspend(synCtx);
+                return false;
+            }
+        };
+    }
+
+    private Mediator funcRecorder(final String name) throws Exception {
+        final SynapseXPath xpath = new SynapseXPath("$func:p1");
+        return new AbstractMediator() {
+            @Override
+            public boolean mediate(MessageContext synCtx) {
+                trail.add(name + "=" + xpath.stringValueOf(synCtx));
+                return true;
+            }
+        };
+    }
+
+    private Mediator recorder(final String name) {
+        TestMediator mediator = new TestMediator();
+        mediator.setHandler(new TestMediateHandler() {
+            @Override
+            public void handle(MessageContext synCtx) {
+                trail.add(name);
+            }
+        });
+        return mediator;
+    }
+
+    private Runnable record(final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                trail.add(name);
+            }
+        };
+    }
+
+    private String join() {
+        StringBuilder sb = new StringBuilder();
+        for (String s : trail) {
+            if (sb.length() > 0) {
+                sb.append(",");
+            }
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+}
@@ -55,6 +55,57 @@ public class DBReportMediatorTest extends AbstractMediatorTestCase {
         }
     }
 
+    public void testBatchedReport() throws Exception {
+        DBReportMediator batched = (DBReportMediator)
+            new DBReportMediatorFactory().createMediator(createOMElement(
+                "<dbreport xmlns=\"http://ws.apache.org/ns/synapse\" batchSize=\"2\" " +
+                    "flushInterval=\"100\">\n" +
+                    "  <connection>\n" +
+                    "    <pool>\n" +
+                    "      <driver>org.apache.derby.jdbc.EmbeddedDriver</driver>\n" +
+                    "      <url>jdbc:derby:" + getBaseDir() + "/target/derbyDB;create=true</url>\n" +
+                    "      <user>user</user>\n" +
+                    "      <password>pass</password>\n" +
+                    "    </pool>\n" +
+                    "  </connection>\n" +
+                    "  <statement>\n" +
+                    "    <sql>insert into audit_batch values(?, ?)</sql>\n" +
+                    "    <parameter expression=\"//from\" type=\"VARCHAR\"/>\n" +
+                    "    <parameter expression=\"//count\" type=\"INTEGER\"/>\n" +
+                    "  </statement>\n" +
+                    "</dbreport>"
+            ), new Properties());
+        batched.init(new Axis2SynapseEnvironment(new SynapseConfiguration()));
+
+        Connection con = batched.getDataSource().getConnection();
+        try {
+            java.sql.Statement s = con.createStatement();
+            try {
+                s.execute("drop table audit_batch");
+            } catch (SQLException ignore) {}
+            s.execute("create table audit_batch(fromepr varchar(10), cnt int)");
+
+            for (int i = 0; i < 5; i++) {
+                assertTrue(batched.mediate(TestUtils.getTestContext(
+                    "<dummy><from>me</from><count>" + i + "</count></dummy>")));
+            }
+            batched.destroy();
+
+            ResultSet rs = s.executeQuery("select count(*), sum(cnt) from audit_batch");
+            assertTrue(rs.next());
+            assertEquals(5, rs.getInt(1));
+            assertEquals(10, rs.getInt(2));
+            s.close();
+        } finally {
+            con.close();
+        }
+    }
+
+    private static String getBaseDir() {
+        String baseDir = System.getProperty("basedir");
+        return baseDir == null ? "." : baseDir;
+    }
+
     public static Test suite() {
         return new TestSetup(new TestSuite(DBReportMediatorTest.class)) {
 
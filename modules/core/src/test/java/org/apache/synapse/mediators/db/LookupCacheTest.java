@@ -0,0 +1,176 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.db;
+
+import junit.framework.TestCase;
+import org.apache.synapse.SynapseException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LookupCacheTest extends TestCase {
+
+    public void testResultsAreCached() {
+        LookupCache cache = new LookupCache(60000, 10, 0);
+        CountingLoader loader = new CountingLoader("GB");
+
+        assertEquals("GB", cache.get(key("United Kingdom"), loader).get("code"));
+        assertEquals("GB", cache.get(key("United Kingdom"), loader).get("code"));
+        assertEquals(1, loader.count.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getLoads());
+    }
+
+    public void testExpiry() throws Exception {
+        LookupCache cache = new LookupCache(1, 10, 0);
+        CountingLoader loader = new CountingLoader("LK");
+
+        cache.get(key("Sri Lanka"), loader);
+        Thread.sleep(10);
+        cache.get(key("Sri Lanka"), loader);
+        assertEquals(2, loader.count.get());
+    }
+
+    public void testLeastRecentlyUsedIsEvicted() {
+        LookupCache cache = new LookupCache(60000, 2, 0);
+        CountingLoader loader = new CountingLoader("X");
+
+        cache.get(key("a"), loader);
+        cache.get(key("b"), loader);
+        cache.get(key("a"), loader);
+        cache.get(key("c"), loader);
+        assertEquals(2, cache.getSize());
+        assertEquals(1, cache.getEvictions());
+
+        // a was used more recently than b, hence b was evicted
+        cache.get(key("a"), loader);
+        assertEquals(3, loader.count.get());
+        cache.get(key("b"), loader);
+        assertEquals(4, loader.count.get());
+    }
+
+    public void testLargeResultsAreEvicted() {
+        LookupCache cache = new LookupCache(60000, 100, 1000);
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            large.append('x');
+        }
+        CountingLoader loader = new CountingLoader(large.toString());
+
+        for (int i = 0; i < 5; i++) {
+            cache.get(key("key" + i), loader);
+        }
+        // each result takes more than 400 bytes, so at most two of them fit in the cache
+        assertTrue(cache.getSizeInBytes() <= 1000);
+        assertTrue(cache.getSize() >= 1 && cache.getSize() <= 2);
+        assertEquals(5 - cache.getSize(), cache.getEvictions());
+        // the most recently loaded result is kept
+        cache.get(key("key4"), loader);
+        assertEquals(5, loader.count.get());
+
+        cache.clear();
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getSizeInBytes());
+    }
+
+    public void testSingleFlightLoad() throws Exception {
+        final LookupCache cache = new LookupCache(60000, 10, 0);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger loads = new AtomicInteger(0);
+        final Callable<Map<String, String>> slowLoader = new Callable<Map<String, String>>() {
+            @Override
+            public Map<String, String> call() throws Exception {
+                loads.incrementAndGet();
+                release.await(10, TimeUnit.SECONDS);
+                return Collections.singletonMap("code", "US");
+            }
+        };
+
+        int threads = 10;
+        final CountDownLatch done = new CountDownLatch(threads);
+        final AtomicInteger results = new AtomicInteger(0);
+        for (int i = 0; i < threads; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    if ("US".equals(cache.get(key("United States"), slowLoader).get("code"))) {
+                        results.incrementAndGet();
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        Thread.sleep(200);
+        release.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+        assertEquals(threads, results.get());
+    }
+
+    public void testFailedLoadIsNotCached() {
+        LookupCache cache = new LookupCache(60000, 10, 0);
+        Callable<Map<String, String>> failing = new Callable<Map<String, String>>() {
+            @Override
+            public Map<String, String> call() {
+                throw new SynapseException("database down");
+            }
+        };
+
+        try {
+            cache.get(key("a"), failing);
+            fail("The failure of the load must be propagated");
+        } catch (SynapseException expected) {
+            assertEquals("database down", expected.getMessage());
+        }
+        assertEquals(0, cache.getSize());
+        assertEquals(1, cache.getLoadFailures());
+
+        CountingLoader loader = new CountingLoader("A");
+        assertEquals("A", cache.get(key("a"), loader).get("code"));
+    }
+
+    private static List<String> key(String value) {
+        return Arrays.asList(value);
+    }
+
+    private static class CountingLoader implements Callable<Map<String, String>> {
+
+        private final String code;
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        CountingLoader(String code) {
+            this.code = code;
+        }
+
+        @Override
+        public Map<String, String> call() {
+            count.incrementAndGet();
+            return Collections.singletonMap("code", code);
+        }
+    }
+}
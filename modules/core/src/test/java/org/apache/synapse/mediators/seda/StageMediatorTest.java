@@ -0,0 +1,110 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.seda;
+
+import junit.framework.TestCase;
+import org.apache.axis2.Constants;
+import org.apache.axis2.context.OperationContext;
+import org.apache.axis2.description.InOutAxisOperation;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.mediators.AbstractMediator;
+import org.apache.synapse.mediators.TestUtils;
+import org.apache.synapse.mediators.base.SequenceMediator;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class StageMediatorTest extends TestCase {
+
+    public void testStagesAreSharedByName() {
+        StageMediator first = newStageMediator("shared");
+        StageMediator second = newStageMediator("shared");
+        first.init(null);
+        second.init(null);
+        assertSame(first.getStage(), second.getStage());
+
+        Stage stage = first.getStage();
+        first.destroy();
+        assertTrue(stage.isRunning());
+        second.destroy();
+        assertFalse(stage.isRunning());
+
+        first.init(null);
+        assertNotSame(stage, first.getStage());
+        first.destroy();
+    }
+
+    public void testDroppedMessageIsNotLeftPending() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        SequenceMediator blocking = new SequenceMediator();
+        blocking.setName("blocking");
+        blocking.addChild(new AbstractMediator() {
+            @Override
+            public boolean mediate(MessageContext synCtx) {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ignore) {
+                }
+                return true;
+            }
+        });
+        SynapseConfiguration config = new SynapseConfiguration();
+        config.addSequence("blocking", blocking);
+
+        StageMediator mediator = newStageMediator("saturated-drop");
+        mediator.setSequenceName("blocking");
+        mediator.setQueueSize(1);
+        mediator.setMaxWorkers(1);
+        mediator.init(null);
+        try {
+            assertFalse(mediator.mediate(newMessageContext(config)));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            assertFalse(mediator.mediate(newMessageContext(config)));
+
+            MessageContext dropped = newMessageContext(config);
+            assertFalse(mediator.mediate(dropped));
+            assertEquals(1, mediator.getStage().getRejectedCount());
+            assertNull(((Axis2MessageContext) dropped).getAxis2MessageContext()
+                    .getOperationContext().getProperty(Constants.RESPONSE_WRITTEN));
+        } finally {
+            release.countDown();
+            mediator.destroy();
+        }
+    }
+
+    private StageMediator newStageMediator(String name) {
+        StageMediator mediator = new StageMediator();
+        mediator.setName(name);
+        mediator.setSequenceName("blocking");
+        return mediator;
+    }
+
+    private MessageContext newMessageContext(SynapseConfiguration config) throws Exception {
+        MessageContext synCtx = TestUtils.createLightweightSynapseMessageContext(
+                "<test/>", config);
+        ((Axis2MessageContext) synCtx).getAxis2MessageContext().setOperationContext(
+                new OperationContext(new InOutAxisOperation(), null));
+        return synCtx;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.seda;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class StageTest extends TestCase {
+
+    public void testTasksAreExecuted() throws Exception {
+        Stage stage = new Stage("test", 10, 1, 2, 100, 1000);
+        stage.start();
+        final CountDownLatch latch = new CountDownLatch(5);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(stage.offer(new Runnable() {
+                @Override
+                public void run() {
+                    latch.countDown();
+                }
+            }));
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        stage.stop();
+        assertEquals(5, stage.getSubmittedCount());
+        assertEquals(0, stage.getRejectedCount());
+    }
+
+    public void testRejectionWhenSaturated() throws Exception {
+        Stage stage = new Stage("saturated", 2, 1, 1, 100, 1000);
+        stage.start();
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        Runnable blocking = new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ignore) {
+                }
+            }
+        };
+
+        assertTrue(stage.offer(blocking));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertTrue(stage.offer(blocking));
+        assertTrue(stage.offer(blocking));
+        assertFalse(stage.offer(blocking));
+        assertEquals(1, stage.getRejectedCount());
+        assertEquals(1, stage.getWorkerCount());
+
+        release.countDown();
+        stage.stop();
+        assertFalse(stage.offer(blocking));
+    }
+
+    public void testPoolGrowsOnQueueLatency() throws Exception {
+        Stage stage = new Stage("adaptive", 100, 1, 4, 0, 1000);
+        stage.start();
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(8);
+        Runnable blocking = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ignore) {
+                }
+                done.countDown();
+            }
+        };
+
+        for (int i = 0; i < 8; i++) {
+            assertTrue(stage.offer(blocking));
+            Thread.sleep(5);
+        }
+        assertTrue(stage.getWorkerCount() > 1);
+        assertTrue(stage.getWorkerCount() <= 4);
+
+        release.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        stage.stop();
+        assertTrue(stage.getAverageWaitTime() > 0);
+    }
+
+    public void testTasksAreNotStrandedByRetiringWorkers() throws Exception {
+        Stage stage = new Stage("elastic", 10, 0, 1, 100, 1);
+        stage.start();
+        for (int i = 0; i < 200; i++) {
+            final CountDownLatch latch = new CountDownLatch(1);
+            assertTrue(stage.offer(new Runnable() {
+                @Override
+                public void run() {
+                    latch.countDown();
+                }
+            }));
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            Thread.sleep(i % 3);
+        }
+        stage.stop();
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.registry;
+
+import junit.framework.TestCase;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMNode;
+import org.apache.synapse.config.Entry;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.mediators.TestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class RegistryRefreshTest extends TestCase {
+
+    private static final String KEY = "resource";
+    private static final String VALUE_1 = "<value>1</value>";
+    private static final String VALUE_2 = "<value>2</value>";
+
+    public void testConcurrentLookupsAreMadeOnce() throws Exception {
+        final SlowRegistry registry = new SlowRegistry(60000L);
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+        for (int i = 0; i < 8; i++) {
+            tasks.add(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    return registry.getResource(createEntry(), new Properties());
+                }
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Object value = null;
+            for (Future<Object> future : executor.invokeAll(tasks)) {
+                assertNotNull(future.get());
+                if (value != null) {
+                    assertSame(value, future.get());
+                }
+                value = future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, registry.getHitCount());
+    }
+
+    public void testStaleValueIsUsedWhenRefreshFails() throws Exception {
+        SlowRegistry registry = new SlowRegistry(1L);
+        Entry entry = createEntry();
+        Object value = registry.getResource(entry, new Properties());
+        assertNotNull(value);
+
+        Thread.sleep(10L);
+        assertTrue(entry.isExpired());
+        registry.fail = true;
+        assertSame(value, registry.getResource(entry, new Properties()));
+        assertEquals(1, registry.getRefreshCount());
+        assertEquals(1, registry.getRefreshFailureCount());
+    }
+
+    public void testRefreshAhead() throws Exception {
+        SlowRegistry registry = new SlowRegistry(60000L);
+        Properties properties = new Properties();
+        properties.setProperty(AbstractRegistry.REFRESH_AHEAD, "120000");
+        registry.init(properties);
+
+        Entry entry = createEntry();
+        Object value = registry.getResource(entry, new Properties());
+        assertEquals(1, registry.getHitCount());
+
+        Thread.sleep(10L);
+        registry.updateResource(KEY, TestUtils.createOMElement(VALUE_2));
+        // the cached value is served, while it is refreshed in the background
+        assertSame(value, registry.getResource(entry, new Properties()));
+        for (int i = 0; i < 100 && registry.getRefreshCount() == 0; i++) {
+            Thread.sleep(50L);
+        }
+        assertEquals(1, registry.getRefreshCount());
+        assertEquals(0, registry.getRefreshFailureCount());
+        assertEquals(2, registry.getHitCount());
+        assertNotSame(value, entry.getValue());
+        assertEquals("2", ((OMElement) entry.getValue()).getText());
+    }
+
+    public void testEntryDefinitionsAreRefreshedAhead() throws Exception {
+        SlowRegistry registry = new SlowRegistry(60000L);
+        Properties properties = new Properties();
+        properties.setProperty(AbstractRegistry.REFRESH_AHEAD, "120000");
+        registry.init(properties);
+        SynapseConfiguration synCfg = new SynapseConfiguration();
+        synCfg.setRegistry(registry);
+
+        try {
+            synCfg.getEntryDefinition(KEY);
+            Object value = synCfg.getEntry(KEY);
+            assertEquals(1, registry.getCacheMissCount());
+
+            registry.updateResource(KEY, TestUtils.createOMElement(VALUE_2));
+            // mediators using the entry definition directly get it refreshed as well
+            Entry entry = synCfg.getEntryDefinition(KEY);
+            assertSame(value, entry.getValue());
+            for (int i = 0; i < 100 && registry.getRefreshCount() == 0; i++) {
+                Thread.sleep(50L);
+            }
+            assertEquals(1, registry.getRefreshCount());
+            assertEquals(1, registry.getCacheHitCount());
+            assertEquals("2", ((OMElement) entry.getValue()).getText());
+        } finally {
+            registry.destroy();
+        }
+    }
+
+    public void testDestroyStopsRefreshes() throws Exception {
+        SlowRegistry registry = new SlowRegistry(60000L);
+        Properties properties = new Properties();
+        properties.setProperty(AbstractRegistry.REFRESH_AHEAD, "120000");
+        registry.init(properties);
+
+        Entry entry = createEntry();
+        Object value = registry.getResource(entry, new Properties());
+        registry.destroy();
+
+        assertSame(value, registry.getResource(entry, new Properties()));
+        Thread.sleep(500L);
+        assertEquals(0, registry.getRefreshCount());
+        assertEquals(1, registry.getCacheMissCount());
+        assertEquals(1, registry.getCacheHitCount());
+    }
+
+    private static Entry createEntry() {
+        Entry entry = new Entry(KEY);
+        entry.setType(Entry.REMOTE_ENTRY);
+        return entry;
+    }
+
+    private static class SlowRegistry extends SimpleInMemoryRegistry {
+
+        private volatile boolean fail = false;
+
+        SlowRegistry(long cacheDuration) {
+            super(createData(), cacheDuration);
+        }
+
+        private static Map<String, OMNode> createData() {
+            Map<String, OMNode> data = new HashMap<String, OMNode>();
+            data.put(KEY, TestUtils.createOMElement(VALUE_1));
+            return data;
+        }
+
+        @Override
+        public synchronized OMNode lookup(String key) {
+            try {
+                Thread.sleep(200L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.lookup(key);
+        }
+
+        @Override
+        public RegistryEntry getRegistryEntry(String key) {
+            if (fail) {
+                throw new IllegalStateException("Registry not available");
+            }
+            return super.getRegistryEntry(key);
+        }
+    }
+}
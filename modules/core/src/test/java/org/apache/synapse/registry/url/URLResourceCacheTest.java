@@ -0,0 +1,192 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.registry.url;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+import org.apache.synapse.config.Entry;
+import org.apache.synapse.registry.RegistryEntry;
+import org.custommonkey.xmlunit.XMLAssert;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class URLResourceCacheTest extends TestCase {
+
+    private static final String KEY = "resource.xml";
+    private static final String TEXT_1 = "<text1 />";
+    private static final String TEXT_2 = "<text2 />";
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private File cacheDirectory;
+
+    private volatile String content = TEXT_1;
+    private volatile boolean available = true;
+    private volatile int downloads = 0;
+    private volatile int revalidations = 0;
+    private volatile long delay = 0;
+
+    @Override
+    protected void setUp() throws Exception {
+        cacheDirectory = new File(System.getProperty("java.io.tmpdir"),
+                "synapse-registry-cache-" + System.nanoTime());
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                String etag = "\"" + content.hashCode() + "\"";
+                if (!available) {
+                    exchange.sendResponseHeaders(503, -1);
+                } else if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    revalidations++;
+                    exchange.sendResponseHeaders(304, -1);
+                } else {
+                    downloads++;
+                    byte[] body = content.getBytes("UTF-8");
+                    exchange.getResponseHeaders().set("ETag", etag);
+                    exchange.getResponseHeaders().set("Content-Type", "text/xml");
+                    exchange.sendResponseHeaders(200, body.length);
+                    OutputStream out = exchange.getResponseBody();
+                    out.write(body);
+                    out.close();
+                }
+                exchange.close();
+            }
+        });
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        FileUtils.deleteQuietly(cacheDirectory);
+    }
+
+    public void testConditionalFetch() throws Exception {
+        SimpleURLRegistry registry = createRegistry();
+        Entry entry = createEntry();
+        XMLAssert.assertXMLEqual(TEXT_1, registry.getResource(entry, new Properties()).toString());
+        assertEquals(1, downloads);
+
+        // an unchanged resource is only revalidated when its cached copy expires
+        Thread.sleep(200);
+        XMLAssert.assertXMLEqual(TEXT_1, registry.getResource(entry, new Properties()).toString());
+        assertEquals(1, downloads);
+        assertTrue(revalidations > 0);
+
+        content = TEXT_2;
+        Thread.sleep(200);
+        XMLAssert.assertXMLEqual(TEXT_2, registry.getResource(entry, new Properties()).toString());
+        assertEquals(2, downloads);
+    }
+
+    public void testServeFromDiskAfterRestart() throws Exception {
+        SimpleURLRegistry registry = createRegistry();
+        XMLAssert.assertXMLEqual(TEXT_1,
+                registry.getResource(createEntry(), new Properties()).toString());
+        assertEquals(1, downloads);
+
+        // a new registry finds the resource on the disk, and only checks its version
+        registry = createRegistry();
+        XMLAssert.assertXMLEqual(TEXT_1,
+                registry.getResource(createEntry(), new Properties()).toString());
+        assertEquals(1, downloads);
+
+        // the cached copy is used while the remote server is not available
+        available = false;
+        registry = createRegistry();
+        XMLAssert.assertXMLEqual(TEXT_1, registry.lookup(KEY).toString());
+        RegistryEntry registryEntry = registry.getRegistryEntry(KEY);
+        assertNotNull(registryEntry);
+        assertEquals("text/xml", registryEntry.getType());
+    }
+
+    public void testConcurrentMissesAreFetchedOnce() throws Exception {
+        delay = 200;
+        final URLResourceCache cache = new URLResourceCache(cacheDirectory);
+        final URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/" + KEY);
+        List<Callable<URLResourceCache.Resource>> tasks =
+                new ArrayList<Callable<URLResourceCache.Resource>>();
+        for (int i = 0; i < 8; i++) {
+            tasks.add(new Callable<URLResourceCache.Resource>() {
+                @Override
+                public URLResourceCache.Resource call() throws IOException {
+                    return cache.get(url, false, 60000);
+                }
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (Future<URLResourceCache.Resource> future : executor.invokeAll(tasks)) {
+                assertNotNull(future.get());
+                assertTrue(future.get().getContentFile().isFile());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, downloads);
+
+        // the files were written through temporary files of their own, none of which is left
+        String[] names = cacheDirectory.list();
+        assertNotNull(names);
+        for (String name : names) {
+            assertFalse(name, name.endsWith(".tmp"));
+        }
+    }
+
+    private SimpleURLRegistry createRegistry() {
+        SimpleURLRegistry registry = new SimpleURLRegistry();
+        Properties props = new Properties();
+        props.put("root", "http://localhost:" + server.getAddress().getPort() + "/");
+        props.put("cachableDuration", "100");
+        props.put(SimpleURLRegistry.CACHE_DIRECTORY, cacheDirectory.getPath());
+        registry.init(props);
+        return registry;
+    }
+
+    private static Entry createEntry() {
+        Entry entry = new Entry(KEY);
+        entry.setType(Entry.REMOTE_ENTRY);
+        return entry;
+    }
+}
@@ -0,0 +1,356 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.throttle;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Limits the number of concurrent accesses to a resource. Callers above the limit may wait
+ * for an access to complete, for up to a maximum time, instead of being rejected right away.
+ * Waiting callers do not hold a thread: they are queued along with a callback, which is
+ * invoked when an access is handed over to them, or when they have waited for too long. The
+ * queue is fair between callers, which take turns in getting the freed accesses, so that a
+ * single caller sending a burst of requests does not hold back all the others.
+ */
+public class ConcurrencyLimiter {
+
+    /** The maximum number of waiting callers, unless configured otherwise */
+    public static final int DEFAULT_MAX_QUEUE_SIZE = 1000;
+
+    /** The upper bounds of the wait time histogram buckets, in milliseconds */
+    static final long[] WAIT_TIME_BOUNDS = { 1, 5, 10, 50, 100, 500, 1000, 5000, Long.MAX_VALUE };
+
+    /** The upper bounds of the queue depth histogram buckets */
+    static final long[] QUEUE_DEPTH_BOUNDS = { 0, 1, 5, 10, 50, 100, 500, 1000, Long.MAX_VALUE };
+
+    /**
+     * Notified when a queued caller gets an access, or gives up waiting for one
+     */
+    public interface Callback {
+
+        /**
+         * Invoked when an access has been handed over to the caller. The access must be
+         * released once it is complete.
+         */
+        void admitted();
+
+        /**
+         * Invoked when the caller has waited for the maximum time without getting an access
+         */
+        void expired();
+    }
+
+    private final int maxConcurrent;
+    private final long maxWait;
+    private final int maxQueueSize;
+
+    private final AtomicInteger available;
+    private final AtomicInteger queued = new AtomicInteger();
+
+    /** The waiting callers by caller, in the order the callers get their turns in */
+    private final LinkedHashMap<String, ArrayDeque<Waiter>> queues =
+            new LinkedHashMap<String, ArrayDeque<Waiter>>();
+
+    private ScheduledExecutorService timer;
+
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLongArray waitTimes = new AtomicLongArray(WAIT_TIME_BOUNDS.length);
+    private final AtomicLongArray queueDepths = new AtomicLongArray(QUEUE_DEPTH_BOUNDS.length);
+
+    /**
+     * Creates a concurrency limiter
+     *
+     * @param maxConcurrent the maximum number of concurrent accesses
+     * @param maxWait the maximum time in milliseconds a caller may wait for an access, or zero
+     *                if callers above the limit should be rejected right away
+     * @param maxQueueSize the maximum number of waiting callers
+     */
+    public ConcurrencyLimiter(int maxConcurrent, long maxWait, int maxQueueSize) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("The maximum number of concurrent accesses " +
+                    "must be positive");
+        }
+        if (maxWait < 0 || maxQueueSize < 0) {
+            throw new IllegalArgumentException("The maximum wait time and queue size " +
+                    "cannot be negative");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.maxWait = maxWait;
+        this.maxQueueSize = maxQueueSize;
+        this.available = new AtomicInteger(maxConcurrent);
+    }
+
+    /**
+     * Starts timing out the waiting callers
+     *
+     * @param timer the timer to expire the waiting callers with
+     */
+    public void init(ScheduledExecutorService timer) {
+        this.timer = timer;
+    }
+
+    /**
+     * Expires all the waiting callers
+     */
+    public void destroy() {
+        List<Waiter> waiters = new ArrayList<Waiter>();
+        synchronized (queues) {
+            for (ArrayDeque<Waiter> queue : queues.values()) {
+                waiters.addAll(queue);
+            }
+            queues.clear();
+        }
+        for (Waiter waiter : waiters) {
+            if (waiter.finish()) {
+                queued.decrementAndGet();
+                expiredCount.incrementAndGet();
+                waiter.callback.expired();
+            }
+        }
+    }
+
+    /**
+     * Takes an access if one is available
+     *
+     * @return true if the access has been taken, and must be released once it is complete
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = available.get();
+            if (current <= 0) {
+                return false;
+            }
+            if (available.compareAndSet(current, current - 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Queues a caller which could not take an access, until one is handed over to it or it
+     * has waited for the maximum time
+     *
+     * @param caller the caller identifier, such as its IP address
+     * @param callback notified when the caller gets an access or gives up waiting
+     * @return true if the caller has been queued, or false if waiting is not allowed or the
+     *         queue is full
+     */
+    public boolean park(String caller, Callback callback) {
+        if (maxWait <= 0 || timer == null) {
+            return false;
+        }
+        final Waiter waiter = new Waiter(caller, callback);
+        int depth;
+        synchronized (queues) {
+            depth = queued.get();
+            if (depth >= maxQueueSize) {
+                return false;
+            }
+            ArrayDeque<Waiter> queue = queues.get(caller);
+            if (queue == null) {
+                queue = new ArrayDeque<Waiter>();
+                queues.put(caller, queue);
+            }
+            queue.add(waiter);
+            queued.incrementAndGet();
+        }
+        record(queueDepths, QUEUE_DEPTH_BOUNDS, depth);
+        int max;
+        while (depth + 1 > (max = maxQueueDepth.get()) &&
+                !maxQueueDepth.compareAndSet(max, depth + 1)) {
+            // retry
+        }
+
+        waiter.timeout = timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                expire(waiter);
+            }
+        }, maxWait, TimeUnit.MILLISECONDS);
+
+        // an access may have been released while the caller was being queued
+        dispatch();
+        return true;
+    }
+
+    /**
+     * Releases an access, which is handed over to the next waiting caller if there is one
+     */
+    public void release() {
+        available.incrementAndGet();
+        dispatch();
+    }
+
+    private void dispatch() {
+        while (queued.get() > 0 && tryAcquire()) {
+            Waiter waiter = poll();
+            if (waiter == null) {
+                // the waiting callers were taken by someone else
+                available.incrementAndGet();
+                return;
+            }
+            if (waiter.finish()) {
+                if (waiter.timeout != null) {
+                    waiter.timeout.cancel(false);
+                }
+                record(waitTimes, WAIT_TIME_BOUNDS, TimeUnit.NANOSECONDS.toMillis(
+                        System.nanoTime() - waiter.queuedAt));
+                waiter.callback.admitted();
+            } else {
+                available.incrementAndGet();
+            }
+        }
+    }
+
+    private Waiter poll() {
+        synchronized (queues) {
+            Iterator<Map.Entry<String, ArrayDeque<Waiter>>> it = queues.entrySet().iterator();
+            if (!it.hasNext()) {
+                return null;
+            }
+            Map.Entry<String, ArrayDeque<Waiter>> entry = it.next();
+            Waiter waiter = entry.getValue().poll();
+            it.remove();
+            if (!entry.getValue().isEmpty()) {
+                // the caller goes back to the end of the line
+                queues.put(entry.getKey(), entry.getValue());
+            }
+            queued.decrementAndGet();
+            return waiter;
+        }
+    }
+
+    private void expire(Waiter waiter) {
+        boolean removed;
+        synchronized (queues) {
+            ArrayDeque<Waiter> queue = queues.get(waiter.caller);
+            removed = queue != null && queue.remove(waiter);
+            if (removed) {
+                queued.decrementAndGet();
+                if (queue.isEmpty()) {
+                    queues.remove(waiter.caller);
+                }
+            }
+        }
+        if (removed && waiter.finish()) {
+            expiredCount.incrementAndGet();
+            waiter.callback.expired();
+        }
+    }
+
+    private static void record(AtomicLongArray histogram, long[] bounds, long value) {
+        for (int i = 0; i < bounds.length; i++) {
+            if (value <= bounds[i]) {
+                histogram.incrementAndGet(i);
+                return;
+            }
+        }
+    }
+
+    static Map<String, Long> toMap(AtomicLongArray histogram, long[] bounds, String unit) {
+        Map<String, Long> map = new LinkedHashMap<String, Long>();
+        for (int i = 0; i < bounds.length; i++) {
+            String label = bounds[i] == Long.MAX_VALUE ?
+                    "> " + bounds[i - 1] + unit : "<= " + bounds[i] + unit;
+            map.put(label, histogram.get(i));
+        }
+        return map;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public long getMaxWait() {
+        return maxWait;
+    }
+
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    public int getAvailable() {
+        return available.get();
+    }
+
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    /**
+     * Returns the number of callers which got an access after waiting, by wait time
+     *
+     * @return the wait time histogram, by bucket upper bound
+     */
+    public Map<String, Long> getWaitTimeHistogram() {
+        return toMap(waitTimes, WAIT_TIME_BOUNDS, " ms");
+    }
+
+    /**
+     * Returns the number of queued callers, by the number of callers queued before them
+     *
+     * @return the queue depth histogram, by bucket upper bound
+     */
+    public Map<String, Long> getQueueDepthHistogram() {
+        return toMap(queueDepths, QUEUE_DEPTH_BOUNDS, "");
+    }
+
+    /**
+     * A caller waiting for an access
+     */
+    private static class Waiter {
+
+        private final String caller;
+        private final Callback callback;
+        private final long queuedAt = System.nanoTime();
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private volatile ScheduledFuture<?> timeout;
+
+        Waiter(String caller, Callback callback) {
+            this.caller = caller;
+            this.callback = callback;
+        }
+
+        boolean finish() {
+            return finished.compareAndSet(false, true);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.throttle;
+
+import java.util.Map;
+
+/**
+ * Exposes the state of the concurrency limiter of a throttle mediator through JMX
+ */
+public class ConcurrencyLimiterView implements ConcurrencyLimiterViewMBean {
+
+    private final ConcurrencyLimiter limiter;
+
+    public ConcurrencyLimiterView(ConcurrencyLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    public int getMaxConcurrent() {
+        return limiter.getMaxConcurrent();
+    }
+
+    @Override
+    public int getAvailable() {
+        return limiter.getAvailable();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return limiter.getQueueDepth();
+    }
+
+    @Override
+    public int getMaxQueueDepth() {
+        return limiter.getMaxQueueDepth();
+    }
+
+    @Override
+    public long getExpiredCount() {
+        return limiter.getExpiredCount();
+    }
+
+    @Override
+    public Map<String, Long> getWaitTimeHistogram() {
+        return limiter.getWaitTimeHistogram();
+    }
+
+    @Override
+    public Map<String, Long> getQueueDepthHistogram() {
+        return limiter.getQueueDepthHistogram();
+    }
+}
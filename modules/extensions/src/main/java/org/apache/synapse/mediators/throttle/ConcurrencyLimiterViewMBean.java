@@ -0,0 +1,63 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.throttle;
+
+import java.util.Map;
+
+/**
+ * JMX MBean interface exposing the state of the concurrency limiter of a throttle mediator
+ */
+public interface ConcurrencyLimiterViewMBean {
+
+    /**
+     * @return the maximum number of concurrent accesses
+     */
+    public int getMaxConcurrent();
+
+    /**
+     * @return the number of accesses available now
+     */
+    public int getAvailable();
+
+    /**
+     * @return the number of callers waiting for an access now
+     */
+    public int getQueueDepth();
+
+    /**
+     * @return the largest number of callers which have waited for an access at a time
+     */
+    public int getMaxQueueDepth();
+
+    /**
+     * @return the number of callers which gave up waiting for an access
+     */
+    public long getExpiredCount();
+
+    /**
+     * @return the number of callers which got an access after waiting, by wait time
+     */
+    public Map<String, Long> getWaitTimeHistogram();
+
+    /**
+     * @return the number of queued callers, by the number of callers queued before them
+     */
+    public Map<String, Long> getQueueDepthHistogram();
+}
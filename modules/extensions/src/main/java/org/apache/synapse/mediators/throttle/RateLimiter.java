@@ -0,0 +1,221 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.throttle;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the rate at which each caller may access a resource, to a maximum number of requests
+ * per unit time. The state of each caller is held in a single atomic number, so that a
+ * decision takes a constant time and never blocks. The limiter can also take the requests
+ * accepted by other nodes of a cluster into account, which are reported to it in batches.
+ */
+public abstract class RateLimiter {
+
+    /** Allows bursts of up to the maximum number of requests, refilled at a steady rate */
+    public static final String TOKEN_BUCKET = "tokenBucket";
+
+    /** Limits the number of requests in any period of a unit time */
+    public static final String SLIDING_WINDOW = "slidingWindow";
+
+    /**
+     * The source of the time the decisions are based on
+     */
+    interface Clock {
+
+        /**
+         * @return the current value of a monotonic time source, in nanoseconds
+         */
+        long nanoTime();
+    }
+
+    /** The clock of the running JVM */
+    static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    private final String algorithm;
+    private final int maxRequests;
+    private final long unitTime;
+
+    /** The length of the unit time in nanoseconds */
+    protected final long unitNanos;
+
+    protected final Clock clock;
+
+    private final ConcurrentMap<String, AtomicLong> states =
+            new ConcurrentHashMap<String, AtomicLong>();
+
+    private final ConcurrentMap<String, LongAdder> localCounts =
+            new ConcurrentHashMap<String, LongAdder>();
+    private volatile boolean trackLocalCounts = false;
+
+    protected RateLimiter(String algorithm, int maxRequests, long unitTime, Clock clock) {
+        if (maxRequests <= 0 || unitTime <= 0) {
+            throw new IllegalArgumentException("The maximum number of requests and the unit " +
+                    "time of a rate limiter must be positive");
+        }
+        this.algorithm = algorithm;
+        this.maxRequests = maxRequests;
+        this.unitTime = unitTime;
+        this.unitNanos = TimeUnit.MILLISECONDS.toNanos(unitTime);
+        this.clock = clock;
+    }
+
+    /**
+     * Creates a rate limiter
+     *
+     * @param algorithm the algorithm to use, either {@link #TOKEN_BUCKET} or
+     *                  {@link #SLIDING_WINDOW}
+     * @param maxRequests the maximum number of requests allowed per unit time
+     * @param unitTime the unit time in milliseconds
+     * @return a new rate limiter
+     * @throws IllegalArgumentException if the algorithm or the limits are not valid
+     */
+    public static RateLimiter create(String algorithm, int maxRequests, long unitTime) {
+        return create(algorithm, maxRequests, unitTime, SYSTEM_CLOCK);
+    }
+
+    static RateLimiter create(String algorithm, int maxRequests, long unitTime, Clock clock) {
+        if (TOKEN_BUCKET.equals(algorithm)) {
+            return new TokenBucketRateLimiter(maxRequests, unitTime, clock);
+        } else if (SLIDING_WINDOW.equals(algorithm)) {
+            return new SlidingWindowRateLimiter(maxRequests, unitTime, clock);
+        }
+        throw new IllegalArgumentException("Unknown rate limiting algorithm : " + algorithm);
+    }
+
+    /**
+     * Decides whether the given caller may access the resource now, and counts the access if
+     * it is allowed
+     *
+     * @param caller the caller identifier, such as its IP address
+     * @return true if the access is allowed
+     */
+    public boolean tryAcquire(String caller) {
+        boolean allowed = tryAcquire(getState(caller), clock.nanoTime());
+        if (allowed && trackLocalCounts) {
+            LongAdder count = localCounts.get(caller);
+            if (count == null) {
+                LongAdder newCount = new LongAdder();
+                count = localCounts.putIfAbsent(caller, newCount);
+                if (count == null) {
+                    count = newCount;
+                }
+            }
+            count.increment();
+        }
+        return allowed;
+    }
+
+    /**
+     * Counts the requests of a caller which were accepted by another node
+     *
+     * @param caller the caller identifier
+     * @param count the number of requests accepted elsewhere
+     */
+    public void addRemoteCount(String caller, long count) {
+        if (count > 0) {
+            addCount(getState(caller), count, clock.nanoTime());
+        }
+    }
+
+    /**
+     * Returns the number of requests accepted by this limiter per caller since the last call,
+     * so that they can be reported to the other nodes of a cluster. Accepted requests are only
+     * counted once this method has been called.
+     *
+     * @return the number of accepted requests by caller
+     */
+    public Map<String, Long> drainLocalCounts() {
+        trackLocalCounts = true;
+        Map<String, Long> counts = new HashMap<String, Long>();
+        for (Iterator<Map.Entry<String, LongAdder>> it = localCounts.entrySet().iterator();
+             it.hasNext();) {
+            Map.Entry<String, LongAdder> entry = it.next();
+            long count = entry.getValue().sumThenReset();
+            if (count > 0) {
+                counts.put(entry.getKey(), count);
+            } else {
+                it.remove();
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Forgets the callers which have not accessed the resource recently enough to have an
+     * effect on the decisions any more
+     */
+    public void purge() {
+        long now = clock.nanoTime();
+        for (Iterator<AtomicLong> it = states.values().iterator(); it.hasNext();) {
+            if (isIdle(it.next().get(), now)) {
+                it.remove();
+            }
+        }
+    }
+
+    private AtomicLong getState(String caller) {
+        AtomicLong state = states.get(caller);
+        if (state == null) {
+            AtomicLong newState = new AtomicLong(getInitialState(clock.nanoTime()));
+            state = states.putIfAbsent(caller, newState);
+            if (state == null) {
+                state = newState;
+            }
+        }
+        return state;
+    }
+
+    protected abstract long getInitialState(long now);
+
+    protected abstract boolean tryAcquire(AtomicLong state, long now);
+
+    protected abstract void addCount(AtomicLong state, long count, long now);
+
+    protected abstract boolean isIdle(long state, long now);
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+
+    public long getUnitTime() {
+        return unitTime;
+    }
+
+    int getCallerCount() {
+        return states.size();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.throttle;
+
+import org.apache.axis2.clustering.ClusteringFault;
+import org.apache.axis2.clustering.state.Replicator;
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.util.UUIDGenerator;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Shares the requests accepted by a {@link RateLimiter} with the other nodes of the cluster.
+ * Each run publishes the requests accepted since the previous run as a property of the
+ * configuration context, which is replicated once, and applies the batches published by the
+ * other nodes to the local limiter. This keeps the replication traffic independent of the
+ * message rate, at the cost of the nodes learning about each others' requests a little late.
+ */
+class RateLimiterGossip implements Runnable {
+
+    private static final Log log = LogFactory.getLog(RateLimiterGossip.class);
+
+    private static final String PROPERTY_PREFIX = "synapse.throttle.rate.";
+
+    /** Identifies the batches published by this node */
+    private static final String NODE_ID = UUIDGenerator.getUUID();
+
+    private final RateLimiter rateLimiter;
+    private final ConfigurationContext configurationContext;
+    private final String prefix;
+    private final String property;
+    private final Map<String, Long> appliedBatches = new HashMap<String, Long>();
+    private long sequence = 0;
+
+    RateLimiterGossip(RateLimiter rateLimiter, ConfigurationContext configurationContext,
+                      String throttleId) {
+        this.rateLimiter = rateLimiter;
+        this.configurationContext = configurationContext;
+        this.prefix = PROPERTY_PREFIX + throttleId + ".";
+        this.property = prefix + NODE_ID;
+    }
+
+    @Override
+    public void run() {
+        try {
+            publish();
+            apply();
+        } catch (Throwable t) {
+            // keep the periodic task alive
+            log.warn("Error while sharing the throttling state with the cluster", t);
+        }
+    }
+
+    private void publish() throws ClusteringFault {
+        Map<String, Long> counts = rateLimiter.drainLocalCounts();
+        if (counts.isEmpty()) {
+            return;
+        }
+        configurationContext.setProperty(property, new Batch(++sequence, counts));
+        Replicator.replicate(configurationContext);
+        if (log.isDebugEnabled()) {
+            log.debug("Published the requests of " + counts.size() + " callers to the cluster");
+        }
+    }
+
+    private void apply() {
+        for (Iterator<String> it = configurationContext.getPropertyNames(); it.hasNext();) {
+            String name = it.next();
+            if (!name.startsWith(prefix) || name.equals(property)) {
+                continue;
+            }
+            Object value = configurationContext.getPropertyNonReplicable(name);
+            if (!(value instanceof Batch)) {
+                continue;
+            }
+            Batch batch = (Batch) value;
+            Long applied = appliedBatches.get(name);
+            if (applied == null || applied != batch.sequence) {
+                for (Map.Entry<String, Long> entry : batch.counts.entrySet()) {
+                    rateLimiter.addRemoteCount(entry.getKey(), entry.getValue());
+                }
+                appliedBatches.put(name, batch.sequence);
+            }
+        }
+    }
+
+    /**
+     * The requests accepted by a node since its previous batch
+     */
+    static class Batch implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long sequence;
+        private final HashMap<String, Long> counts;
+
+        Batch(long sequence, Map<String, Long> counts) {
+            this.sequence = sequence;
+            this.counts = new HashMap<String, Long>(counts);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.throttle;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the number of requests in any period of a unit time. The requests are counted in
+ * windows of a unit time, and the number of requests in the period ending now is estimated
+ * from the counts of the current and the previous windows, assuming the requests of the
+ * previous window were evenly spread. The window number and both counts are packed into a
+ * single number.
+ */
+class SlidingWindowRateLimiter extends RateLimiter {
+
+    private static final int COUNT_BITS = 20;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long WINDOW_MASK = (1L << (64 - 2 * COUNT_BITS)) - 1;
+
+    /** The largest number of requests which can be allowed per unit time */
+    static final int MAX_REQUESTS = (int) COUNT_MASK;
+
+    private final long origin;
+
+    SlidingWindowRateLimiter(int maxRequests, long unitTime, Clock clock) {
+        super(SLIDING_WINDOW, maxRequests, unitTime, clock);
+        this.origin = clock.nanoTime();
+        if (maxRequests > MAX_REQUESTS) {
+            throw new IllegalArgumentException("The sliding window rate limiter allows at " +
+                    "most " + MAX_REQUESTS + " requests per unit time");
+        }
+    }
+
+    @Override
+    protected long getInitialState(long now) {
+        return pack(window(now), 0, 0);
+    }
+
+    @Override
+    protected boolean tryAcquire(AtomicLong state, long now) {
+        long window = window(now);
+        double previousWeight = 1 - (double) ((now - origin) % unitNanos) / unitNanos;
+        while (true) {
+            long current = state.get();
+            long previousCount = getPreviousCount(current, window);
+            long currentCount = getCurrentCount(current, window);
+            if (previousCount * previousWeight + currentCount >= getMaxRequests()) {
+                return false;
+            }
+            if (state.compareAndSet(current, pack(window, previousCount, currentCount + 1))) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    protected void addCount(AtomicLong state, long count, long now) {
+        long window = window(now);
+        while (true) {
+            long current = state.get();
+            long currentCount = Math.min(getCurrentCount(current, window) + count, COUNT_MASK);
+            if (state.compareAndSet(current,
+                    pack(window, getPreviousCount(current, window), currentCount))) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    protected boolean isIdle(long state, long now) {
+        long window = window(now);
+        return getPreviousCount(state, window) == 0 && getCurrentCount(state, window) == 0;
+    }
+
+    private long window(long now) {
+        return ((now - origin) / unitNanos) & WINDOW_MASK;
+    }
+
+    private static long getCurrentCount(long state, long window) {
+        return state >>> (2 * COUNT_BITS) == window ? state & COUNT_MASK : 0;
+    }
+
+    private static long getPreviousCount(long state, long window) {
+        long stateWindow = state >>> (2 * COUNT_BITS);
+        if (stateWindow == window) {
+            return (state >>> COUNT_BITS) & COUNT_MASK;
+        } else if (((stateWindow + 1) & WINDOW_MASK) == window) {
+            // the current window of the state has become the previous one
+            return state & COUNT_MASK;
+        }
+        return 0;
+    }
+
+    private static long pack(long window, long previousCount, long currentCount) {
+        return window << (2 * COUNT_BITS) | previousCount << COUNT_BITS | currentCount;
+    }
+}
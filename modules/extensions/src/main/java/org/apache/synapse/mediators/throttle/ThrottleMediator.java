@@ -19,23 +19,41 @@
 package org.apache.synapse.mediators.throttle;
 
 import org.apache.axiom.om.OMElement;
+import org.apache.axiom.soap.SOAP11Constants;
+import org.apache.axiom.soap.SOAP12Constants;
 import org.apache.axis2.clustering.ClusteringFault;
 
 import org.apache.axis2.clustering.ClusteringAgent;
 import org.apache.axis2.clustering.state.Replicator;
 
 import org.apache.axis2.context.ConfigurationContext;
+import org.apache.axis2.context.OperationContext;
+import org.apache.http.HttpStatus;
 import org.apache.synapse.Mediator;
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.ManagedLifecycle;
+import org.apache.synapse.SynapseException;
 import org.apache.synapse.SynapseLog;
 import org.apache.synapse.config.Entry;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.core.axis2.Axis2Sender;
+import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
 import org.apache.synapse.core.SynapseEnvironment;
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
 import org.apache.synapse.mediators.AbstractMediator;
+import org.apache.synapse.mediators.Continuation;
+import org.apache.synapse.mediators.transform.FaultMediator;
 import org.apache.synapse.transport.nhttp.NhttpConstants;
+import org.apache.synapse.util.concurrent.SynapseThreadFactory;
 import org.wso2.throttle.*;
 
+import javax.xml.namespace.QName;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 /**
  * The Mediator for the throttling - Throttling will occur according to the ws-policy
  * which is specified as the key for lookup from the registry or the inline policy
@@ -44,6 +62,18 @@ import org.wso2.throttle.*;
 
 public class ThrottleMediator extends AbstractMediator implements ManagedLifecycle {
 
+    static final long DEFAULT_GOSSIP_INTERVAL = 1000;
+
+    private static final String MBEAN_CATEGORY = "Throttle";
+
+    /* The prefix of the message property holding the concurrent access taken by a request */
+    private static final String CONCURRENT_ACCESS_PROPERTY_PREFIX =
+            "synapse.throttle.concurrent_access.";
+
+    /* The reason of the fault sent back for a request which waited for too long */
+    private static final String REJECTION_FAULT_REASON =
+            "The request could not be accepted within the maximum waiting time";
+
     /* The key for getting the throttling policy - key refers to a/an [registry] entry    */
     private String policyKey = null;
     /* InLine policy object - XML  */
@@ -73,6 +103,14 @@ public class ThrottleMediator extends AbstractMediator implements ManagedLifecyc
     private final Object throttleLock = new Object();
     /* Last version of dynamic policy resource*/
     private long version;
+    /* Native access rate limiter - used instead of the access rate throttling of the policy */
+    private RateLimiter rateLimiter = null;
+    /* How often the native access rate limiter shares its state with the cluster, in ms */
+    private long gossipInterval = DEFAULT_GOSSIP_INTERVAL;
+    /* Native concurrent access limiter - used instead of the concurrency limit of the policy */
+    private ConcurrencyLimiter concurrencyLimiter = null;
+    /* Runs the periodic tasks of the native rate and concurrency limiters */
+    private ScheduledExecutorService scheduler = null;
 
     public ThrottleMediator() {
         this.accessControler = new AccessRateController();
@@ -86,6 +124,40 @@ public class ThrottleMediator extends AbstractMediator implements ManagedLifecyc
         if (onRejectMediator instanceof ManagedLifecycle) {
             ((ManagedLifecycle) onRejectMediator).init(se);
         }
+        if (rateLimiter != null || concurrencyLimiter != null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(
+                    new SynapseThreadFactory(new ThreadGroup("Throttle mediator thread group"),
+                            "ThrottleMediatorWorker"));
+        }
+        if (rateLimiter != null) {
+            initRateLimiter(se);
+        }
+        if (concurrencyLimiter != null) {
+            concurrencyLimiter.init(scheduler);
+            MBeanRegistrar.getInstance().registerMBean(
+                    new ConcurrencyLimiterView(concurrencyLimiter), MBEAN_CATEGORY, id);
+        }
+    }
+
+    private void initRateLimiter(SynapseEnvironment se) {
+        // forget the callers which no longer affect the decisions
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                rateLimiter.purge();
+            }
+        }, rateLimiter.getUnitTime(), rateLimiter.getUnitTime(), TimeUnit.MILLISECONDS);
+
+        if (se instanceof Axis2SynapseEnvironment) {
+            ConfigurationContext cc =
+                    ((Axis2SynapseEnvironment) se).getAxis2ConfigurationContext();
+            ClusteringAgent clusteringAgent = cc.getAxisConfiguration().getClusteringAgent();
+            if (clusteringAgent != null && clusteringAgent.getStateManager() != null) {
+                scheduler.scheduleWithFixedDelay(
+                        new RateLimiterGossip(rateLimiter, cc, id),
+                        gossipInterval, gossipInterval, TimeUnit.MILLISECONDS);
+            }
+        }
     }
 
     @Override
@@ -96,6 +168,14 @@ public class ThrottleMediator extends AbstractMediator implements ManagedLifecyc
         if (onRejectMediator instanceof ManagedLifecycle) {
             ((ManagedLifecycle) onRejectMediator).destroy();
         }
+        if (concurrencyLimiter != null) {
+            concurrencyLimiter.destroy();
+            MBeanRegistrar.getInstance().unRegisterMBean(MBEAN_CATEGORY, id);
+        }
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
     }
 
     @Override
@@ -113,14 +193,107 @@ public class ThrottleMediator extends AbstractMediator implements ManagedLifecyc
                 synLog.traceTrace("Message : " + synCtx.getEnvelope());
             }
         }
+        // get Axis2 MessageContext and ConfigurationContext
+        axisMC = ((Axis2MessageContext) synCtx).getAxis2MessageContext();
+        cc = axisMC.getConfigurationContext();
+
         // To ensure the creation of throttle is thread safe Ã¢â‚¬â€œ It is possible create same throttle
         // object multiple times  by multiple threads.
+        // There is nothing to create when only the native access rate limiter is used
+        if (inLinePolicy != null || policyKey != null) {
+            prepareThrottle(synCtx, cc, isResponse, synLog);
+        }
+        //perform concurrency throttling
+        boolean canAccess;
+        if (isResponse) {
+            // return the concurrent access taken by the request, if it was taken natively
+            releaseConcurrentAccess(synCtx);
+        }
+        if (concurrencyLimiter != null && !isResponse) {
+            if (concurrencyLimiter.tryAcquire()) {
+                synCtx.setProperty(CONCURRENT_ACCESS_PROPERTY_PREFIX + id, concurrencyLimiter);
+                canAccess = true;
+            } else if (parkRequest(synCtx, axisMC, synLog)) {
+                // mediation goes on through the onAccept or the onReject sequence and the
+                // mediators following this one, once an access is handed over or once the
+                // request has waited for too long
+                return false;
+            } else {
+                synLog.traceOrDebug("Concurrency Throttle : Access denied");
+                canAccess = false;
+            }
+        } else {
+            canAccess = doThrottleByConcurrency(isResponse, synLog);
+        }
 
-        synchronized (throttleLock) {
+        //if the access is success through concurrency throttle and if this is a request message
+        //then do access rate based throttling
+        if (!isResponse && canAccess) {
+            canAccess = throttleByRate(synCtx, axisMC, cc, synLog);
+        }
+        // all the replication functionality of the access rate based throttling handles by itself
+        // Just replicate the current state of ConcurrentAccessController
+        if (isClusteringEnable && usesPolicyConcurrency()) {
+            if (cc != null) {
+                try {
+                    if (synLog.isTraceOrDebugEnabled()) {
+                        synLog.traceOrDebug("Going to replicates the  " +
+                                "states of the ConcurrentAccessController with key : " + key);
+                    }
+                    Replicator.replicate(cc);
+                } catch (ClusteringFault clusteringFault) {
+                    handleException("Error during the replicating  states ",
+                            clusteringFault, synCtx);
+                }
+            }
+        }
+        if (canAccess) {
+            if (onAcceptSeqKey != null) {
+                Mediator mediator = synCtx.getSequence(onAcceptSeqKey);
+                if (mediator != null) {
+                    return mediator.mediate(synCtx);
+                } else {
+                    handleException("Unable to find onAccept sequence with key : "
+                            + onAcceptSeqKey, synCtx);
+                }
+            } else if (onAcceptMediator != null) {
+                return onAcceptMediator.mediate(synCtx);
+            } else {
+                return true;
+            }
+
+        } else {
+            if (onRejectSeqKey != null) {
+                Mediator mediator = synCtx.getSequence(onRejectSeqKey);
+                if (mediator != null) {
+                    return mediator.mediate(synCtx);
+                } else {
+                    handleException("Unable to find onReject sequence with key : "
+                            + onRejectSeqKey, synCtx);
+                }
+            } else if (onRejectMediator != null) {
+                return onRejectMediator.mediate(synCtx);
+            } else {
+                return false;
+            }
+        }
+
+        synLog.traceOrDebug("End : Throttle mediator");
+        return canAccess;
+    }
 
-            // get Axis2 MessageContext and ConfigurationContext
-            axisMC = ((Axis2MessageContext) synCtx).getAxis2MessageContext();
-            cc = axisMC.getConfigurationContext();
+    /**
+     * Creates or reloads the throttle from the policy, and looks up the concurrent access
+     * controller shared through the ConfigurationContext
+     *
+     * @param synCtx     MessageContext(Synapse)
+     * @param cc         ConfigurationContext
+     * @param isResponse Current Message is response or not
+     * @param synLog     the Synapse log to use
+     */
+    private void prepareThrottle(MessageContext synCtx, ConfigurationContext cc,
+                                 boolean isResponse, SynapseLog synLog) {
+        synchronized (throttleLock) {
 
             //To ensure check for clustering environment only happens one time
             if ((throttle == null && !isResponse) || (isResponse
@@ -247,63 +420,6 @@ public class ThrottleMediator extends AbstractMediator implements ManagedLifecyc
                         (ConcurrentAccessController) cc.getProperty(key);
             }
         }
-        //perform concurrency throttling
-        boolean canAccess = doThrottleByConcurrency(isResponse, synLog);
-
-        //if the access is success through concurrency throttle and if this is a request message
-        //then do access rate based throttling
-        if (throttle != null && !isResponse && canAccess) {
-            canAccess = throttleByAccessRate(synCtx, axisMC, cc, synLog);
-        }
-        // all the replication functionality of the access rate based throttling handles by itself
-        // Just replicate the current state of ConcurrentAccessController
-        if (isClusteringEnable && concurrentAccessController != null) {
-            if (cc != null) {
-                try {
-                    if (synLog.isTraceOrDebugEnabled()) {
-                        synLog.traceOrDebug("Going to replicates the  " +
-                                "states of the ConcurrentAccessController with key : " + key);
-                    }
-                    Replicator.replicate(cc);
-                } catch (ClusteringFault clusteringFault) {
-                    handleException("Error during the replicating  states ",
-                            clusteringFault, synCtx);
-                }
-            }
-        }
-        if (canAccess) {
-            if (onAcceptSeqKey != null) {
-                Mediator mediator = synCtx.getSequence(onAcceptSeqKey);
-                if (mediator != null) {
-                    return mediator.mediate(synCtx);
-                } else {
-                    handleException("Unable to find onAccept sequence with key : "
-                            + onAcceptSeqKey, synCtx);
-                }
-            } else if (onAcceptMediator != null) {
-                return onAcceptMediator.mediate(synCtx);
-            } else {
-                return true;
-            }
-
-        } else {
-            if (onRejectSeqKey != null) {
-                Mediator mediator = synCtx.getSequence(onRejectSeqKey);
-                if (mediator != null) {
-                    return mediator.mediate(synCtx);
-                } else {
-                    handleException("Unable to find onReject sequence with key : "
-                            + onRejectSeqKey, synCtx);
-                }
-            } else if (onRejectMediator != null) {
-                return onRejectMediator.mediate(synCtx);
-            } else {
-                return false;
-            }
-        }
-
-        synLog.traceOrDebug("End : Throttle mediator");
-        return canAccess;
     }
 
     /**
@@ -315,7 +431,7 @@ public class ThrottleMediator extends AbstractMediator implements ManagedLifecyc
      */
     private boolean doThrottleByConcurrency(boolean isResponse, SynapseLog synLog) {
         boolean canAcess = true;
-        if (concurrentAccessController != null) {
+        if (usesPolicyConcurrency()) {
             // do the concurrency throttling
             int concurrentLimit = concurrentAccessController.getLimit();
             if (synLog.isTraceOrDebugEnabled()) {
@@ -404,7 +520,7 @@ public class ThrottleMediator extends AbstractMediator implements ManagedLifecyc
                             //if the access rate less than maximum concurrent access ,
                             //then it is possible to occur death situation.To avoid that reset,
                             //if the access has denied by rate based throttling
-                            if (!canAccess && concurrentAccessController != null) {
+                            if (!canAccess && usesPolicyConcurrency()) {
                                 concurrentAccessController.incrementAndGet();
                                 if (isClusteringEnable) {
                                     cc.setProperty(key, concurrentAccessController);
@@ -468,7 +584,7 @@ public class ThrottleMediator extends AbstractMediator implements ManagedLifecyc
                                 //if the access rate less than maximum concurrent access ,
                                 //then it is possible to occur death situation.To avoid that reset,
                                 //if the access has denied by rate based throttling
-                                if (!canAccess && concurrentAccessController != null) {
+                                if (!canAccess && usesPolicyConcurrency()) {
                                     concurrentAccessController.incrementAndGet();
                                     if (isClusteringEnable) {
                                         cc.setProperty(key, concurrentAccessController);
@@ -485,6 +601,233 @@ public class ThrottleMediator extends AbstractMediator implements ManagedLifecyc
         return canAccess;
     }
 
+    /**
+     * Helper method that handles the access rate based throttling with the native rate limiter.
+     * Callers are identified by their domain name, or by their IP address if the domain name
+     * is not known.
+     *
+     * @param axisMC MessageContext(Axis2)
+     * @param synLog the Synapse log to use
+     * @return true if the caller can access ,o.w. false
+     */
+    private boolean throttleByRateLimiter(org.apache.axis2.context.MessageContext axisMC,
+                                          SynapseLog synLog) {
+
+        String callerId = getCallerId(axisMC);
+        if (callerId == null) {
+            synLog.traceOrDebug("The Domain name or the IP address of the caller cannot be found");
+            return true;
+        }
+
+        boolean canAccess = rateLimiter.tryAcquire(callerId);
+        if (synLog.isTraceOrDebugEnabled()) {
+            synLog.traceOrDebug("Access " + (canAccess ? "allowed" : "denied") +
+                    " for caller : " + callerId);
+        }
+        //return the concurrent access taken by this request, if the access rate is exceeded
+        if (!canAccess && usesPolicyConcurrency()) {
+            concurrentAccessController.incrementAndGet();
+        }
+        return canAccess;
+    }
+
+    /**
+     * The concurrent access controller of the policy is only used when there is no native
+     * concurrency limiter. Otherwise requests never take an access from it, so responses and
+     * rejected requests must not return one either.
+     *
+     * @return true if the concurrency limit of the policy applies
+     */
+    private boolean usesPolicyConcurrency() {
+        return concurrencyLimiter == null && concurrentAccessController != null;
+    }
+
+    private boolean throttleByRate(MessageContext synCtx,
+                                   org.apache.axis2.context.MessageContext axisMC,
+                                   ConfigurationContext cc, SynapseLog synLog) {
+        boolean canAccess = true;
+        if (rateLimiter != null) {
+            canAccess = throttleByRateLimiter(axisMC, synLog);
+        } else if (throttle != null) {
+            canAccess = throttleByAccessRate(synCtx, axisMC, cc, synLog);
+        }
+        //return the concurrent access taken natively by this request, if it is not accepted
+        if (!canAccess) {
+            releaseConcurrentAccess(synCtx);
+        }
+        return canAccess;
+    }
+
+    private static String getCallerId(org.apache.axis2.context.MessageContext axisMC) {
+        String callerId = (String) axisMC.getPropertyNonReplicable(NhttpConstants.REMOTE_HOST);
+        if (callerId == null) {
+            callerId = (String) axisMC.getPropertyNonReplicable(
+                    org.apache.axis2.context.MessageContext.REMOTE_ADDR);
+        }
+        return callerId;
+    }
+
+    /**
+     * Queues a request which is above the concurrency limit, until a concurrent access is
+     * handed over to it or until it has waited for the maximum time. The mediation of the
+     * request is suspended meanwhile, and is then continued by a worker thread through the
+     * onAccept or the onReject sequence, and through the mediators following this one if
+     * that sequence completes, just as if the request had not waited.
+     *
+     * @param synCtx MessageContext(Synapse)
+     * @param axisMC MessageContext(Axis2)
+     * @param synLog the Synapse log to use
+     * @return true if the request has been queued
+     */
+    private boolean parkRequest(final MessageContext synCtx,
+                                final org.apache.axis2.context.MessageContext axisMC,
+                                final SynapseLog synLog) {
+
+        // suspend before parking, since an access may be handed over right away
+        final Continuation continuation = Continuation.suspend(synCtx);
+        // mark the response as deferred before a worker thread gets a chance to reply
+        OperationContext opCtx = axisMC.getOperationContext();
+        Object responseWritten = null;
+        if (opCtx != null) {
+            responseWritten = opCtx.getProperty(org.apache.axis2.Constants.RESPONSE_WRITTEN);
+            opCtx.setProperty(org.apache.axis2.Constants.RESPONSE_WRITTEN, "SKIP");
+        }
+        String callerId = getCallerId(axisMC);
+        boolean parked = concurrencyLimiter.park(callerId != null ? callerId : "",
+                new ConcurrencyLimiter.Callback() {
+            @Override
+            public void admitted() {
+                synCtx.setProperty(CONCURRENT_ACCESS_PROPERTY_PREFIX + id, concurrencyLimiter);
+                resume(synCtx, continuation, new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        return continueMediation(synCtx, throttleByRate(synCtx, axisMC,
+                                axisMC.getConfigurationContext(), synLog));
+                    }
+                });
+            }
+
+            @Override
+            public void expired() {
+                synLog.traceOrDebug("Concurrency Throttle : Access denied after waiting");
+                resume(synCtx, continuation, new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        return continueMediation(synCtx, false);
+                    }
+                });
+            }
+        });
+        if (!parked) {
+            continuation.cancel();
+            if (opCtx != null) {
+                opCtx.setProperty(org.apache.axis2.Constants.RESPONSE_WRITTEN, responseWritten);
+            }
+        }
+        if (parked && synLog.isTraceOrDebugEnabled()) {
+            synLog.traceOrDebug("Concurrency Throttle : Waiting for an access :: " +
+                    concurrencyLimiter.getQueueDepth() + " requests waiting");
+        }
+        return parked;
+    }
+
+    private void resume(MessageContext synCtx, final Continuation continuation,
+                        final Callable<Boolean> task) {
+        try {
+            synCtx.getEnvironment().getExecutorService().execute(new Runnable() {
+                @Override
+                public void run() {
+                    continuation.resume(task);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            releaseConcurrentAccess(synCtx);
+            log.warn("Cannot resume the mediation of a throttled message", e);
+        }
+    }
+
+    /**
+     * Mediates a queued request through the onAccept or the onReject sequence. A request
+     * which waited for too long is answered with a fault when there is no onReject sequence,
+     * since the caller would otherwise never get a response
+     *
+     * @param synCtx MessageContext(Synapse)
+     * @param canAccess whether the request has been accepted
+     * @return true if the mediators following this one are to be executed
+     */
+    private boolean continueMediation(MessageContext synCtx, boolean canAccess) {
+        Mediator mediator;
+        if (canAccess) {
+            mediator = onAcceptSeqKey != null ?
+                    synCtx.getSequence(onAcceptSeqKey) : onAcceptMediator;
+        } else {
+            mediator = onRejectSeqKey != null ?
+                    synCtx.getSequence(onRejectSeqKey) : onRejectMediator;
+        }
+        if (mediator != null) {
+            return mediator.mediate(synCtx);
+        } else if (canAccess) {
+            if (onAcceptSeqKey != null) {
+                releaseConcurrentAccess(synCtx);
+                handleException("Unable to find onAccept sequence with key : "
+                        + onAcceptSeqKey, synCtx);
+            }
+            return true;
+        } else {
+            if (onRejectSeqKey != null) {
+                log.error("Unable to find onReject sequence with key : " + onRejectSeqKey);
+            }
+            sendRejectionFault(synCtx);
+            return false;
+        }
+    }
+
+    /**
+     * Sends a fault back to the caller of a request which waited for too long
+     *
+     * @param synCtx MessageContext(Synapse)
+     */
+    private void sendRejectionFault(MessageContext synCtx) {
+        FaultMediator faultMediator = new FaultMediator();
+        if (synCtx.isDoingPOX() || synCtx.isDoingGET()) {
+            faultMediator.setSoapVersion(FaultMediator.POX);
+        } else if (synCtx.isSOAP11()) {
+            faultMediator.setSoapVersion(FaultMediator.SOAP11);
+            faultMediator.setFaultCodeValue(new QName(SOAP11Constants.SOAP_ENVELOPE_NAMESPACE_URI,
+                    SOAP11Constants.FAULT_CODE_RECEIVER,
+                    SOAP11Constants.SOAP_DEFAULT_NAMESPACE_PREFIX));
+        } else {
+            faultMediator.setSoapVersion(FaultMediator.SOAP12);
+            faultMediator.setFaultCodeValue(new QName(SOAP12Constants.SOAP_ENVELOPE_NAMESPACE_URI,
+                    SOAP12Constants.FAULT_CODE_RECEIVER,
+                    SOAP12Constants.SOAP_DEFAULT_NAMESPACE_PREFIX));
+        }
+        faultMediator.setFaultReasonValue(REJECTION_FAULT_REASON);
+        try {
+            faultMediator.mediate(synCtx);
+            ((Axis2MessageContext) synCtx).getAxis2MessageContext().setProperty(
+                    NhttpConstants.HTTP_SC, HttpStatus.SC_SERVICE_UNAVAILABLE);
+            Axis2Sender.sendBack(synCtx);
+        } catch (SynapseException e) {
+            log.error("Cannot send a fault back for a throttled message", e);
+        }
+    }
+
+    /**
+     * Returns the concurrent access taken by the request of the given message, if it has
+     * been taken by a native concurrency limiter with the id of this mediator
+     *
+     * @param synCtx MessageContext(Synapse)
+     */
+    private void releaseConcurrentAccess(MessageContext synCtx) {
+        String property = CONCURRENT_ACCESS_PROPERTY_PREFIX + id;
+        Object limiter = synCtx.getProperty(property);
+        if (limiter instanceof ConcurrencyLimiter) {
+            synCtx.getPropertyKeySet().remove(property);
+            ((ConcurrencyLimiter) limiter).release();
+        }
+    }
+
     /**
      * To get the policy key - The key for which will used to lookup policy from the registry
      *
@@ -558,6 +901,42 @@ public class ThrottleMediator extends AbstractMediator implements ManagedLifecyc
         return id;
     }
 
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Sets the native access rate limiter, which is used instead of the access rate
+     * throttling of the policy
+     *
+     * @param rateLimiter the rate limiter
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * Sets the native concurrent access limiter, which is used instead of the concurrency
+     * limit of the policy
+     *
+     * @param concurrencyLimiter the concurrency limiter
+     */
+    public void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    public long getGossipInterval() {
+        return gossipInterval;
+    }
+
+    public void setGossipInterval(long gossipInterval) {
+        this.gossipInterval = gossipInterval;
+    }
+
     public void setId(String id) {
         this.id = id;
         this.key = ThrottleConstants.THROTTLE_PROPERTY_PREFIX + id + ThrottleConstants.CAC_SUFFIX;
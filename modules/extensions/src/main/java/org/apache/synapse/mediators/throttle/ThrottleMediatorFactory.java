@@ -35,6 +35,9 @@ import java.util.Properties;
  * <pre>
  * &lt;throttle [onReject="string"] [onAccept="string"] id="string"&gt;
  *   (&lt;policy key="string"/&gt; | &lt;policy&gt;..&lt;/policy&gt;)
+ *    &lt;rate algorithm="tokenBucket | slidingWindow" maxRequests="int" unitTime="long"
+ *          [gossipInterval="long"]/&gt;?
+ *    &lt;concurrency maxConcurrent="int" [maxWait="long"] [maxQueueSize="int"]/&gt;?
  *    &lt;onReject&gt;..&lt;/onReject&gt;?
  *    &lt;onAccept&gt;..&lt;/onAccept&gt;?
  * &lt;/throttle&gt;
@@ -71,6 +74,54 @@ public class ThrottleMediatorFactory extends AbstractMediatorFactory {
                 }
             }
         }
+        OMElement rate = elem.getFirstChildWithName(
+                new QName(XMLConfigConstants.SYNAPSE_NAMESPACE, "rate"));
+        if (rate != null) {
+            String algorithm = rate.getAttributeValue(new QName("algorithm"));
+            String maxRequests = rate.getAttributeValue(new QName("maxRequests"));
+            String unitTime = rate.getAttributeValue(new QName("unitTime"));
+            if (algorithm == null || maxRequests == null || unitTime == null) {
+                handleException("The algorithm, maxRequests and unitTime attributes are " +
+                        "required for the rate element");
+            }
+            try {
+                throttleMediator.setRateLimiter(RateLimiter.create(algorithm.trim(),
+                        Integer.parseInt(maxRequests.trim()), Long.parseLong(unitTime.trim())));
+                String gossipInterval = rate.getAttributeValue(new QName("gossipInterval"));
+                if (gossipInterval != null) {
+                    long interval = Long.parseLong(gossipInterval.trim());
+                    if (interval <= 0) {
+                        throw new IllegalArgumentException("The gossip interval must be positive");
+                    }
+                    throttleMediator.setGossipInterval(interval);
+                }
+            } catch (IllegalArgumentException e) {
+                handleException("Invalid rate limiting configuration : " + e.getMessage());
+            }
+        }
+
+        OMElement concurrency = elem.getFirstChildWithName(
+                new QName(XMLConfigConstants.SYNAPSE_NAMESPACE, "concurrency"));
+        if (concurrency != null) {
+            String maxConcurrent = concurrency.getAttributeValue(new QName("maxConcurrent"));
+            String maxWait = concurrency.getAttributeValue(new QName("maxWait"));
+            String maxQueueSize = concurrency.getAttributeValue(new QName("maxQueueSize"));
+            if (maxConcurrent == null) {
+                handleException("The maxConcurrent attribute is required for the " +
+                        "concurrency element");
+            }
+            try {
+                throttleMediator.setConcurrencyLimiter(new ConcurrencyLimiter(
+                        Integer.parseInt(maxConcurrent.trim()),
+                        maxWait != null ? Long.parseLong(maxWait.trim()) : 0,
+                        maxQueueSize != null ? Integer.parseInt(maxQueueSize.trim()) :
+                                ConcurrencyLimiter.DEFAULT_MAX_QUEUE_SIZE));
+            } catch (IllegalArgumentException e) {
+                handleException("Invalid concurrency limiting configuration : " +
+                        e.getMessage());
+            }
+        }
+
         // after successfully creating the mediator
         // set its common attributes such as tracing etc
         processAuditStatus(throttleMediator,elem);
@@ -32,6 +32,8 @@ import org.apache.synapse.mediators.base.SequenceMediator;
  * <pre>
  * &lt;throttle [onReject="string"] [onAccept="string"] id="string"&gt;
  *   (&lt;policy key="string"/&gt; | &lt;policy&gt;..&lt;/policy&gt;)
+ *    &lt;rate algorithm="tokenBucket | slidingWindow" maxRequests="int" unitTime="long"
+ *          [gossipInterval="long"]/&gt;?
  *    &lt;onReject&gt;..&lt;/onReject&gt;?
  *    &lt;onAccept&gt;..&lt;/onAccept&gt;?
  * &lt;/throttle&gt;
@@ -60,6 +62,36 @@ public class ThrottleMediatorSerializer extends AbstractMediatorSerializer {
                 throttle.addChild(policy);
             }
         }
+        RateLimiter rateLimiter = throttleMediator.getRateLimiter();
+        if (rateLimiter != null) {
+            OMElement rate = fac.createOMElement("rate", synNS);
+            rate.addAttribute(fac.createOMAttribute(
+                    "algorithm", nullNS, rateLimiter.getAlgorithm()));
+            rate.addAttribute(fac.createOMAttribute(
+                    "maxRequests", nullNS, Integer.toString(rateLimiter.getMaxRequests())));
+            rate.addAttribute(fac.createOMAttribute(
+                    "unitTime", nullNS, Long.toString(rateLimiter.getUnitTime())));
+            if (throttleMediator.getGossipInterval() != ThrottleMediator.DEFAULT_GOSSIP_INTERVAL) {
+                rate.addAttribute(fac.createOMAttribute("gossipInterval", nullNS,
+                        Long.toString(throttleMediator.getGossipInterval())));
+            }
+            throttle.addChild(rate);
+        }
+        ConcurrencyLimiter concurrencyLimiter = throttleMediator.getConcurrencyLimiter();
+        if (concurrencyLimiter != null) {
+            OMElement concurrency = fac.createOMElement("concurrency", synNS);
+            concurrency.addAttribute(fac.createOMAttribute("maxConcurrent", nullNS,
+                    Integer.toString(concurrencyLimiter.getMaxConcurrent())));
+            if (concurrencyLimiter.getMaxWait() > 0) {
+                concurrency.addAttribute(fac.createOMAttribute("maxWait", nullNS,
+                        Long.toString(concurrencyLimiter.getMaxWait())));
+            }
+            if (concurrencyLimiter.getMaxQueueSize() != ConcurrencyLimiter.DEFAULT_MAX_QUEUE_SIZE) {
+                concurrency.addAttribute(fac.createOMAttribute("maxQueueSize", nullNS,
+                        Integer.toString(concurrencyLimiter.getMaxQueueSize())));
+            }
+            throttle.addChild(concurrency);
+        }
         saveTracingState(throttle, throttleMediator);
 
         String id = throttleMediator.getId();
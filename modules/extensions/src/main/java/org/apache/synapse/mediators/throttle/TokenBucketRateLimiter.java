@@ -0,0 +1,78 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.throttle;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket holding up to the maximum number of requests, which is refilled at a rate of
+ * the maximum number of requests per unit time. The bucket is kept as the time at which it
+ * would become full again (the generic cell rate algorithm), so that its state fits in a single
+ * number.
+ */
+class TokenBucketRateLimiter extends RateLimiter {
+
+    /** The time it takes to refill the bucket with a single token, in nanoseconds */
+    private final long interval;
+
+    TokenBucketRateLimiter(int maxRequests, long unitTime, Clock clock) {
+        super(TOKEN_BUCKET, maxRequests, unitTime, clock);
+        this.interval = Math.max(1, unitNanos / maxRequests);
+    }
+
+    @Override
+    protected long getInitialState(long now) {
+        return now;
+    }
+
+    @Override
+    protected boolean tryAcquire(AtomicLong state, long now) {
+        while (true) {
+            long full = state.get();
+            long next = (full - now > 0 ? full : now) + interval;
+            if (next - now > unitNanos) {
+                return false;
+            }
+            if (state.compareAndSet(full, next)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    protected void addCount(AtomicLong state, long count, long now) {
+        long cost = Math.min(count, getMaxRequests()) * interval;
+        while (true) {
+            long full = state.get();
+            long next = (full - now > 0 ? full : now) + cost;
+            if (next - now > unitNanos) {
+                next = now + unitNanos;
+            }
+            if (state.compareAndSet(full, next)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    protected boolean isIdle(long state, long now) {
+        return state - now <= 0;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.throttle;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrencyLimiterTest extends TestCase {
+
+    private ScheduledExecutorService timer;
+
+    @Override
+    protected void setUp() throws Exception {
+        timer = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        timer.shutdownNow();
+    }
+
+    public void testImmediateAccess() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 0, 10);
+        limiter.init(timer);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        // waiting is not allowed without a maximum wait time
+        assertFalse(limiter.park("a", new RecordingCallback("a", null, null)));
+
+        limiter.release();
+        assertTrue(limiter.tryAcquire());
+    }
+
+    public void testFairQueueing() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 10000, 10);
+        limiter.init(timer);
+        assertTrue(limiter.tryAcquire());
+
+        List<String> admitted = Collections.synchronizedList(new ArrayList<String>());
+        // a burst from the caller a must not hold back the callers b and c
+        for (String caller : new String[] { "a", "a", "a", "b", "c" }) {
+            assertTrue(limiter.park(caller, new RecordingCallback(caller, admitted, null)));
+        }
+        assertEquals(5, limiter.getQueueDepth());
+        assertEquals(5, limiter.getMaxQueueDepth());
+
+        for (int i = 0; i < 5; i++) {
+            limiter.release();
+        }
+        assertEquals("[a, b, c, a, a]", admitted.toString());
+        assertEquals(0, limiter.getQueueDepth());
+        assertEquals(0, limiter.getAvailable());
+
+        long waited = 0;
+        for (long count : limiter.getWaitTimeHistogram().values()) {
+            waited += count;
+        }
+        assertEquals(5, waited);
+    }
+
+    public void testQueueLimit() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 10000, 2);
+        limiter.init(timer);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.park("a", new RecordingCallback("a", null, null)));
+        assertTrue(limiter.park("b", new RecordingCallback("b", null, null)));
+        assertFalse(limiter.park("c", new RecordingCallback("c", null, null)));
+
+        Map<String, Long> depths = limiter.getQueueDepthHistogram();
+        assertEquals(Long.valueOf(1), depths.get("<= 0"));
+        assertEquals(Long.valueOf(1), depths.get("<= 1"));
+    }
+
+    public void testExpiry() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 100, 10);
+        limiter.init(timer);
+        assertTrue(limiter.tryAcquire());
+
+        List<String> admitted = Collections.synchronizedList(new ArrayList<String>());
+        CountDownLatch expired = new CountDownLatch(1);
+        assertTrue(limiter.park("a", new RecordingCallback("a", admitted, expired)));
+        assertTrue(expired.await(5, TimeUnit.SECONDS));
+        assertEquals(1, limiter.getExpiredCount());
+        assertEquals(0, limiter.getQueueDepth());
+
+        // an expired caller does not get the released access
+        limiter.release();
+        assertTrue(admitted.isEmpty());
+        assertEquals(1, limiter.getAvailable());
+    }
+
+    public void testDestroy() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 10000, 10);
+        limiter.init(timer);
+        assertTrue(limiter.tryAcquire());
+        CountDownLatch expired = new CountDownLatch(2);
+        assertTrue(limiter.park("a", new RecordingCallback("a", null, expired)));
+        assertTrue(limiter.park("b", new RecordingCallback("b", null, expired)));
+        limiter.destroy();
+        assertEquals(0, expired.getCount());
+        assertEquals(0, limiter.getQueueDepth());
+    }
+
+    private static class RecordingCallback implements ConcurrencyLimiter.Callback {
+
+        private final String caller;
+        private final List<String> admitted;
+        private final CountDownLatch expired;
+
+        RecordingCallback(String caller, List<String> admitted, CountDownLatch expired) {
+            this.caller = caller;
+            this.admitted = admitted;
+            this.expired = expired;
+        }
+
+        @Override
+        public void admitted() {
+            if (admitted != null) {
+                admitted.add(caller);
+            }
+        }
+
+        @Override
+        public void expired() {
+            if (expired != null) {
+                expired.countDown();
+            }
+        }
+    }
+}
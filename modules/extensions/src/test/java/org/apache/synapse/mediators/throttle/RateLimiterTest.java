@@ -0,0 +1,171 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.mediators.throttle;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class RateLimiterTest extends TestCase {
+
+    private final ManualClock clock = new ManualClock();
+
+    public void testTokenBucket() throws Exception {
+        RateLimiter limiter = RateLimiter.create(RateLimiter.TOKEN_BUCKET, 5, 500, clock);
+        assertAllowed(limiter, "a", 5);
+        assertFalse(limiter.tryAcquire("a"));
+        // callers are limited separately
+        assertTrue(limiter.tryAcquire("b"));
+
+        // a token is added every 100 ms
+        clock.advance(250);
+        assertAllowed(limiter, "a", 2);
+        assertFalse(limiter.tryAcquire("a"));
+
+        // the bucket holds no more than the maximum number of requests
+        clock.advance(5000);
+        assertAllowed(limiter, "a", 5);
+        assertFalse(limiter.tryAcquire("a"));
+    }
+
+    public void testSlidingWindow() throws Exception {
+        RateLimiter limiter = RateLimiter.create(RateLimiter.SLIDING_WINDOW, 5, 500, clock);
+        assertAllowed(limiter, "a", 5);
+        assertFalse(limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("b"));
+
+        // at the start of the next window, all of the previous window still counts
+        clock.advance(500);
+        assertFalse(limiter.tryAcquire("a"));
+
+        // half way through, half of the previous window counts : 2.5 + 3 > 5
+        clock.advance(250);
+        assertAllowed(limiter, "a", 3);
+        assertFalse(limiter.tryAcquire("a"));
+
+        // 40% through the window after, 60% of the previous 3 requests count : 1.8 + 4 > 5
+        clock.advance(450);
+        assertAllowed(limiter, "a", 4);
+        assertFalse(limiter.tryAcquire("a"));
+
+        // two windows later, nothing counts any more
+        clock.advance(1000);
+        assertAllowed(limiter, "a", 5);
+        assertFalse(limiter.tryAcquire("a"));
+    }
+
+    public void testRemoteCounts() throws Exception {
+        for (String algorithm : new String[] {
+                RateLimiter.TOKEN_BUCKET, RateLimiter.SLIDING_WINDOW }) {
+            RateLimiter limiter = RateLimiter.create(algorithm, 5, 60000);
+            assertTrue(limiter.drainLocalCounts().isEmpty());
+            limiter.addRemoteCount("a", 3);
+            assertAllowed(limiter, "a", 2);
+            assertFalse(algorithm, limiter.tryAcquire("a"));
+
+            Map<String, Long> counts = limiter.drainLocalCounts();
+            assertEquals(Long.valueOf(2), counts.get("a"));
+            assertTrue(limiter.drainLocalCounts().isEmpty());
+        }
+    }
+
+    public void testPurge() throws Exception {
+        RateLimiter limiter = RateLimiter.create(RateLimiter.TOKEN_BUCKET, 5, 100, clock);
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("b");
+        limiter.purge();
+        assertEquals(2, limiter.getCallerCount());
+        clock.advance(150);
+        limiter.purge();
+        assertEquals(0, limiter.getCallerCount());
+    }
+
+    public void testConcurrentDecisions() throws Exception {
+        for (String algorithm : new String[] {
+                RateLimiter.TOKEN_BUCKET, RateLimiter.SLIDING_WINDOW }) {
+            final RateLimiter limiter = RateLimiter.create(algorithm, 1000, 60000);
+            List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+            for (int i = 0; i < 8; i++) {
+                tasks.add(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        int allowed = 0;
+                        for (int j = 0; j < 500; j++) {
+                            if (limiter.tryAcquire("a")) {
+                                allowed++;
+                            }
+                        }
+                        return allowed;
+                    }
+                });
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            int allowed = 0;
+            try {
+                for (Future<Integer> future : executor.invokeAll(tasks)) {
+                    allowed += future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+            assertEquals(algorithm, 1000, allowed);
+        }
+    }
+
+    public void testInvalidConfiguration() {
+        try {
+            RateLimiter.create("fixedWindow", 5, 1000);
+            fail("Unknown algorithms must be rejected");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            RateLimiter.create(RateLimiter.TOKEN_BUCKET, 0, 1000);
+            fail("The maximum number of requests must be positive");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static class ManualClock implements RateLimiter.Clock {
+
+        private volatile long now = 0;
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+
+        void advance(long millis) {
+            now += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+    }
+
+    private static void assertAllowed(RateLimiter limiter, String caller, int count) {
+        for (int i = 0; i < count; i++) {
+            assertTrue("Request " + (i + 1) + " should be allowed", limiter.tryAcquire(caller));
+        }
+    }
+}
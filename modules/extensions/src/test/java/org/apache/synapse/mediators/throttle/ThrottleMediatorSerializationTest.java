@@ -18,8 +18,11 @@
  */
 package org.apache.synapse.mediators.throttle;
 
+import org.apache.synapse.SynapseException;
 import org.apache.synapse.mediators.AbstractTestCase;
 
+import java.util.Properties;
+
 
 /**
  *
@@ -42,4 +45,38 @@ public class ThrottleMediatorSerializationTest extends AbstractTestCase {
         assertTrue(serialization(inputXml, throttleMediatorFactory, throttleMediatorSerializer));
         assertTrue(serialization(inputXml, throttleMediatorSerializer));
     }
+
+    public void testThrottleMediatorSerializationWithRateLimiter() throws Exception {
+        String inputXml = "<throttle id=\"A\" xmlns=\"http://ws.apache.org/ns/synapse\" >" +
+                "<rate algorithm=\"slidingWindow\" maxRequests=\"100\" unitTime=\"60000\" " +
+                "gossipInterval=\"500\"/></throttle>";
+        assertTrue(serialization(inputXml, throttleMediatorFactory, throttleMediatorSerializer));
+        assertTrue(serialization(inputXml, throttleMediatorSerializer));
+    }
+
+    public void testThrottleMediatorWithInvalidGossipInterval() throws Exception {
+        String inputXml = "<throttle id=\"A\" xmlns=\"http://ws.apache.org/ns/synapse\" >" +
+                "<rate algorithm=\"tokenBucket\" maxRequests=\"100\" unitTime=\"60000\" " +
+                "gossipInterval=\"0\"/></throttle>";
+        try {
+            throttleMediatorFactory.createMediator(createOMElement(inputXml), new Properties());
+            fail("A gossip interval which is not positive must be rejected");
+        } catch (SynapseException expected) {
+        }
+    }
+
+    public void testThrottleMediatorSerializationWithConcurrencyLimiter() throws Exception {
+        String inputXml = "<throttle id=\"A\" xmlns=\"http://ws.apache.org/ns/synapse\" >" +
+                "<concurrency maxConcurrent=\"10\" maxWait=\"5000\" maxQueueSize=\"100\"/>" +
+                "<onAccept><log/></onAccept></throttle>";
+        assertTrue(serialization(inputXml, throttleMediatorFactory, throttleMediatorSerializer));
+        assertTrue(serialization(inputXml, throttleMediatorSerializer));
+    }
+
+    public void testThrottleMediatorSerializationWithWaitingWithoutOnAccept() throws Exception {
+        String inputXml = "<throttle id=\"A\" xmlns=\"http://ws.apache.org/ns/synapse\" >" +
+                "<concurrency maxConcurrent=\"10\" maxWait=\"5000\"/></throttle>";
+        assertTrue(serialization(inputXml, throttleMediatorFactory, throttleMediatorSerializer));
+        assertTrue(serialization(inputXml, throttleMediatorSerializer));
+    }
 }
@@ -25,6 +25,11 @@ import org.apache.axiom.om.OMElement;
 import org.apache.axiom.om.OMXMLBuilderFactory;
 import org.apache.axiom.om.OMXMLParserWrapper;
 import org.apache.axiom.soap.SOAPEnvelope;
+import org.apache.axis2.Constants;
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.axis2.context.ConfigurationContextFactory;
+import org.apache.axis2.context.OperationContext;
+import org.apache.synapse.Mediator;
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseException;
 import org.apache.synapse.config.Entry;
@@ -33,9 +38,16 @@ import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
 import org.apache.synapse.mediators.AbstractMediator;
+import org.apache.synapse.mediators.base.SequenceMediator;
+import org.apache.synapse.transport.nhttp.NhttpConstants;
 import org.wso2.throttle.*;
 
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Throttle Mediator Test - This class test throttling when policy has specified as both of
@@ -234,6 +246,170 @@ public class ThrottleMediatorTest extends TestCase {
 
     }
 
+    public void testParkedRequestIsAdmitted() throws Exception {
+        RecordingMediator onAccept = new RecordingMediator(2);
+        RecordingMediator next = new RecordingMediator(2);
+        ThrottleMediator throttleMediator = createConcurrencyThrottle(5000);
+        throttleMediator.setOnAcceptMediator(onAccept);
+        SequenceMediator seq = createSequence(throttleMediator, next);
+        MessageContext first = createThrottledMessageContext();
+        throttleMediator.init(first.getEnvironment());
+        try {
+            seq.mediate(first);
+            MessageContext second = createThrottledMessageContext();
+            assertFalse(seq.mediate(second));
+            assertEquals("SKIP", getOperationContext(second).getProperty(
+                    Constants.RESPONSE_WRITTEN));
+            assertEquals(1, onAccept.getMessages().size());
+            assertEquals(1, next.getMessages().size());
+
+            // the response of the first request hands its access over to the second one,
+            // which then goes on with the mediators following the throttle
+            first.setResponse(true);
+            throttleMediator.mediate(first);
+            assertTrue(onAccept.await());
+            assertTrue(next.await());
+            assertTrue(onAccept.getMessages().contains(second));
+            assertTrue(next.getMessages().contains(second));
+            assertFalse(second.getEnvelope().hasFault());
+        } finally {
+            throttleMediator.destroy();
+        }
+    }
+
+    public void testParkedRequestIsAdmittedWithoutOnAccept() throws Exception {
+        RecordingMediator next = new RecordingMediator(2);
+        ThrottleMediator throttleMediator = createConcurrencyThrottle(5000);
+        SequenceMediator seq = createSequence(throttleMediator, next);
+        MessageContext first = createThrottledMessageContext();
+        throttleMediator.init(first.getEnvironment());
+        try {
+            seq.mediate(first);
+            MessageContext second = createThrottledMessageContext();
+            assertFalse(seq.mediate(second));
+
+            first.setResponse(true);
+            throttleMediator.mediate(first);
+            assertTrue(next.await());
+            assertEquals(2, next.getMessages().size());
+        } finally {
+            throttleMediator.destroy();
+        }
+    }
+
+    public void testParkedRequestIsRejectedWithFault() throws Exception {
+        RecordingMediator onAccept = new RecordingMediator(1);
+        RecordingMediator next = new RecordingMediator(1);
+        ThrottleMediator throttleMediator = createConcurrencyThrottle(100);
+        throttleMediator.setOnAcceptMediator(onAccept);
+        SequenceMediator seq = createSequence(throttleMediator, next);
+        MessageContext first = createThrottledMessageContext();
+        throttleMediator.init(first.getEnvironment());
+        try {
+            seq.mediate(first);
+            MessageContext second = createThrottledMessageContext();
+            assertFalse(seq.mediate(second));
+
+            // without an onReject sequence, the caller gets a fault once the wait expires
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!second.isResponse() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(second.isResponse());
+            assertTrue(second.getEnvelope().hasFault());
+            assertEquals(503, ((Axis2MessageContext) second).getAxis2MessageContext()
+                    .getProperty(NhttpConstants.HTTP_SC));
+            assertEquals(Collections.singletonList(first), onAccept.getMessages());
+            assertEquals(Collections.singletonList(first), next.getMessages());
+        } finally {
+            throttleMediator.destroy();
+        }
+    }
+
+    public void testNativeConcurrencyLeavesPolicyControllerAlone() throws Exception {
+        ThrottleMediator throttleMediator = createConcurrencyThrottle(0);
+        throttleMediator.setInLinePolicy(OMXMLBuilderFactory.createOMBuilder(
+                new StringReader(NEW_POLICY)).getDocumentElement());
+        throttleMediator.setRateLimiter(RateLimiter.create(RateLimiter.SLIDING_WINDOW, 2, 60000));
+        MessageContext synCtx = createThrottledMessageContext();
+        ConfigurationContext cc = ConfigurationContextFactory.createEmptyConfigurationContext();
+        ((Axis2MessageContext) synCtx).getAxis2MessageContext().setConfigurationContext(cc);
+        String key = ThrottleConstants.THROTTLE_PROPERTY_PREFIX + "concurrencyThrottle" +
+                ThrottleConstants.CAC_SUFFIX;
+        cc.setProperty(key, new ConcurrentAccessController(10));
+        throttleMediator.init(new Axis2SynapseEnvironment(cc, synCtx.getConfiguration()));
+        try {
+            // the third request exceeds the access rate
+            for (int i = 0; i < 3; i++) {
+                synCtx.setResponse(false);
+                assertEquals(i < 2, throttleMediator.mediate(synCtx));
+                synCtx.setResponse(true);
+                throttleMediator.mediate(synCtx);
+            }
+            ConcurrentAccessController controller =
+                    (ConcurrentAccessController) cc.getProperty(key);
+            assertEquals(controller.getLimit(), controller.getAndDecrement());
+        } finally {
+            throttleMediator.destroy();
+        }
+    }
+
+    private static ThrottleMediator createConcurrencyThrottle(long maxWait) {
+        ThrottleMediator throttleMediator = new ThrottleMediator();
+        throttleMediator.setId("concurrencyThrottle");
+        throttleMediator.setConcurrencyLimiter(new ConcurrencyLimiter(1, maxWait, 10));
+        return throttleMediator;
+    }
+
+    private static SequenceMediator createSequence(Mediator... mediators) {
+        SequenceMediator seq = new SequenceMediator();
+        for (Mediator mediator : mediators) {
+            seq.addChild(mediator);
+        }
+        return seq;
+    }
+
+    private static MessageContext createThrottledMessageContext() throws Exception {
+        MessageContext synCtx = createLightweightSynapseMessageContext("<empty/>");
+        org.apache.axis2.context.MessageContext axisMC =
+                ((Axis2MessageContext) synCtx).getAxis2MessageContext();
+        axisMC.setProperty(org.apache.axis2.context.MessageContext.REMOTE_ADDR, "192.168.8.212");
+        axisMC.setOperationContext(new OperationContext());
+        return synCtx;
+    }
+
+    private static OperationContext getOperationContext(MessageContext synCtx) {
+        return ((Axis2MessageContext) synCtx).getAxis2MessageContext().getOperationContext();
+    }
+
+    private static class RecordingMediator extends AbstractMediator {
+
+        private final List<MessageContext> messages =
+                Collections.synchronizedList(new ArrayList<MessageContext>());
+        private final CountDownLatch latch;
+
+        RecordingMediator(int expected) {
+            latch = new CountDownLatch(expected);
+        }
+
+        @Override
+        public boolean mediate(MessageContext synCtx) {
+            if (!synCtx.isResponse()) {
+                messages.add(synCtx);
+                latch.countDown();
+            }
+            return true;
+        }
+
+        boolean await() throws InterruptedException {
+            return latch.await(5, TimeUnit.SECONDS);
+        }
+
+        List<MessageContext> getMessages() {
+            return new ArrayList<MessageContext>(messages);
+        }
+    }
+
     public class ThrottleTestMediator extends AbstractMediator {
 
         private String policyKey = null;
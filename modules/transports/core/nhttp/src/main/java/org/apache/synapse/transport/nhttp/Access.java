@@ -21,21 +21,31 @@ package org.apache.synapse.transport.nhttp;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.http.Header;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpMessage;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
+import org.apache.http.RequestLine;
 import org.apache.synapse.transport.nhttp.util.AccessTimeUtil;
 
 import java.net.InetAddress;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * The class to handle the HTTP Access Logs, patterns and the major functionality.
+ * <p/>
+ * The pattern is compiled once into an array of {@link AccessLogElement}s, which also
+ * determines the request and response headers the pattern refers to. When an access is
+ * logged, only those fields are copied from the message into a slot of a preallocated ring
+ * buffer, so the I/O threads never retain messages and never block on the log file. A
+ * single writer thread formats the buffered accesses and hands them over to the
+ * {@link AccessLogger}. Accesses which arrive while the ring buffer is full are dropped
+ * and counted.
+ * <p/>
  * Major Code segment borrowed from Apache Tomcat's
  * org.apache.catalina.valves.AccessLogValve with thanks.
  */
@@ -43,6 +53,9 @@ public class Access {
 
     private static Log log = LogFactory.getLog(Access.class);
 
+    /** Value written for a byte count when the message carries no entity */
+    private static final long NO_ENTITY = Long.MIN_VALUE;
+
     /**
      * Array of AccessLogElement, they will be used to make log message.
      */
@@ -50,12 +63,20 @@ public class Access {
 
     protected String pattern = AccessConstants.COMBINED_PATTERN;
 
-    private static AccessLogger accessLogger;
+    private final AccessLogger accessLogger;
+
+    /** Names of the request and response headers referred to by the pattern */
+    private final List<String> requestHeaders = new ArrayList<String>();
+    private final List<String> responseHeaders = new ArrayList<String>();
 
-    private static ConcurrentLinkedQueue<HttpRequest> requestQueue;
-    private static ConcurrentLinkedQueue<HttpResponse> responseQueue;
+    private final AccessRecord[] ring;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong(0);
+    private final AtomicLong dropped = new AtomicLong(0);
 
-    private static final int LOG_FREQUENCY_IN_SECONDS = 30;
+    private final Thread writer;
+    private volatile boolean writerWaiting = false;
+    private volatile boolean running = true;
 
     /**
      * Constructor of AccessLog. AccessHandler has a static object of Access.
@@ -64,83 +85,266 @@ public class Access {
      * @param accessLogger - AccessLogger Object
      */
     public Access(final Log log, AccessLogger accessLogger) {
+        this(log, accessLogger, AccessConstants.COMBINED_PATTERN,
+                AccessConstants.DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create an access log and start its writer thread
+     *
+     * @param log          - Log to which the access log lines are written at debug level
+     * @param accessLogger - AccessLogger writing the log files
+     * @param pattern      - pattern of the log lines
+     * @param bufferSize   - maximum number of accesses pending to be written, rounded up to
+     *                       the next power of two
+     */
+    public Access(final Log log, AccessLogger accessLogger, String pattern, int bufferSize) {
         super();
         Access.log = log;
-        Access.accessLogger = accessLogger;
-        requestQueue = new ConcurrentLinkedQueue<HttpRequest>();
-        responseQueue = new ConcurrentLinkedQueue<HttpResponse>();
+        this.accessLogger = accessLogger;
+        this.pattern = pattern;
         logElements = createLogElements();
-        logAccesses();
+
+        int capacity = Integer.highestOneBit(Math.max(bufferSize, 2) - 1) << 1;
+        ring = new AccessRecord[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new AccessRecord(i, requestHeaders.size(), responseHeaders.size());
+        }
+        mask = capacity - 1;
+
+        writer = new Thread(new Writer(), "http-access-log-writer");
+        writer.setDaemon(true);
+        writer.start();
     }
 
     /**
-     * Adds the accesses to the queue.
+     * Captures the fields of the request required by the log pattern.
      *
      * @param request - HttpRequest
      */
     public void addAccessToQueue(HttpRequest request) {
-        requestQueue.add(request);
+        AccessRecord record = claim();
+        if (record == null) {
+            return;
+        }
+        record.request = true;
+        record.requestLine = request.getRequestLine();
+        for (int i = 0; i < record.requestHeaders.length; i++) {
+            record.requestHeaders[i] = getHeaderValues(request, requestHeaders.get(i));
+        }
+        publish(record);
     }
 
     /**
-     * Adds the accesses to the queue.
+     * Captures the fields of the response required by the log pattern.
      *
      * @param response - HttpResponse
      */
     public void addAccessToQueue(HttpResponse response) {
-        responseQueue.add(response);
+        AccessRecord record = claim();
+        if (record == null) {
+            return;
+        }
+        record.request = false;
+        record.status = response.getStatusLine().getStatusCode();
+        HttpEntity entity = response.getEntity();
+        record.contentLength = entity != null ? entity.getContentLength() : NO_ENTITY;
+        for (int i = 0; i < record.responseHeaders.length; i++) {
+            record.responseHeaders[i] = getHeaderValues(response, responseHeaders.get(i));
+        }
+        publish(record);
     }
 
     /**
-     * logs the request and response accesses.
-     */
-    public void logAccesses() {
-        TimerTask logRequests = new LogRequests();
-        TimerTask logResponses = new LogResponses();
-        Timer requestTimer = new Timer();
-        Timer responseTimer = new Timer();
-        // Retry in 30 seconds
-        long retryIn = 1000 * LOG_FREQUENCY_IN_SECONDS;
-        requestTimer.schedule(logRequests, 0, retryIn);
-        responseTimer.schedule(logResponses, 0, retryIn);
-    }
-
-    private class LogRequests extends TimerTask {
-        @Override
-        public void run() {
-            while (!requestQueue.isEmpty()) {
-                HttpRequest req = requestQueue.poll();
-                log(req, null);
+     * Claim the next free slot of the ring buffer
+     *
+     * @return the claimed slot, or null if the buffer is full
+     */
+    private AccessRecord claim() {
+        long position = tail.get();
+        while (true) {
+            AccessRecord record = ring[(int) (position & mask)];
+            long diff = record.sequence - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    return record;
+                }
+                position = tail.get();
+            } else if (diff < 0) {
+                dropped.incrementAndGet();
+                return null;
+            } else {
+                position = tail.get();
             }
         }
     }
 
-    private class LogResponses extends TimerTask {
+    private void publish(AccessRecord record) {
+        record.sequence = record.sequence + 1;
+        if (writerWaiting) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * @return the number of accesses dropped since the ring buffer was full
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Stop the writer thread, after writing out all pending accesses and closing the
+     * log file.
+     *
+     * @param timeout maximum time in milliseconds to wait for the writer to finish
+     * @throws InterruptedException if interrupted while waiting for the writer
+     */
+    public void stop(long timeout) throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(timeout);
+    }
+
+    /**
+     * The single consumer of the ring buffer. It formats and writes the accesses in the
+     * order they were published, and flushes the log file whenever it runs out of work or
+     * the flush interval has elapsed.
+     */
+    private class Writer implements Runnable {
+
+        private final StringBuilder line = new StringBuilder(256);
+        private long head = 0;
+        private long lastFlush = System.currentTimeMillis();
+        private long reportedDrops = 0;
+
         @Override
         public void run() {
-            while (!responseQueue.isEmpty()) {
-                HttpResponse res = responseQueue.poll();
-                log(null, res);
+            try {
+                while (running) {
+                    if (!drain()) {
+                        idle();
+                    } else if (System.currentTimeMillis() - lastFlush >=
+                            AccessConstants.FLUSH_INTERVAL) {
+                        flush();
+                    }
+                }
+                drain();
+            } finally {
+                flush();
+                accessLogger.close();
+            }
+        }
+
+        /**
+         * Write out the accesses which are currently available
+         *
+         * @return true if at least one access was written
+         */
+        private boolean drain() {
+            boolean written = false;
+            int batch = ring.length;
+            while (batch-- > 0) {
+                AccessRecord record = ring[(int) (head & mask)];
+                if (record.sequence != head + 1) {
+                    break;
+                }
+
+                line.setLength(0);
+                try {
+                    for (AccessLogElement logElement : logElements) {
+                        logElement.addElement(line, record);
+                    }
+                } catch (Throwable t) {
+                    AccessTimeUtil.handleThrowable(t);
+                    log.warn("Error formatting an access log entry", t);
+                } finally {
+                    record.clear();
+                    record.sequence = head + ring.length;
+                    head++;
+                }
+
+                if (log.isDebugEnabled()) {
+                    log.debug(line.toString());      //log to the console
+                }
+                try {
+                    accessLogger.log(line);      //log to the file
+                } catch (Throwable t) {
+                    AccessTimeUtil.handleThrowable(t);
+                    log.warn("Error writing an access log entry", t);
+                }
+                written = true;
+            }
+            return written;
+        }
+
+        private void idle() {
+            flush();
+            writerWaiting = true;
+            try {
+                // re-check after announcing the wait, a publisher may have missed the flag
+                AccessRecord record = ring[(int) (head & mask)];
+                if (record.sequence != head + 1 && running) {
+                    LockSupport.parkNanos(
+                            TimeUnit.MILLISECONDS.toNanos(AccessConstants.FLUSH_INTERVAL));
+                }
+            } finally {
+                writerWaiting = false;
+            }
+        }
+
+        private void flush() {
+            accessLogger.flush();
+            lastFlush = System.currentTimeMillis();
+
+            long drops = dropped.get();
+            if (drops != reportedDrops) {
+                log.warn((drops - reportedDrops) + " access log entries were dropped since " +
+                        "the access log buffer was full");
+                reportedDrops = drops;
             }
         }
     }
 
     /**
-     * The log method that is called from the NHttpClient and Server connection classes.
-     *
-     * @param request  - HttpRequest
-     * @param response - HttpResponse
+     * A slot of the ring buffer, holding the fields of an access required by the pattern.
+     * The sequence number tells whether the slot is free for the producer of a given
+     * position, or published for the writer.
      */
-    public void log(HttpRequest request, HttpResponse response) {
-        Date date = AccessTimeUtil.getDate();
-        StringBuilder result = new StringBuilder(128);
+    protected static class AccessRecord {
+
+        private volatile long sequence;
 
-        for (AccessLogElement logElement : logElements) {
-            logElement.addElement(result, date, request, response);
+        protected boolean request;
+        protected RequestLine requestLine;
+        protected int status;
+        protected long contentLength;
+        protected final String[] requestHeaders;
+        protected final String[] responseHeaders;
+
+        AccessRecord(long sequence, int requestHeaderCount, int responseHeaderCount) {
+            this.sequence = sequence;
+            this.requestHeaders = new String[requestHeaderCount];
+            this.responseHeaders = new String[responseHeaderCount];
+        }
+
+        void clear() {
+            requestLine = null;
+            for (int i = 0; i < requestHeaders.length; i++) {
+                requestHeaders[i] = null;
+            }
+            for (int i = 0; i < responseHeaders.length; i++) {
+                responseHeaders[i] = null;
+            }
+        }
+
+        String getRequestHeader(int index) {
+            return request ? requestHeaders[index] : "-";
+        }
+
+        String getResponseHeader(int index) {
+            return request ? "-" : responseHeaders[index];
         }
-        String logString = result.toString();
-        log.debug(logString);      //log to the console
-        accessLogger.log(logString);      //log to the file
     }
 
     /**
@@ -153,7 +357,7 @@ public class Access {
     protected static String getHeaderValues(HttpMessage message, String name) {
         int length = 0;
         Header[] header = new Header[0];
-        StringBuffer headerValue = new StringBuffer();
+        StringBuilder headerValue = new StringBuilder();
         try {
             header = message.getHeaders(name);
             length = header.length;
@@ -245,12 +449,12 @@ public class Access {
     }
 
 
+
     /**
      * AccessLogElement writes the partial message into the buffer.
      */
     protected interface AccessLogElement {
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response);
+        public void addElement(StringBuilder buf, AccessRecord record);
     }
 
     /**
@@ -272,81 +476,42 @@ public class Access {
         }
 
         @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
+        public void addElement(StringBuilder buf, AccessRecord record) {
             buf.append(LOCAL_ADDR_VALUE);
         }
     }
 
-
-    /**
-     * write remote host name - %h
-     */
-    protected static class HostElement implements AccessLogElement {
-        @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
-            String host = "";
-            try {
-                host = getHostElement(request);
-            } catch (Exception e) {
-                // empty host
-            }
-            buf.append(host);
-        }
-    }
-
     /**
      * write remote logical username from identd (always returns '-') - %l
      */
     protected static class LogicalUserNameElement implements AccessLogElement {
         @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
-            String logicalUserName = "";
-            try {
-                logicalUserName = getLogicalUserNameElement(request);
-            } catch (Exception e) {
-                // empty logicalUserName
-            }
-            buf.append(logicalUserName);
-        }
-    }
-
-
-    /**
-     * write remote user that was authenticated (if any), else '-' - %u
-     */
-    protected static class UserElement implements AccessLogElement {
-        @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
-            String userElement = "";
-            try {
-                userElement = getUserNameElement(request);
-            } catch (Exception e) {
-                // empty UserName
+        public void addElement(StringBuilder buf, AccessRecord record) {
+            if (record.request) {
+                buf.append('-');
             }
-            buf.append(userElement);
         }
     }
 
-
     /**
      * write date and time, in Common Log Format - %t
      */
     protected static class DateAndTimeElement implements AccessLogElement {
+        private final int requestHeader;
+        private final int responseHeader;
+
+        public DateAndTimeElement(int requestHeader, int responseHeader) {
+            this.requestHeader = requestHeader;
+            this.responseHeader = responseHeader;
+        }
 
         @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
-            String currentDate = "";
-            if (request != null) {
-                currentDate = getHeaderValues(request, "Date");
-            } else if (response != null) {
-                currentDate = getHeaderValues(response, "Date");
+        public void addElement(StringBuilder buf, AccessRecord record) {
+            if (record.request) {
+                buf.append(record.getRequestHeader(requestHeader));
+            } else {
+                buf.append(record.getResponseHeader(responseHeader));
             }
-            buf.append(currentDate);
         }
     }
 
@@ -355,11 +520,9 @@ public class Access {
      */
     protected static class RequestElement implements AccessLogElement {
         @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
-            if (request != null) {
-                String requestLine = request.getRequestLine().toString();
-                buf.append(requestLine);
+        public void addElement(StringBuilder buf, AccessRecord record) {
+            if (record.request) {
+                buf.append(record.requestLine.toString());
             } else {
                 buf.append("- - ");
             }
@@ -371,18 +534,15 @@ public class Access {
      */
     protected static class HttpStatusCodeElement implements AccessLogElement {
         @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
-            if (response != null) {
-                int statusCode = response.getStatusLine().getStatusCode();
-                buf.append(statusCode); //getStatus
+        public void addElement(StringBuilder buf, AccessRecord record) {
+            if (!record.request) {
+                buf.append(record.status);
             } else {
                 buf.append('-');
             }
         }
     }
 
-
     /**
      * write bytes sent, excluding HTTP headers - %b, %B
      */
@@ -399,19 +559,13 @@ public class Access {
         }
 
         @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
-            // Don't need to flush since trigger for log message is after the
-            // response has been committed
-            try {
-                long length = response.getEntity().getContentLength(); //getBytesWritten(false);
-                if (length <= 0 && conversion) {
-                    buf.append('-');                           //%b
-                } else {
-                    buf.append(length);
-                }
-            } catch (Exception e) {
+        public void addElement(StringBuilder buf, AccessRecord record) {
+            if (record.request || record.contentLength == NO_ENTITY) {
                 buf.append('-'); //No entity found.
+            } else if (record.contentLength <= 0 && conversion) {
+                buf.append('-');                           //%b
+            } else {
+                buf.append(record.contentLength);
             }
         }
     }
@@ -421,10 +575,9 @@ public class Access {
      */
     protected static class MethodElement implements AccessLogElement {
         @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
-            if (request != null) {
-                buf.append(request.getRequestLine().getMethod());
+        public void addElement(StringBuilder buf, AccessRecord record) {
+            if (record.request) {
+                buf.append(record.requestLine.getMethod());
             }
         }
     }
@@ -434,27 +587,15 @@ public class Access {
      */
     protected static class RequestURIElement implements AccessLogElement {
         @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
-            if (request != null) {
-                buf.append(request.getRequestLine().getUri());
+        public void addElement(StringBuilder buf, AccessRecord record) {
+            if (record.request) {
+                buf.append(record.requestLine.getUri());
             } else {
                 buf.append('-');
             }
         }
     }
 
-    /**
-     * write local server name - %v
-     */
-    protected static class LocalServerNameElement implements AccessLogElement {
-        @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
-            buf.append(getHeaderValues(request, "server"));
-        }
-    }
-
     /**
      * write any string
      */
@@ -466,245 +607,84 @@ public class Access {
         }
 
         @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
+        public void addElement(StringBuilder buf, AccessRecord record) {
             buf.append(str);
         }
     }
 
     /**
-     * write incoming headers - %{xxx}i
+     * write incoming headers - %{xxx}i, and the request headers with a shorthand of their
+     * own (%h, %u, %c, %f, %a etc.)
      */
     protected static class HeaderElement implements AccessLogElement {
-        private String header;
+        private final int header;
 
-        public HeaderElement(String header) {
+        public HeaderElement(int header) {
             this.header = header;
         }
 
         @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
-            try {
-                String value = getHeaderValues(request, header);
-                if (value == null) {
-                    buf.append('-');
-                } else {
-                    buf.append(value);
-                }
-            } catch (Exception e) {
-                buf.append('-'); //Header is null
+        public void addElement(StringBuilder buf, AccessRecord record) {
+            String value = record.getRequestHeader(header);
+            if (value == null) {
+                buf.append('-');
+            } else {
+                buf.append(value);
             }
         }
     }
 
-    /**
-     * write a specific cookie - %{xxx}c
-     */
-    protected static class CookieElement implements AccessLogElement {
-        @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
-            buf.append(getCookieElement(request));
-        }
-    }
-
-
-    /**
-     * write the referer - %f
-     */
-    protected static class RefererElement implements AccessLogElement {
-        @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
-            buf.append(getRefererElement(request));
-        }
-    }
-
-
-    /**
-     * write the user agent - %a
-     */
-    protected static class UserAgentElement implements AccessLogElement {
-        @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
-            buf.append(getUserAgentElement(request));
-        }
-    }
-
-    /**
-     * write the Accept Element - %C
-     */
-    protected static class AcceptElement implements AccessLogElement {
-        @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
-            buf.append(getAcceptElement(request));
-        }
-    }
-
-    /**
-     * write the Accept Language Element - %L
-     */
-    protected static class AcceptLanguageElement implements AccessLogElement {
-        @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
-            buf.append(getAcceptLanguageElement(request));
-        }
-    }
-
-    /**
-     * write the Accept Encoding Element - %e
-     */
-    protected static class AcceptEncodingElement implements AccessLogElement {
-        @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
-            buf.append(getAcceptEncodingElement(request));
-        }
-    }
-
-    /**
-     * write the Accept Character Set Element - %S
-     */
-    protected static class AcceptCharSetElement implements AccessLogElement {
-        @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
-            buf.append(getAcceptCharSetElement(request));
-        }
-    }
-
-    /**
-     * write the Connection Element - %x
-     */
-    protected static class ConnectionElement implements AccessLogElement {
-        @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
-            buf.append(getConnectionElement(request));
-        }
-    }
-
-    /**
-     * write the Content Type Element - %T
-     */
-    protected static class ContentTypeElement implements AccessLogElement {
-        @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
-            buf.append(getContentTypeElement(request));
-        }
-    }
-
-    /**
-     * write the Keep Alive Element - %k
-     */
-    protected static class KeepAliveElement implements AccessLogElement {
-        @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
-            buf.append(getKeepAliveElement(request));
-        }
-    }
-
-    /**
-     * write the Transfer Encoding Element - %E
-     */
-    protected static class TransferEncodingElement implements AccessLogElement {
-        @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
-            buf.append(getTransferEncodingElement(request));
-        }
-    }
-
-    /**
-     * write the Content Encoding Element - %n
-     */
-    protected static class ContentEncodingElement implements AccessLogElement {
-        @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
-            buf.append(getContentEncodingElement(request));
-        }
-    }
-
-    /**
-     * write the Vary Element - %V
-     */
-    protected static class VaryElement implements AccessLogElement {
-        @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
-            buf.append(getVaryElement(request));
-        }
-    }
-
-    /**
-     * write the Server Element - %Z
-     */
-    protected static class ServerElement implements AccessLogElement {
-        @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
-            buf.append(getServerElement(request));
-        }
-    }
-
     /**
      * write a specific response header - %{xxx}o
      */
     protected static class ResponseHeaderElement implements AccessLogElement {
-        private String header;
+        private final int header;
 
-        public ResponseHeaderElement(String header) {
+        public ResponseHeaderElement(int header) {
             this.header = header;
         }
 
         @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
-            if (null != response) {
-                buf.append(getHeaderValues(response, header));
+        public void addElement(StringBuilder buf, AccessRecord record) {
+            String value = record.getResponseHeader(header);
+            if (value == null) {
+                buf.append('-');
+            } else {
+                buf.append(value);
             }
-            buf.append("-");
         }
     }
 
     /**
-     * write an attribute in the ServletRequest - %{xxx}r    %R
+     * Register a request header referred to by the pattern
+     *
+     * @param name name of the header
+     * @return index of the header value in the captured accesses
      */
-    protected static class RequestAttributeElement implements AccessLogElement {
+    private int requestHeader(String name) {
+        return register(requestHeaders, name);
+    }
 
-        public RequestAttributeElement() {
-        }
+    /**
+     * Register a response header referred to by the pattern
+     *
+     * @param name name of the header
+     * @return index of the header value in the captured accesses
+     */
+    private int responseHeader(String name) {
+        return register(responseHeaders, name);
+    }
 
-        @Override
-        public void addElement(StringBuilder buf, Date date, HttpRequest request,
-                               HttpResponse response) {
-            Object value;
-            if (request != null) {
-                value = request.getLastHeader(buf.toString()); //gets the attribute header
-            } else {
-                value = "??";
-            }
-            if (value != null) {
-                if (value instanceof String) {
-                    buf.append((String) value);
-                } else {
-                    buf.append(value.toString());
-                }
-            } else {
-                buf.append('-');
+    private int register(List<String> headers, String name) {
+        for (int i = 0; i < headers.size(); i++) {
+            if (headers.get(i).equalsIgnoreCase(name)) {
+                return i;
             }
         }
-
+        headers.add(name);
+        return headers.size() - 1;
     }
 
-
     /**
      * parse pattern string and create the array of AccessLogElement
      *
@@ -766,11 +746,11 @@ public class Access {
     private AccessLogElement createAccessLogElement(String header, char pattern) {
         switch (pattern) {
             case 'i':
-                return new HeaderElement(header);  //%{xxx}i
+                return new HeaderElement(requestHeader(header));  //%{xxx}i
             case 'o':
-                return new ResponseHeaderElement(header);
+                return new ResponseHeaderElement(responseHeader(header));
             case 'R':
-                return new RequestAttributeElement();
+                return new HeaderElement(requestHeader(header));
             default:
                 return new StringElement("???");
         }
@@ -787,55 +767,56 @@ public class Access {
             case 'A':
                 return new LocalAddrElement();
             case 'a':
-                return new UserAgentElement();
+                return new HeaderElement(requestHeader("User-Agent"));
             case 'b':
                 return new ByteSentElement(true);     //%b
             case 'B':
                 return new ByteSentElement(false);
             case 'c':
-                return new CookieElement();            // %c
+                return new HeaderElement(requestHeader("Cookie"));            // %c
             case 'C':
-                return new AcceptElement();
+                return new HeaderElement(requestHeader("Accept"));
             case 'e':
-                return new AcceptEncodingElement();
+                return new HeaderElement(requestHeader("Accept-Encoding"));
             case 'E':
-                return new TransferEncodingElement();
+                return new HeaderElement(requestHeader("Transfer-Encoding"));
             case 'f':
-                return new RefererElement();
+                return new HeaderElement(requestHeader("Referer"));
             case 'h':
-                return new HostElement();         //%h
+                return new HeaderElement(requestHeader("Host"));         //%h
             case 'k':
-                return new KeepAliveElement();
+                return new HeaderElement(requestHeader("Keep-Alive"));
             case 'l':
                 return new LogicalUserNameElement();     //%l
             case 'L':
-                return new AcceptLanguageElement();
+                return new HeaderElement(requestHeader("Accept-Language"));
             case 'm':
                 return new MethodElement();
             case 'n':
-                return new ContentEncodingElement();
+                return new HeaderElement(requestHeader("Content-Encoding"));
             case 'r':
                 return new RequestElement();        //%r
             case 'S':
-                return new AcceptCharSetElement();
+                return new HeaderElement(requestHeader("Accept-Charset"));
             case 's':
                 return new HttpStatusCodeElement();       // %s
             case 'T':
-                return new ContentTypeElement();
+                return new HeaderElement(requestHeader("Content-Type"));
             case 't':
-                return new DateAndTimeElement();       //%t
+                return new DateAndTimeElement(requestHeader("Date"),
+                        responseHeader("Date"));       //%t
             case 'u':
-                return new UserElement();           //%u
+                return new HeaderElement(requestHeader("From"));           //%u
             case 'U':
                 return new RequestURIElement();
             case 'V':
-                return new VaryElement();
+                return new HeaderElement(requestHeader("Vary"));
             case 'v':
-                return new LocalServerNameElement();
+                return new HeaderElement(requestHeader("Server"));
             case 'x':
-                return new ConnectionElement();
+                return new HeaderElement(requestHeader("Connection"));
             case 'Z':
-                return new ServerElement();
+                return new HeaderElement(requestHeader("Server"));
             default:
                 return new StringElement("???" + pattern + "???");
         }
@@ -56,4 +56,49 @@ public class AccessConstants {
      */
     public static final String SUFFIX = ".log";
 
+    /**
+     * System property holding the pattern of the access log lines.
+     */
+    public static final String PATTERN_PROPERTY = "http.access.log.pattern";
+
+    /**
+     * System property holding the directory in which log files are created.
+     */
+    public static final String DIRECTORY_PROPERTY = "http.access.log.directory";
+
+    /**
+     * System property holding the date format appended to the log file names. A new log
+     * file is started whenever the formatted date changes, e.g. yyyy-MM-dd-HH rotates the
+     * log every hour.
+     */
+    public static final String FILE_FORMAT_PROPERTY = "http.access.log.file-date-format";
+
+    /**
+     * System property holding the size in bytes after which a log file is rolled over.
+     * Zero or a negative value disables size based rotation.
+     */
+    public static final String MAX_FILE_SIZE_PROPERTY = "http.access.log.max-file-size";
+
+    /**
+     * System property holding the number of accesses that may be pending to be written.
+     * Accesses which arrive while the buffer is full are dropped.
+     */
+    public static final String BUFFER_SIZE_PROPERTY = "http.access.log.buffer-size";
+
+    /**
+     * Default number of accesses that may be pending to be written.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /**
+     * Maximum time in milliseconds written accesses may stay in memory before they are
+     * flushed to the log file.
+     */
+    public static final long FLUSH_INTERVAL = 1000;
+
+    /**
+     * Size of the in memory buffer of the log file in bytes.
+     */
+    public static final int FILE_BUFFER_SIZE = 128 * 1024;
+
 }
@@ -21,8 +21,13 @@ package org.apache.synapse.transport.nhttp;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import java.io.File;
+
 /**
- * Handles the Access, providing an Access object.
+ * Handles the Access, providing an Access object. The access log is shared by all the
+ * http transports (nhttp and pass-through) and is created on first use, so that no writer
+ * thread or log file exists unless access logging is enabled. It is configured through the
+ * system properties defined in {@link AccessConstants}.
  */
 public class AccessHandler {
 
@@ -30,12 +35,40 @@ public class AccessHandler {
 
     private final static Log accessLog = LogFactory.getLog(ACCESS_LOG_ID);
 
-    private static final AccessLogger accessLogger = new AccessLogger(accessLog);
+    private static class AccessHolder {
+
+        private static final Access access = createAccess();
+
+        private static Access createAccess() {
+            AccessLogger accessLogger = new AccessLogger(accessLog,
+                    new File(System.getProperty(AccessConstants.DIRECTORY_PROPERTY,
+                            AccessConstants.DIRECTORY)),
+                    System.getProperty(AccessConstants.FILE_FORMAT_PROPERTY,
+                            AccessConstants.FILE_FORMAT),
+                    Long.getLong(AccessConstants.MAX_FILE_SIZE_PROPERTY, 0L));
 
-    private static final Access access = new Access(accessLog, accessLogger);
+            final Access access = new Access(accessLog, accessLogger,
+                    System.getProperty(AccessConstants.PATTERN_PROPERTY,
+                            AccessConstants.COMBINED_PATTERN),
+                    Integer.getInteger(AccessConstants.BUFFER_SIZE_PROPERTY,
+                            AccessConstants.DEFAULT_BUFFER_SIZE));
+
+            Runtime.getRuntime().addShutdownHook(new Thread("http-access-log-shutdown") {
+                @Override
+                public void run() {
+                    try {
+                        access.stop(AccessConstants.FLUSH_INTERVAL);
+                    } catch (InterruptedException ignore) {
+                        // shutting down anyway
+                    }
+                }
+            });
+            return access;
+        }
+    }
 
     public static Access getAccess() {
-        return access;
+        return AccessHolder.access;
     }
 
     public static Log getAccessLog() {
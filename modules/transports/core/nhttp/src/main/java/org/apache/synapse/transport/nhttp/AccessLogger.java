@@ -21,66 +21,80 @@ package org.apache.synapse.transport.nhttp;
 
 import org.apache.commons.logging.Log;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
 /**
- * Class that logs the Http Accesses to the access log files. Code segment borrowed from
- * Apache Tomcat's org.apache.catalina.valves.AccessLogValve with thanks.
+ * Class that logs the Http Accesses to the access log files. Log lines are encoded into an
+ * in memory buffer which is written to the current log file through a {@link FileChannel}
+ * whenever it fills up or is explicitly flushed. A new log file is started when the date
+ * stamp of the file name changes, and when the current file grows beyond the configured
+ * maximum size, in which case the full file is renamed with a sequence number.
+ * <p/>
+ * This class is not thread safe. It is meant to be driven by the single writer thread of
+ * {@link Access}. Code segment borrowed from Apache Tomcat's
+ * org.apache.catalina.valves.AccessLogValve with thanks.
  */
 public class AccessLogger {
 
-    private Log log;
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
 
-    public AccessLogger(final Log log) {
-        super();
-        this.initOpen();
-        this.log = log;
-        buffered = true;
-        checkExists = false;
-    }
+    private final Log log;
+
+    /**
+     * The directory in which the log files are created
+     */
+    private final File directory;
 
     /**
      * A date formatter to format a Date into a date in the given file format
      */
-    protected SimpleDateFormat fileDateFormatter =
-            new SimpleDateFormat(AccessConstants.FILE_FORMAT);
+    protected final SimpleDateFormat fileDateFormatter;
 
     /**
-     * The PrintWriter to which we are currently logging, if any.
+     * Size in bytes after which the current log file is rolled over, zero or less to
+     * never roll over on size
      */
-    protected PrintWriter writer;
+    private final long maxFileSize;
+
+    private final ByteBuffer buffer;
+
+    private final CharsetEncoder encoder = Charset.forName("UTF-8").newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
 
     /**
-     * The as-of date for the currently open log file, or a zero-length
-     * string if there is no open log file.
+     * The channel to which we are currently logging, if any.
      */
-    private volatile String dateStamp = "";
+    private FileChannel channel;
 
     /**
-     * Instant when the log daily rotation was last checked.
+     * The as-of date for the currently open log file, or a zero-length
+     * string if there is no open log file.
      */
-    private volatile long rotationLastChecked = 0L;
+    private String dateStamp = "";
 
     /**
-     * Buffered logging.
+     * Instant when the log daily rotation was last checked.
      */
-    private boolean buffered = true;
+    private long rotationLastChecked = 0L;
 
     /**
-     * Do we check for log file existence? Helpful if an external
-     * agent renames the log file so we can automatically recreate it.
+     * Number of bytes in the current log file
      */
-    private boolean checkExists = false;
+    private long fileSize = 0L;
 
     /**
-     * The current log file we are writing to. Helpful when checkExists
-     * is true.
+     * The current log file we are writing to.
      */
     protected File currentLogFile = null;
 
@@ -89,122 +103,175 @@ public class AccessLogger {
      */
     protected boolean isRotatable = true;
 
+    public AccessLogger(final Log log) {
+        this(log, new File(AccessConstants.DIRECTORY), AccessConstants.FILE_FORMAT, 0);
+    }
+
+    /**
+     * Create an access logger
+     *
+     * @param log            log used to report problems with the log files
+     * @param directory      directory in which the log files are created
+     * @param fileDateFormat date format appended to the log file names
+     * @param maxFileSize    size in bytes after which a log file is rolled over, zero or less
+     *                       to rotate on the date only
+     */
+    public AccessLogger(final Log log, File directory, String fileDateFormat, long maxFileSize) {
+        this.log = log;
+        this.directory = directory;
+        this.fileDateFormatter = new SimpleDateFormat(fileDateFormat);
+        this.maxFileSize = maxFileSize;
+        this.buffer = ByteBuffer.allocate(AccessConstants.FILE_BUFFER_SIZE);
+        initOpen();
+    }
 
     /**
      * Log the specified message to the log file, switching files if the date
-     * has changed since the previous log call.
+     * has changed since the previous log call or the current file is full.
      *
      * @param message Message to be logged
      */
-    public void log(String message) {
+    public void log(CharSequence message) {
         if (isRotatable) {
             // Only do a logfile switch check once a second, max.
             long systemTime = System.currentTimeMillis();
             if ((systemTime - rotationLastChecked) > 1000) {
-                synchronized (this) {
-                    if ((systemTime - rotationLastChecked) > 1000) {
-                        rotationLastChecked = systemTime;
-
-                        String tsDate;
-                        // Check for a change of date
-                        tsDate = fileDateFormatter.format(new Date(systemTime));
-
-                        // If the date has changed, switch log files
-                        if (!dateStamp.equals(tsDate)) {
-                            close();
-                            dateStamp = tsDate;
-                            open();
-                        }
-                    }
+                rotationLastChecked = systemTime;
+
+                // If the date has changed, switch log files
+                String tsDate = fileDateFormatter.format(new Date(systemTime));
+                if (!dateStamp.equals(tsDate)) {
+                    close();
+                    dateStamp = tsDate;
+                    open();
                 }
             }
+
+            if (maxFileSize > 0 && fileSize + buffer.position() >= maxFileSize) {
+                rollOver();
+            }
         }
 
-        /* In case something external rotated the file instead */
-        if (checkExists) {
-            synchronized (this) {
-                if (currentLogFile != null && !currentLogFile.exists()) {
-                    try {
-                        close();
-                    } catch (Throwable e) {
-                        handleThrowable(e);
-                        log.info("Access Log file Close failed");
-                    }
-
-                    /* Make sure date is correct */
-                    dateStamp = fileDateFormatter.format(
-                            new Date(System.currentTimeMillis()));
+        if (channel != null) {
+            write(message);
+            write(LINE_SEPARATOR);
+        }
+    }
 
-                    open();
-                }
-            }
+    private void write(CharSequence chars) {
+        CharBuffer in = CharBuffer.wrap(chars);
+        while (encoder.encode(in, buffer, true).isOverflow()) {
+            flush();
         }
+        while (encoder.flush(buffer).isOverflow()) {
+            flush();
+        }
+        encoder.reset();
+    }
 
-        // Log this message
-        synchronized (this) {
-            if (writer != null) {
-                writer.println(message);
+    /**
+     * Write out the buffered log lines to the current log file
+     */
+    public void flush() {
+        if (buffer.position() == 0) {
+            return;
+        }
 
-                if (!buffered) {
-                    writer.flush();
+        buffer.flip();
+        try {
+            if (channel != null) {
+                while (buffer.hasRemaining()) {
+                    fileSize += channel.write(buffer);
                 }
             }
+        } catch (IOException e) {
+            log.warn("Error writing to the access log file : " + currentLogFile, e);
+        } finally {
+            buffer.clear();
         }
     }
 
-    protected synchronized void initOpen() {
+    protected void initOpen() {
         /* Make sure date is correct */
-        dateStamp = fileDateFormatter.format(
-                new Date(System.currentTimeMillis()));
+        dateStamp = fileDateFormatter.format(new Date(System.currentTimeMillis()));
         this.open();
     }
 
     /**
      * Open the new log file for the date specified by <code>dateStamp</code>.
      */
-    protected synchronized void open() {
+    protected void open() {
         // Create the directory if necessary
-        File dir = new File(AccessConstants.DIRECTORY);
-        if (!dir.exists()) {
-            if (!dir.mkdirs()) {
+        if (!directory.exists()) {
+            if (!directory.mkdirs()) {
                 log.error("Access Log Open Directory Failed");
             }
         }
 
         // Open the current log file
+        File file = getLogFile(-1);
         try {
-            String pathName;
-            // If no rotate - no need for dateStamp in fileName
-            if (isRotatable) {
-                pathName = dir.getAbsolutePath() + File.separator + AccessConstants.PREFIX +
-                           dateStamp + AccessConstants.SUFFIX;
-            } else {
-                pathName = dir.getAbsolutePath() + File.separator + AccessConstants.PREFIX +
-                           AccessConstants.SUFFIX;
-            }
-
-            writer = new PrintWriter(new BufferedWriter(new FileWriter(
-                    pathName, true), 128000), true);
-
-            currentLogFile = new File(pathName);
+            channel = new FileOutputStream(file, true).getChannel();
+            fileSize = channel.size();
+            currentLogFile = file;
         } catch (IOException e) {
-            log.warn("Unable to open the print writer", e);
-            writer = null;
+            log.warn("Unable to open the access log file : " + file, e);
+            channel = null;
             currentLogFile = null;
         }
     }
 
+    /**
+     * Move the full log file aside and continue logging to a fresh file
+     */
+    private void rollOver() {
+        File file = currentLogFile;
+        String stamp = dateStamp;
+        close();
+        dateStamp = stamp;
+
+        if (file != null) {
+            int index = 1;
+            File rolled = getLogFile(index);
+            while (rolled.exists()) {
+                rolled = getLogFile(++index);
+            }
+            if (!file.renameTo(rolled)) {
+                log.warn("Unable to roll over the access log file : " + file);
+            }
+        }
+        open();
+    }
+
+    private File getLogFile(int index) {
+        StringBuilder name = new StringBuilder(AccessConstants.PREFIX);
+        // If no rotate - no need for dateStamp in fileName
+        if (isRotatable) {
+            name.append(dateStamp);
+        }
+        if (index > 0) {
+            name.append('.').append(index);
+        }
+        name.append(AccessConstants.SUFFIX);
+        return new File(directory.getAbsoluteFile(), name.toString());
+    }
+
     /**
      * Close the currently open log file (if any)
      */
-    synchronized void close() {
-        if (writer == null) {
+    void close() {
+        if (channel == null) {
             return;
         }
-        writer.flush();
-        writer.close();
-        writer = null;
+        flush();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.info("Access Log file Close failed");
+        }
+        channel = null;
         dateStamp = "";
+        fileSize = 0L;
         currentLogFile = null;
     }
 
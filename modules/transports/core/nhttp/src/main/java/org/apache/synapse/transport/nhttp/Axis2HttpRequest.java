@@ -46,6 +46,9 @@ import java.io.OutputStream;
 import java.net.URL;
 import java.nio.channels.ClosedChannelException;
 import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Represents an outgoing Axis2 HTTP/s request. It holds the EPR of the destination, the
@@ -95,6 +98,12 @@ public class Axis2HttpRequest {
      * and the response it fully received
      */
     private volatile boolean completed = false;
+    /**
+     * guards the hand over of the request to the thread streaming it. A lock is used instead of
+     * the monitor of this request, as waiting on a monitor pins a virtual thread to its carrier
+     */
+    private final Lock streamLock = new ReentrantLock();
+    private final Condition streamStateChanged = streamLock.newCondition();
     /**
      * The URL prefix of the endpoint (to be used for Location header re-writing in the response)
      */
@@ -115,7 +124,13 @@ public class Axis2HttpRequest {
     }
 
     public void setReadyToStream(boolean readyToStream) {
-        this.readyToStream = readyToStream;
+        streamLock.lock();
+        try {
+            this.readyToStream = readyToStream;
+            streamStateChanged.signalAll();
+        } finally {
+            streamLock.unlock();
+        }
     }
 
     public void setOutputBuffer(ContentOutputBuffer outputBuffer) {
@@ -287,13 +302,13 @@ public class Axis2HttpRequest {
             }
         }
 
-        synchronized (this) {
+        streamLock.lock();
+        try {
             while (!readyToStream && !completed) {
-                try {
-                    this.wait();
-                } catch (InterruptedException ignore) {
-                }
+                streamStateChanged.awaitUninterruptibly();
             }
+        } finally {
+            streamLock.unlock();
         }
 
         if (!completed) {
@@ -387,9 +402,12 @@ public class Axis2HttpRequest {
     }
 
     public void setCompleted(boolean completed) {
-        synchronized (this) {
+        streamLock.lock();
+        try {
             this.completed = completed;
-            this.notifyAll();
+            streamStateChanged.signalAll();
+        } finally {
+            streamLock.unlock();
         }
     }
 
@@ -32,7 +32,6 @@ import org.apache.axis2.description.WSDL2Constants;
 import org.apache.axis2.engine.MessageReceiver;
 import org.apache.axis2.transport.base.MetricsCollector;
 import org.apache.axis2.transport.base.threads.WorkerPool;
-import org.apache.axis2.transport.base.threads.WorkerPoolFactory;
 import org.apache.axis2.util.MessageContextBuilder;
 import org.apache.axis2.util.JavaUtils;
 import org.apache.axis2.wsdl.WSDLConstants;
@@ -53,6 +52,7 @@ import org.apache.http.nio.entity.ContentInputStream;
 import org.apache.http.protocol.*;
 import org.apache.synapse.transport.nhttp.debug.ClientConnectionDebug;
 import org.apache.synapse.transport.nhttp.util.NhttpMetricsCollector;
+import org.apache.synapse.transport.utils.threads.VirtualThreadWorkerPool;
 import org.apache.synapse.commons.jmx.ThreadingView;
 
 import java.io.IOException;
@@ -132,7 +132,8 @@ public class ClientHandler implements NHttpClientEventHandler {
         this.threadingView = new ThreadingView("HttpClientWorker", true, 50);
 
         this.cfg = NHttpConfiguration.getInstance();
-        workerPool = WorkerPoolFactory.getWorkerPool(
+        workerPool = VirtualThreadWorkerPool.getWorkerPool(
+            cfg.isVirtualThreadWorkerPoolEnabled(),
             cfg.getClientCoreThreads(),
             cfg.getClientMaxThreads(),
             cfg.getClientKeepalive(),
@@ -258,10 +259,7 @@ public class ClientHandler implements NHttpClientEventHandler {
             }
             handleException("HTTP protocol error submitting request : " + e.getMessage(), e, conn);
         } finally {
-            synchronized(axis2Req) {
-                axis2Req.setReadyToStream(true);
-                axis2Req.notifyAll();
-            }
+            axis2Req.setReadyToStream(true);
         }
     }
 
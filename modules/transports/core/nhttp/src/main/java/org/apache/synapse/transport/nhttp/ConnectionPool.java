@@ -24,53 +24,71 @@ import org.apache.http.HttpHost;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.http.protocol.HttpCoreContext;
+import org.apache.synapse.transport.utils.conn.IdleConnectionStack;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.io.IOException;
 
+/**
+ * Keeps the idle keep-alive connections of the NHTTP sender for reuse. The connections to
+ * each host:port are kept on a lock-free LIFO stack, so that the most recently used (and
+ * therefore most likely still open, with a warm TLS session) connection is reused first and
+ * the connections which have been idle for longer than the configured maximum idle time are
+ * closed.
+ */
 public class ConnectionPool {
 
     private static final Log log = LogFactory.getLog(ConnectionPool.class);
 
     /** A map of available connections for reuse. The key selects the host+port of the
-     * connection and the value contains a List of available connections to destination
+     * connection and the value contains the available connections to destination
      */
-    private static Map<String,List<NHttpClientConnection>> connMap =
-            Collections.synchronizedMap(new HashMap<String,List<NHttpClientConnection>>());
+    private static final ConcurrentMap<String,HostPool> connMap =
+            new ConcurrentHashMap<String,HostPool>();
+
+    private static final int maxIdleTime =
+            NHttpConfiguration.getInstance().getConnectionMaxIdleTime();
 
     public static NHttpClientConnection getConnection(String host, int port) {
 
         String key = host + ":" + Integer.toString(port);
-        List<NHttpClientConnection> connections = connMap.get(key);
+        HostPool pool = connMap.get(key);
 
-        if (connections == null || connections.isEmpty()) {
+        if (pool == null || pool.connections.size() == 0) {
             if (log.isDebugEnabled()) {
                 log.debug("No connections available for reuse");
             }
             return null;
 
         } else {
+            if (maxIdleTime > 0) {
+                for (NHttpClientConnection conn : pool.connections.evictIdle(maxIdleTime)) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("closing idle connection to : " + host + ":" + port);
+                    }
+                    pool.evicted.incrementAndGet();
+                    close(conn);
+                }
+            }
+
             NHttpClientConnection conn;
-            synchronized (connections) {
-                while (!connections.isEmpty()) {
-                    conn = connections.remove(0);
-
-                    if (conn.isOpen() && !conn.isStale()) {
-                        if (log.isDebugEnabled()) {
-                            log.debug("A connection to host : " + host + " on port : " +
-                                port + " is available in the pool, and will be reused");
-                        }
-                        conn.requestInput(); // asankha - make sure keep alives work properly when reused with throttling
-                        return conn;
-                    } else {
-                        if (log.isDebugEnabled()) {
-                            log.debug("closing stale connection to : " + host + ":" + port);
-                        }
-                        try {
-                            conn.close();
-                        } catch (IOException ignore) {
-                        }
+            while ((conn = pool.connections.pop()) != null) {
+                if (conn.isOpen() && !conn.isStale()) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("A connection to host : " + host + " on port : " +
+                            port + " is available in the pool, and will be reused");
                     }
+                    pool.reused.incrementAndGet();
+                    conn.requestInput(); // asankha - make sure keep alives work properly when reused with throttling
+                    return conn;
+                } else {
+                    if (log.isDebugEnabled()) {
+                        log.debug("closing stale connection to : " + host + ":" + port);
+                    }
+                    close(conn);
                 }
             }
             return null;
@@ -83,24 +101,55 @@ public class ConnectionPool {
             HttpCoreContext.HTTP_TARGET_HOST);
         String key = host.getHostName() + ":" + Integer.toString(host.getPort());
 
-        List<NHttpClientConnection> connections = connMap.get(key);
-        if (connections == null) {
-            synchronized(connMap) {
-                // use double locking to make sure
-                connections = connMap.get(key);
-                if (connections == null) {
-                    connections = Collections.synchronizedList(new LinkedList<NHttpClientConnection>());
-                    connMap.put(key, connections);
-                }
+        HostPool pool = connMap.get(key);
+        if (pool == null) {
+            pool = new HostPool();
+            HostPool existing = connMap.putIfAbsent(key, pool);
+            if (existing != null) {
+                pool = existing;
             }
         }
 
         cleanConnectionReferences(conn);
-        connections.add(conn);
+        pool.connections.push(conn);
 
         if (log.isDebugEnabled()) {
             log.debug("Released a connection to host: " + host.getHostName() + " on port : " +
-                    host.getPort() + " to the connection pool of current size : " + connections.size());
+                    host.getPort() + " to the connection pool of current size : " +
+                    pool.connections.size());
+        }
+    }
+
+    /**
+     * Return the statistics of the idle connections kept for each host:port pair
+     *
+     * @return a map of statistics keyed by host:port
+     */
+    public static Map<String, Map<String, Number>> getPoolStatistics() {
+        Map<String, Map<String, Number>> statistics =
+                new LinkedHashMap<String, Map<String, Number>>();
+        for (Map.Entry<String, HostPool> entry : connMap.entrySet()) {
+            HostPool pool = entry.getValue();
+            Map<String, Number> poolStats = new LinkedHashMap<String, Number>();
+            poolStats.put("Free", pool.connections.size());
+            poolStats.put("Reused", pool.reused.get());
+            poolStats.put("Evicted", pool.evicted.get());
+            statistics.put(entry.getKey(), poolStats);
+        }
+        return statistics;
+    }
+
+    public static void resetStatistics() {
+        for (HostPool pool : connMap.values()) {
+            pool.reused.set(0);
+            pool.evicted.set(0);
+        }
+    }
+
+    private static void close(NHttpClientConnection conn) {
+        try {
+            conn.close();
+        } catch (IOException ignore) {
         }
     }
 
@@ -130,11 +179,16 @@ public class ConnectionPool {
             HttpCoreContext.HTTP_TARGET_HOST);
         String key = host.getHostName() + ":" + Integer.toString(host.getPort());
 
-        List<NHttpClientConnection> connections = connMap.get(key);
-        if (connections != null) {
-            synchronized(connections) {
-                connections.remove(conn);
-            }
+        HostPool pool = connMap.get(key);
+        if (pool != null) {
+            pool.connections.remove(conn);
         }
     }
+
+    private static class HostPool {
+
+        private final IdleConnectionStack connections = new IdleConnectionStack();
+        private final AtomicLong reused = new AtomicLong(0);
+        private final AtomicLong evicted = new AtomicLong(0);
+    }
 }
@@ -21,7 +21,6 @@ package org.apache.synapse.transport.nhttp;
 
 import org.apache.axis2.context.ConfigurationContext;
 import org.apache.axis2.transport.base.MetricsCollector;
-import org.apache.axis2.transport.base.threads.WorkerPoolFactory;
 import org.apache.axis2.transport.base.threads.WorkerPool;
 import org.apache.axis2.util.JavaUtils;
 import org.apache.http.*;
@@ -49,6 +48,7 @@ import org.apache.synapse.commons.jmx.ThreadingView;
 import org.apache.synapse.transport.nhttp.debug.ServerConnectionDebug;
 import org.apache.synapse.transport.nhttp.util.LatencyView;
 import org.apache.synapse.transport.nhttp.util.NhttpMetricsCollector;
+import org.apache.synapse.transport.utils.threads.VirtualThreadWorkerPool;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -126,7 +126,8 @@ public class ServerHandler implements NHttpServerEventHandler {
 
         this.cfg = NHttpConfiguration.getInstance();
         if (listenerContext.getExecutor() == null)  {
-            this.workerPool = WorkerPoolFactory.getWorkerPool(
+            this.workerPool = VirtualThreadWorkerPool.getWorkerPool(
+                cfg.isVirtualThreadWorkerPoolEnabled(),
                 cfg.getServerCoreThreads(),
                 cfg.getServerMaxThreads(),
                 cfg.getServerKeepalive(),
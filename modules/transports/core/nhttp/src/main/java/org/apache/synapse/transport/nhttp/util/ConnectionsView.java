@@ -20,6 +20,7 @@
 package org.apache.synapse.transport.nhttp.util;
 
 import org.apache.synapse.commons.jmx.MBeanRegistrar;
+import org.apache.synapse.transport.nhttp.ConnectionPool;
 
 import java.util.*;
 import java.util.concurrent.ThreadFactory;
@@ -74,6 +75,9 @@ public class ConnectionsView implements ConnectionsViewMBean {
 
     private String name;
 
+    /** whether this view belongs to a sender, which exposes the connection pool */
+    private boolean sender = false;
+
     public ConnectionsView(final String name) {
         this.name = name;
 
@@ -245,6 +249,9 @@ public class ConnectionsView implements ConnectionsViewMBean {
         initCounters(responseSizeCounters);
         shortTermDataQueue.clear();
         longTermDataQueue.clear();
+        if (sender) {
+            ConnectionPool.resetStatistics();
+        }
         resetTime = Calendar.getInstance().getTime();
     }
 
@@ -310,4 +317,15 @@ public class ConnectionsView implements ConnectionsViewMBean {
         return activeConnectionsPerHost;
     }
 
+    public void setSender(boolean sender) {
+        this.sender = sender;
+    }
+
+    @Override
+    public Map getConnectionPoolsMap() {
+        if (!sender) {
+            return Collections.emptyMap();
+        }
+        return ConnectionPool.getPoolStatistics();
+    }
 }
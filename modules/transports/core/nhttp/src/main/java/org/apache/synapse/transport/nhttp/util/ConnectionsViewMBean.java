@@ -39,6 +39,7 @@ public interface ConnectionsViewMBean {
     public Map getResponseSizesMap();
     public Date getLastResetTime();
     public Map getActiveConnectionsPerHosts();
+    public Map getConnectionPoolsMap();
     public void reset();
     
 }
@@ -44,6 +44,7 @@ public class NhttpMetricsCollector extends MetricsCollector {
         this.listener = listener;
         String name = transportName + "-" + (listener ? "listener" : "sender");
         this.view = new ConnectionsView(name);
+        this.view.setSender(!listener);
     }
 
     public void destroy() {
@@ -25,6 +25,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.http.nio.NHttpClientConnection;
 import org.apache.synapse.transport.passthru.config.TargetConfiguration;
+import org.apache.synapse.transport.passthru.connections.HostConnections;
 import org.apache.synapse.transport.passthru.connections.TargetConnections;
 import org.apache.synapse.transport.passthru.util.TargetRequestFactory;
 
@@ -33,6 +34,7 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -114,6 +116,8 @@ public class DeliveryAgent {
                             ProtocolState.REQUEST_READY);
                 }
 
+                msgContext.setProperty(PassThroughConstants.CONNECTION_REQUEST_TIME,
+                        System.nanoTime());
                 queue.add(msgContext);
             } finally {
                 lock.unlock();
@@ -131,6 +135,27 @@ public class DeliveryAgent {
             }
     }
 
+    /**
+     * Send the message over a new HTTP/2 stream to the destination. Streams are available
+     * right away, so the message never has to wait for a connection.
+     *
+     * @param msgContext the message context to be sent
+     * @param scheme scheme of the epr
+     * @param host host name of epr
+     * @param port port of the of epr
+     * @throws AxisFault if an error occurs
+     */
+    public void submitHttp2(MessageContext msgContext, String scheme, String host, int port)
+            throws AxisFault {
+        msgContext.setProperty(PassThroughConstants.CONNECTION_REQUEST_TIME, System.nanoTime());
+
+        NHttpClientConnection conn = targetConnections.getHttp2Connection(scheme, host, port);
+        if (conn == null) {
+            throw new AxisFault("HTTP/2 is not enabled on the sender for : " + host + ":" + port);
+        }
+        tryNextMessage(msgContext, conn);
+    }
+
     public void errorConnecting(String host, int port, int errorCode, String message) {
         String key = host + ":" + port;
 
@@ -145,11 +170,7 @@ public class DeliveryAgent {
                 }
                 targetErrorHandler.handleError(msgCtx, errorCode, errorMessage,
                         null, ProtocolState.REQUEST_READY);
-                synchronized (msgCtx) {
-                    msgCtx.setProperty(PassThroughConstants.WAIT_BUILDER_IN_STREAM_COMPLETE,
-                                       Boolean.TRUE);
-                    msgCtx.notifyAll();
-                }
+                releaseBuilderOutputStream(msgCtx);
             }
         } else {
             throw new IllegalStateException("Queue cannot be null for: " + key);
@@ -173,7 +194,7 @@ public class DeliveryAgent {
             lock.unlock();
         }
 
-        while (queue.size() > 0) {
+        while (!queue.isEmpty()) {
             if (conn == null) {
                 // Try to get an existing connection from pool. Here we should not ask to create
                 // new connections as it may ended up with extra connections. New connections are
@@ -193,8 +214,35 @@ public class DeliveryAgent {
         }
     }
 
+    /**
+     * Notification for a connection being released to the pool. If messages are waiting for
+     * a connection to the same host:port, the oldest one is sent over the released connection.
+     *
+     * @param host name of the remote host
+     * @param port remote port number
+     */
+    public void connectionReleased(String host, int port) {
+        Queue<MessageContext> queue = waitingMessages.get(host + ":" + port);
+        if (queue != null && !queue.isEmpty()) {
+            connected(host, port, null);
+        }
+    }
+
+    /**
+     * Return the number of messages waiting for a connection to the given host:port
+     *
+     * @param host name of the remote host
+     * @param port remote port number
+     * @return number of waiting messages
+     */
+    public int getWaitingMessageCount(String host, int port) {
+        Queue<MessageContext> queue = waitingMessages.get(host + ":" + port);
+        return queue != null ? queue.size() : 0;
+    }
+
     private void tryNextMessage(MessageContext messageContext, NHttpClientConnection conn) {
         if (conn != null) {
+            notifyLease(messageContext, conn);
             try {
                 TargetContext.get(conn).setRequestMsgCtx(messageContext);
 
@@ -205,6 +253,16 @@ public class DeliveryAgent {
         }
     }
 
+    private void notifyLease(MessageContext messageContext, NHttpClientConnection conn) {
+        Object requestTime = messageContext.getProperty(
+                PassThroughConstants.CONNECTION_REQUEST_TIME);
+        HostConnections pool = (HostConnections) conn.getContext().getAttribute(
+                PassThroughConstants.CONNECTION_POOL);
+        if (requestTime instanceof Long && pool != null) {
+            pool.notifyLease(System.nanoTime() - (Long) requestTime);
+        }
+    }
+
     private void submitRequest(NHttpClientConnection conn, MessageContext msgContext) throws AxisFault {
         if (log.isDebugEnabled()) {
             log.debug("Submitting new request to the connection: " + conn);
@@ -219,17 +277,27 @@ public class DeliveryAgent {
             request.connect(pipe);
             if (Boolean.TRUE.equals(msgContext.getProperty(
                     PassThroughConstants.MESSAGE_BUILDER_INVOKED))) {
-                synchronized (msgContext) {
-                    OutputStream out = pipe.getOutputStream();
-                    msgContext.setProperty(PassThroughConstants.BUILDER_OUTPUT_STREAM, out);
-                    msgContext.setProperty(PassThroughConstants.WAIT_BUILDER_IN_STREAM_COMPLETE, Boolean.TRUE);
-                    msgContext.notifyAll();
-                }
+                OutputStream out = pipe.getOutputStream();
+                msgContext.setProperty(PassThroughConstants.BUILDER_OUTPUT_STREAM, out);
+                releaseBuilderOutputStream(msgContext);
                 return;
             }
         }
 
         conn.requestOutput();
-    }    
+    }
 
+    /**
+     * Release the sender thread waiting to serialize a built message into the target pipe
+     *
+     * @param msgContext the outgoing message context
+     */
+    private void releaseBuilderOutputStream(MessageContext msgContext) {
+        msgContext.setProperty(PassThroughConstants.WAIT_BUILDER_IN_STREAM_COMPLETE, Boolean.TRUE);
+        CountDownLatch latch = (CountDownLatch) msgContext.getProperty(
+                PassThroughConstants.BUILDER_OUTPUT_STREAM_LATCH);
+        if (latch != null) {
+            latch.countDown();
+        }
+    }
 }
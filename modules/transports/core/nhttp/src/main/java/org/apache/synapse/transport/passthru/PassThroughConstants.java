@@ -23,6 +23,7 @@ public class PassThroughConstants {
 
     public static final String REQUEST_MESSAGE_CONTEXT = "REQUEST_MESSAGE_CONTEXT";
     public static final String CONNECTION_POOL = "CONNECTION_POOL";
+    public static final String CONNECTION_REQUEST_TIME = "PASS_THROUGH_CONNECTION_REQUEST_TIME";
 
     public static final String TRUE = "TRUE";
 
@@ -31,6 +32,7 @@ public class PassThroughConstants {
     public static final String SC_ACCEPTED = "SC_ACCEPTED";
     public static final String HTTP_SC = "HTTP_SC";
     public static final String FORCE_HTTP_1_0 = "FORCE_HTTP_1.0";
+    public static final String FORCE_HTTP_2 = "FORCE_HTTP_2";
     public static final String DISABLE_CHUNKING = "DISABLE_CHUNKING";
     public static final String FULL_URI = "FULL_URI";
     public static final String NO_KEEPALIVE = "NO_KEEPALIVE";
@@ -44,6 +46,9 @@ public class PassThroughConstants {
     public static final String WSDL_EPR_PREFIX = "WSDLEPRPrefix";
     public static final String BIND_ADDRESS = "bind-address" ;
 
+    /** Port of the HTTP/2 listener, which accepts h2 (https) or h2c (http) connections */
+    public static final String HTTP2_PORT = "http2Port";
+
     public static final String EPR_TO_SERVICE_NAME_MAP = "service.epr.map";
     public static final String NON_BLOCKING_TRANSPORT = "NonBlockingTransport";
     public static final String SERIALIZED_BYTES = "SerializedBytes";
@@ -129,6 +134,8 @@ public class PassThroughConstants {
 	public static final String WAIT_BUILDER_IN_STREAM_COMPLETE="WAIT_BUILDER_IN_STREAM_COMPLETE"; 
  	
 	public static final String BUILDER_OUTPUT_STREAM="BUILDER_OUTPUT_STREAM";
+
+	public static final String BUILDER_OUTPUT_STREAM_LATCH="BUILDER_OUTPUT_STREAM_LATCH";
 	
 	public static final String PASSTHRU_CONNECT_ERROR="PASSTHRU_CONNECT_ERROR";
 
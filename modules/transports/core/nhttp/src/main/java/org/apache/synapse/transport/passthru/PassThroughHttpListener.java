@@ -47,6 +47,7 @@ import org.apache.http.nio.reactor.ListenerEndpoint;
 import org.apache.http.nio.reactor.ssl.SSLSetupHandler;
 import org.apache.synapse.commons.jmx.MBeanRegistrar;
 import org.apache.synapse.transport.passthru.config.SourceConfiguration;
+import org.apache.synapse.transport.passthru.http2.Http2SourceListener;
 import org.apache.synapse.transport.passthru.jmx.PassThroughTransportMetricsCollector;
 import org.apache.synapse.transport.passthru.jmx.TransportView;
 import org.apache.synapse.transport.utils.conn.logging.LoggingUtils;
@@ -71,6 +72,9 @@ public class PassThroughHttpListener implements TransportListener {
     /** The reactor being used */
     private DefaultListeningIOReactor ioReactor;
 
+    /** The HTTP/2 listener, if the http2Port parameter is set */
+    private Http2SourceListener http2Listener;
+
     /** The configuration of the listener */
     private SourceConfiguration sourceConfiguration = null;
 
@@ -108,6 +112,15 @@ public class PassThroughHttpListener implements TransportListener {
         portParam.setValue(String.valueOf(port));
         portParam.getParameterElement().setText(String.valueOf(port));
 
+        Parameter http2PortParam = transportInDescription.getParameter(
+                PassThroughConstants.HTTP2_PORT);
+        if (http2PortParam != null) {
+            int http2Port = Integer.parseInt(http2PortParam.getValue().toString().trim());
+            if (http2Port > 0) {
+                http2PortParam.setValue(String.valueOf(http2Port + portOffset));
+            }
+        }
+
         Object obj = cfgCtx.getProperty(PassThroughConstants.PASS_THROUGH_TRANSPORT_WORKER_POOL);
         WorkerPool workerPool = null;
         if (obj != null) {
@@ -187,6 +200,10 @@ public class PassThroughHttpListener implements TransportListener {
         } else {
             endpoint = ioReactor.listen(new InetSocketAddress(sourceConfiguration.getPort()));
         }
+        if (sourceConfiguration.getHttp2Port() > 0) {
+            startHttp2Listener(handler);
+        }
+
         HttpGetRequestProcessor getProcessor = sourceConfiguration.getHttpGetRequestProcessor();
         if (getProcessor != null){
            getProcessor.init(sourceConfiguration.getConfigurationContext(), handler);
@@ -217,6 +234,33 @@ public class PassThroughHttpListener implements TransportListener {
                 sourceConfiguration.getPort());
     }
 
+    private void startHttp2Listener(SourceHandler handler) throws AxisFault {
+        InetSocketAddress address;
+        if (sourceConfiguration.getBindAddress() != null) {
+            try {
+                address = new InetSocketAddress(
+                        InetAddress.getByName(sourceConfiguration.getBindAddress()),
+                        sourceConfiguration.getHttp2Port());
+            } catch (UnknownHostException e) {
+                handleException("Failed to resolve the bind address: " +
+                        sourceConfiguration.getBindAddress(), e);
+                return;
+            }
+        } else {
+            address = new InetSocketAddress(sourceConfiguration.getHttp2Port());
+        }
+
+        http2Listener = new Http2SourceListener(handler, sourceConfiguration, address, sslContext,
+                sslSetupHandler);
+        try {
+            http2Listener.start();
+        } catch (IOException e) {
+            http2Listener.stop();
+            http2Listener = null;
+            handleException("Error starting the " + namePrefix + " HTTP/2 listener", e);
+        }
+    }
+
     private void handleException(String s, Exception e) throws AxisFault {
         log.error(s, e);
         throw new AxisFault(s, e);
@@ -264,6 +308,10 @@ public class PassThroughHttpListener implements TransportListener {
     @Override
     public void stop() throws AxisFault {
         log.info("Stopping pass-through " + namePrefix + " listener..");
+        if (http2Listener != null) {
+            http2Listener.stop();
+            http2Listener = null;
+        }
         try {
             ioReactor.shutdown();
         } catch (IOException e) {
@@ -295,6 +343,9 @@ public class PassThroughHttpListener implements TransportListener {
         if (state != BaseConstants.STARTED) return;
         try {
             ioReactor.pause();
+            if (http2Listener != null) {
+                http2Listener.pause();
+            }
 
             state = BaseConstants.PAUSED;
             log.info(namePrefix + " Listener Paused");
@@ -312,6 +363,9 @@ public class PassThroughHttpListener implements TransportListener {
         if (state != BaseConstants.PAUSED) return;
         try {
             ioReactor.resume();
+            if (http2Listener != null) {
+                http2Listener.resume();
+            }
             state = BaseConstants.STARTED;
             log.info((sslContext == null ? "HTTP" : "HTTPS") + "Listener Resumed");
         } catch (IOException e) {
@@ -331,7 +385,14 @@ public class PassThroughHttpListener implements TransportListener {
         try {
             long start = System.currentTimeMillis();
             ioReactor.pause();
+            if (http2Listener != null) {
+                http2Listener.pause();
+            }
             ioReactor.shutdown(milliSecs);
+            if (http2Listener != null) {
+                http2Listener.stop();
+                http2Listener = null;
+            }
             state = BaseConstants.STOPPED;
             log.info("Listener shutdown in : " + (System.currentTimeMillis() - start) / 1000 + "s");
         } catch (IOException e) {
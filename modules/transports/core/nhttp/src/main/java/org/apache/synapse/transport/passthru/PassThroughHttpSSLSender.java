@@ -327,7 +327,8 @@ public class PassThroughHttpSSLSender extends PassThroughHttpSender {
                     //Do revocation verification of Certificates
                     try {
                         ocspCrl.verifyRevocationStatus(session.getPeerCertificateChain(),
-                                cvConfig.getCacheSize(), cvConfig.getCacheDuration());
+                                cvConfig.getCacheSize(), cvConfig.getCacheDuration(),
+                                cvConfig.getCacheDirectory());
                     } catch (CertificateVerificationException e) {
                         throw new SSLException("Certificate chain validation failed for host : " +
                                 address, e);
@@ -59,6 +59,7 @@ import org.apache.synapse.transport.nhttp.util.NhttpUtil;
 import org.apache.synapse.transport.passthru.config.SourceConfiguration;
 import org.apache.synapse.transport.passthru.config.TargetConfiguration;
 import org.apache.synapse.transport.passthru.connections.TargetConnections;
+import org.apache.synapse.transport.passthru.http2.Http2TargetConnector;
 import org.apache.synapse.transport.passthru.jmx.PassThroughTransportMetricsCollector;
 import org.apache.synapse.transport.passthru.jmx.TransportView;
 import org.apache.synapse.transport.passthru.util.PassThroughTransportUtils;
@@ -73,6 +74,7 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 /**
  * PassThroughHttpSender for Synapse based on HttpCore and NIO extensions
@@ -90,6 +92,18 @@ public class PassThroughHttpSender extends AbstractHandler implements TransportS
     /** The configuration of the sender */
     private TargetConfiguration targetConfiguration;
 
+    /** Handler of the sender, which also drives the HTTP/2 streams */
+    private TargetHandler targetHandler;
+
+    /** SSL context of the sender, null for a plain http sender */
+    private SSLContext sslContext;
+
+    /** Verifies the TLS sessions of the sender, e.g. the host name of the target */
+    private SSLSetupHandler sslSetupHandler;
+
+    /** Connector for endpoints reached over HTTP/2, created when first needed */
+    private volatile Http2TargetConnector http2Connector;
+
     /** state of the sender */
     private volatile int state = BaseConstants.STOPPED;
 
@@ -119,8 +133,8 @@ public class PassThroughHttpSender extends AbstractHandler implements TransportS
         }
 
         // is this an SSL Sender?
-        SSLContext sslContext = getSSLContext(transportOutDescription);
-        SSLSetupHandler sslSetupHandler = getSSLSetupHandler(transportOutDescription);
+        sslContext = getSSLContext(transportOutDescription);
+        sslSetupHandler = getSSLSetupHandler(transportOutDescription);
 
         // configure proxy settings
         if (sslContext == null) {
@@ -210,11 +224,13 @@ public class PassThroughHttpSender extends AbstractHandler implements TransportS
         // create the delivery agent to hand over messages
         deliveryAgent = new DeliveryAgent(targetConfiguration, targetConnections);
         // we need to set the delivery agent
-        connectCallback.setDeliveryAgent(deliveryAgent);        
+        connectCallback.setDeliveryAgent(deliveryAgent);
+        targetConnections.setDeliveryAgent(deliveryAgent);
+        targetConfiguration.getMetrics().setTargetConnections(targetConnections);
 
-        TargetHandler handler = new TargetHandler(deliveryAgent, targetConfiguration);
+        targetHandler = new TargetHandler(deliveryAgent, targetConfiguration);
         final IOEventDispatch ioEventDispatch =
-                getEventDispatch(handler, sslContext, sslSetupHandler,
+                getEventDispatch(targetHandler, sslContext, sslSetupHandler,
                         targetConfiguration.getConnectionConfig(), transportOutDescription);
 
         // start the sender in a separate thread
@@ -249,6 +265,9 @@ public class PassThroughHttpSender extends AbstractHandler implements TransportS
         } catch (IOException e) {
             log.error("Error shutting down the PassThroughHttpSender", e);
         }
+        if (http2Connector != null) {
+            http2Connector.stop();
+        }
     }
 
     @Override
@@ -285,11 +304,13 @@ public class PassThroughHttpSender extends AbstractHandler implements TransportS
                         }
                     }
 
+                    boolean viaProxy = false;
                     if (proxyHost != null) {
                         if (knownProxyHosts.contains(host)) {
                             // this has already been found to be a proxy host
                             host = proxyHost;
                             port = proxyPort;
+                            viaProxy = true;
                         } else if (knownDirectHosts.contains(host)) {
                             // do nothing, let this request go directly bypassing proxy
                         } else {
@@ -297,11 +318,23 @@ public class PassThroughHttpSender extends AbstractHandler implements TransportS
                             if (!isBypass(host)) {
                                 host = proxyHost;
                                 port = proxyPort;
+                                viaProxy = true;
                             }
                         }
                     }
 
-                    deliveryAgent.submit(msgContext, host, port);
+                    if (Boolean.TRUE.equals(msgContext.getProperty(
+                            PassThroughConstants.MESSAGE_BUILDER_INVOKED))) {
+                        msgContext.setProperty(PassThroughConstants.BUILDER_OUTPUT_STREAM_LATCH,
+                                new CountDownLatch(1));
+                    }
+                    // HTTP/2 is only spoken directly to the endpoint, never through a proxy
+                    if (!viaProxy && msgContext.isPropertyTrue(PassThroughConstants.FORCE_HTTP_2)
+                            && getHttp2Connector().supports(url.getProtocol())) {
+                        deliveryAgent.submitHttp2(msgContext, url.getProtocol(), host, port);
+                    } else {
+                        deliveryAgent.submit(msgContext, host, port);
+                    }
                     sendRequestContent(msgContext);
                 } catch (MalformedURLException e) {
                     handleException("Malformed URL in the target EPR", e);
@@ -364,6 +397,31 @@ public class PassThroughHttpSender extends AbstractHandler implements TransportS
         }
     }
 
+    /**
+     * Wait until the delivery agent has attached the message to a target connection. A latch is
+     * used instead of waiting on the message context monitor, so that a mediation thread running
+     * on a virtual thread does not pin its carrier thread while the connection is established.
+     *
+     * @param msgContext the outgoing message context
+     */
+    private void awaitBuilderOutputStream(MessageContext msgContext) {
+        CountDownLatch latch = (CountDownLatch) msgContext.getProperty(
+                PassThroughConstants.BUILDER_OUTPUT_STREAM_LATCH);
+        if (latch == null) {
+            return;
+        }
+
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                log.warn("Interrupted while waiting for message serialization to complete", e);
+            }
+        }
+        msgContext.removeProperty(PassThroughConstants.BUILDER_OUTPUT_STREAM_LATCH);
+    }
+
 	private void sendRequestContent(final MessageContext msgContext) throws AxisFault {
         // NOTE:this a special case where, when the backend service expects content-length but,
         // we don't want the message to be built. If FORCE_HTTP_CONTENT_LENGTH and
@@ -380,16 +438,7 @@ public class PassThroughHttpSender extends AbstractHandler implements TransportS
         }
 
 		if (Boolean.TRUE.equals(msgContext.getProperty(PassThroughConstants.MESSAGE_BUILDER_INVOKED))) {
-			synchronized (msgContext) {
-				while (!Boolean.TRUE.equals(msgContext.getProperty(PassThroughConstants.WAIT_BUILDER_IN_STREAM_COMPLETE)) &&
-	 				       !Boolean.TRUE.equals(msgContext.getProperty(PassThroughConstants.PASSTHRU_CONNECT_ERROR))) {
-					try {
-						msgContext.wait();
-					} catch (InterruptedException e) {
-						log.warn("Interrupted while waiting for message serialization to complete", e);
-					}
-				}
-			}
+			awaitBuilderOutputStream(msgContext);
 
 			if (Boolean.TRUE.equals(msgContext.getProperty(PassThroughConstants.PASSTHRU_CONNECT_ERROR))) {
 				return;
@@ -615,6 +664,29 @@ public class PassThroughHttpSender extends AbstractHandler implements TransportS
         }
     }
 
+    /**
+     * Return the connector for endpoints reached over HTTP/2. The connector runs its own
+     * I/O threads, so it is only created when the first message is sent over HTTP/2.
+     *
+     * @return the HTTP/2 connector of the sender
+     */
+    private Http2TargetConnector getHttp2Connector() {
+        Http2TargetConnector connector = http2Connector;
+        if (connector == null) {
+            synchronized (this) {
+                connector = http2Connector;
+                if (connector == null) {
+                    connector = new Http2TargetConnector(targetHandler, targetConfiguration,
+                            sslContext, sslSetupHandler);
+                    connector.start();
+                    targetConfiguration.getConnections().setHttp2Connector(connector);
+                    http2Connector = connector;
+                }
+            }
+        }
+        return connector;
+    }
+
     /**
      * Write the stream to a temporary storage and return a handle to the temporary storage
      *
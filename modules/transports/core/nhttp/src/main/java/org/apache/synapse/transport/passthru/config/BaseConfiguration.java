@@ -22,13 +22,14 @@ package org.apache.synapse.transport.passthru.config;
 import org.apache.axis2.context.ConfigurationContext;
 import org.apache.axis2.description.ParameterInclude;
 import org.apache.axis2.transport.base.threads.WorkerPool;
-import org.apache.axis2.transport.base.threads.WorkerPoolFactory;
+import org.apache.hc.core5.http2.config.H2Config;
 import org.apache.http.config.ConnectionConfig;
 import org.apache.http.impl.nio.reactor.IOReactorConfig;
 import org.apache.http.nio.util.HeapByteBufferAllocator;
 import org.apache.http.protocol.HttpProcessor;
 import org.apache.synapse.transport.passthru.jmx.PassThroughTransportMetricsCollector;
 import org.apache.synapse.transport.passthru.util.BufferFactory;
+import org.apache.synapse.transport.utils.threads.VirtualThreadWorkerPool;
 
 /**
  * This class has common configurations for both sender and receiver.
@@ -60,7 +61,8 @@ public abstract class BaseConfiguration {
         this.parameters = parameters;
         this.configurationContext = configurationContext;
         if (workerPool == null) {
-            this.workerPool = WorkerPoolFactory.getWorkerPool(
+            this.workerPool = VirtualThreadWorkerPool.getWorkerPool(
+                    conf.isVirtualThreadWorkerPoolEnabled(),
                     conf.getWorkerPoolCoreSize(),
                     conf.getWorkerPoolMaxSize(),
                     conf.getWorkerThreadKeepaliveSec(),
@@ -90,6 +92,20 @@ public abstract class BaseConfiguration {
         return conf.getConnectionConfig();
     }
 
+    /**
+     * Get the settings announced to the peer on HTTP/2 connections. Server push is never
+     * enabled, since there is no way to relay a pushed response through mediation.
+     *
+     * @return the HTTP/2 connection settings
+     */
+    public H2Config getHttp2Config() {
+        return H2Config.custom()
+                .setPushEnabled(false)
+                .setMaxConcurrentStreams(conf.getHttp2MaxConcurrentStreams())
+                .setInitialWindowSize(conf.getHttp2InitialWindowSize())
+                .build();
+    }
+
     public WorkerPool getWorkerPool() {
         return workerPool;
     }
@@ -54,6 +54,9 @@ public class SourceConfiguration extends BaseConfiguration {
 
     private String bindAddress = null;
 
+    /** port of the HTTP/2 listener, -1 if HTTP/2 is not enabled */
+    private int http2Port = -1;
+
     /** Object to manage the source connections */
     private SourceConnections sourceConnections = null;
 
@@ -84,6 +87,9 @@ public class SourceConfiguration extends BaseConfiguration {
         this.sourceConnections = new SourceConnections();
         this.port = ParamUtils.getRequiredParamInt(parameters, "port");
 
+        this.http2Port = ParamUtils.getOptionalParamInt(parameters,
+                PassThroughConstants.HTTP2_PORT, -1);
+
         Parameter bindAddressParameter = parameters.getParameter(PassThroughConstants.BIND_ADDRESS);
         if (bindAddressParameter != null) {
             this.bindAddress = ((String) bindAddressParameter.getValue()).trim();
@@ -140,6 +146,10 @@ public class SourceConfiguration extends BaseConfiguration {
         return port;
     }
 
+    public int getHttp2Port() {
+        return http2Port;
+    }
+
     public String getBindAddress() {
         return bindAddress;
     }
@@ -36,6 +36,9 @@ public class TargetConfiguration extends BaseConfiguration {
 
     private int maxConnections = Integer.MAX_VALUE;
 
+    /** Time in milliseconds a free connection may stay in the pool, 0 for no limit */
+    private int connectionMaxIdleTime = 0;
+
     /** Whether User-Agent header coming from client should be preserved */
     private boolean preserveUserAgentHeader = false;
 
@@ -54,6 +57,7 @@ public class TargetConfiguration extends BaseConfiguration {
         maxConnections = conf.getIntProperty(
                 PassThroughConfigPNames.MAX_CONNECTION_PER_TARGET,
                 Integer.MAX_VALUE);
+        connectionMaxIdleTime = conf.getConnectionMaxIdleTime();
         preserveUserAgentHeader = conf.getBooleanProperty(
                 PassThroughConfigPNames.USER_AGENT_HEADER_PRESERVE, false);
         preserveServerHeader = conf.getBooleanProperty(
@@ -78,6 +82,10 @@ public class TargetConfiguration extends BaseConfiguration {
         return maxConnections;
     }
 
+    public int getConnectionMaxIdleTime() {
+        return connectionMaxIdleTime;
+    }
+
     /**
      * Check preserving status of the given http header name
      *
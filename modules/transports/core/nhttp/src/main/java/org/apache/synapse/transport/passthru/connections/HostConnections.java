@@ -24,14 +24,21 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.http.protocol.HttpContext;
 import org.apache.http.protocol.HttpCoreContext;
+import org.apache.synapse.transport.utils.conn.IdleConnectionStack;
 
+import java.util.Collections;
 import java.util.List;
-import java.util.ArrayList;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * This stores connections for a particular host + port.
+ * This stores connections for a particular host + port. Free connections are kept on a
+ * lock-free LIFO stack, so the most recently used connection is reused first, and busy
+ * connections in a concurrent set, so that acquiring and releasing a connection are O(1)
+ * and never block. The number of connections which are in use or being established is
+ * bounded by the maximum number of connections allowed per host.
  */
 public class HostConnections {
 
@@ -43,13 +50,17 @@ public class HostConnections {
     // maximum number of connections allowed for this host + port
     private int maxSize;
     // number of awaiting connections
-    private int pendingConnections;
-    // list of free connections available
-    private List<NHttpClientConnection> freeConnections = new ArrayList<NHttpClientConnection>();
-    // list of connections in use
-    private List<NHttpClientConnection> busyConnections = new ArrayList<NHttpClientConnection>();
-
-    private Lock lock = new ReentrantLock();
+    private final AtomicInteger pendingConnections = new AtomicInteger(0);
+    // free connections available, most recently used on top
+    private final IdleConnectionStack freeConnections = new IdleConnectionStack();
+    // connections in use
+    private final Set<NHttpClientConnection> busyConnections = Collections.newSetFromMap(
+            new ConcurrentHashMap<NHttpClientConnection, Boolean>());
+
+    private final AtomicLong leaseCount = new AtomicLong(0);
+    private final AtomicLong totalLeaseWaitTime = new AtomicLong(0);
+    private final AtomicLong maxLeaseWaitTime = new AtomicLong(0);
+    private final AtomicLong evictedCount = new AtomicLong(0);
 
     public HostConnections(String host, int port, int maxSize) {
         if (log.isDebugEnabled()) {
@@ -66,19 +77,15 @@ public class HostConnections {
      * @return a connection
      */
     public NHttpClientConnection getConnection() {
-        lock.lock();
-        try {
-            if (freeConnections.size() > 0) {
+        NHttpClientConnection conn;
+        while ((conn = freeConnections.pop()) != null) {
+            if (conn.isOpen()) {
                 if (log.isDebugEnabled()) {
                     log.debug("Returning an existing free connection to " + host + ":" + port);
                 }
-                NHttpClientConnection conn = freeConnections.get(0);
-                freeConnections.remove(conn);
                 busyConnections.add(conn);
                 return conn;
             }
-        } finally {
-            lock.unlock();
         }
         return null;
     }
@@ -89,26 +96,16 @@ public class HostConnections {
         ctx.removeAttribute(HttpCoreContext.HTTP_REQUEST);
         ctx.removeAttribute(HttpCoreContext.HTTP_RESPONSE);
 
-        lock.lock();
-        try {
-            if (busyConnections.remove(conn)) {
-                freeConnections.add(conn);
-            } else {
-                log.error("Attempted to releaseConnection connection not in the busy list");
-            }
-        } finally {
-            lock.unlock();
+        if (busyConnections.remove(conn)) {
+            freeConnections.push(conn);
+        } else {
+            log.error("Attempted to releaseConnection connection not in the busy list");
         }
     }
 
     public void forget(NHttpClientConnection conn) {
-        lock.lock();
-        try {
-            if (!freeConnections.remove(conn)) {
-                busyConnections.remove(conn);
-            }
-        } finally {
-            lock.unlock();
+        if (!freeConnections.remove(conn)) {
+            busyConnections.remove(conn);
         }
     }
 
@@ -116,13 +113,28 @@ public class HostConnections {
         if (log.isDebugEnabled()) {
             log.debug("New connection to " + host + ":" + port + " is added to the free list");
         }
-        lock.lock();
-        try {
-            // Adding to busyConnections to make sure the first requester get it.
-            // Otherwise someone else might acquire it.
-            busyConnections.add(conn);
-        } finally {
-            lock.unlock();
+        // Adding to busyConnections to make sure the first requester get it.
+        // Otherwise someone else might acquire it.
+        busyConnections.add(conn);
+    }
+
+    /**
+     * Reserve a slot for a new connection to this host:port, if the maximum number of
+     * connections has not been reached yet. A successful reservation must be followed by
+     * a call to either {@link #pendingConnectionSucceeded()} or
+     * {@link #pendingConnectionFailed()}.
+     *
+     * @return true if a new connection may be created
+     */
+    public boolean reserveConnection() {
+        while (true) {
+            int pending = pendingConnections.get();
+            if (busyConnections.size() + pending >= maxSize) {
+                return false;
+            }
+            if (pendingConnections.compareAndSet(pending, pending + 1)) {
+                return true;
+            }
         }
     }
 
@@ -130,13 +142,8 @@ public class HostConnections {
      * Indicates that a connection has been successfully established with a remote server
      * as notified by the session request call back.
      */
-    public synchronized void pendingConnectionSucceeded() {
-        lock.lock();
-        try {
-            pendingConnections--;
-        } finally {
-            lock.unlock();
-        }
+    public void pendingConnectionSucceeded() {
+        pendingConnections.decrementAndGet();
     }
 
     /**
@@ -144,13 +151,41 @@ public class HostConnections {
      * consecutively
      */
     public void pendingConnectionFailed() {
-        lock.lock();
-        try {
-            pendingConnections--;
-        } finally {
-            lock.unlock();
+        pendingConnections.decrementAndGet();
+    }
+
+    /**
+     * Remove the free connections which have been idle for longer than the given time.
+     * The caller is responsible for closing the returned connections.
+     *
+     * @param maxIdleTime maximum idle time in milliseconds
+     * @return the evicted connections
+     */
+    public List<NHttpClientConnection> evictIdleConnections(long maxIdleTime) {
+        List<NHttpClientConnection> evicted = freeConnections.evictIdle(maxIdleTime);
+        if (!evicted.isEmpty()) {
+            evictedCount.addAndGet(evicted.size());
+            if (log.isDebugEnabled()) {
+                log.debug("Evicting " + evicted.size() + " idle connections to " +
+                        host + ":" + port);
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Record the time a message had to wait for a connection to this host:port
+     *
+     * @param waitTime wait time in nanoseconds
+     */
+    public void notifyLease(long waitTime) {
+        leaseCount.incrementAndGet();
+        totalLeaseWaitTime.addAndGet(waitTime);
+        long max = maxLeaseWaitTime.get();
+        while (waitTime > max && !maxLeaseWaitTime.compareAndSet(max, waitTime)) {
+            max = maxLeaseWaitTime.get();
         }
-    }    
+    }
 
     public String getHost() {
         return host;
@@ -161,6 +196,53 @@ public class HostConnections {
     }
 
     public boolean canHaveMoreConnections() {
-        return busyConnections.size() + pendingConnections < maxSize;
+        return busyConnections.size() + pendingConnections.get() < maxSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getFreeCount() {
+        return freeConnections.size();
+    }
+
+    public int getBusyCount() {
+        return busyConnections.size();
+    }
+
+    public int getPendingCount() {
+        return pendingConnections.get();
+    }
+
+    public long getLeaseCount() {
+        return leaseCount.get();
+    }
+
+    /**
+     * @return average time in milliseconds a message waited for a connection
+     */
+    public double getAverageLeaseWaitTime() {
+        long count = leaseCount.get();
+        return count == 0 ? 0 : toMillis(totalLeaseWaitTime.get()) / count;
+    }
+
+    public double getMaxLeaseWaitTime() {
+        return toMillis(maxLeaseWaitTime.get());
+    }
+
+    public long getEvictedCount() {
+        return evictedCount.get();
+    }
+
+    public void resetStatistics() {
+        leaseCount.set(0);
+        totalLeaseWaitTime.set(0);
+        maxLeaseWaitTime.set(0);
+        evictedCount.set(0);
+    }
+
+    private double toMillis(long nanos) {
+        return nanos / 1000000.0;
     }
 }
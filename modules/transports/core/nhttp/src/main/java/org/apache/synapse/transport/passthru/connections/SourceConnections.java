@@ -22,6 +22,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.http.nio.NHttpServerConnection;
 import org.apache.synapse.transport.passthru.SourceContext;
+import org.apache.synapse.transport.passthru.http2.Http2ServerStream;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -101,7 +102,15 @@ public class SourceConnections {
             SourceContext.get(conn).reset();
 
             if (busyConnections.remove(conn)) {
-                freeConnections.add(conn);
+                if (conn instanceof Http2ServerStream) {
+                    // an HTTP/2 stream carries a single request, it is never reused
+                    try {
+                        conn.close();
+                    } catch (IOException ignored) {
+                    }
+                } else {
+                    freeConnections.add(conn);
+                }
             } else {
                 throw new IllegalStateException("Trying to finish using a connection " +
                         "which is not in busy connections " + conn);
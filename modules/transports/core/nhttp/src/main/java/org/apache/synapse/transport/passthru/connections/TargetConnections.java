@@ -24,13 +24,18 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.http.nio.NHttpClientConnection;
 import org.apache.http.nio.reactor.ConnectingIOReactor;
 import org.apache.synapse.transport.passthru.ConnectCallback;
+import org.apache.synapse.transport.passthru.DeliveryAgent;
 import org.apache.synapse.transport.passthru.PassThroughConstants;
 import org.apache.synapse.transport.passthru.TargetContext;
 import org.apache.synapse.transport.passthru.config.TargetConfiguration;
+import org.apache.synapse.transport.passthru.http2.Http2ClientStream;
+import org.apache.synapse.transport.passthru.http2.Http2TargetConnector;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.net.InetSocketAddress;
 
 /**
@@ -42,19 +47,28 @@ public class TargetConnections {
     private static final Log log = LogFactory.getLog(TargetConnections.class);
 
     /** map to hold the ConnectionPools. The key is host:port */
-    private final Map<String, HostConnections> poolMap =
+    private final ConcurrentMap<String, HostConnections> poolMap =
             new ConcurrentHashMap<String, HostConnections>();
 
     /** max connections per host:port pair. At the moment all the host:ports can
      * have the same max */
     private int maxConnections;
 
+    /** time in milliseconds a free connection may stay idle, 0 to keep it until it times out */
+    private int maxIdleTime;
+
     /** io-reactor to use for creating connections */
     private ConnectingIOReactor ioReactor;
 
     /** callback invoked when a connection is made */
     private ConnectCallback callback = null;
 
+    /** delivery agent notified when a connection is released to the pool */
+    private DeliveryAgent deliveryAgent = null;
+
+    /** connector for targets reached over HTTP/2, null if HTTP/2 is not in use */
+    private Http2TargetConnector http2Connector = null;
+
     /**
      * Create a TargetConnections with the given IO-Reactor
      *
@@ -67,6 +81,7 @@ public class TargetConnections {
                              ConnectCallback callback) {
 
         this.maxConnections = targetConfiguration.getMaxConnections();
+        this.maxIdleTime = targetConfiguration.getConnectionMaxIdleTime();
         this.ioReactor = ioReactor;
         this.callback = callback;
     }
@@ -88,11 +103,12 @@ public class TargetConnections {
         }
 
         HostConnections pool = getConnectionPool(host, port);
+        evictIdleConnections(pool);
 
         // trying to get an existing connection
         NHttpClientConnection connection = pool.getConnection();
         if (connection == null) {
-            if (pool.canHaveMoreConnections()) {
+            if (pool.reserveConnection()) {
                 ioReactor.connect(new InetSocketAddress(host, port), null, pool, callback);
             } else {
                 log.warn("Connection pool reached maximum allowed connections for: "
@@ -103,6 +119,26 @@ public class TargetConnections {
         return connection;
     }
 
+    /**
+     * Return a new HTTP/2 stream to the host:port pair. Streams are multiplexed over a
+     * shared connection to the host, so a stream is always available right away and is
+     * never pooled.
+     *
+     * @param scheme scheme of the target url
+     * @param host host
+     * @param port port
+     * @return a stream ready to accept a request, or null if HTTP/2 is not in use
+     */
+    public NHttpClientConnection getHttp2Connection(String scheme, String host, int port) {
+        if (http2Connector == null) {
+            return null;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Opening an HTTP/2 stream to the " + host + ":" + port);
+        }
+        return http2Connector.createStream(scheme, host, port);
+    }
+
     /**
      * Return an existing connection to the host:port pair from connection pool.
      * If a connection is not available, return <code>null</code>
@@ -133,7 +169,7 @@ public class TargetConnections {
 
         if (pool != null) {
             pool.forget(conn);
-        } else {
+        } else if (!(conn instanceof Http2ClientStream)) {
             // we shouldn't get here
             log.fatal("Connection without a pool. Something wrong. Need to fix.");
         }
@@ -172,7 +208,7 @@ public class TargetConnections {
 
         if (pool != null) {
             pool.forget(conn);
-        } else {
+        } else if (!(conn instanceof Http2ClientStream)) {
             // we shouldn't get here
             log.fatal("Connection without a pool. Something wrong. Need to fix.");
         }
@@ -194,8 +230,18 @@ public class TargetConnections {
 
         TargetContext.get(conn).reset();
 
-        if (pool != null) {
+        if (conn instanceof Http2ClientStream) {
+            // the exchange on the stream is over, the connection underneath stays open
+            try {
+                conn.close();
+            } catch (IOException ignored) {
+            }
+        } else if (pool != null) {
             pool.release(conn);
+            // hand the connection over to the oldest message waiting for this host:port
+            if (deliveryAgent != null) {
+                deliveryAgent.connectionReleased(pool.getHost(), pool.getPort());
+            }
         } else {
             // we shouldn't get here
             log.fatal("Connection without a pool. Something wrong. Need to fix.");
@@ -218,18 +264,84 @@ public class TargetConnections {
         }
     }
 
+    /**
+     * Set the delivery agent which is notified whenever a connection is released to the
+     * pool, so that messages waiting for a connection are sent without delay.
+     *
+     * @param deliveryAgent the delivery agent of the sender
+     */
+    public void setDeliveryAgent(DeliveryAgent deliveryAgent) {
+        this.deliveryAgent = deliveryAgent;
+    }
+
+    /**
+     * Set the connector used for targets which are reached over HTTP/2
+     *
+     * @param http2Connector the HTTP/2 connector of the sender
+     */
+    public void setHttp2Connector(Http2TargetConnector http2Connector) {
+        this.http2Connector = http2Connector;
+    }
+
+    /**
+     * Return the statistics of the connection pool of each host:port pair
+     *
+     * @return a map of statistics keyed by host:port
+     */
+    public Map<String, Map<String, Number>> getPoolStatistics() {
+        Map<String, Map<String, Number>> statistics =
+                new LinkedHashMap<String, Map<String, Number>>();
+        for (Map.Entry<String, HostConnections> entry : poolMap.entrySet()) {
+            HostConnections pool = entry.getValue();
+            Map<String, Number> poolStats = new LinkedHashMap<String, Number>();
+            poolStats.put("Max", pool.getMaxSize());
+            poolStats.put("Busy", pool.getBusyCount());
+            poolStats.put("Free", pool.getFreeCount());
+            poolStats.put("Pending", pool.getPendingCount());
+            if (deliveryAgent != null) {
+                poolStats.put("Waiting",
+                        deliveryAgent.getWaitingMessageCount(pool.getHost(), pool.getPort()));
+            }
+            poolStats.put("Leases", pool.getLeaseCount());
+            poolStats.put("AvgLeaseWaitMillis", pool.getAverageLeaseWaitTime());
+            poolStats.put("MaxLeaseWaitMillis", pool.getMaxLeaseWaitTime());
+            poolStats.put("Evicted", pool.getEvictedCount());
+            statistics.put(entry.getKey(), poolStats);
+        }
+        if (http2Connector != null) {
+            for (Map.Entry<String, Map<String, Number>> entry :
+                    http2Connector.getStreamStatistics().entrySet()) {
+                statistics.put("h2:" + entry.getKey(), entry.getValue());
+            }
+        }
+        return statistics;
+    }
+
+    public void resetStatistics() {
+        for (HostConnections pool : poolMap.values()) {
+            pool.resetStatistics();
+        }
+    }
+
+    private void evictIdleConnections(HostConnections pool) {
+        if (maxIdleTime > 0) {
+            for (NHttpClientConnection conn : pool.evictIdleConnections(maxIdleTime)) {
+                closeConnection(conn);
+            }
+        }
+    }
+
     private HostConnections getConnectionPool(String host, int port) {
         String key = host + ":" + port;
-        if (!poolMap.containsKey(key)) {
-            synchronized (poolMap) {
-                // see weather a pool already exists for this host:port
-                if (!poolMap.containsKey(key)) {
-                    HostConnections pool = new HostConnections(host, port, maxConnections);
-                    poolMap.put(key, pool);
-                }
+        HostConnections pool = poolMap.get(key);
+        if (pool == null) {
+            pool = new HostConnections(host, port, maxConnections);
+            HostConnections existing = poolMap.putIfAbsent(key, pool);
+            if (existing != null) {
+                pool = existing;
             }
         }
-        return poolMap.get(key);
+        return pool;
     }
 
 }
@@ -0,0 +1,477 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.passthru.http2;
+
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.apache.http.HttpConnectionMetrics;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.NHttpConnection;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Presents a single HTTP/2 stream to the pass-through transport as an httpcore NIO
+ * connection. A stream carries exactly one request and its response, so the handlers,
+ * {@link org.apache.synapse.transport.passthru.Pipe}s and workers of the transport can drive
+ * it exactly like an HTTP/1.1 connection which is used for a single message exchange, while
+ * the stream itself is multiplexed with others over a shared connection.
+ * <p/>
+ * Flow control is tied to the pipe back-pressure. Outgoing data is only written as far as the
+ * send window of the stream allows, the rest stays in the pipe until the peer opens the
+ * window. Incoming data is held in a buffer bounded by the receive window and the window is
+ * re-opened only for the bytes which have been handed over to the pipe. A pipe which is full
+ * suspends the input of the stream, which stalls the peer on this stream alone without
+ * affecting the other streams of the connection.
+ */
+public abstract class AbstractHttp2Stream implements NHttpConnection {
+
+    /** HTTP/1.x connection specific headers, which are not allowed in HTTP/2 messages */
+    private static final Set<String> CONNECTION_HEADERS = new HashSet<String>(Arrays.asList(
+            "connection", "keep-alive", "proxy-connection", "transfer-encoding", "upgrade",
+            "host", "te"));
+
+    private static final int MIN_INPUT_BUFFER_SIZE = 8 * 1024;
+
+    private final HttpContext context = new BasicHttpContext();
+    private final StreamMetrics metrics = new StreamMetrics();
+
+    protected volatile int status = ACTIVE;
+    private volatile int socketTimeout = 0;
+
+    /** Guards the input buffer and the end of input flags */
+    private final Object inputLock = new Object();
+    /** Received data which has not been handed over to the consumer yet, in write mode */
+    private ByteBuffer inputBuffer = null;
+    private boolean inputEnded = false;
+    private boolean inputCompleted = false;
+    /** Bytes taken by the consumer so far, only updated by the delivering thread */
+    private volatile long consumedBytes = 0;
+    private volatile boolean inputSuspended = false;
+    /** Number of pending requests to deliver input, only one thread delivers at a time */
+    private final AtomicInteger inputWork = new AtomicInteger(0);
+    /** Bytes consumed which have not been returned to the receive window of the peer yet */
+    private final AtomicInteger pendingCapacity = new AtomicInteger(0);
+    private volatile CapacityChannel capacityChannel;
+
+    /** Like a new HTTP/1.1 connection, a stream is interested in output until suspended */
+    private volatile boolean outputRequested = true;
+    private volatile boolean outputCompleted = false;
+    /** Set if the message being sent must not have a body, e.g. the response to a HEAD */
+    private volatile boolean discardOutput = false;
+    private volatile boolean aborted = false;
+    private volatile DataStreamChannel dataChannel;
+
+    private final long openTime = System.nanoTime();
+
+    private final ContentDecoder decoder = new StreamDecoder();
+    private final ContentEncoder encoder = new StreamEncoder();
+
+    /**
+     * Called whenever received data, or the end of the stream, can be handed over to the
+     * transport
+     *
+     * @param decoder decoder reading the received data of this stream
+     */
+    protected abstract void onInputReady(ContentDecoder decoder);
+
+    /**
+     * Called whenever data can be written to the stream
+     *
+     * @param encoder encoder writing to this stream
+     */
+    protected abstract void onOutputReady(ContentEncoder encoder);
+
+    // ---------------------------------------------------------- HTTP/2 stream events
+
+    public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+        this.capacityChannel = capacityChannel;
+        flushCapacity();
+    }
+
+    public void consume(ByteBuffer src) throws IOException {
+        int length = src.remaining();
+        synchronized (inputLock) {
+            ensureInputCapacity(length);
+            inputBuffer.put(src);
+        }
+        metrics.receivedBytes.addAndGet(length);
+        deliverInput();
+    }
+
+    public void streamEnd(List<? extends org.apache.hc.core5.http.Header> trailers)
+            throws org.apache.hc.core5.http.HttpException, IOException {
+        endInput();
+        deliverInput();
+    }
+
+    public int available() {
+        if (aborted) {
+            return 1;
+        }
+        return (outputCompleted || !outputRequested) ? 0 : 1;
+    }
+
+    public void produce(DataStreamChannel channel) throws IOException {
+        this.dataChannel = channel;
+        if (aborted) {
+            // failing the data exchange resets the stream
+            throw new IOException("The exchange on the HTTP/2 stream has been aborted");
+        }
+        onOutputReady(encoder);
+    }
+
+    /**
+     * The message being sent has no body on the wire. The body produced by the transport
+     * is consumed and thrown away, so that the transport can complete the exchange as usual.
+     */
+    protected void discardOutput() {
+        discardOutput = true;
+    }
+
+    /**
+     * Reset the stream once the message being sent has been abandoned half way
+     */
+    protected void abort() {
+        aborted = true;
+        DataStreamChannel channel = dataChannel;
+        if (channel != null) {
+            channel.requestOutput();
+        }
+    }
+
+    /**
+     * @return time in nanoseconds since the stream was opened
+     */
+    protected long getLifetime() {
+        return System.nanoTime() - openTime;
+    }
+
+    /**
+     * Mark the end of the incoming message, e.g. when a message without a body is received
+     */
+    protected void endInput() {
+        synchronized (inputLock) {
+            inputEnded = true;
+        }
+    }
+
+    /**
+     * Mark the incoming message as complete without signalling the end of input to the
+     * transport, for messages which are known not to have a body at all
+     */
+    protected void completeInput() {
+        synchronized (inputLock) {
+            inputEnded = true;
+            inputCompleted = true;
+        }
+    }
+
+    /**
+     * Hand the received data over to the transport. Input may be requested by the I/O thread
+     * of the stream as well as by the thread draining the pipe, so only one of them delivers
+     * at a time and the other one just makes it go around once more. Like the I/O reactor of
+     * an HTTP/1.1 connection, input keeps being signalled for as long as the consumer takes
+     * data and does not suspend the input.
+     */
+    protected void deliverInput() {
+        if (inputWork.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            while (status == ACTIVE && !inputSuspended && hasInput()) {
+                long before = consumedBytes;
+                onInputReady(decoder);
+                if (consumedBytes == before) {
+                    break;
+                }
+            }
+            missed = inputWork.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    protected boolean isInputCompleted() {
+        synchronized (inputLock) {
+            return inputCompleted;
+        }
+    }
+
+    protected boolean isOutputCompleted() {
+        return outputCompleted;
+    }
+
+    private boolean hasInput() {
+        synchronized (inputLock) {
+            return (inputBuffer != null && inputBuffer.position() > 0) ||
+                    (inputEnded && !inputCompleted);
+        }
+    }
+
+    private void ensureInputCapacity(int length) {
+        if (inputBuffer == null) {
+            inputBuffer = ByteBuffer.allocate(Math.max(length, MIN_INPUT_BUFFER_SIZE));
+        } else if (inputBuffer.remaining() < length) {
+            int size = Math.max(inputBuffer.position() + length, inputBuffer.capacity() * 2);
+            ByteBuffer expanded = ByteBuffer.allocate(size);
+            inputBuffer.flip();
+            expanded.put(inputBuffer);
+            inputBuffer = expanded;
+        }
+    }
+
+    private void releaseCapacity(int bytes) throws IOException {
+        pendingCapacity.addAndGet(bytes);
+        flushCapacity();
+    }
+
+    private void flushCapacity() throws IOException {
+        CapacityChannel channel = capacityChannel;
+        if (channel != null) {
+            int increment = pendingCapacity.getAndSet(0);
+            if (increment > 0) {
+                channel.update(increment);
+            }
+        }
+    }
+
+    // ---------------------------------------------------------- IOControl
+
+    @Override
+    public void requestInput() {
+        inputSuspended = false;
+        deliverInput();
+    }
+
+    @Override
+    public void suspendInput() {
+        inputSuspended = true;
+    }
+
+    @Override
+    public void requestOutput() {
+        outputRequested = true;
+        if (discardOutput) {
+            if (!outputCompleted) {
+                onOutputReady(encoder);
+            }
+            return;
+        }
+        DataStreamChannel channel = dataChannel;
+        if (channel != null) {
+            channel.requestOutput();
+        }
+    }
+
+    @Override
+    public void suspendOutput() {
+        outputRequested = false;
+    }
+
+    // ---------------------------------------------------------- HttpConnection
+
+    @Override
+    public int getStatus() {
+        return status;
+    }
+
+    @Override
+    public HttpContext getContext() {
+        return context;
+    }
+
+    @Override
+    public HttpConnectionMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return status == ACTIVE;
+    }
+
+    @Override
+    public boolean isStale() {
+        return !isOpen();
+    }
+
+    @Override
+    public void setSocketTimeout(int timeout) {
+        this.socketTimeout = timeout;
+    }
+
+    @Override
+    public int getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    protected void incrementRequestCount() {
+        metrics.requestCount.incrementAndGet();
+    }
+
+    protected void incrementResponseCount() {
+        metrics.responseCount.incrementAndGet();
+    }
+
+    /**
+     * Check whether a header is specific to an HTTP/1.x connection and must be dropped when
+     * the message is sent over HTTP/2
+     *
+     * @param name name of the header
+     * @return true if the header must not be sent over HTTP/2
+     */
+    static boolean isConnectionHeader(String name) {
+        return CONNECTION_HEADERS.contains(name.toLowerCase(Locale.ENGLISH));
+    }
+
+    /**
+     * HTTP/2 header names are always lower case, while the transport and mediation look up
+     * headers such as Content-Type by their usual HTTP/1.x names. Convert a header name to
+     * that form.
+     *
+     * @param name lower case header name
+     * @return the header name with the first letter of each word in upper case
+     */
+    static String toHttp1Name(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        boolean upper = true;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            sb.append(upper ? Character.toUpperCase(c) : c);
+            upper = c == '-';
+        }
+        return sb.toString();
+    }
+
+    private class StreamDecoder implements ContentDecoder {
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            int bytes = 0;
+            synchronized (inputLock) {
+                if (inputBuffer != null && inputBuffer.position() > 0) {
+                    inputBuffer.flip();
+                    bytes = Math.min(dst.remaining(), inputBuffer.remaining());
+                    int limit = inputBuffer.limit();
+                    inputBuffer.limit(inputBuffer.position() + bytes);
+                    dst.put(inputBuffer);
+                    inputBuffer.limit(limit);
+                    inputBuffer.compact();
+                }
+                if (inputEnded && (inputBuffer == null || inputBuffer.position() == 0)) {
+                    inputCompleted = true;
+                }
+            }
+
+            if (bytes > 0) {
+                consumedBytes += bytes;
+                releaseCapacity(bytes);
+            }
+            return bytes;
+        }
+
+        @Override
+        public boolean isCompleted() {
+            return isInputCompleted();
+        }
+    }
+
+    private class StreamEncoder implements ContentEncoder {
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (discardOutput) {
+                int bytes = src.remaining();
+                src.position(src.limit());
+                return bytes;
+            }
+            int bytes = dataChannel.write(src);
+            metrics.sentBytes.addAndGet(bytes);
+            return bytes;
+        }
+
+        @Override
+        public void complete() throws IOException {
+            if (!outputCompleted) {
+                outputCompleted = true;
+                if (!discardOutput) {
+                    dataChannel.endStream(null);
+                }
+            }
+        }
+
+        @Override
+        public boolean isCompleted() {
+            return outputCompleted;
+        }
+    }
+
+    private static class StreamMetrics implements HttpConnectionMetrics {
+
+        private final AtomicLong requestCount = new AtomicLong(0);
+        private final AtomicLong responseCount = new AtomicLong(0);
+        private final AtomicLong sentBytes = new AtomicLong(0);
+        private final AtomicLong receivedBytes = new AtomicLong(0);
+
+        @Override
+        public long getRequestCount() {
+            return requestCount.get();
+        }
+
+        @Override
+        public long getResponseCount() {
+            return responseCount.get();
+        }
+
+        @Override
+        public long getSentBytesCount() {
+            return sentBytes.get();
+        }
+
+        @Override
+        public long getReceivedBytesCount() {
+            return receivedBytes.get();
+        }
+
+        @Override
+        public Object getMetric(String metricName) {
+            return null;
+        }
+
+        @Override
+        public void reset() {
+            requestCount.set(0);
+            responseCount.set(0);
+            sentBytes.set(0);
+            receivedBytes.set(0);
+        }
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.passthru.http2;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.impl.BasicEntityDetails;
+import org.apache.hc.core5.http.nio.AsyncClientExchangeHandler;
+import org.apache.hc.core5.http.nio.RequestChannel;
+import org.apache.http.ConnectionClosedException;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.NHttpClientConnection;
+import org.apache.http.nio.NHttpClientEventHandler;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A client side HTTP/2 stream, which carries a single request of the pass-through sender.
+ * The stream is handed to the {@link org.apache.synapse.transport.passthru.TargetHandler} as
+ * an {@link NHttpClientConnection}, so requests and responses flow through the usual
+ * TargetRequest, TargetResponse and pipes. The exchange itself is executed by the
+ * {@link Http2TargetConnector}, which multiplexes the streams of a host over a shared
+ * connection.
+ */
+public class Http2ClientStream extends AbstractHttp2Stream
+        implements NHttpClientConnection, AsyncClientExchangeHandler {
+
+    private static final Log log = LogFactory.getLog(Http2ClientStream.class);
+
+    private final Http2TargetConnector connector;
+    private final org.apache.hc.core5.http.HttpHost target;
+    private final NHttpClientEventHandler handler;
+
+    private final AtomicBoolean started = new AtomicBoolean(false);
+
+    private volatile HttpRequest request;
+    private volatile HttpResponse response;
+
+    private org.apache.hc.core5.http.HttpRequest outgoingRequest;
+    private EntityDetails outgoingEntity;
+    private volatile Cancellable execution;
+
+    Http2ClientStream(Http2TargetConnector connector, org.apache.hc.core5.http.HttpHost target,
+                      NHttpClientEventHandler handler) {
+        this.connector = connector;
+        this.target = target;
+        this.handler = handler;
+    }
+
+    public String getHostName() {
+        return target.getHostName();
+    }
+
+    public int getPort() {
+        return target.getPort();
+    }
+
+    // ---------------------------------------------------------- NHttpClientConnection
+
+    /**
+     * The first request for output starts the exchange, like a new HTTP/1.1 connection which
+     * becomes ready for a request. Subsequent requests resume the output of the stream.
+     */
+    @Override
+    public void requestOutput() {
+        super.requestOutput();
+        if (started.compareAndSet(false, true)) {
+            try {
+                handler.requestReady(this);
+            } catch (Exception e) {
+                handleException(e);
+            }
+        }
+    }
+
+    @Override
+    public void submitRequest(HttpRequest request) throws IOException,
+            org.apache.http.HttpException {
+        if (this.request != null) {
+            throw new org.apache.http.HttpException(
+                    "A request has already been submitted on the HTTP/2 stream");
+        }
+
+        org.apache.hc.core5.http.message.BasicHttpRequest h2Request =
+                new org.apache.hc.core5.http.message.BasicHttpRequest(
+                        request.getRequestLine().getMethod(), target,
+                        toRequestPath(request.getRequestLine().getUri()));
+        for (Header header : request.getAllHeaders()) {
+            if (!isConnectionHeader(header.getName())) {
+                h2Request.addHeader(header.getName().toLowerCase(Locale.ENGLISH),
+                        header.getValue());
+            }
+        }
+
+        EntityDetails entityDetails = null;
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            if (entity != null) {
+                long length = entity.isChunked() ? -1 : entity.getContentLength();
+                entityDetails = new BasicEntityDetails(length, null);
+            }
+        }
+
+        this.request = request;
+        this.outgoingRequest = h2Request;
+        this.outgoingEntity = entityDetails;
+        incrementRequestCount();
+        execution = connector.execute(this);
+    }
+
+    @Override
+    public boolean isRequestSubmitted() {
+        return request != null;
+    }
+
+    @Override
+    public void resetOutput() {
+        // a stream is never reused, so there is no output state to reset
+    }
+
+    @Override
+    public void resetInput() {
+        // a stream is never reused, so there is no input state to reset
+    }
+
+    @Override
+    public HttpRequest getHttpRequest() {
+        return request;
+    }
+
+    @Override
+    public HttpResponse getHttpResponse() {
+        return response;
+    }
+
+    @Override
+    public void close() throws IOException {
+        shutdown();
+    }
+
+    @Override
+    public void shutdown() {
+        if (status == CLOSED) {
+            return;
+        }
+        status = CLOSED;
+        connector.streamClosed(this);
+
+        Cancellable exchange = execution;
+        if (exchange != null && !(isInputCompleted() &&
+                (outgoingEntity == null || isOutputCompleted()))) {
+            // abandoning the exchange half way, reset the stream
+            exchange.cancel();
+        }
+    }
+
+    // ---------------------------------------------------------- HTTP/2 exchange
+
+    @Override
+    public void produceRequest(RequestChannel channel,
+                               org.apache.hc.core5.http.protocol.HttpContext context)
+            throws org.apache.hc.core5.http.HttpException, IOException {
+        channel.sendRequest(outgoingRequest, outgoingEntity, context);
+    }
+
+    @Override
+    public void consumeResponse(org.apache.hc.core5.http.HttpResponse h2Response,
+                                EntityDetails entityDetails,
+                                org.apache.hc.core5.http.protocol.HttpContext context)
+            throws org.apache.hc.core5.http.HttpException, IOException {
+        int code = h2Response.getCode();
+        String reason = h2Response.getReasonPhrase();
+        if (reason == null || reason.length() == 0) {
+            reason = EnglishReasonPhraseCatalog.INSTANCE.getReason(code, Locale.ENGLISH);
+        }
+
+        BasicHttpResponse httpResponse = new BasicHttpResponse(HttpVersion.HTTP_1_1, code, reason);
+        for (org.apache.hc.core5.http.Header header : h2Response.getHeaders()) {
+            httpResponse.addHeader(toHttp1Name(header.getName()), header.getValue());
+        }
+        if (entityDetails == null) {
+            endInput();
+        }
+
+        this.response = httpResponse;
+        incrementResponseCount();
+        try {
+            handler.responseReceived(this);
+        } catch (Exception e) {
+            handleException(e);
+            return;
+        }
+        deliverInput();
+    }
+
+    @Override
+    public void consumeInformation(org.apache.hc.core5.http.HttpResponse response,
+                                   org.apache.hc.core5.http.protocol.HttpContext context)
+            throws org.apache.hc.core5.http.HttpException, IOException {
+        // interim responses are of no interest to the sender
+    }
+
+    @Override
+    public void cancel() {
+        failed(new ConnectionClosedException("HTTP/2 stream to " + target + " was cancelled"));
+    }
+
+    @Override
+    public void failed(Exception cause) {
+        if (status == CLOSED) {
+            if (log.isDebugEnabled()) {
+                log.debug("Ignoring the failure of a closed HTTP/2 stream", cause);
+            }
+            return;
+        }
+        handleException(cause);
+    }
+
+    @Override
+    public void releaseResources() {
+        // buffers are released together with the stream
+    }
+
+    @Override
+    protected void onInputReady(ContentDecoder decoder) {
+        if (response == null) {
+            return;
+        }
+        try {
+            handler.inputReady(this, decoder);
+        } catch (Exception e) {
+            handleException(e);
+        }
+    }
+
+    @Override
+    protected void onOutputReady(ContentEncoder encoder) {
+        try {
+            handler.outputReady(this, encoder);
+        } catch (Exception e) {
+            handleException(e);
+        }
+    }
+
+    private void handleException(Exception e) {
+        handler.exception(this, e);
+        // the handler does not release the connection on every kind of error
+        shutdown();
+    }
+
+    private static String toRequestPath(String uri) {
+        if (uri.startsWith("/")) {
+            return uri;
+        }
+        try {
+            URI parsed = new URI(uri);
+            String path = parsed.getRawPath();
+            if (path == null || path.length() == 0) {
+                path = "/";
+            }
+            return parsed.getRawQuery() != null ? path + "?" + parsed.getRawQuery() : path;
+        } catch (URISyntaxException e) {
+            return uri;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "http2-stream[" + target + "]";
+    }
+}
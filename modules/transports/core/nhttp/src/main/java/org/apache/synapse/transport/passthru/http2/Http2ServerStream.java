@@ -0,0 +1,349 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.passthru.http2;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hc.core5.http.EndpointDetails;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.impl.BasicEntityDetails;
+import org.apache.hc.core5.http.nio.AsyncServerExchangeHandler;
+import org.apache.hc.core5.http.nio.ResponseChannel;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.apache.hc.core5.net.URIAuthority;
+import org.apache.http.Header;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpInetConnection;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.message.BasicHttpEntityEnclosingRequest;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.NHttpServerConnection;
+import org.apache.http.nio.NHttpServerEventHandler;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Locale;
+
+/**
+ * A server side HTTP/2 stream, which carries a single request received by the pass-through
+ * listener. The stream is handed to the {@link org.apache.synapse.transport.passthru.SourceHandler}
+ * as an {@link NHttpServerConnection}, so each stream gets a SourceContext, SourceRequest and
+ * SourceResponse of its own while the streams share a single connection with the client.
+ */
+public class Http2ServerStream extends AbstractHttp2Stream
+        implements NHttpServerConnection, HttpInetConnection, AsyncServerExchangeHandler {
+
+    private static final Log log = LogFactory.getLog(Http2ServerStream.class);
+
+    private final Http2SourceListener listener;
+    private final NHttpServerEventHandler handler;
+
+    private volatile HttpRequest request;
+    private volatile HttpResponse response;
+
+    private volatile ResponseChannel responseChannel;
+    private org.apache.hc.core5.http.protocol.HttpContext exchangeContext;
+    private InetSocketAddress localAddress;
+    private InetSocketAddress remoteAddress;
+
+    /** Serializes the attempts to start the response */
+    private final Object responseLock = new Object();
+    private volatile boolean responseRequested = false;
+
+    Http2ServerStream(Http2SourceListener listener, NHttpServerEventHandler handler) {
+        this.listener = listener;
+        this.handler = handler;
+    }
+
+    // ---------------------------------------------------------- HTTP/2 exchange
+
+    @Override
+    public void handleRequest(org.apache.hc.core5.http.HttpRequest h2Request,
+                              EntityDetails entityDetails, ResponseChannel responseChannel,
+                              org.apache.hc.core5.http.protocol.HttpContext context)
+            throws org.apache.hc.core5.http.HttpException, IOException {
+        this.responseChannel = responseChannel;
+        this.exchangeContext = context;
+
+        EndpointDetails endpointDetails = HttpCoreContext.adapt(context).getEndpointDetails();
+        if (endpointDetails != null) {
+            localAddress = toInetSocketAddress(endpointDetails.getLocalAddress());
+            remoteAddress = toInetSocketAddress(endpointDetails.getRemoteAddress());
+        }
+
+        String path = h2Request.getPath() != null ? h2Request.getPath() : "/";
+        HttpRequest httpRequest;
+        if (entityDetails != null) {
+            BasicHttpEntityEnclosingRequest entityRequest = new BasicHttpEntityEnclosingRequest(
+                    h2Request.getMethod(), path, HttpVersion.HTTP_1_1);
+            BasicHttpEntity entity = new BasicHttpEntity();
+            if (entityDetails.getContentLength() >= 0) {
+                entity.setContentLength(entityDetails.getContentLength());
+            } else {
+                entity.setChunked(true);
+            }
+            entityRequest.setEntity(entity);
+            httpRequest = entityRequest;
+        } else {
+            httpRequest = new BasicHttpRequest(h2Request.getMethod(), path, HttpVersion.HTTP_1_1);
+            completeInput();
+        }
+
+        URIAuthority authority = h2Request.getAuthority();
+        if (authority != null && !h2Request.containsHeader("host")) {
+            httpRequest.addHeader("Host", authority.toString());
+        }
+        for (org.apache.hc.core5.http.Header header : h2Request.getHeaders()) {
+            // HTTP/2 takes care of 100-continue on its own
+            if (!"expect".equalsIgnoreCase(header.getName())) {
+                httpRequest.addHeader(toHttp1Name(header.getName()), header.getValue());
+            }
+        }
+
+        this.request = httpRequest;
+        incrementRequestCount();
+        listener.streamOpened(this);
+        try {
+            handler.requestReceived(this);
+        } catch (Exception e) {
+            handleException(e);
+            return;
+        }
+        deliverInput();
+    }
+
+    @Override
+    public void failed(Exception cause) {
+        if (status == CLOSED) {
+            if (log.isDebugEnabled()) {
+                log.debug("Ignoring the failure of a closed HTTP/2 stream", cause);
+            }
+            return;
+        }
+        handleException(cause);
+    }
+
+    @Override
+    public void releaseResources() {
+        // buffers are released together with the stream
+    }
+
+    @Override
+    protected void onInputReady(ContentDecoder decoder) {
+        try {
+            handler.inputReady(this, decoder);
+        } catch (Exception e) {
+            handleException(e);
+            return;
+        }
+        // a response may have been attempted before the request was read completely
+        if (responseRequested && response == null && isInputCompleted()) {
+            startResponse();
+        }
+    }
+
+    @Override
+    protected void onOutputReady(ContentEncoder encoder) {
+        try {
+            handler.outputReady(this, encoder);
+        } catch (Exception e) {
+            handleException(e);
+        }
+    }
+
+    // ---------------------------------------------------------- NHttpServerConnection
+
+    /**
+     * Until a response has been submitted, a request for output asks the handler for the
+     * response, like an HTTP/1.1 connection which becomes ready for a response. Once the
+     * response is out, it resumes the output of the stream.
+     */
+    @Override
+    public void requestOutput() {
+        if (response == null) {
+            responseRequested = true;
+            startResponse();
+        } else {
+            super.requestOutput();
+        }
+    }
+
+    private void startResponse() {
+        synchronized (responseLock) {
+            if (response == null && status == ACTIVE) {
+                try {
+                    handler.responseReady(this);
+                } catch (Exception e) {
+                    handleException(e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void submitResponse(HttpResponse response) throws IOException,
+            org.apache.http.HttpException {
+        int code = response.getStatusLine().getStatusCode();
+        if (code < HttpStatus.SC_OK) {
+            // interim responses are produced by the HTTP/2 protocol handler itself
+            return;
+        }
+        if (this.response != null) {
+            throw new org.apache.http.HttpException(
+                    "A response has already been submitted on the HTTP/2 stream");
+        }
+
+        org.apache.hc.core5.http.message.BasicHttpResponse h2Response =
+                new org.apache.hc.core5.http.message.BasicHttpResponse(code);
+        for (Header header : response.getAllHeaders()) {
+            if (!isConnectionHeader(header.getName())) {
+                h2Response.addHeader(header.getName().toLowerCase(Locale.ENGLISH),
+                        header.getValue());
+            }
+        }
+
+        EntityDetails entityDetails = null;
+        if (response.getEntity() != null) {
+            if (canResponseHaveBody(code)) {
+                long length = response.getEntity().isChunked() ?
+                        -1 : response.getEntity().getContentLength();
+                entityDetails = new BasicEntityDetails(length, null);
+            } else {
+                discardOutput();
+            }
+        }
+
+        this.response = response;
+        incrementResponseCount();
+        try {
+            responseChannel.sendResponse(h2Response, entityDetails, exchangeContext);
+        } catch (org.apache.hc.core5.http.HttpException e) {
+            throw new org.apache.http.HttpException(e.getMessage(), e);
+        }
+
+        if (response.getEntity() != null && entityDetails == null) {
+            // nothing goes on the wire, let the transport complete the response right away
+            requestOutput();
+        }
+    }
+
+    private boolean canResponseHaveBody(int code) {
+        return !"HEAD".equalsIgnoreCase(request.getRequestLine().getMethod()) &&
+                code != HttpStatus.SC_NO_CONTENT && code != HttpStatus.SC_NOT_MODIFIED &&
+                code != HttpStatus.SC_RESET_CONTENT;
+    }
+
+    @Override
+    public boolean isResponseSubmitted() {
+        return response != null;
+    }
+
+    @Override
+    public void resetInput() {
+        // a stream is never reused, so there is no input state to reset
+    }
+
+    @Override
+    public void resetOutput() {
+        // a stream is never reused, so there is no output state to reset
+    }
+
+    @Override
+    public HttpRequest getHttpRequest() {
+        return request;
+    }
+
+    @Override
+    public HttpResponse getHttpResponse() {
+        return response;
+    }
+
+    @Override
+    public void close() throws IOException {
+        shutdown();
+    }
+
+    @Override
+    public void shutdown() {
+        if (status == CLOSED) {
+            return;
+        }
+        status = CLOSED;
+        listener.streamClosed(this);
+
+        if (response == null) {
+            // the client still waits for a response, fail the request rather than the
+            // whole connection
+            try {
+                responseChannel.sendResponse(new org.apache.hc.core5.http.message.BasicHttpResponse(
+                        HttpStatus.SC_INTERNAL_SERVER_ERROR), null, exchangeContext);
+            } catch (Exception e) {
+                log.debug("Error sending an error response on the HTTP/2 stream", e);
+            }
+        } else if (!isOutputCompleted()) {
+            abort();
+        }
+    }
+
+    // ---------------------------------------------------------- HttpInetConnection
+
+    @Override
+    public InetAddress getLocalAddress() {
+        return localAddress != null ? localAddress.getAddress() : null;
+    }
+
+    @Override
+    public int getLocalPort() {
+        return localAddress != null ? localAddress.getPort() : -1;
+    }
+
+    @Override
+    public InetAddress getRemoteAddress() {
+        return remoteAddress != null ? remoteAddress.getAddress() : null;
+    }
+
+    @Override
+    public int getRemotePort() {
+        return remoteAddress != null ? remoteAddress.getPort() : -1;
+    }
+
+    private void handleException(Exception e) {
+        handler.exception(this, e);
+        // the handler does not release the connection on every kind of error
+        shutdown();
+    }
+
+    private static InetSocketAddress toInetSocketAddress(SocketAddress address) {
+        return address instanceof InetSocketAddress ? (InetSocketAddress) address : null;
+    }
+
+    @Override
+    public String toString() {
+        return "http2-stream[" + remoteAddress + "]";
+    }
+}
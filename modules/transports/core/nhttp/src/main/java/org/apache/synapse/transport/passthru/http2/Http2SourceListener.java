@@ -0,0 +1,189 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.passthru.http2;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hc.core5.function.Callback;
+import org.apache.hc.core5.function.Supplier;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http.nio.AsyncServerExchangeHandler;
+import org.apache.hc.core5.http.protocol.HttpProcessor;
+import org.apache.hc.core5.http.protocol.HttpProcessorBuilder;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2ServerBootstrap;
+import org.apache.hc.core5.http2.protocol.H2ResponseConnControl;
+import org.apache.hc.core5.http2.protocol.H2ResponseContent;
+import org.apache.hc.core5.http2.ssl.H2ServerTlsStrategy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.reactor.ListenerEndpoint;
+import org.apache.hc.core5.util.Timeout;
+import org.apache.http.nio.NHttpServerEventHandler;
+import org.apache.http.nio.reactor.ssl.SSLSetupHandler;
+import org.apache.synapse.transport.passthru.ProtocolState;
+import org.apache.synapse.transport.passthru.SourceContext;
+import org.apache.synapse.transport.passthru.config.SourceConfiguration;
+import org.apache.synapse.transport.passthru.jmx.PassThroughTransportMetricsCollector;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Accepts HTTP/2 connections for the pass-through listener on a port of its own: h2 over
+ * TLS with ALPN for an https listener, and h2c with prior knowledge for an http listener.
+ * Over TLS, clients which do not offer h2 are served with HTTP/1.1 on the same port. Every
+ * request is represented by a {@link Http2ServerStream}, which the listener treats like a
+ * dedicated connection, so many concurrent requests of a client share one connection and
+ * one TLS handshake.
+ */
+public class Http2SourceListener {
+
+    private static final Log log = LogFactory.getLog(Http2SourceListener.class);
+
+    private final SourceConfiguration sourceConfiguration;
+    private final InetSocketAddress address;
+    private final boolean ssl;
+
+    private final HttpAsyncServer server;
+
+    /**
+     * Create an HTTP/2 listener
+     *
+     * @param handler             the handler of the listener, which drives each stream
+     * @param sourceConfiguration the configuration of the listener
+     * @param address             the address to listen on
+     * @param sslContext          SSL context for h2 over TLS, or null for h2c
+     * @param sslSetupHandler     handler setting up and verifying the TLS sessions, as for
+     *                            the HTTP/1 connections of the listener, or null
+     */
+    public Http2SourceListener(final NHttpServerEventHandler handler,
+                               SourceConfiguration sourceConfiguration,
+                               InetSocketAddress address, SSLContext sslContext,
+                               SSLSetupHandler sslSetupHandler) {
+        this.sourceConfiguration = sourceConfiguration;
+        this.address = address;
+        this.ssl = sslContext != null;
+
+        org.apache.http.impl.nio.reactor.IOReactorConfig reactorConfig =
+                sourceConfiguration.getReactorConfig(true);
+        IOReactorConfig.Builder ioReactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(reactorConfig.getIoThreadCount())
+                .setTcpNoDelay(reactorConfig.isTcpNoDelay())
+                .setSoReuseAddress(reactorConfig.isSoReuseAddress());
+        if (reactorConfig.getSoTimeout() > 0) {
+            ioReactorConfig.setSoTimeout(Timeout.ofMilliseconds(reactorConfig.getSoTimeout()));
+        }
+        if (reactorConfig.getRcvBufSize() > 0) {
+            ioReactorConfig.setRcvBufSize(reactorConfig.getRcvBufSize());
+        }
+        if (reactorConfig.getSndBufSize() > 0) {
+            ioReactorConfig.setSndBufSize(reactorConfig.getSndBufSize());
+        }
+
+        // the transport headers are produced by the SourceResponse, only the HTTP/2 specific
+        // rules have to be applied here
+        HttpProcessor httpProcessor = HttpProcessorBuilder.create()
+                .add(new H2ResponseContent())
+                .add(new H2ResponseConnControl())
+                .build();
+
+        H2ServerBootstrap bootstrap = H2ServerBootstrap.bootstrap()
+                .setIOReactorConfig(ioReactorConfig.build())
+                .setHttpProcessor(httpProcessor)
+                .setH2Config(sourceConfiguration.getHttp2Config())
+                // without TLS there is nothing to negotiate with, h2c needs prior knowledge
+                .setVersionPolicy(ssl ? HttpVersionPolicy.NEGOTIATE :
+                        HttpVersionPolicy.FORCE_HTTP_2)
+                .setExceptionCallback(new Callback<Exception>() {
+                    @Override
+                    public void execute(Exception e) {
+                        log.warn("System may be unstable: the HTTP/2 listener encountered " +
+                                "an exception", e);
+                    }
+                })
+                .register("*", new Supplier<AsyncServerExchangeHandler>() {
+                    @Override
+                    public AsyncServerExchangeHandler get() {
+                        return new Http2ServerStream(Http2SourceListener.this, handler);
+                    }
+                });
+        if (sslContext != null && sslSetupHandler != null) {
+            // e.g. the client authentication required by the listener
+            Http2TlsSetup tlsSetup = new Http2TlsSetup(sslSetupHandler);
+            bootstrap.setTlsStrategy(new H2ServerTlsStrategy(sslContext, tlsSetup, tlsSetup));
+        } else if (sslContext != null) {
+            bootstrap.setTlsStrategy(new H2ServerTlsStrategy(sslContext));
+        }
+        this.server = bootstrap.create();
+    }
+
+    /**
+     * Start accepting connections
+     *
+     * @throws IOException if the listener cannot bind to its address
+     */
+    public void start() throws IOException {
+        server.start();
+        try {
+            ListenerEndpoint endpoint = server.listen(address,
+                    ssl ? URIScheme.HTTPS : URIScheme.HTTP).get();
+            log.info("Pass-through HTTP/2 listener started on " + endpoint.getAddress());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("HTTP/2 listener startup was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Unable to start the HTTP/2 listener on " + address,
+                    e.getCause());
+        }
+    }
+
+    public void pause() throws IOException {
+        server.pause();
+    }
+
+    public void resume() throws IOException {
+        server.resume();
+    }
+
+    public void stop() {
+        server.close(CloseMode.GRACEFUL);
+        log.info("Pass-through HTTP/2 listener stopped");
+    }
+
+    void streamOpened(Http2ServerStream stream) {
+        sourceConfiguration.getSourceConnections().addConnection(stream);
+        SourceContext.create(stream, ProtocolState.REQUEST_READY, sourceConfiguration);
+        PassThroughTransportMetricsCollector metrics = sourceConfiguration.getMetrics();
+        if (metrics != null) {
+            metrics.streamOpened();
+        }
+    }
+
+    void streamClosed(Http2ServerStream stream) {
+        PassThroughTransportMetricsCollector metrics = sourceConfiguration.getMetrics();
+        if (metrics != null) {
+            metrics.streamClosed(stream.getLifetime());
+        }
+    }
+}
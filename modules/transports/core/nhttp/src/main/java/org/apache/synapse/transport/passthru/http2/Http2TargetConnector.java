@@ -0,0 +1,233 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.passthru.http2;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.apache.hc.core5.http.protocol.HttpProcessor;
+import org.apache.hc.core5.http.protocol.HttpProcessorBuilder;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2MultiplexingRequester;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2MultiplexingRequesterBootstrap;
+import org.apache.hc.core5.http2.protocol.H2RequestConnControl;
+import org.apache.hc.core5.http2.protocol.H2RequestContent;
+import org.apache.hc.core5.http2.ssl.H2ClientTlsStrategy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.apache.http.nio.NHttpClientEventHandler;
+import org.apache.http.nio.reactor.ssl.SSLSetupHandler;
+import org.apache.synapse.transport.passthru.ProtocolState;
+import org.apache.synapse.transport.passthru.TargetContext;
+import org.apache.synapse.transport.passthru.config.TargetConfiguration;
+import org.apache.synapse.transport.passthru.jmx.PassThroughTransportMetricsCollector;
+
+import javax.net.ssl.SSLContext;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executes the requests of the pass-through sender over HTTP/2. All requests to a given
+ * host:port are multiplexed as concurrent streams over a single connection, which is
+ * established on demand (h2 over TLS with ALPN for https, prior knowledge h2c for http) and
+ * kept open for later requests. Each request is represented by a {@link Http2ClientStream},
+ * which the sender treats like a dedicated connection.
+ */
+public class Http2TargetConnector {
+
+    private static final Log log = LogFactory.getLog(Http2TargetConnector.class);
+
+    private final NHttpClientEventHandler handler;
+    private final TargetConfiguration targetConfiguration;
+    private final SSLContext sslContext;
+    private final Timeout connectTimeout;
+
+    private final H2MultiplexingRequester requester;
+
+    /** Streams in progress, by host:port */
+    private final ConcurrentMap<String, AtomicInteger> activeStreams =
+            new ConcurrentHashMap<String, AtomicInteger>();
+    private final AtomicLong streamCount = new AtomicLong(0);
+
+    /**
+     * Create a connector for the sender
+     *
+     * @param handler             the handler of the sender, which drives each stream
+     * @param targetConfiguration the configuration of the sender
+     * @param sslContext          SSL context for https targets, or null if the sender only
+     *                            supports plain http
+     * @param sslSetupHandler     verifies the TLS sessions to https targets, like for the
+     *                            HTTP/1 connections of the sender, or null
+     */
+    public Http2TargetConnector(NHttpClientEventHandler handler,
+                                TargetConfiguration targetConfiguration,
+                                SSLContext sslContext,
+                                SSLSetupHandler sslSetupHandler) {
+        this.handler = handler;
+        this.targetConfiguration = targetConfiguration;
+        this.sslContext = sslContext;
+
+        org.apache.http.impl.nio.reactor.IOReactorConfig reactorConfig =
+                targetConfiguration.getReactorConfig(false);
+        this.connectTimeout = reactorConfig.getConnectTimeout() > 0 ?
+                Timeout.ofMilliseconds(reactorConfig.getConnectTimeout()) : Timeout.DISABLED;
+
+        IOReactorConfig.Builder ioReactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(reactorConfig.getIoThreadCount())
+                .setTcpNoDelay(reactorConfig.isTcpNoDelay());
+        if (reactorConfig.getSoTimeout() > 0) {
+            ioReactorConfig.setSoTimeout(Timeout.ofMilliseconds(reactorConfig.getSoTimeout()));
+        }
+        if (reactorConfig.getRcvBufSize() > 0) {
+            ioReactorConfig.setRcvBufSize(reactorConfig.getRcvBufSize());
+        }
+        if (reactorConfig.getSndBufSize() > 0) {
+            ioReactorConfig.setSndBufSize(reactorConfig.getSndBufSize());
+        }
+
+        // the transport headers are produced by the TargetRequest, only the HTTP/2 specific
+        // rules have to be applied here
+        HttpProcessor httpProcessor = HttpProcessorBuilder.create()
+                .add(new H2RequestContent())
+                .add(new H2RequestConnControl())
+                .build();
+
+        H2MultiplexingRequesterBootstrap bootstrap = H2MultiplexingRequesterBootstrap.bootstrap()
+                .setIOReactorConfig(ioReactorConfig.build())
+                .setHttpProcessor(httpProcessor)
+                .setH2Config(targetConfiguration.getHttp2Config());
+        if (sslContext != null && sslSetupHandler != null) {
+            // e.g. the host name verification and the revocation checks of the sender
+            Http2TlsSetup tlsSetup = new Http2TlsSetup(sslSetupHandler);
+            bootstrap.setTlsStrategy(new H2ClientTlsStrategy(sslContext, tlsSetup, tlsSetup));
+        } else if (sslContext != null) {
+            bootstrap.setTlsStrategy(new H2ClientTlsStrategy(sslContext));
+        }
+        this.requester = bootstrap.create();
+    }
+
+    public void start() {
+        requester.start();
+        log.info("HTTP/2 connector started");
+    }
+
+    public void stop() {
+        requester.close(CloseMode.GRACEFUL);
+        log.info("HTTP/2 connector stopped");
+    }
+
+    /**
+     * Check whether requests with the given scheme can be sent over HTTP/2
+     *
+     * @param scheme scheme of the target url
+     * @return true if the connector can send to targets with the given scheme
+     */
+    public boolean supports(String scheme) {
+        return "http".equalsIgnoreCase(scheme) ||
+                ("https".equalsIgnoreCase(scheme) && sslContext != null);
+    }
+
+    /**
+     * Create a new stream to the given target, ready to accept a request
+     *
+     * @param scheme scheme of the target url
+     * @param host   target host
+     * @param port   target port
+     * @return a new stream
+     */
+    public Http2ClientStream createStream(String scheme, String host, int port) {
+        Http2ClientStream stream = new Http2ClientStream(
+                this, new HttpHost(scheme.toLowerCase(Locale.ENGLISH), host, port), handler);
+        TargetContext.create(stream, ProtocolState.REQUEST_READY, targetConfiguration);
+
+        getActiveStreams(host + ":" + port).incrementAndGet();
+        streamCount.incrementAndGet();
+        PassThroughTransportMetricsCollector metrics = targetConfiguration.getMetrics();
+        if (metrics != null) {
+            metrics.streamOpened();
+        }
+        return stream;
+    }
+
+    Cancellable execute(Http2ClientStream stream) {
+        return requester.execute(stream, connectTimeout, HttpCoreContext.create());
+    }
+
+    void streamClosed(Http2ClientStream stream) {
+        AtomicInteger active = activeStreams.get(stream.getHostName() + ":" + stream.getPort());
+        if (active != null) {
+            active.decrementAndGet();
+        }
+        PassThroughTransportMetricsCollector metrics = targetConfiguration.getMetrics();
+        if (metrics != null) {
+            metrics.streamClosed(stream.getLifetime());
+        }
+    }
+
+    /**
+     * Close the connections which have not been used for the given time
+     *
+     * @param idleTime idle time in milliseconds
+     */
+    public void closeIdleConnections(long idleTime) {
+        requester.closeIdle(TimeValue.of(idleTime, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Return the number of streams in progress to each host:port
+     *
+     * @return a map of statistics keyed by host:port
+     */
+    public Map<String, Map<String, Number>> getStreamStatistics() {
+        Map<String, Map<String, Number>> statistics =
+                new LinkedHashMap<String, Map<String, Number>>();
+        for (Map.Entry<String, AtomicInteger> entry : activeStreams.entrySet()) {
+            Map<String, Number> streamStats = new LinkedHashMap<String, Number>();
+            streamStats.put("ActiveStreams", entry.getValue().get());
+            statistics.put(entry.getKey(), streamStats);
+        }
+        return statistics;
+    }
+
+    public long getStreamCount() {
+        return streamCount.get();
+    }
+
+    private AtomicInteger getActiveStreams(String key) {
+        AtomicInteger active = activeStreams.get(key);
+        if (active == null) {
+            active = new AtomicInteger(0);
+            AtomicInteger existing = activeStreams.putIfAbsent(key, active);
+            if (existing != null) {
+                active = existing;
+            }
+        }
+        return active;
+    }
+}
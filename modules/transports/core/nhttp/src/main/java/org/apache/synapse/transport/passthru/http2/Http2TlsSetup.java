@@ -0,0 +1,190 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.passthru.http2;
+
+import org.apache.hc.core5.net.NamedEndpoint;
+import org.apache.hc.core5.reactor.ssl.SSLSessionInitializer;
+import org.apache.hc.core5.reactor.ssl.SSLSessionVerifier;
+import org.apache.hc.core5.reactor.ssl.TlsDetails;
+import org.apache.http.nio.reactor.IOSession;
+import org.apache.http.nio.reactor.SessionBufferStatus;
+import org.apache.http.nio.reactor.ssl.SSLSetupHandler;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.ByteChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Applies the {@link SSLSetupHandler} of a pass-through listener or sender to the TLS sessions
+ * of its HTTP/2 connections, so that client authentication, host name verification and
+ * certificate revocation checks are the same over HTTP/1 and HTTP/2.
+ */
+class Http2TlsSetup implements SSLSessionInitializer, SSLSessionVerifier {
+
+    private final SSLSetupHandler sslSetupHandler;
+
+    Http2TlsSetup(SSLSetupHandler sslSetupHandler) {
+        this.sslSetupHandler = sslSetupHandler;
+    }
+
+    @Override
+    public void initialize(NamedEndpoint endpoint, SSLEngine sslEngine) {
+        try {
+            sslSetupHandler.initalize(sslEngine);
+        } catch (SSLException e) {
+            throw new IllegalStateException("Unable to initialize the TLS session", e);
+        }
+    }
+
+    @Override
+    public TlsDetails verify(NamedEndpoint endpoint, SSLEngine sslEngine) throws SSLException {
+        sslSetupHandler.verify(new PeerSession(getPeerAddress(endpoint, sslEngine)),
+                sslEngine.getSession());
+        // the negotiated application protocol is then taken from the engine
+        return null;
+    }
+
+    private SocketAddress getPeerAddress(NamedEndpoint endpoint, SSLEngine sslEngine) {
+        // the host name the connection was opened for, as a sender verifies it against the
+        // certificate of the peer
+        if (endpoint != null) {
+            return InetSocketAddress.createUnresolved(endpoint.getHostName(), endpoint.getPort());
+        }
+        if (sslEngine.getPeerHost() != null) {
+            return InetSocketAddress.createUnresolved(sslEngine.getPeerHost(),
+                    Math.max(sslEngine.getPeerPort(), 0));
+        }
+        return null;
+    }
+
+    /**
+     * The view of a TLS session which the {@link SSLSetupHandler} is given to verify it. Only
+     * the address of the peer and the attributes are available, the session cannot be used
+     * for I/O.
+     */
+    private static class PeerSession implements IOSession {
+
+        private final SocketAddress remoteAddress;
+        private final Map<String, Object> attributes = new HashMap<String, Object>();
+
+        PeerSession(SocketAddress remoteAddress) {
+            this.remoteAddress = remoteAddress;
+        }
+
+        @Override
+        public SocketAddress getRemoteAddress() {
+            return remoteAddress;
+        }
+
+        @Override
+        public SocketAddress getLocalAddress() {
+            return null;
+        }
+
+        @Override
+        public void setAttribute(String name, Object obj) {
+            attributes.put(name, obj);
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return attributes.get(name);
+        }
+
+        @Override
+        public Object removeAttribute(String name) {
+            return attributes.remove(name);
+        }
+
+        @Override
+        public int getStatus() {
+            return ACTIVE;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return false;
+        }
+
+        @Override
+        public ByteChannel channel() {
+            throw new UnsupportedOperationException("No I/O while verifying a TLS session");
+        }
+
+        @Override
+        public int getEventMask() {
+            throw new UnsupportedOperationException("No I/O while verifying a TLS session");
+        }
+
+        @Override
+        public void setEventMask(int ops) {
+            throw new UnsupportedOperationException("No I/O while verifying a TLS session");
+        }
+
+        @Override
+        public void setEvent(int op) {
+            throw new UnsupportedOperationException("No I/O while verifying a TLS session");
+        }
+
+        @Override
+        public void clearEvent(int op) {
+            throw new UnsupportedOperationException("No I/O while verifying a TLS session");
+        }
+
+        @Override
+        public void close() {
+            throw new UnsupportedOperationException("Fail the verification to close the session");
+        }
+
+        @Override
+        public void shutdown() {
+            throw new UnsupportedOperationException("Fail the verification to close the session");
+        }
+
+        @Override
+        public int getSocketTimeout() {
+            throw new UnsupportedOperationException("No I/O while verifying a TLS session");
+        }
+
+        @Override
+        public void setSocketTimeout(int timeout) {
+            throw new UnsupportedOperationException("No I/O while verifying a TLS session");
+        }
+
+        @Override
+        public void setBufferStatus(SessionBufferStatus status) {
+            throw new UnsupportedOperationException("No I/O while verifying a TLS session");
+        }
+
+        @Override
+        public boolean hasBufferedInput() {
+            return false;
+        }
+
+        @Override
+        public boolean hasBufferedOutput() {
+            return false;
+        }
+    }
+}
@@ -21,12 +21,14 @@ package org.apache.synapse.transport.passthru.jmx;
 
 import org.apache.axis2.AxisFault;
 import org.apache.synapse.commons.jmx.MBeanRegistrar;
+import org.apache.synapse.transport.passthru.connections.TargetConnections;
 
 import java.util.*;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * ConnectionsView MBean can be used to collect and monitor statistics on HTTP connections
@@ -36,7 +38,11 @@ import java.util.concurrent.atomic.AtomicInteger;
  * the last 24 hours of execution and they get updated every 5 minutes.  In addition to the
  * connection statistics this MBean also provides information on the request and response
  * sizes received over the HTTP connections. All messages are divided into six categories
- * based on their sizes and the resulting counts are made available as a table.
+ * based on their sizes and the resulting counts are made available as a table. For senders
+ * the MBean also exposes the depth of the connection pool of each target host:port, along
+ * with the time messages had to wait for a connection. HTTP/2 streams, each of which carries
+ * a single message exchange over a shared connection, are counted separately from the
+ * connections along with the time each stream stayed open.
  */
 public class ConnectionsView implements ConnectionsViewMBean {
 
@@ -62,6 +68,11 @@ public class ConnectionsView implements ConnectionsViewMBean {
     private AtomicInteger shortTermOpenedConnections = new AtomicInteger(0);
     private AtomicInteger longTermOpenedConnections = new AtomicInteger(0);
 
+    private AtomicInteger activeStreams = new AtomicInteger(0);
+    private AtomicLong completedStreams = new AtomicLong(0);
+    private AtomicLong totalStreamTime = new AtomicLong(0);
+    private AtomicLong maxStreamTime = new AtomicLong(0);
+
     // The array length must be equal to the number of buckets
     private AtomicInteger[] requestSizeCounters = new AtomicInteger[6];
     private AtomicInteger[] responseSizeCounters = new AtomicInteger[6];
@@ -72,6 +83,8 @@ public class ConnectionsView implements ConnectionsViewMBean {
 
     private String name;
 
+    private volatile TargetConnections targetConnections;
+
     public ConnectionsView(String name) throws AxisFault {
         this.name = name;
 
@@ -135,6 +148,10 @@ public class ConnectionsView implements ConnectionsViewMBean {
         }
     }
 
+    protected void setTargetConnections(TargetConnections targetConnections) {
+        this.targetConnections = targetConnections;
+    }
+
     protected void connected() {
         activeConnections.incrementAndGet();
         shortTermOpenedConnections.incrementAndGet();
@@ -145,6 +162,20 @@ public class ConnectionsView implements ConnectionsViewMBean {
         activeConnections.decrementAndGet();
     }
 
+    protected void streamOpened() {
+        activeStreams.incrementAndGet();
+    }
+
+    protected void streamClosed(long lifetime) {
+        activeStreams.decrementAndGet();
+        completedStreams.incrementAndGet();
+        totalStreamTime.addAndGet(lifetime);
+        long currentMax = maxStreamTime.get();
+        while (lifetime > currentMax && !maxStreamTime.compareAndSet(currentMax, lifetime)) {
+            currentMax = maxStreamTime.get();
+        }
+    }
+
     protected void notifyMessageSize(long size, boolean isRequest) {
         // This logic gets executed for each and every transaction. For a typical
         // mediation scenario this method will be called 4 times. Therefore I'm using
@@ -214,6 +245,43 @@ public class ConnectionsView implements ConnectionsViewMBean {
         return getCountersMap(responseSizeCounters);
     }
 
+    @Override
+    public Map getConnectionPoolsMap() {
+        TargetConnections connections = targetConnections;
+        if (connections == null) {
+            return Collections.emptyMap();
+        }
+        return connections.getPoolStatistics();
+    }
+
+    @Override
+    public int getActiveStreams() {
+        return activeStreams.get();
+    }
+
+    @Override
+    public long getTotalStreams() {
+        return completedStreams.get();
+    }
+
+    /**
+     * @return average time in milliseconds an HTTP/2 stream stayed open
+     */
+    @Override
+    public double getAverageStreamLatency() {
+        long count = completedStreams.get();
+        return count == 0 ? 0 : toMillis(totalStreamTime.get()) / count;
+    }
+
+    @Override
+    public double getMaxStreamLatency() {
+        return toMillis(maxStreamTime.get());
+    }
+
+    private double toMillis(long nanos) {
+        return nanos / 1000000.0;
+    }
+
     @Override
     public Date getLastResetTime() {
         return resetTime;
@@ -238,6 +306,13 @@ public class ConnectionsView implements ConnectionsViewMBean {
         initCounters(responseSizeCounters);
         shortTermDataQueue.clear();
         longTermDataQueue.clear();
+        completedStreams.set(0);
+        totalStreamTime.set(0);
+        maxStreamTime.set(0);
+        TargetConnections connections = targetConnections;
+        if (connections != null) {
+            connections.resetStatistics();
+        }
         resetTime = Calendar.getInstance().getTime();
     }
 
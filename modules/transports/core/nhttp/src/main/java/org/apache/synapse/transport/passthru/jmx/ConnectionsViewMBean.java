@@ -33,6 +33,11 @@ public interface ConnectionsViewMBean {
     public int getLast24HourConnections();
     public Map getRequestSizesMap();
     public Map getResponseSizesMap();
+    public Map getConnectionPoolsMap();
+    public int getActiveStreams();
+    public long getTotalStreams();
+    public double getAverageStreamLatency();
+    public double getMaxStreamLatency();
     public Date getLastResetTime();
 
     public void reset();
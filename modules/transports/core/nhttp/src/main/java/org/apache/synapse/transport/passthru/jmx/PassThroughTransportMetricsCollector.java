@@ -21,6 +21,7 @@ package org.apache.synapse.transport.passthru.jmx;
 
 import org.apache.axis2.AxisFault;
 import org.apache.axis2.transport.base.MetricsCollector;
+import org.apache.synapse.transport.passthru.connections.TargetConnections;
 
 /**
  * <p>This simple extension of the Axis2 transport MetricsCollector implementation,
@@ -31,7 +32,8 @@ import org.apache.axis2.transport.base.MetricsCollector;
  *    <li>connected (this should get called whenever a new connection is created)</li>
  *    <li>disconnected (this should get called whenever an existing connection is closed)</li>
  * <ul>
- * <p>These new events are used to update the ConnectionsView at runtime.</p>
+ * <p>These new events are used to update the ConnectionsView at runtime. HTTP/2 streams are
+ * reported through the streamOpened and streamClosed events.</p>
  */
 public class PassThroughTransportMetricsCollector extends MetricsCollector {
 
@@ -49,6 +51,15 @@ public class PassThroughTransportMetricsCollector extends MetricsCollector {
         view.destroy();
     }
 
+    /**
+     * Expose the connection pools of a sender through the ConnectionsView
+     *
+     * @param targetConnections the connection pools of the sender
+     */
+    public void setTargetConnections(TargetConnections targetConnections) {
+        view.setTargetConnections(targetConnections);
+    }
+
     public void connected() {
         view.connected();
     }
@@ -57,6 +68,19 @@ public class PassThroughTransportMetricsCollector extends MetricsCollector {
         view.disconnected();
     }
 
+    public void streamOpened() {
+        view.streamOpened();
+    }
+
+    /**
+     * Notify the end of an HTTP/2 stream
+     *
+     * @param lifetime time in nanoseconds the stream stayed open
+     */
+    public void streamClosed(long lifetime) {
+        view.streamClosed(lifetime);
+    }
+
     @Override
     public void notifyReceivedMessageSize(long l) {
         super.notifyReceivedMessageSize(l);
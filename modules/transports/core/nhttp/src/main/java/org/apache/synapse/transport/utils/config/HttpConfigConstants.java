@@ -36,4 +36,11 @@ public class HttpConfigConstants {
 
     public static final String HTTP_MALFORMED_INPUT_ACTION = "http.malformed.input.action";
     public static final String HTTP_UNMAPPABLE_INPUT_ACTION = "http.unmappable.input.action";
+
+    public static final String WORKER_POOL_VIRTUAL_THREADS = "worker_pool_virtual_threads";
+
+    public static final String CONNECTION_MAX_IDLE_TIME = "http.connection.max-idle-time";
+
+    public static final String HTTP2_MAX_CONCURRENT_STREAMS = "http.h2.max-concurrent-streams";
+    public static final String HTTP2_INITIAL_WINDOW_SIZE = "http.h2.initial-window-size";
 }
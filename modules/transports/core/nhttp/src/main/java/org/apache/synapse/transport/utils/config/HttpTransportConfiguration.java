@@ -142,6 +142,45 @@ public abstract class HttpTransportConfiguration {
                 .build();
     }
 
+    /**
+     * Check whether the worker pool should run mediation tasks on virtual threads, when the
+     * JVM supports them
+     *
+     * @return true if virtual thread workers have been enabled
+     */
+    public boolean isVirtualThreadWorkerPoolEnabled() {
+        return getBooleanProperty(HttpConfigConstants.WORKER_POOL_VIRTUAL_THREADS, false);
+    }
+
+    /**
+     * Get the time a pooled outgoing connection may stay idle before it is closed by the
+     * connection pool
+     *
+     * @return maximum idle time in milliseconds, or 0 if idle connections are not evicted
+     */
+    public int getConnectionMaxIdleTime() {
+        return getIntProperty(HttpConfigConstants.CONNECTION_MAX_IDLE_TIME, 0);
+    }
+
+    /**
+     * Get the maximum number of concurrent HTTP/2 streams allowed on a single connection
+     *
+     * @return maximum number of concurrent streams per HTTP/2 connection
+     */
+    public int getHttp2MaxConcurrentStreams() {
+        return getIntProperty(HttpConfigConstants.HTTP2_MAX_CONCURRENT_STREAMS, 100);
+    }
+
+    /**
+     * Get the initial HTTP/2 flow control window of a stream. This is the number of bytes
+     * the peer may send on a stream before the transport has handed them over to mediation.
+     *
+     * @return initial stream window size in bytes
+     */
+    public int getHttp2InitialWindowSize() {
+        return getIntProperty(HttpConfigConstants.HTTP2_INITIAL_WINDOW_SIZE, 65535);
+    }
+
     /**
      * Get an int property that tunes the http transport. Prefer system properties
      *
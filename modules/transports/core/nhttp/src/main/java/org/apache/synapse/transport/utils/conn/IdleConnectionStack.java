@@ -0,0 +1,203 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.utils.conn;
+
+import org.apache.http.nio.NHttpClientConnection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A lock-free stack of idle client connections to a single host:port. Connections are
+ * reused in LIFO order, so that the most recently used connection (which is the most likely
+ * to still be open and to have a warm TLS session) is handed out first, while the connections
+ * at the bottom of the stack are the ones which have been idle for the longest time and are
+ * evicted first.
+ * <p/>
+ * Pushing and popping a connection are O(1). Removing an arbitrary connection (e.g. when it
+ * is closed by the remote end) is O(1) as well, since the stack entry is only marked as
+ * removed and is discarded lazily when it reaches either end of the stack. Once the removed
+ * entries outnumber the idle connections they are purged from the middle of the stack too,
+ * so that they do not pile up when connections are never evicted for being idle.
+ */
+public class IdleConnectionStack {
+
+    private final ConcurrentLinkedDeque<Entry> stack = new ConcurrentLinkedDeque<Entry>();
+    private final ConcurrentMap<NHttpClientConnection, Entry> entries =
+            new ConcurrentHashMap<NHttpClientConnection, Entry>();
+    private final AtomicInteger size = new AtomicInteger(0);
+
+    /** Number of entries removed since the last purge, which may still be in the stack */
+    private final AtomicInteger removed = new AtomicInteger(0);
+    private final AtomicBoolean purging = new AtomicBoolean(false);
+
+    /** Number of removed entries tolerated in the stack regardless of its size */
+    private static final int MIN_PURGE_THRESHOLD = 16;
+
+    /**
+     * Add an idle connection to the top of the stack
+     *
+     * @param conn the idle connection
+     */
+    public void push(NHttpClientConnection conn) {
+        Entry entry = new Entry(conn);
+        Entry previous = entries.put(conn, entry);
+        if (previous != null && previous.claim()) {
+            size.decrementAndGet();
+            onRemoved();
+        }
+        stack.offerFirst(entry);
+        size.incrementAndGet();
+    }
+
+    /**
+     * Take the most recently used idle connection off the stack
+     *
+     * @return an idle connection or null if there are none
+     */
+    public NHttpClientConnection pop() {
+        Entry entry;
+        while ((entry = stack.pollFirst()) != null) {
+            if (entry.claim()) {
+                entries.remove(entry.conn, entry);
+                size.decrementAndGet();
+                return entry.conn;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Remove the given connection from the stack, if it is idle
+     *
+     * @param conn the connection to be removed
+     * @return true if the connection was idle and has been removed
+     */
+    public boolean remove(NHttpClientConnection conn) {
+        Entry entry = entries.remove(conn);
+        if (entry != null && entry.claim()) {
+            size.decrementAndGet();
+            onRemoved();
+            return true;
+        }
+        return false;
+    }
+
+    private void onRemoved() {
+        if (removed.incrementAndGet() > Math.max(size.get(), MIN_PURGE_THRESHOLD)) {
+            purge();
+        }
+    }
+
+    /**
+     * Discard the entries which have been removed from anywhere in the stack
+     */
+    private void purge() {
+        if (!purging.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            removed.set(0);
+            for (Iterator<Entry> it = stack.iterator(); it.hasNext();) {
+                if (it.next().isClaimed()) {
+                    it.remove();
+                }
+            }
+        } finally {
+            purging.set(false);
+        }
+    }
+
+    /**
+     * Remove all connections which have been idle for longer than the given time from the
+     * bottom of the stack. The caller is responsible for closing the returned connections.
+     *
+     * @param maxIdleTime maximum idle time in milliseconds
+     * @return the connections removed from the stack
+     */
+    public List<NHttpClientConnection> evictIdle(long maxIdleTime) {
+        List<NHttpClientConnection> evicted = null;
+        long now = System.currentTimeMillis();
+        Entry entry;
+        while ((entry = stack.peekLast()) != null) {
+            if (entry.isClaimed()) {
+                stack.removeLastOccurrence(entry);
+                continue;
+            }
+            if (now - entry.idleSince < maxIdleTime) {
+                break;
+            }
+            if (entry.claim()) {
+                entries.remove(entry.conn, entry);
+                size.decrementAndGet();
+                if (evicted == null) {
+                    evicted = new ArrayList<NHttpClientConnection>();
+                }
+                evicted.add(entry.conn);
+            }
+            stack.removeLastOccurrence(entry);
+        }
+        if (evicted == null) {
+            return Collections.emptyList();
+        }
+        return evicted;
+    }
+
+    /**
+     * @return the number of idle connections in the stack
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * @return the number of entries in the stack, including the removed ones not yet discarded
+     */
+    int entryCount() {
+        return stack.size();
+    }
+
+    private static class Entry {
+
+        private final NHttpClientConnection conn;
+        private final long idleSince;
+        private final AtomicBoolean claimed = new AtomicBoolean(false);
+
+        Entry(NHttpClientConnection conn) {
+            this.conn = conn;
+            this.idleSince = System.currentTimeMillis();
+        }
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        boolean isClaimed() {
+            return claimed.get();
+        }
+    }
+}
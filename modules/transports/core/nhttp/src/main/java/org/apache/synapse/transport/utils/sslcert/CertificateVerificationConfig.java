@@ -28,6 +28,7 @@ public class CertificateVerificationConfig {
 
     private Integer cacheSize = Constants.CACHE_DEFAULT_ALLOCATED_SIZE;
     private Integer cacheDuration = Constants.CACHE_DEFAULT_DURATION_MINS;
+    private String cacheDirectory = null;
 
     public CertificateVerificationConfig(Parameter param) {
         if (param == null) {
@@ -42,6 +43,10 @@ public class CertificateVerificationConfig {
         if (durationElement != null) {
             cacheDuration = new Integer(durationElement.getText());
         }
+        OMElement directoryElement = element.getFirstChildWithName(new QName("CacheDirectory"));
+        if (directoryElement != null && directoryElement.getText().trim().length() > 0) {
+            cacheDirectory = directoryElement.getText().trim();
+        }
     }
 
     public Integer getCacheSize() {
@@ -51,4 +56,12 @@ public class CertificateVerificationConfig {
     public Integer getCacheDuration() {
         return cacheDuration;
     }
+
+    /**
+     * @return directory in which the OCSP and CRL caches are persisted, or null if the caches
+     * are kept in memory only
+     */
+    public String getCacheDirectory() {
+        return cacheDirectory;
+    }
 }
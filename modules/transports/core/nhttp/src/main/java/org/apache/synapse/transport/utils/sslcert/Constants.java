@@ -27,6 +27,11 @@ public interface Constants {
     public static final int CACHE_MAX_DURATION_MINS = 60 * 24;
     public static final int CACHE_MIN_DURATION_MINS = 1;
     public static final int CACHE_DEFAULT_DURATION_MINS = 15;
+    //Cache values are renewed in the background once they enter this last part of their validity
+    public static final int CACHE_REFRESH_AHEAD_PERCENTAGE = 25;
+
+    public static final String OCSP_CACHE_FILE = "ocsp-cache.dat";
+    public static final String CRL_CACHE_FILE = "crl-cache.dat";
 
     public static final String REVOCATION_MANAGER = "org.apache.synapse.transport.utils.sslcert." +
             "RevocationVerificationManager";
@@ -38,9 +38,22 @@ public class RevocationVerificationManager {
 
     private int cacheSize = Constants.CACHE_DEFAULT_ALLOCATED_SIZE;
     private int cacheDurationMins = Constants.CACHE_DEFAULT_DURATION_MINS;
+    private String cacheDirectory = null;
     private static final Log log = LogFactory.getLog(RevocationVerificationManager.class);
 
     public RevocationVerificationManager(Integer cacheAllocatedSize, Integer cacheDurationMins) {
+        this(cacheAllocatedSize, cacheDurationMins, null);
+    }
+
+    /**
+     * @param cacheAllocatedSize maximum size of the OCSP and CRL caches
+     * @param cacheDurationMins  period of the cache managers in minutes
+     * @param cacheDirectory     directory in which the caches are persisted, so that they are
+     *                           warm after a restart. May be null
+     */
+    public RevocationVerificationManager(Integer cacheAllocatedSize, Integer cacheDurationMins,
+                                         String cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
 
         if (cacheAllocatedSize != null && cacheAllocatedSize > Constants.CACHE_MIN_ALLOCATED_SIZE
                 && cacheAllocatedSize < Constants.CACHE_MAX_ALLOCATED_SIZE) {
@@ -68,9 +81,9 @@ public class RevocationVerificationManager {
         long start = System.currentTimeMillis();
 
         OCSPCache ocspCache = OCSPCache.getCache();
-        ocspCache.init(cacheSize, cacheDurationMins);
+        ocspCache.init(cacheSize, cacheDurationMins, cacheDirectory);
         CRLCache crlCache = CRLCache.getCache();
-        crlCache.init(cacheSize, cacheDurationMins);
+        crlCache.init(cacheSize, cacheDurationMins, cacheDirectory);
 
         RevocationVerifier[] verifiers = {new OCSPVerifier(ocspCache), new CRLVerifier(crlCache)};
 
@@ -39,6 +39,12 @@ public class SynapseAdaptorForOcspCrl {
 
     public void verifyRevocationStatus(X509Certificate[] peerCertificates, Integer cacheSize,
                                        Integer cacheDelay) throws CertificateVerificationException {
+        verifyRevocationStatus(peerCertificates, cacheSize, cacheDelay, null);
+    }
+
+    public void verifyRevocationStatus(X509Certificate[] peerCertificates, Integer cacheSize,
+                                       Integer cacheDelay, String cacheDirectory)
+            throws CertificateVerificationException {
 
         if (peerCertificates == null || cacheSize == null || cacheDelay == null) {
             throw new IllegalArgumentException("Argument cannot be null");
@@ -49,8 +55,9 @@ public class SynapseAdaptorForOcspCrl {
             Method method = revocationManagerClass.getMethod(Constants.VERIFY_METHOD,
                     peerCertificates.getClass());
             Constructor constructor = revocationManagerClass.getConstructor(cacheSize.getClass(),
-                    cacheDelay.getClass());
-            Object revocationManager = constructor.newInstance(cacheSize, cacheDelay);
+                    cacheDelay.getClass(), String.class);
+            Object revocationManager = constructor.newInstance(cacheSize, cacheDelay,
+                    cacheDirectory);
             method.invoke(revocationManager, new Object[] { peerCertificates });
         } catch (Exception e) {
             throw new CertificateVerificationException("Failed to load BouncyCastle classes for " +
@@ -24,6 +24,7 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.transport.utils.sslcert.Constants;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -117,6 +118,25 @@ public class CacheManager {
         return duration;
     }
 
+    /**
+     * Cache values are renewed in the background once they enter the last part of their
+     * validity period, so that lookups keep finding a valid value.
+     *
+     * @param thisUpdate start of the validity period of the value, may be null
+     * @param nextUpdate end of the validity period of the value, may be null
+     * @return the time in milliseconds from which the value should be refreshed
+     */
+    public static long getRefreshTime(Date thisUpdate, Date nextUpdate) {
+        if (nextUpdate == null) {
+            return 0;
+        }
+        if (thisUpdate == null || !thisUpdate.before(nextUpdate)) {
+            return nextUpdate.getTime();
+        }
+        long validity = nextUpdate.getTime() - thisUpdate.getTime();
+        return nextUpdate.getTime() - validity * Constants.CACHE_REFRESH_AHEAD_PERCENTAGE / 100;
+    }
+
     /**
      * Gracefully stop cacheManager.
      */
@@ -146,32 +166,17 @@ public class CacheManager {
                 log.debug(cache.getClass().getSimpleName() + " Cache Manager Task Started.");
             }
 
-            ManageableCacheValue nextCacheValue;
-            //cache.getCacheSize() can vary when new entries are added. So get cache size at this point
-            int cacheSize = cache.getCacheSize();
+            //Work on a snapshot, entries added or removed meanwhile are handled in the next run.
+            List<? extends ManageableCacheValue> cacheValues = cache.getCacheValues();
+            int cacheSize = cacheValues.size();
             int numberToRemove = (cacheSize>cacheMaxSize)?  cacheSize - cacheMaxSize: 0;
 
             List<ManageableCacheValue> entriesToRemove = new ArrayList<ManageableCacheValue>();
             LRUEntryCollector lruEntryCollector = new LRUEntryCollector(entriesToRemove, numberToRemove);
 
-            //Start looking at cache entries from the beginning.
-            cache.resetIterator();
-            //Iteration through the cache entries.
-            while ((cacheSize--) > 0) {
-                nextCacheValue = cache.getNextCacheValue();
-                if (nextCacheValue == null) {
-                    log.debug("Cache manager iteration through Cache values done");
-                    break;
-                }
-
-                //Updating invalid cache values
-                if (!nextCacheValue.isValid()) {
-                    log.debug("Updating Invalid Cache Value by Manager");
-                    nextCacheValue.updateCacheWithNewValue();
-                }
-
-                //There are LRU entries to be removed since cacheSize > maxCacheSize. So collect them.
-                if (numberToRemove > 0) {
+            //There are LRU entries to be removed since cacheSize > maxCacheSize. So collect them.
+            if (numberToRemove > 0) {
+                for (ManageableCacheValue nextCacheValue : cacheValues) {
                     lruEntryCollector.collectEntriesToRemove(nextCacheValue);
                 }
             }
@@ -182,6 +187,21 @@ public class CacheManager {
                 oldCacheValue.removeThisCacheValue();
             }
 
+            //Invalid values, and values which would expire before the next run, are renewed in
+            //the background so that the manager never waits on a remote server.
+            long nextRun = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(duration);
+            for (ManageableCacheValue nextCacheValue : cacheValues) {
+                if (entriesToRemove.contains(nextCacheValue)) {
+                    continue;
+                }
+                if (!nextCacheValue.isValid() || nextCacheValue.isRefreshDue(nextRun)) {
+                    log.debug("Refreshing Cache Value by Manager");
+                    nextCacheValue.refreshCacheValue();
+                }
+            }
+
+            cache.persist();
+
             if (log.isDebugEnabled()) {
                 log.debug(cache.getClass().getSimpleName()+" Cache Manager Task Done. Took " +
                         (System.currentTimeMillis() - start) + " ms.");
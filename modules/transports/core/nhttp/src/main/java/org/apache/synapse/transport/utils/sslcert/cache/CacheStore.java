@@ -0,0 +1,155 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.utils.sslcert.cache;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persists the entries of a revocation cache to a file, so that the cache can be warmed up
+ * again after a restart instead of fetching every response during the first handshakes.
+ * Each entry is stored as a fixed number of byte arrays, whose meaning is up to the cache.
+ * The file is replaced atomically, a partially written file is never read.
+ */
+public class CacheStore {
+
+    private static final Log log = LogFactory.getLog(CacheStore.class);
+
+    private static final int MAGIC = 0x53594e43;
+    private static final int VERSION = 1;
+
+    private final File file;
+    private final int fields;
+
+    /**
+     * @param file   the file holding the cache entries
+     * @param fields number of byte arrays making up an entry
+     */
+    public CacheStore(File file, int fields) {
+        this.file = file;
+        this.fields = fields;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Replace the contents of the store with the given entries
+     *
+     * @param entries entries of the cache
+     * @throws IOException if the entries cannot be written
+     */
+    public void write(List<byte[][]> entries) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Unable to create the directory : " + dir);
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        FileOutputStream fos = new FileOutputStream(tmp);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(fields);
+            out.writeInt(entries.size());
+            for (byte[][] entry : entries) {
+                for (int i = 0; i < fields; i++) {
+                    byte[] field = entry[i] != null ? entry[i] : new byte[0];
+                    out.writeInt(field.length);
+                    out.write(field);
+                }
+            }
+            out.flush();
+            fos.getFD().sync();
+        } finally {
+            out.close();
+        }
+
+        // the old file stays in place until the new one replaces it
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Read the entries of the store
+     *
+     * @return the stored entries, an empty list if the store does not exist or is unreadable
+     */
+    public List<byte[][]> read() {
+        List<byte[][]> entries = new ArrayList<byte[][]>();
+        if (!file.exists()) {
+            return entries;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != fields) {
+                log.warn("Ignoring the cache file : " + file + " since its format is unknown");
+                return entries;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                byte[][] entry = new byte[fields][];
+                for (int j = 0; j < fields; j++) {
+                    int length = in.readInt();
+                    if (length < 0 || length > file.length()) {
+                        throw new IOException("Corrupted cache file");
+                    }
+                    entry[j] = new byte[length];
+                    in.readFully(entry[j]);
+                }
+                entries.add(entry);
+            }
+        } catch (IOException e) {
+            log.warn("Error reading the cache file : " + file, e);
+            entries.clear();
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignore) {
+                    // nothing to do
+                }
+            }
+        }
+        return entries;
+    }
+}
@@ -19,14 +19,23 @@
 
 package org.apache.synapse.transport.utils.sslcert.cache;
 
+import java.util.List;
+
 /**
  * A cache which needs to be managed by CacheManager needs to implement this interface.
  */
 public interface ManageableCache {
 
-    public ManageableCacheValue getNextCacheValue();
+    /**
+     * @return a snapshot of the values currently in the cache
+     */
+    public List<? extends ManageableCacheValue> getCacheValues();
 
     public int getCacheSize();
 
-    public void resetIterator();
+    /**
+     * Called by the CacheManager at the end of each run, so that the cache can write out
+     * its entries if it is persistent.
+     */
+    public void persist();
 }
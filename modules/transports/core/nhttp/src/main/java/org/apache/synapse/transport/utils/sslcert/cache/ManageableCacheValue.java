@@ -28,10 +28,17 @@ public interface ManageableCacheValue {
     //To remove invalid entries from the cache.
     public boolean isValid();
 
+    //To renew entries asynchronously before they expire. The given time is the point in time
+    //at which the value must still be usable.
+    public boolean isRefreshDue(long time);
+
     //To decide LRU value to replace.
     public long getTimeStamp();
 
     public void removeThisCacheValue();
 
     public void updateCacheWithNewValue();
+
+    //To renew the value in the background while the current one is still being served.
+    public void refreshCacheValue();
 }
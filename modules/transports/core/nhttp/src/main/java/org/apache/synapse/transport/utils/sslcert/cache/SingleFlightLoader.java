@@ -0,0 +1,156 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.utils.sslcert.cache;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.transport.utils.sslcert.CertificateVerificationException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Makes sure that at most one fetch per key is in progress against a remote revocation
+ * server. Threads which need a value that is already being fetched wait for that fetch
+ * instead of issuing one of their own. Values can also be refreshed in the background, in
+ * which case the caller keeps serving the current value.
+ *
+ * @param <K> type of the cache keys
+ * @param <V> type of the fetched values
+ */
+public class SingleFlightLoader<K, V> {
+
+    private static final Log log = LogFactory.getLog(SingleFlightLoader.class);
+
+    private static final int REFRESH_THREADS = 2;
+
+    private final ConcurrentMap<K, FutureTask<V>> inFlight = new ConcurrentHashMap<K, FutureTask<V>>();
+    private final ExecutorService refreshExecutor;
+
+    /**
+     * @param name used to name the background refresh threads
+     */
+    public SingleFlightLoader(final String name) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(REFRESH_THREADS, REFRESH_THREADS,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger(0);
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, name + "-refresh-" + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        this.refreshExecutor = executor;
+    }
+
+    /**
+     * Fetch the value of the given key on the calling thread, or wait for the fetch which is
+     * already in progress for that key.
+     *
+     * @param key     key of the value
+     * @param fetcher fetches the value and puts it in the cache
+     * @return the fetched value
+     * @throws CertificateVerificationException if the fetch failed
+     */
+    public V load(K key, Callable<V> fetcher) throws CertificateVerificationException {
+        FutureTask<V> task = new LoadTask(key, fetcher);
+        FutureTask<V> existing = inFlight.putIfAbsent(key, task);
+        if (existing == null) {
+            task.run();
+            existing = task;
+        } else if (log.isDebugEnabled()) {
+            log.debug("Waiting for the fetch in progress for : " + key);
+        }
+
+        try {
+            return existing.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CertificateVerificationException) {
+                throw (CertificateVerificationException) cause;
+            }
+            throw new CertificateVerificationException("Error fetching the value for : " + key,
+                    cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CertificateVerificationException("Interrupted while fetching the value " +
+                    "for : " + key, e);
+        }
+    }
+
+    /**
+     * Fetch the value of the given key in the background, unless a fetch is already in
+     * progress for that key.
+     *
+     * @param key     key of the value
+     * @param fetcher fetches the value and puts it in the cache
+     * @return true if a new background fetch was started
+     */
+    public boolean refresh(K key, Callable<V> fetcher) {
+        FutureTask<V> task = new LoadTask(key, fetcher);
+        if (inFlight.putIfAbsent(key, task) != null) {
+            return false;
+        }
+
+        try {
+            refreshExecutor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, task);
+            return false;
+        }
+    }
+
+    /**
+     * @return number of fetches currently in progress
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private class LoadTask extends FutureTask<V> {
+
+        private final K key;
+
+        LoadTask(K key, Callable<V> fetcher) {
+            super(fetcher);
+            this.key = key;
+        }
+
+        @Override
+        protected void done() {
+            inFlight.remove(key, this);
+        }
+    }
+}
@@ -23,36 +23,57 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.apache.synapse.commons.jmx.MBeanRegistrar;
+import org.apache.synapse.transport.utils.sslcert.CertificateVerificationException;
+import org.apache.synapse.transport.utils.sslcert.Constants;
 import org.apache.synapse.transport.utils.sslcert.cache.CacheController;
 import org.apache.synapse.transport.utils.sslcert.cache.CacheManager;
+import org.apache.synapse.transport.utils.sslcert.cache.CacheStore;
 import org.apache.synapse.transport.utils.sslcert.cache.ManageableCache;
 import org.apache.synapse.transport.utils.sslcert.cache.ManageableCacheValue;
+import org.apache.synapse.transport.utils.sslcert.cache.SingleFlightLoader;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.cert.CRLException;
+import java.security.cert.CertificateFactory;
 import java.security.cert.X509CRL;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Since a CRL maps to a CRL URL, the CRLCache should have x509CRL entries against CRL URLs.
  * This cache is a Singleton since it is shared by any transport which needs SSL certificate
  * validation and more than one CRLCache should not be allowed per system.
+ * <p/>
+ * Lookups never block on other lookups. CRLs are downloaded again in the background once
+ * they enter the last part of their validity period, and at most one download per URL is
+ * in progress at any time. Optionally the cache is persisted to a file, from which it is
+ * warmed up when the cache is initialized.
  */
 public class CRLCache implements ManageableCache {
 
     private static final Log log = LogFactory.getLog(CRLCache.class);
 
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
     private static final CRLCache cache = new CRLCache();
     private final Map<String, CRLCacheValue> hashMap;
-    private Iterator<Map.Entry<String, CRLCacheValue>> iterator;
     private volatile CacheManager cacheManager;
     private final CRLVerifier crlVerifier;
+    private final SingleFlightLoader<String, X509CRL> loader;
+    private volatile CacheStore store;
+    private volatile boolean dirty = false;
 
     private CRLCache() {
         hashMap = new ConcurrentHashMap<String, CRLCacheValue>();
-        iterator = hashMap.entrySet().iterator();
         crlVerifier = new CRLVerifier(null);
+        loader = new SingleFlightLoader<String, X509CRL>("crl-cache");
     }
 
     public static CRLCache getCache() {
@@ -67,9 +88,27 @@ public class CRLCache implements ManageableCache {
      * @param delay defines how frequently the CacheManager will be started
      */
     public void init(int size, int delay) {
+        init(size, delay, null);
+    }
+
+    /**
+     * This initialize the Cache with a CacheManager, and optionally warms it up from the cache
+     * file in the given directory.
+     *
+     * @param size max size of the cache
+     * @param delay defines how frequently the CacheManager will be started
+     * @param cacheDirectory directory in which the cache is persisted, or null to keep the
+     *                       cache in memory only
+     */
+    public void init(int size, int delay, String cacheDirectory) {
         if (cacheManager == null) {
             synchronized (CRLCache.class) {
                 if (cacheManager == null) {
+                    if (cacheDirectory != null) {
+                        store = new CacheStore(new File(cacheDirectory,
+                                Constants.CRL_CACHE_FILE), 2);
+                        restore();
+                    }
                     cacheManager = new CacheManager(cache, size, delay);
                     CacheController mbean = new CacheController(cache, cacheManager);
                     MBeanRegistrar.getInstance().registerMBean(mbean, "CacheController",
@@ -81,53 +120,125 @@ public class CRLCache implements ManageableCache {
 
     /**
      * This method is needed by the cache Manager to go through the cache entries to remove
-     * invalid values or to remove LRU cache values if the cache has reached its max size.
+     * invalid values or to remove LRU values if the cache has reached its max size.
      *
-     * @return next cache value of the cache.
+     * @return a snapshot of the cache values.
      */
     @Override
-    public synchronized ManageableCacheValue getNextCacheValue() {
-        //changes to the map are reflected on the keySet. And its iterator is weakly consistent.
-        // so will never throw concurrent modification exception.
-        if (iterator.hasNext()) {
-            return hashMap.get(iterator.next().getKey());
-        } else {
-            resetIterator();
-            return null;
-        }
+    public List<? extends ManageableCacheValue> getCacheValues() {
+        return new ArrayList<CRLCacheValue>(hashMap.values());
     }
 
     /**
      * To get the current cache size (size of the hash map).
      */
     @Override
-    public synchronized int getCacheSize() {
+    public int getCacheSize() {
         return hashMap.size();
     }
 
+    /**
+     * Write the cached CRLs to the cache file, if the cache is persistent and has changed
+     * since it was last written.
+     */
     @Override
-    public synchronized void resetIterator() {
-        iterator = hashMap.entrySet().iterator();
-    }
-
-    private synchronized void replaceNewCacheValue(CRLCacheValue cacheValue) {
-        //If someone has updated with the new value before current Thread.
-        if (cacheValue.isValid()) {
+    public void persist() {
+        CacheStore cacheStore = store;
+        if (cacheStore == null || !dirty) {
             return;
         }
+        dirty = false;
+
+        List<byte[][]> entries = new ArrayList<byte[][]>();
+        for (CRLCacheValue cacheValue : hashMap.values()) {
+            if (!cacheValue.isValid()) {
+                continue;
+            }
+            try {
+                entries.add(new byte[][] {
+                        cacheValue.crlUrl.getBytes(UTF8),
+                        cacheValue.crl.getEncoded()
+                });
+            } catch (CRLException e) {
+                log.debug("Cannot encode the CRL of : " + cacheValue.crlUrl, e);
+            }
+        }
 
         try {
-            String crlUrl = cacheValue.crlUrl;
-            X509CRL x509CRL = crlVerifier.downloadCRLFromWeb(crlUrl);
-            this.setCacheValue(crlUrl, x509CRL);
-        } catch (Exception e) {
-            log.debug("Cant replace old CacheValue with new CacheValue. So remove", e);
-            //If cant be replaced remove.
-            cacheValue.removeThisCacheValue();
+            cacheStore.write(entries);
+            if (log.isDebugEnabled()) {
+                log.debug("Wrote " + entries.size() + " CRLs to " + cacheStore.getFile());
+            }
+        } catch (IOException e) {
+            dirty = true;
+            log.warn("Cannot write the CRL cache to : " + cacheStore.getFile(), e);
+        }
+    }
+
+    /**
+     * Load the valid CRLs from the cache file, downloading the ones which are about to
+     * expire again in the background.
+     */
+    private void restore() {
+        int restored = 0;
+        for (byte[][] entry : store.read()) {
+            try {
+                String crlUrl = new String(entry[0], UTF8);
+                CertificateFactory cf = CertificateFactory.getInstance("X.509");
+                X509CRL crl = (X509CRL) cf.generateCRL(new ByteArrayInputStream(entry[1]));
+
+                CRLCacheValue cacheValue = new CRLCacheValue(crlUrl, crl);
+                if (cacheValue.isValid()) {
+                    hashMap.put(crlUrl, cacheValue);
+                    restored++;
+                    if (cacheValue.isRefreshDue(System.currentTimeMillis())) {
+                        cacheValue.refreshCacheValue();
+                    }
+                }
+            } catch (Exception e) {
+                log.debug("Skipping an unreadable entry of the CRL cache file", e);
+            }
         }
+        log.info("Restored " + restored + " CRLs from " + store.getFile());
+    }
+
+    /**
+     * Downloads the CRL of the given cache value again and replaces the cache value with it.
+     * A failed download only removes the cache value once it has expired.
+     */
+    private Callable<X509CRL> newRefreshTask(final CRLCacheValue cacheValue) {
+        return new Callable<X509CRL>() {
+            @Override
+            public X509CRL call() throws Exception {
+                //If someone has updated with the new value before current Thread.
+                CRLCacheValue current = hashMap.get(cacheValue.crlUrl);
+                if (current != null && current != cacheValue && current.isValid() &&
+                        !current.isRefreshDue(System.currentTimeMillis())) {
+                    return current.crl;
+                }
+
+                try {
+                    String crlUrl = cacheValue.crlUrl;
+                    X509CRL x509CRL = crlVerifier.downloadCRLFromWeb(crlUrl);
+                    setCacheValue(crlUrl, x509CRL);
+                    return x509CRL;
+                } catch (Exception e) {
+                    if (!cacheValue.isValid()) {
+                        log.debug("Cant replace old CacheValue with new CacheValue. So remove", e);
+                        //If cant be replaced remove.
+                        hashMap.remove(cacheValue.crlUrl, cacheValue);
+                        dirty = true;
+                    } else {
+                        log.debug("Cant refresh CacheValue. Keeping the current value until " +
+                                "it expires", e);
+                    }
+                    throw e;
+                }
+            }
+        };
     }
 
-    public synchronized X509CRL getCacheValue(String crlUrl) {
+    public X509CRL getCacheValue(String crlUrl) {
         CRLCacheValue cacheValue = hashMap.get(crlUrl);
         if (cacheValue != null) {
             //If who ever gets this cache value before Cache manager task found its invalid,
@@ -135,30 +246,50 @@ public class CRLCache implements ManageableCache {
             if (!cacheValue.isValid()) {
                 cacheValue.updateCacheWithNewValue();
                 CRLCacheValue crlCacheValue = hashMap.get(crlUrl);
-                return (crlCacheValue != null ? crlCacheValue.getValue() : null);
+                return (crlCacheValue != null && crlCacheValue.isValid() ?
+                        crlCacheValue.getValue() : null);
             }
 
+            if (cacheValue.isRefreshDue(System.currentTimeMillis())) {
+                cacheValue.refreshCacheValue();
+            }
             return cacheValue.getValue();
         }
         return null;
     }
 
-    public synchronized void setCacheValue(String crlUrl, X509CRL crl) {
+    /**
+     * Download a CRL which is not in the cache. If a download of the same CRL is already in
+     * progress, the calling thread waits for its result instead of downloading it again.
+     *
+     * @param crlUrl  URL of the CRL
+     * @param fetcher downloads the CRL and caches it
+     * @return the downloaded CRL
+     * @throws CertificateVerificationException if the CRL cannot be downloaded
+     */
+    public X509CRL load(String crlUrl, Callable<X509CRL> fetcher)
+            throws CertificateVerificationException {
+        return loader.load(crlUrl, fetcher);
+    }
+
+    public void setCacheValue(String crlUrl, X509CRL crl) {
         CRLCacheValue cacheValue = new CRLCacheValue(crlUrl, crl);
         if (log.isDebugEnabled()) {
             log.debug("Before set - HashMap size " + hashMap.size());
         }
         hashMap.put(crlUrl, cacheValue);
+        dirty = true;
         if (log.isDebugEnabled()) {
             log.debug("After set - HashMap size " + hashMap.size());
         }
     }
 
-    public synchronized void removeCacheValue(String crlUrl) {
+    public void removeCacheValue(String crlUrl) {
         if (log.isDebugEnabled()) {
             log.debug("Before remove - HashMap size " + hashMap.size());
         }
         hashMap.remove(crlUrl);
+        dirty = true;
         if (log.isDebugEnabled()) {
             log.debug("After remove - HashMap size " + hashMap.size());
         }
@@ -170,13 +301,16 @@ public class CRLCache implements ManageableCache {
      */
     private class CRLCacheValue implements ManageableCacheValue {
 
-        private String crlUrl;
-        private X509CRL crl;
-        private long timeStamp = System.currentTimeMillis();
+        private final String crlUrl;
+        private final X509CRL crl;
+        private final long refreshTime;
+        private volatile long timeStamp = System.currentTimeMillis();
 
         public CRLCacheValue(String crlUrl, X509CRL crl) {
             this.crlUrl = crlUrl;
             this.crl = crl;
+            this.refreshTime = CacheManager.getRefreshTime(crl.getThisUpdate(),
+                    crl.getNextUpdate());
         }
 
         public String getKey() {
@@ -198,6 +332,11 @@ public class CRLCache implements ManageableCache {
             return nextUpdate != null && nextUpdate.after(today);
         }
 
+        @Override
+        public boolean isRefreshDue(long time) {
+            return time >= refreshTime;
+        }
+
         @Override
         public long getTimeStamp() {
             return timeStamp;
@@ -213,7 +352,16 @@ public class CRLCache implements ManageableCache {
 
         @Override
         public void updateCacheWithNewValue() {
-            replaceNewCacheValue(this);
+            try {
+                loader.load(crlUrl, newRefreshTask(this));
+            } catch (CertificateVerificationException e) {
+                // already logged by the refresh task
+            }
+        }
+
+        @Override
+        public void refreshCacheValue() {
+            loader.refresh(crlUrl, newRefreshTask(this));
         }
     }
 }
@@ -35,6 +35,7 @@ import java.net.URL;
 import java.security.cert.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * This is used to verify a certificate is revoked or not by using the Certificate Revocation
@@ -82,11 +83,26 @@ public class CRLVerifier implements RevocationVerifier {
 
             //todo: Do we need to check if URL has the same domain name as issuerCert?
             try {
-                X509CRL x509CRL = downloadCRLFromWeb(crlUrl);
+                X509CRL x509CRL;
+                if (cache != null) {
+                    //Concurrent handshakes needing the same CRL share a single download.
+                    final String url = crlUrl;
+                    x509CRL = cache.load(crlUrl, new Callable<X509CRL>() {
+                        @Override
+                        public X509CRL call() throws Exception {
+                            X509CRL downloaded = downloadCRLFromWeb(url);
+                            if (downloaded == null) {
+                                throw new CertificateVerificationException("Cannot build " +
+                                        "X509CRL from : " + url);
+                            }
+                            cache.setCacheValue(url, downloaded);
+                            return downloaded;
+                        }
+                    });
+                } else {
+                    x509CRL = downloadCRLFromWeb(crlUrl);
+                }
                 if (x509CRL != null) {
-                    if (cache != null) {
-                        cache.setCacheValue(crlUrl, x509CRL);
-                    }
                     return getRevocationStatus(x509CRL, peerCert);
                 }
             } catch (Exception e) {
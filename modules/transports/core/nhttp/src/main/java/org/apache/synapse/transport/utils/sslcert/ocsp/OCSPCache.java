@@ -23,19 +23,28 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.commons.jmx.MBeanRegistrar;
 import org.apache.synapse.transport.utils.sslcert.CertificateVerificationException;
+import org.apache.synapse.transport.utils.sslcert.Constants;
 import org.apache.synapse.transport.utils.sslcert.cache.CacheController;
 import org.apache.synapse.transport.utils.sslcert.cache.CacheManager;
+import org.apache.synapse.transport.utils.sslcert.cache.CacheStore;
 import org.apache.synapse.transport.utils.sslcert.cache.ManageableCache;
 import org.apache.synapse.transport.utils.sslcert.cache.ManageableCacheValue;
+import org.apache.synapse.transport.utils.sslcert.cache.SingleFlightLoader;
+import org.bouncycastle.asn1.ocsp.BasicOCSPResponse;
 import org.bouncycastle.cert.ocsp.BasicOCSPResp;
 import org.bouncycastle.cert.ocsp.OCSPReq;
 import org.bouncycastle.cert.ocsp.OCSPResp;
 import org.bouncycastle.cert.ocsp.SingleResp;
 
+import java.io.File;
+import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -43,21 +52,30 @@ import java.util.concurrent.ConcurrentHashMap;
  * response depends on the certificate. This is a singleton since more than one cache of this
  * kind should not be allowed. This cache can be shared by many transports which need SSL
  * validation through OCSP.
+ * <p/>
+ * Lookups never block on other lookups. Responses are renewed in the background once they
+ * enter the last part of their validity period, and at most one request per serial number
+ * is sent to the OCSP responder at any time. Optionally the cache is persisted to a file,
+ * from which it is warmed up when the cache is initialized.
  */
 public class OCSPCache implements ManageableCache {
 
     private static final Log log = LogFactory.getLog(OCSPCache.class);
 
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
     private static final OCSPCache cache = new OCSPCache();
     private final Map<BigInteger,OCSPCacheValue> hashMap;
-    private Iterator<Map.Entry<BigInteger,OCSPCacheValue>> iterator;
     private volatile CacheManager cacheManager;
     private final OCSPVerifier ocspVerifier;
+    private final SingleFlightLoader<BigInteger, SingleResp> loader;
+    private volatile CacheStore store;
+    private volatile boolean dirty = false;
 
     private OCSPCache() {
         this.hashMap = new ConcurrentHashMap<BigInteger, OCSPCacheValue>();
-        this.iterator = hashMap.entrySet().iterator();
         this.ocspVerifier = new OCSPVerifier(null);
+        this.loader = new SingleFlightLoader<BigInteger, SingleResp>("ocsp-cache");
     }
 
     public static OCSPCache getCache() {
@@ -70,9 +88,26 @@ public class OCSPCache implements ManageableCache {
      * @param delay defines how frequently the CacheManager will be started
      */
     public void init(int size, int delay) {
+        init(size, delay, null);
+    }
+
+    /**
+     * This lazy initializes the Cache with a CacheManager, and optionally warms it up from the
+     * cache file in the given directory.
+     * @param size max size of the cache
+     * @param delay defines how frequently the CacheManager will be started
+     * @param cacheDirectory directory in which the cache is persisted, or null to keep the
+     *                       cache in memory only
+     */
+    public void init(int size, int delay, String cacheDirectory) {
         if (cacheManager == null) {
             synchronized (OCSPCache.class) {
                 if (cacheManager == null) {
+                    if (cacheDirectory != null) {
+                        store = new CacheStore(new File(cacheDirectory,
+                                Constants.OCSP_CACHE_FILE), 4);
+                        restore();
+                    }
                     cacheManager = new CacheManager(cache, size, delay);
                     CacheController mbean = new CacheController(cache,cacheManager);
                     MBeanRegistrar.getInstance().registerMBean(mbean, "CacheController", "OCSPCacheController");
@@ -84,19 +119,11 @@ public class OCSPCache implements ManageableCache {
     /**
      * This method is needed by the cache Manager to go through the cache entries to remove invalid values or
      * to remove LRU cache values if the cache has reached its max size.
-     * Todo: Can move to an abstract class.
-     * @return next cache value of the cache.
+     * @return a snapshot of the cache values.
      */
     @Override
-    public ManageableCacheValue getNextCacheValue() {
-        //Changes to the hash map are reflected on the keySet. And its iterator is weakly consistent. so will never
-        //throw concurrent modification exception.
-        if (iterator.hasNext()) {
-            return hashMap.get(iterator.next().getKey());
-        } else {
-            resetIterator();
-            return null;
-        }
+    public List<? extends ManageableCacheValue> getCacheValues() {
+        return new ArrayList<OCSPCacheValue>(hashMap.values());
     }
 
     /**
@@ -107,44 +134,131 @@ public class OCSPCache implements ManageableCache {
         return hashMap.size();
     }
 
+    /**
+     * Write the cached responses to the cache file, if the cache is persistent and has
+     * changed since it was last written.
+     */
     @Override
-    public synchronized void resetIterator(){
-        iterator = hashMap.entrySet().iterator();
-    }
-
-    // This has to be synchronized coz several threads will try to replace cache value
-    // (cacheManager and Reactor thread)
-    private synchronized void replaceNewCacheValue(OCSPCacheValue cacheValue){
-        //If someone has updated with the new value before current Thread.
-        if (cacheValue.isValid()) {
+    public void persist() {
+        CacheStore cacheStore = store;
+        if (cacheStore == null || !dirty) {
             return;
         }
+        dirty = false;
 
-        try {
-            String serviceUrl = cacheValue.serviceUrl;
-            OCSPReq request = cacheValue.request;
-            OCSPResp response= ocspVerifier.getOCSPResponse(serviceUrl, request);
-
-            if (OCSPResp.SUCCESSFUL != response.getStatus())
-                throw new CertificateVerificationException("OCSP response status not SUCCESSFUL");
+        List<byte[][]> entries = new ArrayList<byte[][]>();
+        for (OCSPCacheValue cacheValue : hashMap.values()) {
+            if (cacheValue.basicResponse == null || cacheValue.request == null ||
+                    !cacheValue.isValid()) {
+                continue;
+            }
+            try {
+                entries.add(new byte[][] {
+                        cacheValue.serialNumber.toByteArray(),
+                        cacheValue.serviceUrl != null ?
+                                cacheValue.serviceUrl.getBytes(UTF8) : new byte[0],
+                        cacheValue.request.getEncoded(),
+                        cacheValue.basicResponse.getEncoded()
+                });
+            } catch (IOException e) {
+                log.debug("Cannot encode the OCSP response of : " + cacheValue.serialNumber, e);
+            }
+        }
 
-            BasicOCSPResp basicResponse = (BasicOCSPResp) response.getResponseObject();
-            SingleResp[] responses = (basicResponse == null) ? null : basicResponse.getResponses();
+        try {
+            cacheStore.write(entries);
+            if (log.isDebugEnabled()) {
+                log.debug("Wrote " + entries.size() + " OCSP responses to " + cacheStore.getFile());
+            }
+        } catch (IOException e) {
+            dirty = true;
+            log.warn("Cannot write the OCSP cache to : " + cacheStore.getFile(), e);
+        }
+    }
 
-            if (responses == null)
-                throw new CertificateVerificationException("Cant get OCSP response");
+    /**
+     * Load the valid responses from the cache file, renewing the ones which are about to
+     * expire in the background.
+     */
+    private void restore() {
+        int restored = 0;
+        for (byte[][] entry : store.read()) {
+            try {
+                BigInteger serialNumber = new BigInteger(entry[0]);
+                String serviceUrl = entry[1].length > 0 ? new String(entry[1], UTF8) : null;
+                OCSPReq request = new OCSPReq(entry[2]);
+                BasicOCSPResp basicResponse = new BasicOCSPResp(
+                        BasicOCSPResponse.getInstance(entry[3]));
+
+                OCSPCacheValue cacheValue = new OCSPCacheValue(serialNumber,
+                        basicResponse.getResponses()[0], request, serviceUrl, basicResponse);
+                if (cacheValue.isValid()) {
+                    hashMap.put(serialNumber, cacheValue);
+                    restored++;
+                    if (cacheValue.isRefreshDue(System.currentTimeMillis())) {
+                        cacheValue.refreshCacheValue();
+                    }
+                }
+            } catch (Exception e) {
+                log.debug("Skipping an unreadable entry of the OCSP cache file", e);
+            }
+        }
+        log.info("Restored " + restored + " OCSP responses from " + store.getFile());
+    }
 
-            SingleResp resp = responses[0];
-            this.setCacheValue(cacheValue.serialNumber, resp, request, serviceUrl);
+    /**
+     * Fetches a new response for the given cache value from the OCSP responder and replaces
+     * the cache value with it. A failed fetch only removes the cache value once it has expired.
+     */
+    private Callable<SingleResp> newRefreshTask(final OCSPCacheValue cacheValue) {
+        return new Callable<SingleResp>() {
+            @Override
+            public SingleResp call() throws Exception {
+                //If someone has updated with the new value before current Thread.
+                OCSPCacheValue current = hashMap.get(cacheValue.serialNumber);
+                if (current != null && current != cacheValue && current.isValid() &&
+                        !current.isRefreshDue(System.currentTimeMillis())) {
+                    return current.singleResp;
+                }
 
-        } catch (Exception e){
-            log.debug("Cant replace old CacheValue with new CacheValue. So remove", e);
-            //If cant be replaced remove.
-            cacheValue.removeThisCacheValue();
-        }
+                try {
+                    String serviceUrl = cacheValue.serviceUrl;
+                    OCSPReq request = cacheValue.request;
+                    if (serviceUrl == null || request == null) {
+                        throw new CertificateVerificationException("OCSP responder of the " +
+                                "cached response is not known");
+                    }
+                    OCSPResp response = ocspVerifier.getOCSPResponse(serviceUrl, request);
+
+                    if (OCSPResp.SUCCESSFUL != response.getStatus())
+                        throw new CertificateVerificationException("OCSP response status not SUCCESSFUL");
+
+                    BasicOCSPResp basicResponse = (BasicOCSPResp) response.getResponseObject();
+                    SingleResp[] responses = (basicResponse == null) ? null : basicResponse.getResponses();
+
+                    if (responses == null || responses.length == 0)
+                        throw new CertificateVerificationException("Cant get OCSP response");
+
+                    setCacheValue(cacheValue.serialNumber, basicResponse, request, serviceUrl);
+                    return responses[0];
+
+                } catch (Exception e) {
+                    if (!cacheValue.isValid()) {
+                        log.debug("Cant replace old CacheValue with new CacheValue. So remove", e);
+                        //If cant be replaced remove.
+                        hashMap.remove(cacheValue.serialNumber, cacheValue);
+                        dirty = true;
+                    } else {
+                        log.debug("Cant refresh CacheValue. Keeping the current value until " +
+                                "it expires", e);
+                    }
+                    throw e;
+                }
+            }
+        };
     }
 
-    public synchronized SingleResp getCacheValue(BigInteger serialNumber) {
+    public SingleResp getCacheValue(BigInteger serialNumber) {
         OCSPCacheValue cacheValue = hashMap.get(serialNumber);
         if(cacheValue != null) {
             //If who ever gets this cache value before Cache manager task found its invalid, update it and get the
@@ -152,31 +266,65 @@ public class OCSPCache implements ManageableCache {
             if (!cacheValue.isValid()) {
                 cacheValue.updateCacheWithNewValue();
                 OCSPCacheValue ocspCacheValue = hashMap.get(serialNumber);
-                return (ocspCacheValue!=null? ocspCacheValue.getValue(): null);
+                return (ocspCacheValue != null && ocspCacheValue.isValid() ?
+                        ocspCacheValue.getValue() : null);
             }
 
+            if (cacheValue.isRefreshDue(System.currentTimeMillis())) {
+                cacheValue.refreshCacheValue();
+            }
             return cacheValue.getValue();
         }
         else
             return null;
     }
 
-    public synchronized void setCacheValue(BigInteger serialNumber, SingleResp singleResp, OCSPReq request, String serviceUrl) {
-        OCSPCacheValue cacheValue = new OCSPCacheValue(serialNumber, singleResp, request, serviceUrl);
+    /**
+     * Fetch a response which is not in the cache. If a fetch for the same serial number is
+     * already in progress, the calling thread waits for its result instead of contacting the
+     * OCSP responder again.
+     *
+     * @param serialNumber serial number of the certificate
+     * @param fetcher      fetches the response from the OCSP responder and caches it
+     * @return the fetched response
+     * @throws CertificateVerificationException if the response cannot be fetched
+     */
+    public SingleResp load(BigInteger serialNumber, Callable<SingleResp> fetcher)
+            throws CertificateVerificationException {
+        return loader.load(serialNumber, fetcher);
+    }
+
+    public void setCacheValue(BigInteger serialNumber, SingleResp singleResp, OCSPReq request, String serviceUrl) {
+        putCacheValue(new OCSPCacheValue(serialNumber, singleResp, request, serviceUrl, null));
+    }
+
+    /**
+     * Cache the first response of the given basic OCSP response. Unlike a bare SingleResp,
+     * such a response can be written to the cache file.
+     */
+    public void setCacheValue(BigInteger serialNumber, BasicOCSPResp basicResponse,
+                              OCSPReq request, String serviceUrl) {
+        putCacheValue(new OCSPCacheValue(serialNumber, basicResponse.getResponses()[0],
+                request, serviceUrl, basicResponse));
+    }
+
+    private void putCacheValue(OCSPCacheValue cacheValue) {
         if (log.isDebugEnabled()) {
             log.debug("Before set - HashMap size " + hashMap.size());
         }
-        hashMap.put(serialNumber, cacheValue);
+        hashMap.put(cacheValue.serialNumber, cacheValue);
+        dirty = true;
         if (log.isDebugEnabled()) {
             log.debug("After set - HashMap size " + hashMap.size());
         }
     }
 
-    public synchronized void removeCacheValue(BigInteger serialNumber) {
+    public void removeCacheValue(BigInteger serialNumber) {
         if (log.isDebugEnabled()) {
             log.debug("Before remove - HashMap size " + hashMap.size());
         }
         hashMap.remove(serialNumber);
+        dirty = true;
         if (log.isDebugEnabled()) {
             log.debug("After remove - HashMap size " + hashMap.size());
         }
@@ -187,18 +335,24 @@ public class OCSPCache implements ManageableCache {
      */
     private class OCSPCacheValue implements ManageableCacheValue {
 
-        private BigInteger serialNumber;
-        private SingleResp singleResp;
-        private OCSPReq request;
-        private String serviceUrl;
-        private long timeStamp = System.currentTimeMillis();
+        private final BigInteger serialNumber;
+        private final SingleResp singleResp;
+        private final OCSPReq request;
+        private final String serviceUrl;
+        private final BasicOCSPResp basicResponse;
+        private final long refreshTime;
+        private volatile long timeStamp = System.currentTimeMillis();
 
-        public OCSPCacheValue(BigInteger serialNumber, SingleResp singleResp, OCSPReq request, String serviceUrl) {
+        public OCSPCacheValue(BigInteger serialNumber, SingleResp singleResp, OCSPReq request,
+                              String serviceUrl, BasicOCSPResp basicResponse) {
             this.serialNumber = serialNumber;
             this.singleResp = singleResp;
             //request and serviceUrl are needed to update the cache with new values.
             this.request = request;
             this.serviceUrl = serviceUrl;
+            this.basicResponse = basicResponse;
+            this.refreshTime = CacheManager.getRefreshTime(singleResp.getThisUpdate(),
+                    singleResp.getNextUpdate());
         }
 
         public BigInteger getKey() {
@@ -220,6 +374,11 @@ public class OCSPCache implements ManageableCache {
             return nextUpdate != null && nextUpdate.after(now);
         }
 
+        @Override
+        public boolean isRefreshDue(long time) {
+            return time >= refreshTime;
+        }
+
         @Override
         public long getTimeStamp() {
             return timeStamp;
@@ -235,7 +394,16 @@ public class OCSPCache implements ManageableCache {
 
         @Override
         public void updateCacheWithNewValue() {
-            replaceNewCacheValue(this);
+            try {
+                loader.load(serialNumber, newRefreshTask(this));
+            } catch (CertificateVerificationException e) {
+                // already logged by the refresh task
+            }
+        }
+
+        @Override
+        public void refreshCacheValue() {
+            loader.refresh(serialNumber, newRefreshTask(this));
         }
     }
 }
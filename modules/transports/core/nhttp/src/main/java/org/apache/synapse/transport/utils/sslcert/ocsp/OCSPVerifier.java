@@ -49,6 +49,7 @@ import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * Used to check if a Certificate is revoked or not by its CA using Online Certificate
@@ -74,7 +75,8 @@ public class OCSPVerifier implements RevocationVerifier {
      *
      */
     @Override
-    public RevocationStatus checkRevocationStatus(X509Certificate peerCert, X509Certificate issuerCert)
+    public RevocationStatus checkRevocationStatus(final X509Certificate peerCert,
+                                                  final X509Certificate issuerCert)
             throws CertificateVerificationException {
 
         //check cache
@@ -86,14 +88,34 @@ public class OCSPVerifier implements RevocationVerifier {
                 log.debug("OCSP response taken from cache....");
                 return status;
             }
+
+            //Concurrent handshakes with the same peer share a single request to the responder.
+            resp = cache.load(peerCert.getSerialNumber(), new Callable<SingleResp>() {
+                @Override
+                public SingleResp call() throws CertificateVerificationException {
+                    return fetchOCSPResponse(peerCert, issuerCert);
+                }
+            });
+            return getRevocationStatus(resp);
         }
 
+        return getRevocationStatus(fetchOCSPResponse(peerCert, issuerCert));
+    }
+
+    /**
+     * Asks the OCSP responders in the AIA extension of the peer certificate for the status of
+     * the certificate, one after the other, and caches the first response received.
+     */
+    private SingleResp fetchOCSPResponse(X509Certificate peerCert, X509Certificate issuerCert)
+            throws CertificateVerificationException {
+
         OCSPReq request = generateOCSPRequest(issuerCert, peerCert.getSerialNumber());
         //This list will sometimes have non ocsp urls as well.
         List<String> locations = getAIALocations(peerCert);
 
         for (String serviceUrl : locations) {
 
+            BasicOCSPResp basicResponse;
             SingleResp[] responses;
             try {
                 OCSPResp ocspResponse = getOCSPResponse(serviceUrl, request);
@@ -101,7 +123,7 @@ public class OCSPVerifier implements RevocationVerifier {
                     continue; // Server didn't give the response right.
                 }
 
-                BasicOCSPResp basicResponse = (BasicOCSPResp) ocspResponse.getResponseObject();
+                basicResponse = (BasicOCSPResp) ocspResponse.getResponseObject();
                 responses = (basicResponse == null) ? null : basicResponse.getResponses();
                 //todo use the super exception
             } catch (Exception e) {
@@ -110,10 +132,9 @@ public class OCSPVerifier implements RevocationVerifier {
 
             if (responses != null && responses.length == 1) {
                 SingleResp resp = responses[0];
-                RevocationStatus status = getRevocationStatus(resp);
                 if (cache != null)
-                    cache.setCacheValue(peerCert.getSerialNumber(), resp, request, serviceUrl);
-                return status;
+                    cache.setCacheValue(peerCert.getSerialNumber(), basicResponse, request, serviceUrl);
+                return resp;
             }
         }
         throw new CertificateVerificationException("Cant get Revocation Status from OCSP.");
@@ -0,0 +1,174 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.utils.threads;
+
+import org.apache.axis2.transport.base.threads.WorkerPool;
+import org.apache.axis2.transport.base.threads.WorkerPoolFactory;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link WorkerPool} which runs every task on its own virtual thread. Tasks which block
+ * on I/O (e.g. callouts, database calls or blocking sends) park the virtual thread and
+ * release the underlying carrier thread, so the number of concurrently blocked workers is
+ * no longer bounded by the size of a platform thread pool.
+ * <p/>
+ * Virtual threads are only available from Java 21 onwards. Since Synapse is compiled for
+ * older runtimes, the JDK APIs are looked up reflectively and
+ * {@link #getWorkerPool(boolean, int, int, int, int, String, String)} falls back to a regular
+ * platform thread pool when they are not available.
+ */
+public class VirtualThreadWorkerPool implements WorkerPool {
+
+    private static final Log log = LogFactory.getLog(VirtualThreadWorkerPool.class);
+
+    private static final ThreadFactoryBuilder builder = createBuilder();
+
+    private final ExecutorService executor;
+    private final AtomicInteger activeCount = new AtomicInteger(0);
+
+    private VirtualThreadWorkerPool(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Check whether the running JVM supports virtual threads
+     *
+     * @return true if virtual threads can be created
+     */
+    public static boolean isSupported() {
+        return builder != null;
+    }
+
+    /**
+     * Create a worker pool for the transport. If virtual threads are requested and supported
+     * by the JVM a virtual thread per task pool is returned, otherwise a platform thread pool
+     * with the given parameters is created.
+     *
+     * @param virtualThreads whether virtual threads should be used when available
+     * @param core           core pool size of the platform thread pool
+     * @param max            maximum pool size of the platform thread pool
+     * @param keepAlive      keep alive time of the platform thread pool in seconds
+     * @param queueLength    queue length of the platform thread pool
+     * @param threadGroupName name of the thread group of the platform thread pool
+     * @param threadGroupId  name prefix of the created threads
+     * @return a worker pool for executing transport tasks
+     */
+    public static WorkerPool getWorkerPool(boolean virtualThreads, int core, int max,
+                                           int keepAlive, int queueLength,
+                                           String threadGroupName, String threadGroupId) {
+        if (virtualThreads) {
+            if (isSupported()) {
+                ExecutorService executor = builder.newExecutor(threadGroupId + "-");
+                if (executor != null) {
+                    log.info("Using virtual threads for " + threadGroupName);
+                    return new VirtualThreadWorkerPool(executor);
+                }
+            } else {
+                log.warn("Virtual threads are not supported by this JVM. Using a platform " +
+                        "thread pool for " + threadGroupName);
+            }
+        }
+        return WorkerPoolFactory.getWorkerPool(core, max, keepAlive, queueLength,
+                threadGroupName, threadGroupId);
+    }
+
+    @Override
+    public void execute(final Runnable task) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                activeCount.incrementAndGet();
+                try {
+                    task.run();
+                } finally {
+                    activeCount.decrementAndGet();
+                }
+            }
+        });
+    }
+
+    @Override
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    @Override
+    public int getQueueSize() {
+        // tasks are never queued, each one gets a virtual thread of its own
+        return 0;
+    }
+
+    @Override
+    public void shutdown(int timeout) throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    private static ThreadFactoryBuilder createBuilder() {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Method name = builderClass.getMethod("name", String.class, long.class);
+            Method factory = builderClass.getMethod("factory");
+            Method newExecutor = Executors.class.getMethod(
+                    "newThreadPerTaskExecutor", ThreadFactory.class);
+            return new ThreadFactoryBuilder(ofVirtual, name, factory, newExecutor);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Holds the reflective handles to the virtual thread APIs of the JDK
+     */
+    private static class ThreadFactoryBuilder {
+
+        private final Method ofVirtual;
+        private final Method name;
+        private final Method factory;
+        private final Method newExecutor;
+
+        ThreadFactoryBuilder(Method ofVirtual, Method name, Method factory, Method newExecutor) {
+            this.ofVirtual = ofVirtual;
+            this.name = name;
+            this.factory = factory;
+            this.newExecutor = newExecutor;
+        }
+
+        ExecutorService newExecutor(String namePrefix) {
+            try {
+                Object builder = name.invoke(ofVirtual.invoke(null), namePrefix, 1L);
+                ThreadFactory threadFactory = (ThreadFactory) factory.invoke(builder);
+                return (ExecutorService) newExecutor.invoke(null, threadFactory);
+            } catch (Exception e) {
+                log.warn("Error creating a virtual thread executor", e);
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.nhttp;
+
+import junit.framework.TestCase;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.message.BasicHttpResponse;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.List;
+
+public class AccessTest extends TestCase {
+
+    private File directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = new File("target" + File.separator + "access-logs-" + getName());
+        delete(directory);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        delete(directory);
+    }
+
+    public void testRequestAndResponseLines() throws Exception {
+        AccessLogger logger = new AccessLogger(LogFactory.getLog(AccessTest.class),
+                directory, AccessConstants.FILE_FORMAT, 0);
+        Access access = new Access(LogFactory.getLog(AccessTest.class), logger,
+                "%h \"%r\" %s %b \"%{User-Agent}i\" %{Server}o", 16);
+
+        BasicHttpRequest request = new BasicHttpRequest("GET", "/services/echo",
+                HttpVersion.HTTP_1_1);
+        request.addHeader("Host", "localhost:8280");
+        request.addHeader("User-Agent", "test-client");
+        access.addAccessToQueue(request);
+
+        BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1,
+                HttpStatus.SC_OK, "OK");
+        response.setEntity(new StringEntity("hello"));
+        response.addHeader("Server", "Synapse");
+        access.addAccessToQueue(response);
+
+        access.stop(5000);
+
+        File[] files = directory.listFiles();
+        assertNotNull(files);
+        assertEquals(1, files.length);
+        List<String> lines = readLines(files[0]);
+        assertEquals(2, lines.size());
+        assertEquals("localhost:8280 \"GET /services/echo HTTP/1.1\" - - \"test-client\" -",
+                lines.get(0));
+        assertEquals("- \"- - \" 200 5 \"-\" Synapse", lines.get(1));
+    }
+
+    public void testSizeBasedRotation() throws Exception {
+        AccessLogger logger = new AccessLogger(LogFactory.getLog(AccessTest.class),
+                directory, AccessConstants.FILE_FORMAT, 1024);
+        Access access = new Access(LogFactory.getLog(AccessTest.class), logger, "%r", 64);
+
+        int count = 200;
+        for (int i = 0; i < count; i++) {
+            access.addAccessToQueue(new BasicHttpRequest("GET", "/services/echo/" + i,
+                    HttpVersion.HTTP_1_1));
+            if (i % 32 == 0) {
+                // give the writer a chance to keep up with the small buffer
+                Thread.sleep(10);
+            }
+        }
+        access.stop(5000);
+
+        File[] files = directory.listFiles();
+        assertNotNull(files);
+        assertTrue(files.length > 1);
+        int lines = 0;
+        for (File file : files) {
+            assertTrue(file.length() < 1024 + 64);
+            lines += readLines(file).size();
+        }
+        assertEquals(count - access.getDroppedCount(), lines);
+    }
+
+    private List<String> readLines(File file) throws Exception {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } finally {
+            reader.close();
+        }
+        return lines;
+    }
+
+    private void delete(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                assertTrue(file.delete());
+            }
+        }
+        dir.delete();
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.passthru;
+
+import junit.framework.TestCase;
+import org.apache.axis2.context.ConfigurationContextFactory;
+import org.apache.axis2.description.Parameter;
+import org.apache.axis2.description.TransportInDescription;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.Method;
+import org.apache.hc.core5.http.nio.entity.BasicAsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.support.BasicRequestProducer;
+import org.apache.hc.core5.http.nio.support.BasicResponseConsumer;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2MultiplexingRequester;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2MultiplexingRequesterBootstrap;
+import org.apache.hc.core5.http2.ssl.H2ClientTlsStrategy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.Timeout;
+import org.apache.http.HttpException;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.NHttpServerConnection;
+import org.apache.http.nio.NHttpServerEventHandler;
+import org.apache.synapse.transport.passthru.config.SourceConfiguration;
+import org.apache.synapse.transport.passthru.http2.Http2SourceListener;
+import org.bouncycastle.x509.X509V1CertificateGenerator;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import javax.security.auth.x500.X500Principal;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.Security;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks that the client authentication settings of the SSL listener also apply to its
+ * HTTP/2 port
+ */
+public class PassThroughHttpSSLListenerTest extends TestCase {
+
+    private static final char[] PASSWORD = "password".toCharArray();
+
+    private KeyStore keyStore;
+    private SourceConfiguration sourceConfiguration;
+    private Http2SourceListener listener;
+    private H2MultiplexingRequester requester;
+    private int port;
+
+    @Override
+    protected void setUp() throws Exception {
+        Security.addProvider(new org.bouncycastle.jce.provider.BouncyCastleProvider());
+        keyStore = createKeyStore();
+
+        ServerSocket socket = new ServerSocket(0);
+        port = socket.getLocalPort();
+        socket.close();
+
+        TransportInDescription description = new TransportInDescription("https");
+        description.addParameter(new Parameter("port", String.valueOf(port)));
+        description.addParameter(new Parameter("SSLVerifyClient", "require"));
+        sourceConfiguration = new SourceConfiguration(
+                ConfigurationContextFactory.createEmptyConfigurationContext(),
+                description, null, true);
+
+        // the server trusts its own certificate, which the client presents when it has one
+        SSLContext sslContext = createSSLContext(true);
+        listener = new Http2SourceListener(new OkHandler(), sourceConfiguration,
+                new InetSocketAddress("localhost", port), sslContext,
+                new PassThroughHttpSSLListener().getSSLSetupHandler(description));
+        listener.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (requester != null) {
+            requester.close(CloseMode.IMMEDIATE);
+        }
+        listener.stop();
+    }
+
+    public void testClientWithCertificateIsAccepted() throws Exception {
+        assertEquals(HttpStatus.SC_OK, send(createSSLContext(true)));
+    }
+
+    public void testClientWithoutCertificateIsRefused() throws Exception {
+        try {
+            send(createSSLContext(false));
+            fail("A client without a certificate must be refused");
+        } catch (ExecutionException expected) {
+        }
+    }
+
+    private int send(SSLContext clientContext) throws Exception {
+        requester = H2MultiplexingRequesterBootstrap.bootstrap()
+                .setTlsStrategy(new H2ClientTlsStrategy(clientContext))
+                .create();
+        requester.start();
+
+        Message<org.apache.hc.core5.http.HttpResponse, byte[]> message = requester.execute(
+                new BasicRequestProducer(Method.GET,
+                        new HttpHost("https", "localhost", port), "/test"),
+                new BasicResponseConsumer<byte[]>(new BasicAsyncEntityConsumer()),
+                Timeout.ofSeconds(30), null).get(30, TimeUnit.SECONDS);
+        return message.getHead().getCode();
+    }
+
+    private KeyStore createKeyStore() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA", "BC");
+        generator.initialize(2048);
+        KeyPair pair = generator.generateKeyPair();
+
+        X509V1CertificateGenerator certGen = new X509V1CertificateGenerator();
+        certGen.setSerialNumber(BigInteger.valueOf(1));
+        certGen.setIssuerDN(new X500Principal("CN=localhost"));
+        certGen.setSubjectDN(new X500Principal("CN=localhost"));
+        certGen.setNotBefore(new Date(System.currentTimeMillis() - 60000));
+        certGen.setNotAfter(new Date(System.currentTimeMillis() + 3600000));
+        certGen.setPublicKey(pair.getPublic());
+        certGen.setSignatureAlgorithm("SHA256WithRSAEncryption");
+        X509Certificate cert = certGen.generateX509Certificate(pair.getPrivate(), "BC");
+
+        KeyStore store = KeyStore.getInstance("JKS");
+        store.load(null, null);
+        store.setKeyEntry("synapse", pair.getPrivate(), PASSWORD, new Certificate[] {cert});
+        return store;
+    }
+
+    private SSLContext createSSLContext(boolean withCertificate) throws Exception {
+        KeyManager[] keyManagers = null;
+        if (withCertificate) {
+            KeyManagerFactory kmf = KeyManagerFactory.getInstance(
+                    KeyManagerFactory.getDefaultAlgorithm());
+            kmf.init(keyStore, PASSWORD);
+            keyManagers = kmf.getKeyManagers();
+        }
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(
+                TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(keyStore);
+
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(keyManagers, tmf.getTrustManagers(), null);
+        return sslContext;
+    }
+
+    /**
+     * Answers every request with an empty 200 OK
+     */
+    private class OkHandler implements NHttpServerEventHandler {
+
+        @Override
+        public void connected(NHttpServerConnection conn) {
+        }
+
+        @Override
+        public void requestReceived(NHttpServerConnection conn) {
+            sourceConfiguration.getSourceConnections().useConnection(conn);
+            conn.requestOutput();
+        }
+
+        @Override
+        public void inputReady(NHttpServerConnection conn, ContentDecoder decoder) {
+        }
+
+        @Override
+        public void responseReady(NHttpServerConnection conn)
+                throws IOException, HttpException {
+            HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1,
+                    HttpStatus.SC_OK, "OK");
+            conn.submitResponse(response);
+            sourceConfiguration.getSourceConnections().releaseConnection(conn);
+        }
+
+        @Override
+        public void outputReady(NHttpServerConnection conn, ContentEncoder encoder) {
+        }
+
+        @Override
+        public void endOfInput(NHttpServerConnection conn) {
+        }
+
+        @Override
+        public void timeout(NHttpServerConnection conn) {
+        }
+
+        @Override
+        public void closed(NHttpServerConnection conn) {
+        }
+
+        @Override
+        public void exception(NHttpServerConnection conn, Exception ex) {
+        }
+    }
+}
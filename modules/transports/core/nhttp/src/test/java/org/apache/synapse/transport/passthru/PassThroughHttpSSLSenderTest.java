@@ -0,0 +1,252 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.passthru;
+
+import junit.framework.TestCase;
+import org.apache.axis2.description.Parameter;
+import org.apache.axis2.description.TransportOutDescription;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http.message.BasicHttpResponse;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.entity.DiscardingEntityConsumer;
+import org.apache.hc.core5.http.nio.support.BasicRequestConsumer;
+import org.apache.hc.core5.http.nio.support.BasicResponseProducer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2ServerBootstrap;
+import org.apache.hc.core5.http2.ssl.H2ServerTlsStrategy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.reactor.ListenerEndpoint;
+import org.apache.http.HttpStatus;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.NHttpClientConnection;
+import org.apache.http.nio.NHttpClientEventHandler;
+import org.apache.synapse.transport.passthru.config.TargetConfiguration;
+import org.apache.synapse.transport.passthru.http2.Http2TargetConnector;
+import org.bouncycastle.x509.X509V1CertificateGenerator;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import javax.security.auth.x500.X500Principal;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.Security;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks that the host name verification of the SSL sender also applies to the targets it
+ * reaches over HTTP/2
+ */
+public class PassThroughHttpSSLSenderTest extends TestCase {
+
+    private static final char[] PASSWORD = "password".toCharArray();
+
+    private KeyStore keyStore;
+    private HttpAsyncServer server;
+    private Http2TargetConnector connector;
+    private int port;
+
+    @Override
+    protected void setUp() throws Exception {
+        Security.addProvider(new org.bouncycastle.jce.provider.BouncyCastleProvider());
+        keyStore = createKeyStore();
+
+        // the certificate of the server is issued to localhost only
+        server = H2ServerBootstrap.bootstrap()
+                .setIOReactorConfig(IOReactorConfig.custom().setIoThreadCount(1).build())
+                .setVersionPolicy(HttpVersionPolicy.FORCE_HTTP_2)
+                .setTlsStrategy(new H2ServerTlsStrategy(createSSLContext()))
+                .register("*", new OkHandler())
+                .create();
+        server.start();
+        ListenerEndpoint endpoint = server.listen(
+                new InetSocketAddress("localhost", 0), URIScheme.HTTPS).get(10, TimeUnit.SECONDS);
+        port = ((InetSocketAddress) endpoint.getAddress()).getPort();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (connector != null) {
+            connector.stop();
+        }
+        server.close(CloseMode.IMMEDIATE);
+    }
+
+    public void testMatchingHostIsAccepted() throws Exception {
+        TestHandler handler = send("localhost");
+        assertNull(handler.error);
+        assertEquals(HttpStatus.SC_OK, handler.status);
+    }
+
+    public void testMismatchingHostIsRefused() throws Exception {
+        TestHandler handler = send("127.0.0.1");
+        assertNotNull("The certificate of localhost must not be accepted for 127.0.0.1",
+                handler.error);
+        assertEquals(0, handler.status);
+    }
+
+    private TestHandler send(String host) throws Exception {
+        TransportOutDescription description = new TransportOutDescription("https");
+        description.addParameter(new Parameter("HostnameVerifier", "Strict"));
+
+        TestHandler handler = new TestHandler();
+        connector = new Http2TargetConnector(handler, new TargetConfiguration(null, null, null),
+                createSSLContext(),
+                new PassThroughHttpSSLSender().getSSLSetupHandler(description));
+        connector.start();
+        connector.createStream("https", host, port).requestOutput();
+        assertTrue("Timed out waiting for the response", handler.await());
+        return handler;
+    }
+
+    private KeyStore createKeyStore() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA", "BC");
+        generator.initialize(2048);
+        KeyPair pair = generator.generateKeyPair();
+
+        X509V1CertificateGenerator certGen = new X509V1CertificateGenerator();
+        certGen.setSerialNumber(BigInteger.valueOf(1));
+        certGen.setIssuerDN(new X500Principal("CN=localhost"));
+        certGen.setSubjectDN(new X500Principal("CN=localhost"));
+        certGen.setNotBefore(new Date(System.currentTimeMillis() - 60000));
+        certGen.setNotAfter(new Date(System.currentTimeMillis() + 3600000));
+        certGen.setPublicKey(pair.getPublic());
+        certGen.setSignatureAlgorithm("SHA256WithRSAEncryption");
+        X509Certificate cert = certGen.generateX509Certificate(pair.getPrivate(), "BC");
+
+        KeyStore store = KeyStore.getInstance("JKS");
+        store.load(null, null);
+        store.setKeyEntry("synapse", pair.getPrivate(), PASSWORD, new Certificate[] {cert});
+        return store;
+    }
+
+    private SSLContext createSSLContext() throws Exception {
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(
+                KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore, PASSWORD);
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(
+                TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(keyStore);
+
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(kmf.getKeyManagers(), tmf.getTrustManagers(), null);
+        return sslContext;
+    }
+
+    /**
+     * Answers every request with an empty 200 OK
+     */
+    private static class OkHandler implements AsyncServerRequestHandler<Message<HttpRequest, Void>> {
+
+        @Override
+        public AsyncRequestConsumer<Message<HttpRequest, Void>> prepare(
+                HttpRequest request, EntityDetails entityDetails, HttpContext context) {
+            return new BasicRequestConsumer<Void>(new DiscardingEntityConsumer<Void>());
+        }
+
+        @Override
+        public void handle(Message<HttpRequest, Void> message, ResponseTrigger responseTrigger,
+                           HttpContext context) throws org.apache.hc.core5.http.HttpException,
+                IOException {
+            responseTrigger.submitResponse(new BasicResponseProducer(
+                    new BasicHttpResponse(HttpStatus.SC_OK)), context);
+        }
+    }
+
+    /**
+     * Sends a GET on the stream, and records the status of the response or the error
+     */
+    private static class TestHandler implements NHttpClientEventHandler {
+
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private volatile int status = 0;
+        private volatile Exception error;
+
+        boolean await() throws InterruptedException {
+            return done.await(30, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public void connected(NHttpClientConnection conn, Object attachment) {
+        }
+
+        @Override
+        public void requestReady(NHttpClientConnection conn) throws IOException,
+                org.apache.http.HttpException {
+            conn.submitRequest(new BasicHttpRequest("GET", "/test"));
+        }
+
+        @Override
+        public void outputReady(NHttpClientConnection conn, ContentEncoder encoder) {
+        }
+
+        @Override
+        public void responseReceived(NHttpClientConnection conn) {
+            status = conn.getHttpResponse().getStatusLine().getStatusCode();
+            done.countDown();
+        }
+
+        @Override
+        public void inputReady(NHttpClientConnection conn, ContentDecoder decoder)
+                throws IOException {
+            decoder.read(ByteBuffer.allocate(4096));
+            if (decoder.isCompleted()) {
+                conn.close();
+            }
+        }
+
+        @Override
+        public void endOfInput(NHttpClientConnection conn) {
+        }
+
+        @Override
+        public void timeout(NHttpClientConnection conn) {
+        }
+
+        @Override
+        public void closed(NHttpClientConnection conn) {
+        }
+
+        @Override
+        public void exception(NHttpClientConnection conn, Exception ex) {
+            error = ex;
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.passthru.connections;
+
+import junit.framework.TestCase;
+import org.apache.http.nio.NHttpClientConnection;
+import org.apache.synapse.transport.utils.conn.IdleConnectionStackTest;
+
+public class HostConnectionsTest extends TestCase {
+
+    public void testMaxConnections() {
+        HostConnections pool = new HostConnections("localhost", 8280, 2);
+        assertTrue(pool.reserveConnection());
+        assertTrue(pool.reserveConnection());
+        assertFalse(pool.reserveConnection());
+
+        pool.pendingConnectionFailed();
+        assertTrue(pool.canHaveMoreConnections());
+        pool.pendingConnectionSucceeded();
+        pool.addConnection(IdleConnectionStackTest.createConnection());
+        assertEquals(1, pool.getBusyCount());
+        assertEquals(0, pool.getPendingCount());
+        assertTrue(pool.reserveConnection());
+        assertFalse(pool.reserveConnection());
+    }
+
+    public void testReleaseAndReuse() {
+        HostConnections pool = new HostConnections("localhost", 8280, 10);
+        NHttpClientConnection first = IdleConnectionStackTest.createConnection();
+        NHttpClientConnection second = IdleConnectionStackTest.createConnection();
+        pool.addConnection(first);
+        pool.addConnection(second);
+
+        pool.release(first);
+        pool.release(second);
+        assertEquals(0, pool.getBusyCount());
+        assertEquals(2, pool.getFreeCount());
+
+        // the most recently released connection is reused first
+        assertSame(second, pool.getConnection());
+        assertEquals(1, pool.getBusyCount());
+
+        pool.forget(first);
+        assertEquals(0, pool.getFreeCount());
+        assertNull(pool.getConnection());
+    }
+
+    public void testLeaseStatistics() {
+        HostConnections pool = new HostConnections("localhost", 8280, 10);
+        pool.notifyLease(2000000);
+        pool.notifyLease(4000000);
+        assertEquals(2, pool.getLeaseCount());
+        assertEquals(3.0, pool.getAverageLeaseWaitTime(), 0.001);
+        assertEquals(4.0, pool.getMaxLeaseWaitTime(), 0.001);
+        pool.resetStatistics();
+        assertEquals(0, pool.getLeaseCount());
+    }
+}
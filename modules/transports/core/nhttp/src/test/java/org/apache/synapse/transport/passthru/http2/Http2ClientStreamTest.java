@@ -0,0 +1,268 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.passthru.http2;
+
+import junit.framework.TestCase;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.entity.AsyncEntityProducers;
+import org.apache.hc.core5.http.nio.entity.BasicAsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.support.BasicRequestConsumer;
+import org.apache.hc.core5.http.nio.support.BasicResponseProducer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2ServerBootstrap;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.reactor.ListenerEndpoint;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.message.BasicHttpEntityEnclosingRequest;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.NHttpClientConnection;
+import org.apache.http.nio.NHttpClientEventHandler;
+import org.apache.synapse.transport.passthru.config.TargetConfiguration;
+
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs requests through {@link Http2ClientStream}s against an embedded h2c server, with
+ * bodies larger than the initial flow control window in both directions.
+ */
+public class Http2ClientStreamTest extends TestCase {
+
+    private static final int BODY_SIZE = 200 * 1024;
+
+    private HttpAsyncServer server;
+    private Http2TargetConnector connector;
+    private int port;
+
+    @Override
+    protected void setUp() throws Exception {
+        server = H2ServerBootstrap.bootstrap()
+                .setIOReactorConfig(IOReactorConfig.custom().setIoThreadCount(1).build())
+                .setVersionPolicy(HttpVersionPolicy.FORCE_HTTP_2)
+                .register("*", new EchoHandler())
+                .create();
+        server.start();
+        ListenerEndpoint endpoint = server.listen(
+                new InetSocketAddress("localhost", 0), URIScheme.HTTP).get(10, TimeUnit.SECONDS);
+        port = ((InetSocketAddress) endpoint.getAddress()).getPort();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (connector != null) {
+            connector.stop();
+        }
+        server.close(CloseMode.IMMEDIATE);
+    }
+
+    public void testConcurrentStreams() throws Exception {
+        int streams = 5;
+        TestHandler handler = new TestHandler(streams, false);
+        startConnector(handler);
+
+        NHttpClientConnection[] connections = new NHttpClientConnection[streams];
+        for (int i = 0; i < streams; i++) {
+            connections[i] = connector.createStream("http", "localhost", port);
+        }
+        for (NHttpClientConnection conn : connections) {
+            conn.requestOutput();
+        }
+
+        assertTrue("Timed out waiting for the responses", handler.await());
+        assertNull(handler.error);
+        assertEquals(streams, handler.responses.size());
+        for (byte[] body : handler.responses.values()) {
+            assertTrue(Arrays.equals(handler.payload, body));
+        }
+
+        // every stream has been accounted for, and none of them is left open
+        assertEquals(streams, connector.getStreamCount());
+        Map<String, Number> stats = connector.getStreamStatistics().get("localhost:" + port);
+        assertEquals(0, stats.get("ActiveStreams").intValue());
+    }
+
+    public void testSuspendedInput() throws Exception {
+        TestHandler handler = new TestHandler(1, true);
+        startConnector(handler);
+
+        connector.createStream("http", "localhost", port).requestOutput();
+
+        assertTrue("Timed out waiting for the response", handler.await());
+        assertNull(handler.error);
+        assertTrue(handler.suspensions > 0);
+        assertTrue(Arrays.equals(handler.payload,
+                handler.responses.values().iterator().next()));
+    }
+
+    private void startConnector(TestHandler handler) {
+        connector = new Http2TargetConnector(handler, new TargetConfiguration(null, null, null),
+                null, null);
+        connector.start();
+    }
+
+    /**
+     * Replies with the body of the request
+     */
+    private static class EchoHandler implements AsyncServerRequestHandler<Message<HttpRequest, byte[]>> {
+
+        @Override
+        public AsyncRequestConsumer<Message<HttpRequest, byte[]>> prepare(
+                HttpRequest request, org.apache.hc.core5.http.EntityDetails entityDetails,
+                HttpContext context) {
+            return new BasicRequestConsumer<byte[]>(new BasicAsyncEntityConsumer());
+        }
+
+        @Override
+        public void handle(Message<HttpRequest, byte[]> message, ResponseTrigger responseTrigger,
+                           HttpContext context) throws org.apache.hc.core5.http.HttpException,
+                java.io.IOException {
+            responseTrigger.submitResponse(new BasicResponseProducer(200,
+                    AsyncEntityProducers.create(message.getBody(),
+                            ContentType.APPLICATION_OCTET_STREAM)), context);
+        }
+    }
+
+    /**
+     * Posts a payload on each stream and collects the responses. Reads in small chunks, and
+     * optionally suspends the input for a while after each read, like a pipe that is full.
+     */
+    private static class TestHandler implements NHttpClientEventHandler {
+
+        private final byte[] payload = new byte[BODY_SIZE];
+        private final Map<NHttpClientConnection, ByteBuffer> requests =
+                new java.util.concurrent.ConcurrentHashMap<NHttpClientConnection, ByteBuffer>();
+        private final Map<NHttpClientConnection, ByteArrayOutputStream> bodies =
+                new java.util.concurrent.ConcurrentHashMap<NHttpClientConnection,
+                        ByteArrayOutputStream>();
+        private final Map<NHttpClientConnection, byte[]> responses =
+                new java.util.concurrent.ConcurrentHashMap<NHttpClientConnection, byte[]>();
+        private final CountDownLatch done;
+        private final boolean suspend;
+
+        private volatile Exception error;
+        private volatile int suspensions = 0;
+
+        TestHandler(int streams, boolean suspend) {
+            for (int i = 0; i < payload.length; i++) {
+                payload[i] = (byte) i;
+            }
+            this.done = new CountDownLatch(streams);
+            this.suspend = suspend;
+        }
+
+        boolean await() throws InterruptedException {
+            return done.await(30, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public void connected(NHttpClientConnection conn, Object attachment) {
+        }
+
+        @Override
+        public void requestReady(NHttpClientConnection conn) throws java.io.IOException,
+                org.apache.http.HttpException {
+            BasicHttpEntityEnclosingRequest request =
+                    new BasicHttpEntityEnclosingRequest("POST", "/echo");
+            BasicHttpEntity entity = new BasicHttpEntity();
+            entity.setChunked(true);
+            request.setEntity(entity);
+            request.addHeader("Content-Type", "application/octet-stream");
+            request.addHeader("Connection", "Keep-Alive");
+            requests.put(conn, ByteBuffer.wrap(payload));
+            conn.submitRequest(request);
+        }
+
+        @Override
+        public void outputReady(NHttpClientConnection conn, ContentEncoder encoder)
+                throws java.io.IOException {
+            ByteBuffer buffer = requests.get(conn);
+            encoder.write(buffer);
+            if (!buffer.hasRemaining()) {
+                encoder.complete();
+            }
+        }
+
+        @Override
+        public void responseReceived(NHttpClientConnection conn) {
+            assertEquals(200, conn.getHttpResponse().getStatusLine().getStatusCode());
+            assertNotNull(conn.getHttpResponse().getFirstHeader("Content-Type"));
+            bodies.put(conn, new ByteArrayOutputStream());
+        }
+
+        @Override
+        public void inputReady(final NHttpClientConnection conn, ContentDecoder decoder)
+                throws java.io.IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(4096);
+            int read = decoder.read(buffer);
+            bodies.get(conn).write(buffer.array(), 0, read);
+
+            if (decoder.isCompleted()) {
+                responses.put(conn, bodies.get(conn).toByteArray());
+                conn.close();
+                done.countDown();
+            } else if (suspend && read > 0) {
+                suspensions++;
+                conn.suspendInput();
+                new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            Thread.sleep(1);
+                        } catch (InterruptedException ignored) {
+                        }
+                        conn.requestInput();
+                    }
+                }).start();
+            }
+        }
+
+        @Override
+        public void endOfInput(NHttpClientConnection conn) {
+        }
+
+        @Override
+        public void timeout(NHttpClientConnection conn) {
+        }
+
+        @Override
+        public void closed(NHttpClientConnection conn) {
+        }
+
+        @Override
+        public void exception(NHttpClientConnection conn, Exception ex) {
+            error = ex;
+            done.countDown();
+        }
+    }
+}
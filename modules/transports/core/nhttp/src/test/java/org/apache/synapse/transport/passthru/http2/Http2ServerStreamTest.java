@@ -0,0 +1,258 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.passthru.http2;
+
+import junit.framework.TestCase;
+import org.apache.axis2.context.ConfigurationContextFactory;
+import org.apache.axis2.description.Parameter;
+import org.apache.axis2.description.TransportInDescription;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.Method;
+import org.apache.hc.core5.http.nio.entity.AsyncEntityProducers;
+import org.apache.hc.core5.http.nio.entity.BasicAsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.support.BasicRequestProducer;
+import org.apache.hc.core5.http.nio.support.BasicResponseConsumer;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2MultiplexingRequester;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2MultiplexingRequesterBootstrap;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.Timeout;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.NHttpServerConnection;
+import org.apache.http.nio.NHttpServerEventHandler;
+import org.apache.synapse.transport.passthru.config.SourceConfiguration;
+import org.apache.synapse.transport.passthru.jmx.PassThroughTransportMetricsCollector;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends concurrent requests over a single h2c connection to an {@link Http2SourceListener}
+ * and checks that every stream is served as a connection of its own.
+ */
+public class Http2ServerStreamTest extends TestCase {
+
+    private static final int BODY_SIZE = 200 * 1024;
+
+    private final AtomicInteger openedStreams = new AtomicInteger();
+    private final AtomicInteger closedStreams = new AtomicInteger();
+
+    private SourceConfiguration sourceConfiguration;
+    private PassThroughTransportMetricsCollector metrics;
+    private Http2SourceListener listener;
+    private H2MultiplexingRequester requester;
+    private int port;
+
+    @Override
+    protected void setUp() throws Exception {
+        ServerSocket socket = new ServerSocket(0);
+        port = socket.getLocalPort();
+        socket.close();
+
+        TransportInDescription description = new TransportInDescription("http");
+        description.addParameter(new Parameter("port", String.valueOf(port)));
+        sourceConfiguration = new SourceConfiguration(
+                ConfigurationContextFactory.createEmptyConfigurationContext(),
+                description, null, false);
+        metrics = new PassThroughTransportMetricsCollector(true, false) {
+            @Override
+            public void streamOpened() {
+                openedStreams.incrementAndGet();
+                super.streamOpened();
+            }
+
+            @Override
+            public void streamClosed(long lifetime) {
+                assertTrue(lifetime > 0);
+                closedStreams.incrementAndGet();
+                super.streamClosed(lifetime);
+            }
+        };
+        sourceConfiguration.setMetrics(metrics);
+
+        listener = new Http2SourceListener(new EchoHandler(), sourceConfiguration,
+                new InetSocketAddress("localhost", port), null, null);
+        listener.start();
+
+        requester = H2MultiplexingRequesterBootstrap.bootstrap().create();
+        requester.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        requester.close(CloseMode.IMMEDIATE);
+        listener.stop();
+        metrics.destroy();
+    }
+
+    public void testConcurrentStreams() throws Exception {
+        byte[] payload = new byte[BODY_SIZE];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) i;
+        }
+
+        int streams = 5;
+        List<Future<Message<org.apache.hc.core5.http.HttpResponse, byte[]>>> futures =
+                new ArrayList<Future<Message<org.apache.hc.core5.http.HttpResponse, byte[]>>>();
+        for (int i = 0; i < streams; i++) {
+            futures.add(requester.execute(
+                    new BasicRequestProducer(Method.POST, new HttpHost("localhost", port),
+                            "/echo", AsyncEntityProducers.create(payload,
+                            ContentType.APPLICATION_OCTET_STREAM)),
+                    new BasicResponseConsumer<byte[]>(new BasicAsyncEntityConsumer()),
+                    Timeout.ofSeconds(30), null));
+        }
+
+        for (Future<Message<org.apache.hc.core5.http.HttpResponse, byte[]>> future : futures) {
+            Message<org.apache.hc.core5.http.HttpResponse, byte[]> message =
+                    future.get(30, TimeUnit.SECONDS);
+            assertEquals(HttpStatus.SC_OK, message.getHead().getCode());
+            assertTrue(Arrays.equals(payload, message.getBody()));
+        }
+
+        assertEquals(streams, openedStreams.get());
+        assertStreamsClosed(streams);
+    }
+
+    public void testRequestWithoutBody() throws Exception {
+        Message<org.apache.hc.core5.http.HttpResponse, byte[]> message = requester.execute(
+                new BasicRequestProducer(Method.GET, new HttpHost("localhost", port), "/echo"),
+                new BasicResponseConsumer<byte[]>(new BasicAsyncEntityConsumer()),
+                Timeout.ofSeconds(30), null).get(30, TimeUnit.SECONDS);
+
+        assertEquals(HttpStatus.SC_OK, message.getHead().getCode());
+        assertNull(message.getBody());
+        assertStreamsClosed(1);
+    }
+
+    private void assertStreamsClosed(int streams) throws InterruptedException {
+        // the server releases a stream right after the end of the response has been written
+        for (int i = 0; i < 100 && closedStreams.get() < streams; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(streams, closedStreams.get());
+    }
+
+    /**
+     * Echoes the request body, using the source connections the same way the
+     * SourceHandler does
+     */
+    private class EchoHandler implements NHttpServerEventHandler {
+
+        private final Map<NHttpServerConnection, ByteArrayOutputStream> requests =
+                new ConcurrentHashMap<NHttpServerConnection, ByteArrayOutputStream>();
+        private final Map<NHttpServerConnection, ByteBuffer> responses =
+                new ConcurrentHashMap<NHttpServerConnection, ByteBuffer>();
+
+        @Override
+        public void connected(NHttpServerConnection conn) {
+        }
+
+        @Override
+        public void requestReceived(NHttpServerConnection conn) {
+            sourceConfiguration.getSourceConnections().useConnection(conn);
+            requests.put(conn, new ByteArrayOutputStream());
+            if (!(conn.getHttpRequest() instanceof HttpEntityEnclosingRequest)) {
+                conn.requestOutput();
+            }
+        }
+
+        @Override
+        public void inputReady(NHttpServerConnection conn, ContentDecoder decoder)
+                throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(4096);
+            int read = decoder.read(buffer);
+            if (read > 0) {
+                requests.get(conn).write(buffer.array(), 0, read);
+            }
+            if (decoder.isCompleted()) {
+                conn.requestOutput();
+            }
+        }
+
+        @Override
+        public void responseReady(NHttpServerConnection conn) throws IOException,
+                HttpException {
+            byte[] body = requests.get(conn).toByteArray();
+            HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1,
+                    HttpStatus.SC_OK, "OK");
+            if (body.length > 0) {
+                BasicHttpEntity entity = new BasicHttpEntity();
+                entity.setChunked(true);
+                response.setEntity(entity);
+                response.addHeader("Content-Type", "application/octet-stream");
+                responses.put(conn, ByteBuffer.wrap(body));
+            }
+            response.addHeader("Connection", "Keep-Alive");
+            conn.submitResponse(response);
+            if (body.length == 0) {
+                sourceConfiguration.getSourceConnections().releaseConnection(conn);
+            }
+        }
+
+        @Override
+        public void outputReady(NHttpServerConnection conn, ContentEncoder encoder)
+                throws IOException {
+            ByteBuffer buffer = responses.get(conn);
+            encoder.write(buffer);
+            if (!buffer.hasRemaining()) {
+                encoder.complete();
+                sourceConfiguration.getSourceConnections().releaseConnection(conn);
+            }
+        }
+
+        @Override
+        public void endOfInput(NHttpServerConnection conn) {
+        }
+
+        @Override
+        public void timeout(NHttpServerConnection conn) {
+        }
+
+        @Override
+        public void closed(NHttpServerConnection conn) {
+        }
+
+        @Override
+        public void exception(NHttpServerConnection conn, Exception ex) {
+            fail(ex.getMessage());
+        }
+    }
+}
@@ -32,6 +32,7 @@ public class HttpTransportConfigurationTest extends TestCase {
         assertEquals(10, (int) config.getIntProperty("foo", 10));
         assertEquals("barValue", config.getStringProperty("bar", "barValue"));
         assertEquals(true, (boolean) config.getBooleanProperty("baz", true));
+        assertFalse(config.isVirtualThreadWorkerPoolEnabled());
 
         IOReactorConfig reactorConfig = config.getListeningReactorConfig();
         assertEquals(2, reactorConfig.getIoThreadCount());
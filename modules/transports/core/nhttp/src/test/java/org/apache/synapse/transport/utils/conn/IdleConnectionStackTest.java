@@ -0,0 +1,130 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.utils.conn;
+
+import junit.framework.TestCase;
+import org.apache.http.impl.HttpConnectionMetricsImpl;
+import org.apache.http.nio.NHttpClientConnection;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+public class IdleConnectionStackTest extends TestCase {
+
+    public void testLifoOrder() {
+        IdleConnectionStack stack = new IdleConnectionStack();
+        NHttpClientConnection first = createConnection();
+        NHttpClientConnection second = createConnection();
+        stack.push(first);
+        stack.push(second);
+        assertEquals(2, stack.size());
+
+        assertSame(second, stack.pop());
+        assertSame(first, stack.pop());
+        assertNull(stack.pop());
+        assertEquals(0, stack.size());
+    }
+
+    public void testRemove() {
+        IdleConnectionStack stack = new IdleConnectionStack();
+        NHttpClientConnection first = createConnection();
+        NHttpClientConnection second = createConnection();
+        stack.push(first);
+        stack.push(second);
+
+        assertTrue(stack.remove(second));
+        assertFalse(stack.remove(second));
+        assertEquals(1, stack.size());
+        assertSame(first, stack.pop());
+        assertNull(stack.pop());
+    }
+
+    public void testRemovedEntriesArePurged() {
+        IdleConnectionStack stack = new IdleConnectionStack();
+        NHttpClientConnection bottom = createConnection();
+        NHttpClientConnection top = createConnection();
+        stack.push(bottom);
+        for (int i = 0; i < 1000; i++) {
+            NHttpClientConnection conn = createConnection();
+            stack.push(conn);
+            stack.push(top);
+            // removed below the top of the stack, so the entry is not discarded by pop
+            assertTrue(stack.remove(conn));
+            assertSame(top, stack.pop());
+        }
+        assertEquals(1, stack.size());
+        assertTrue(stack.entryCount() < 100);
+        assertSame(bottom, stack.pop());
+    }
+
+    public void testEvictIdle() throws Exception {
+        IdleConnectionStack stack = new IdleConnectionStack();
+        NHttpClientConnection old = createConnection();
+        NHttpClientConnection removed = createConnection();
+        stack.push(old);
+        stack.push(removed);
+        stack.remove(removed);
+        Thread.sleep(100);
+        NHttpClientConnection recent = createConnection();
+        stack.push(recent);
+
+        List<NHttpClientConnection> evicted = stack.evictIdle(50);
+        assertEquals(1, evicted.size());
+        assertSame(old, evicted.get(0));
+        assertEquals(1, stack.size());
+        assertSame(recent, stack.pop());
+    }
+
+    /**
+     * Create a stand-in client connection which is always open
+     */
+    public static NHttpClientConnection createConnection() {
+        final HttpContext context = new BasicHttpContext();
+        final HttpConnectionMetricsImpl metrics = new HttpConnectionMetricsImpl(null, null);
+        return (NHttpClientConnection) Proxy.newProxyInstance(
+                IdleConnectionStackTest.class.getClassLoader(),
+                new Class[] {NHttpClientConnection.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String name = method.getName();
+                        if ("getContext".equals(name)) {
+                            return context;
+                        } else if ("getMetrics".equals(name)) {
+                            return metrics;
+                        } else if ("isOpen".equals(name)) {
+                            return Boolean.TRUE;
+                        } else if ("isStale".equals(name)) {
+                            return Boolean.FALSE;
+                        } else if ("hashCode".equals(name)) {
+                            return System.identityHashCode(proxy);
+                        } else if ("equals".equals(name)) {
+                            return proxy == args[0];
+                        } else if ("toString".equals(name)) {
+                            return "connection@" + System.identityHashCode(proxy);
+                        }
+                        return null;
+                    }
+                });
+    }
+}
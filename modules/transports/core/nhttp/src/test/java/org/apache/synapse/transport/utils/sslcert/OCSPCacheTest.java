@@ -0,0 +1,156 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.utils.sslcert;
+
+import junit.framework.TestCase;
+import org.apache.synapse.transport.utils.sslcert.cache.CacheStore;
+import org.apache.synapse.transport.utils.sslcert.ocsp.OCSPCache;
+import org.apache.synapse.transport.utils.sslcert.ocsp.OCSPVerifier;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.Security;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class OCSPCacheTest extends TestCase {
+
+    private Utils utils;
+    private KeyPair caKeyPair;
+    private X509Certificate caCert;
+    private OCSPResponderStub responder;
+
+    @Override
+    protected void setUp() throws Exception {
+        Security.addProvider(new org.bouncycastle.jce.provider.BouncyCastleProvider());
+        utils = new Utils();
+        caKeyPair = utils.generateRSAKeyPair();
+        caCert = utils.generateFakeRootCert(caKeyPair);
+        responder = new OCSPResponderStub(caKeyPair);
+        responder.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        responder.stop();
+    }
+
+    /**
+     * Many handshakes with a peer whose status is not cached yet must result in a single
+     * request to the OCSP responder.
+     */
+    public void testConcurrentMissesShareOneRequest() throws Exception {
+        BigInteger serialNumber = BigInteger.valueOf(2001);
+        responder.revoke(serialNumber);
+        responder.setDelay(500);
+        final X509Certificate peerCert = responder.generatePeerCert(caCert,
+                utils.generateRSAKeyPair().getPublic(), serialNumber);
+
+        final OCSPVerifier verifier = new OCSPVerifier(OCSPCache.getCache());
+        int threads = 10;
+        final CountDownLatch done = new CountDownLatch(threads);
+        final AtomicInteger revoked = new AtomicInteger(0);
+        for (int i = 0; i < threads; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (verifier.checkRevocationStatus(peerCert, caCert) ==
+                                RevocationStatus.REVOKED) {
+                            revoked.incrementAndGet();
+                        }
+                    } catch (CertificateVerificationException ignored) {
+                        // counted as a failure below
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertEquals(threads, revoked.get());
+        assertEquals(1, responder.getRequestCount());
+    }
+
+    /**
+     * A response which enters the last part of its validity period is still served from the
+     * cache, while a new one is fetched in the background.
+     */
+    public void testRefreshAhead() throws Exception {
+        BigInteger serialNumber = BigInteger.valueOf(2002);
+        responder.setValidity(8000);
+        X509Certificate peerCert = responder.generatePeerCert(caCert,
+                utils.generateRSAKeyPair().getPublic(), serialNumber);
+
+        OCSPVerifier verifier = new OCSPVerifier(OCSPCache.getCache());
+        assertEquals(RevocationStatus.GOOD, verifier.checkRevocationStatus(peerCert, caCert));
+        assertEquals(1, responder.getRequestCount());
+
+        // thisUpdate is up to a second in the past, so the response is due for a refresh
+        // after 6 seconds at the latest and it expires after 7 seconds at the earliest
+        Thread.sleep(6500);
+        responder.setDelay(500);
+        long start = System.currentTimeMillis();
+        assertEquals(RevocationStatus.GOOD, verifier.checkRevocationStatus(peerCert, caCert));
+        assertTrue(System.currentTimeMillis() - start < 500);
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (responder.getRequestCount() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(2, responder.getRequestCount());
+    }
+
+    public void testCacheStore() throws Exception {
+        File file = new File("target" + File.separator + "ocsp-cache-test.dat");
+        file.delete();
+        CacheStore store = new CacheStore(file, 2);
+        assertTrue(store.read().isEmpty());
+
+        List<byte[][]> entries = new ArrayList<byte[][]>();
+        entries.add(new byte[][] {"first".getBytes("UTF-8"), new byte[] {1, 2, 3}});
+        entries.add(new byte[][] {"second".getBytes("UTF-8"), null});
+        store.write(entries);
+
+        List<byte[][]> read = store.read();
+        assertEquals(2, read.size());
+        assertEquals("first", new String(read.get(0)[0], "UTF-8"));
+        assertTrue(Arrays.equals(new byte[] {1, 2, 3}, read.get(0)[1]));
+        assertEquals("second", new String(read.get(1)[0], "UTF-8"));
+        assertEquals(0, read.get(1)[1].length);
+
+        // a store with a different layout ignores the file
+        assertTrue(new CacheStore(file, 3).read().isEmpty());
+
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[] {1, 2, 3});
+        out.close();
+        assertTrue(store.read().isEmpty());
+        assertTrue(file.delete());
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.utils.sslcert;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.bouncycastle.asn1.ocsp.OCSPObjectIdentifiers;
+import org.bouncycastle.asn1.x509.AccessDescription;
+import org.bouncycastle.asn1.x509.AuthorityInformationAccess;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.asn1.x509.X509Extensions;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.BasicOCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.Req;
+import org.bouncycastle.cert.ocsp.RevokedStatus;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.DigestCalculator;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.bouncycastle.x509.X509V3CertificateGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A local stand-in for an OCSP responder of a fake CA. It answers OCSP requests over HTTP
+ * with responses signed by the CA key, reporting the configured serial numbers as revoked
+ * and every other certificate as good. The number of requests received is counted, and the
+ * responses can be delayed to simulate a slow responder.
+ */
+public class OCSPResponderStub {
+
+    private final KeyPair caKeyPair;
+    private final Set<BigInteger> revoked = Collections.synchronizedSet(new HashSet<BigInteger>());
+    private final AtomicInteger requestCount = new AtomicInteger(0);
+    private volatile long validity = TestConstants.NEXT_UPDATE_PERIOD;
+    private volatile long delay = 0;
+    private HttpServer server;
+
+    public OCSPResponderStub(KeyPair caKeyPair) {
+        this.caKeyPair = caKeyPair;
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/ocsp", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange);
+            }
+        });
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/ocsp";
+    }
+
+    public void revoke(BigInteger serialNumber) {
+        revoked.add(serialNumber);
+    }
+
+    /**
+     * @param validity time in milliseconds between thisUpdate and nextUpdate of the responses
+     */
+    public void setValidity(long validity) {
+        this.validity = validity;
+    }
+
+    /**
+     * @param delay time in milliseconds to wait before answering a request
+     */
+    public void setDelay(long delay) {
+        this.delay = delay;
+    }
+
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Create a certificate signed by the CA, whose AIA extension points to this responder
+     */
+    public X509Certificate generatePeerCert(X509Certificate caCert, PublicKey peerKey,
+                                            BigInteger serialNumber) throws Exception {
+        X509V3CertificateGenerator certGen = new Utils().getUsableCertificateGenerator(caCert,
+                peerKey, serialNumber);
+        certGen.addExtension(X509Extensions.AuthorityInfoAccess, false,
+                new AuthorityInformationAccess(new AccessDescription(
+                        AccessDescription.id_ad_ocsp,
+                        new GeneralName(GeneralName.uniformResourceIdentifier, getUrl()))));
+        return certGen.generateX509Certificate(caKeyPair.getPrivate(), "BC");
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        try {
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+            OCSPReq request = new OCSPReq(readAll(exchange.getRequestBody()));
+            byte[] response = generateResponse(request);
+            exchange.getResponseHeaders().add("Content-Type", "application/ocsp-response");
+            exchange.sendResponseHeaders(200, response.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(response);
+            out.close();
+        } catch (Exception e) {
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private byte[] generateResponse(OCSPReq request) throws Exception {
+        DigestCalculator digestCalculator = new JcaDigestCalculatorProviderBuilder().build()
+                .get(CertificateID.HASH_SHA1);
+        BasicOCSPRespBuilder builder = new BasicOCSPRespBuilder(new SubjectPublicKeyInfo(
+                CertificateID.HASH_SHA1, caKeyPair.getPublic().getEncoded()), digestCalculator);
+        Extension nonce = request.getExtension(OCSPObjectIdentifiers.id_pkix_ocsp_nonce);
+        if (nonce != null) {
+            builder.setResponseExtensions(new Extensions(new Extension[]{nonce}));
+        }
+
+        // the response encodes the times in whole seconds
+        Date thisUpdate = new Date(System.currentTimeMillis() / 1000 * 1000);
+        Date nextUpdate = new Date(thisUpdate.getTime() + validity);
+        for (Req req : request.getRequestList()) {
+            CertificateID certID = req.getCertID();
+            if (revoked.contains(certID.getSerialNumber())) {
+                builder.addResponse(certID, new RevokedStatus(thisUpdate,
+                        CRLReason.privilegeWithdrawn), thisUpdate, nextUpdate);
+            } else {
+                builder.addResponse(certID, CertificateStatus.GOOD, thisUpdate, nextUpdate);
+            }
+        }
+
+        ContentSigner signer = new JcaContentSignerBuilder("SHA256withRSA").setProvider("BC")
+                .build(caKeyPair.getPrivate());
+        BasicOCSPResp basicResponse = builder.build(signer, null, thisUpdate);
+        return new OCSPRespBuilder().build(OCSPRespBuilder.SUCCESSFUL, basicResponse)
+                .getEncoded();
+    }
+
+    private byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
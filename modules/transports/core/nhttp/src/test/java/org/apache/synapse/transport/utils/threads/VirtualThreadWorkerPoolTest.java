@@ -0,0 +1,277 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.utils.threads;
+
+import junit.framework.TestCase;
+import org.apache.axiom.om.OMAbstractFactory;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.soap.SOAPEnvelope;
+import org.apache.axiom.soap.SOAPFactory;
+import org.apache.axis2.AxisFault;
+import org.apache.axis2.Constants;
+import org.apache.axis2.addressing.EndpointReference;
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.axis2.context.ConfigurationContextFactory;
+import org.apache.axis2.context.MessageContext;
+import org.apache.axis2.description.OutOnlyAxisOperation;
+import org.apache.axis2.description.TransportOutDescription;
+import org.apache.axis2.transport.base.threads.WorkerPool;
+import org.apache.synapse.transport.nhttp.HttpCoreNIOSender;
+import org.apache.synapse.transport.nhttp.NhttpConstants;
+
+import javax.xml.namespace.QName;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class VirtualThreadWorkerPoolTest extends TestCase {
+
+    public void testPlatformThreadFallback() throws Exception {
+        WorkerPool pool = VirtualThreadWorkerPool.getWorkerPool(false, 2, 4, 5, -1,
+                "Test thread group", "TestWorker");
+        assertFalse(pool instanceof VirtualThreadWorkerPool);
+        pool.shutdown(1000);
+    }
+
+    public void testVirtualThreadsWhenSupported() throws Exception {
+        WorkerPool pool = VirtualThreadWorkerPool.getWorkerPool(true, 2, 4, 5, -1,
+                "Test thread group", "TestWorker");
+        assertEquals(VirtualThreadWorkerPool.isSupported(),
+                pool instanceof VirtualThreadWorkerPool);
+        pool.shutdown(1000);
+    }
+
+    /**
+     * Sends a large number of requests through the nhttp sender from virtual threads, to a
+     * backend which is slow to read them. The sending threads block until the backend catches
+     * up, and must not hold on to their carrier threads while doing so. Pinned threads would
+     * make the scheduler add carriers.
+     */
+    public void testConcurrentSlowBackendCalls() throws Exception {
+        if (!VirtualThreadWorkerPool.isSupported()) {
+            return;
+        }
+
+        final int requests = 200;
+        final SlowBackend backend = new SlowBackend(200);
+        backend.start();
+
+        ConfigurationContext cfgCtx = ConfigurationContextFactory.createEmptyConfigurationContext();
+        final HttpCoreNIOSender sender = new HttpCoreNIOSender();
+        sender.init(cfgCtx, new TransportOutDescription("http"));
+
+        StringBuilder payload = new StringBuilder();
+        for (int i = 0; i < 512 * 1024; i++) {
+            payload.append('x');
+        }
+
+        WorkerPool pool = VirtualThreadWorkerPool.getWorkerPool(true, 20, 100, 5, -1,
+                "Test thread group", "TestWorker");
+        AtomicInteger failures = new AtomicInteger();
+        try {
+            // the first request loads the classes on the send path, which blocks on file I/O
+            send(pool, sender, cfgCtx, backend.getURL(), payload.toString(), 1, failures);
+            int carriers = countCarrierThreads();
+
+            int peakCarriers = send(pool, sender, cfgCtx, backend.getURL(), payload.toString(),
+                    requests, failures);
+            assertTrue(backend.awaitRequests(requests + 1, 60000));
+            assertEquals(0, failures.get());
+            assertTrue("Virtual threads were pinned while waiting for the backend : " +
+                    peakCarriers + " carrier threads", peakCarriers <= carriers);
+        } finally {
+            pool.shutdown(5000);
+            sender.stop();
+            backend.stop();
+        }
+    }
+
+    /**
+     * Sends the given number of requests from the worker pool, and waits for all of them to
+     * be handed over to the backend
+     *
+     * @return the highest number of carrier threads seen while sending
+     */
+    private int send(WorkerPool pool, final HttpCoreNIOSender sender, ConfigurationContext cfgCtx,
+                     String url, String payload, int requests, final AtomicInteger failures)
+            throws Exception {
+
+        final CountDownLatch sent = new CountDownLatch(requests);
+        for (int i = 0; i < requests; i++) {
+            final MessageContext msgCtx = createMessageContext(cfgCtx, url, payload);
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        sender.invoke(msgCtx);
+                    } catch (AxisFault e) {
+                        failures.incrementAndGet();
+                    }
+                    sent.countDown();
+                }
+            });
+        }
+
+        int carriers = countCarrierThreads();
+        long end = System.currentTimeMillis() + 60000;
+        while (!sent.await(10, TimeUnit.MILLISECONDS)) {
+            carriers = Math.max(carriers, countCarrierThreads());
+            assertTrue(System.currentTimeMillis() < end);
+        }
+        return carriers;
+    }
+
+    private MessageContext createMessageContext(ConfigurationContext cfgCtx, String url,
+                                                String payload) throws AxisFault {
+        SOAPFactory factory = OMAbstractFactory.getSOAP11Factory();
+        SOAPEnvelope envelope = factory.getDefaultEnvelope();
+        OMElement element = factory.createOMElement(new QName("payload"));
+        element.setText(payload);
+        envelope.getBody().addChild(element);
+
+        MessageContext msgCtx = new MessageContext();
+        msgCtx.setConfigurationContext(cfgCtx);
+        msgCtx.setEnvelope(envelope);
+        msgCtx.setAxisOperation(new OutOnlyAxisOperation(new QName("send")));
+        msgCtx.setTo(new EndpointReference(url));
+        msgCtx.setProperty(NhttpConstants.IGNORE_SC_ACCEPTED, Constants.VALUE_TRUE);
+        msgCtx.setProperty(NhttpConstants.DISABLE_CHUNKING, Constants.VALUE_TRUE);
+        return msgCtx;
+    }
+
+    private int countCarrierThreads() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if ("jdk.internal.misc.CarrierThread".equals(thread.getClass().getName())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * A backend which waits for a while before reading each request, and answers it with a
+     * 202 Accepted
+     */
+    private static class SlowBackend implements Runnable {
+
+        private final long readDelay;
+        private final AtomicInteger received = new AtomicInteger();
+        private ServerSocket serverSocket;
+        private ExecutorService executor;
+
+        SlowBackend(long readDelay) {
+            this.readDelay = readDelay;
+        }
+
+        void start() throws IOException {
+            serverSocket = new ServerSocket(0, 1024, InetAddress.getByName("127.0.0.1"));
+            executor = Executors.newCachedThreadPool();
+            executor.execute(this);
+        }
+
+        void stop() throws IOException {
+            serverSocket.close();
+            executor.shutdownNow();
+        }
+
+        String getURL() {
+            return "http://127.0.0.1:" + serverSocket.getLocalPort() + "/slow";
+        }
+
+        boolean awaitRequests(int count, long timeout) throws InterruptedException {
+            long end = System.currentTimeMillis() + timeout;
+            while (received.get() < count && System.currentTimeMillis() < end) {
+                Thread.sleep(100);
+            }
+            return received.get() >= count;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!serverSocket.isClosed()) {
+                    final Socket socket = serverSocket.accept();
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            handle(socket);
+                        }
+                    });
+                }
+            } catch (IOException ignore) {
+                // the backend has been stopped
+            }
+        }
+
+        private void handle(Socket socket) {
+            try {
+                InputStream in = socket.getInputStream();
+                int contentLength = 0;
+                String line;
+                while ((line = readLine(in)).length() > 0) {
+                    if (line.toLowerCase().startsWith("content-length:")) {
+                        contentLength = Integer.parseInt(line.substring(15).trim());
+                    }
+                }
+                Thread.sleep(readDelay);
+                byte[] buffer = new byte[8192];
+                int read;
+                while (contentLength > 0 &&
+                        (read = in.read(buffer, 0, Math.min(buffer.length, contentLength))) != -1) {
+                    contentLength -= read;
+                }
+                OutputStream out = socket.getOutputStream();
+                out.write(("HTTP/1.1 202 Accepted\r\nContent-Length: 0\r\n" +
+                        "Connection: close\r\n\r\n").getBytes("US-ASCII"));
+                out.flush();
+                received.incrementAndGet();
+            } catch (IOException ignore) {
+                // the request is not counted as received
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                try {
+                    socket.close();
+                } catch (IOException ignore) {
+                }
+            }
+        }
+
+        private String readLine(InputStream in) throws IOException {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = in.read()) != -1 && c != '\n') {
+                if (c != '\r') {
+                    line.append((char) c);
+                }
+            }
+            return line.toString();
+        }
+    }
+}
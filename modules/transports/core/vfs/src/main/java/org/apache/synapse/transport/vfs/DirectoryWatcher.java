@@ -0,0 +1,213 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.vfs;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the local directories of VFS poll table entries with a {@link WatchService}, so
+ * that new files are picked up as soon as they are written instead of on the next poll.
+ * <p/>
+ * Events are collected until the directories have been quiet for a short while, so that a
+ * file which is still being written produces a single notification in most cases, and are
+ * then handed to the {@link Callback} in batches per poll table entry. If the operating
+ * system drops events, the callback is asked to rescan the whole directory.
+ */
+class DirectoryWatcher implements Runnable {
+
+    private static final Log log = LogFactory.getLog(DirectoryWatcher.class);
+
+    /** time in milliseconds without new events after which the pending files are dispatched */
+    private static final long QUIET_PERIOD = 50;
+    /** longest time in milliseconds a file waits for the directories to become quiet */
+    private static final long MAX_DELAY = 500;
+
+    /**
+     * Receives the changes of the watched directories
+     */
+    interface Callback {
+
+        /**
+         * Files have been created or modified in the directory of the entry
+         *
+         * @param entry     the poll table entry watching the directory
+         * @param fileNames base names of the files
+         */
+        void filesChanged(PollTableEntry entry, Set<String> fileNames);
+
+        /**
+         * Events of the directory of the entry have been lost
+         *
+         * @param entry the poll table entry watching the directory
+         */
+        void eventsLost(PollTableEntry entry);
+    }
+
+    private final Callback callback;
+    private final WatchService watchService;
+    private final Map<WatchKey, PollTableEntry> entries =
+            new ConcurrentHashMap<WatchKey, PollTableEntry>();
+
+    /** files waiting to be dispatched, only accessed by the watcher thread */
+    private final Map<PollTableEntry, Set<String>> pendingFiles =
+            new LinkedHashMap<PollTableEntry, Set<String>>();
+    private long firstPendingTime;
+
+    private volatile boolean running = false;
+
+    DirectoryWatcher(Callback callback) throws IOException {
+        this.callback = callback;
+        this.watchService = FileSystems.getDefault().newWatchService();
+    }
+
+    void start() {
+        running = true;
+        Thread thread = new Thread(this, "VFSDirectoryWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void stop() {
+        running = false;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            log.warn("Error closing the directory watch service", e);
+        }
+    }
+
+    /**
+     * Start watching the directory of a poll table entry
+     *
+     * @param entry     the poll table entry
+     * @param directory the local directory of the entry
+     * @throws IOException if the directory cannot be watched
+     */
+    void register(PollTableEntry entry, Path directory) throws IOException {
+        WatchKey key = directory.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        entries.put(key, entry);
+        if (log.isDebugEnabled()) {
+            log.debug("Watching directory : " + directory + " for the service : " +
+                    entry.getServiceName());
+        }
+    }
+
+    /**
+     * Stop watching the directory of a poll table entry
+     *
+     * @param entry the poll table entry
+     */
+    void unregister(PollTableEntry entry) {
+        Iterator<Map.Entry<WatchKey, PollTableEntry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<WatchKey, PollTableEntry> e = it.next();
+            if (e.getValue() == entry) {
+                e.getKey().cancel();
+                it.remove();
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            WatchKey key;
+            try {
+                key = watchService.poll(QUIET_PERIOD, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ClosedWatchServiceException e) {
+                break;
+            }
+
+            if (key != null) {
+                collect(key);
+            }
+            if (!pendingFiles.isEmpty() && (key == null ||
+                    System.currentTimeMillis() - firstPendingTime > MAX_DELAY)) {
+                dispatch();
+            }
+        }
+        log.debug("Directory watcher stopped");
+    }
+
+    private void collect(WatchKey key) {
+        PollTableEntry entry = entries.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (entry == null) {
+                continue;
+            }
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                log.warn("Lost the file events of : " +
+                        VFSUtils.maskURLPassword(entry.getFileURI()) + ". Rescanning");
+                pendingFiles.remove(entry);
+                callback.eventsLost(entry);
+                continue;
+            }
+
+            Set<String> files = pendingFiles.get(entry);
+            if (files == null) {
+                if (pendingFiles.isEmpty()) {
+                    firstPendingTime = System.currentTimeMillis();
+                }
+                files = new LinkedHashSet<String>();
+                pendingFiles.put(entry, files);
+            }
+            files.add(event.context().toString());
+        }
+
+        if (!key.reset() && entry != null) {
+            entries.remove(key);
+            log.warn("The directory of : " + VFSUtils.maskURLPassword(entry.getFileURI()) +
+                    " can no longer be watched. Falling back to polling");
+        }
+    }
+
+    private void dispatch() {
+        for (Map.Entry<PollTableEntry, Set<String>> e : pendingFiles.entrySet()) {
+            try {
+                callback.filesChanged(e.getKey(), e.getValue());
+            } catch (Throwable t) {
+                log.error("Error dispatching the file events of : " +
+                        VFSUtils.maskURLPassword(e.getKey().getFileURI()), t);
+            }
+        }
+        pendingFiles.clear();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.vfs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Splits a stream of line oriented records (CSV, flat files etc.) into bounded chunks, so that
+ * arbitrarily large files can be processed with a fixed amount of memory. A chunk ends after
+ * the given number of lines, or before the line which would take it over the byte budget.
+ * A single line longer than the byte budget is split at the budget.
+ * <p/>
+ * Lines are delimited by '\n' (a preceding '\r' stays with its line), hence the records must
+ * use an ASCII compatible encoding such as UTF-8 or ISO-8859-1.
+ */
+class FileChunkReader implements Closeable {
+
+    private final InputStream in;
+    private final int maxLines;
+    private final int maxBytes;
+
+    private final byte[] buffer = new byte[8192];
+    private int pos = 0;
+    private int limit = 0;
+    private boolean eof = false;
+
+    /** bytes of an incomplete line left over from the previous chunk */
+    private byte[] carry = null;
+
+    /**
+     * @param in       the stream to be split
+     * @param maxLines maximum number of lines of a chunk, or 0 for no limit
+     * @param maxBytes maximum size of a chunk in bytes, or 0 for no limit
+     */
+    FileChunkReader(InputStream in, int maxLines, int maxBytes) {
+        this.in = in;
+        this.maxLines = maxLines;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Read the next chunk of the stream
+     *
+     * @return the next chunk, or null if the end of the stream has been reached
+     * @throws IOException on error reading the stream
+     */
+    byte[] nextChunk() throws IOException {
+        ChunkBuffer chunk = new ChunkBuffer(maxBytes > 0 ? maxBytes : buffer.length);
+        if (carry != null) {
+            chunk.write(carry, 0, carry.length);
+            carry = null;
+        }
+
+        int lines = 0;
+        // size of the chunk up to the end of its last complete line
+        int lastLineEnd = 0;
+        while (true) {
+            if (maxBytes > 0 && chunk.size() >= maxBytes) {
+                int end = lastLineEnd > 0 ? lastLineEnd : maxBytes;
+                if (end < chunk.size()) {
+                    carry = chunk.copyOf(end, chunk.size());
+                }
+                return chunk.copyOf(0, end);
+            }
+            if (maxLines > 0 && lines >= maxLines) {
+                return chunk.toByteArray();
+            }
+
+            if (pos == limit) {
+                if (eof || (limit = in.read(buffer)) < 0) {
+                    eof = true;
+                    limit = 0;
+                    pos = 0;
+                    break;
+                }
+                pos = 0;
+            }
+
+            // never take in more than the byte budget, so that any tail left over after the
+            // last complete line is a part of a single line
+            int end = limit;
+            if (maxBytes > 0) {
+                end = Math.min(limit, pos + maxBytes - chunk.size());
+            }
+            int i = pos;
+            while (i < end && buffer[i] != '\n') {
+                i++;
+            }
+            if (i < end) {
+                chunk.write(buffer, pos, i + 1 - pos);
+                pos = i + 1;
+                lines++;
+                lastLineEnd = chunk.size();
+            } else {
+                chunk.write(buffer, pos, end - pos);
+                pos = end;
+            }
+        }
+        return chunk.size() > 0 ? chunk.toByteArray() : null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Gives access to a range of the collected bytes without copying them twice
+     */
+    private static class ChunkBuffer extends ByteArrayOutputStream {
+
+        ChunkBuffer(int size) {
+            super(size);
+        }
+
+        byte[] copyOf(int from, int to) {
+            byte[] copy = new byte[to - from];
+            System.arraycopy(buf, from, copy, 0, copy.length);
+            return copy;
+        }
+    }
+}
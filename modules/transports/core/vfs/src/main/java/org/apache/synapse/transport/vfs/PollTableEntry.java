@@ -29,6 +29,11 @@ import org.apache.commons.logging.LogFactory;
 
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * Holds information about an entry in the VFS transport poll table used by the
@@ -83,6 +88,27 @@ public class PollTableEntry extends AbstractPollTableEntry {
 
     private String failedRecordTimestampFormat;
 
+    /** process the files of a directory concurrently */
+    private boolean parallelProcessing;
+    /** maximum number of files processed at the same time in parallel mode */
+    private int maxInFlightFiles = VFSConstants.DEFAULT_MAX_IN_FLIGHT_FILES;
+    /** capturing group of the file name pattern used as the ordering key, or -1 */
+    private int orderingKeyGroup = -1;
+    private Pattern compiledFileNamePattern;
+
+    /** watch the directory for new files instead of relying on the polls alone */
+    private boolean watchDirectory;
+    /** keeps the polls and the processing of file events of a watched directory apart */
+    private final Lock processingLock = new ReentrantLock();
+
+    /** maximum number of lines of a chunk, or 0 */
+    private int chunkLines;
+    /** maximum size of a chunk in bytes, or 0 */
+    private int chunkBytes;
+
+    /** statistics of the polls of this entry */
+    private final VFSPollView pollView = new VFSPollView();
+
     public PollTableEntry(boolean fileLocking) {
         this.fileLocking = fileLocking;
     }
@@ -204,6 +230,60 @@ public class PollTableEntry extends AbstractPollTableEntry {
         return moveTimestampFormat;
     }
 
+    public boolean isParallelProcessing() {
+        return parallelProcessing;
+    }
+
+    public int getMaxInFlightFiles() {
+        return maxInFlightFiles;
+    }
+
+    public int getOrderingKeyGroup() {
+        return orderingKeyGroup;
+    }
+
+    /**
+     * Return the ordering key of a file, i.e. the configured capturing group of the file
+     * name pattern
+     *
+     * @param fileName base name of the file
+     * @return the ordering key, or null if the file can be processed in any order
+     */
+    public String getOrderingKey(String fileName) {
+        if (orderingKeyGroup < 0 || compiledFileNamePattern == null) {
+            return null;
+        }
+        Matcher matcher = compiledFileNamePattern.matcher(fileName);
+        if (matcher.matches() && orderingKeyGroup <= matcher.groupCount()) {
+            return matcher.group(orderingKeyGroup);
+        }
+        return null;
+    }
+
+    public boolean isWatchDirectory() {
+        return watchDirectory;
+    }
+
+    public boolean isChunked() {
+        return chunkLines > 0 || chunkBytes > 0;
+    }
+
+    public int getChunkLines() {
+        return chunkLines;
+    }
+
+    public int getChunkBytes() {
+        return chunkBytes;
+    }
+
+    public Lock getProcessingLock() {
+        return processingLock;
+    }
+
+    public VFSPollView getPollView() {
+        return pollView;
+    }
+
     @Override
     public boolean loadConfiguration(ParameterInclude params) throws AxisFault {
         
@@ -309,6 +389,45 @@ public class PollTableEntry extends AbstractPollTableEntry {
                         VFSConstants.DEFAULT_TRANSPORT_FAILED_RECORD_TIMESTAMP_FORMAT;
             }
             
+            parallelProcessing = ParamUtils.getOptionalParamBoolean(params,
+                    VFSConstants.TRANSPORT_FILE_PARALLEL_PROCESSING, false);
+            maxInFlightFiles = ParamUtils.getOptionalParamInt(params,
+                    VFSConstants.TRANSPORT_FILE_MAX_IN_FLIGHT_FILES,
+                    VFSConstants.DEFAULT_MAX_IN_FLIGHT_FILES);
+            if (maxInFlightFiles < 1) {
+                log.warn("Invalid value for " + VFSConstants.TRANSPORT_FILE_MAX_IN_FLIGHT_FILES +
+                        " : " + maxInFlightFiles + ". Using the default value");
+                maxInFlightFiles = VFSConstants.DEFAULT_MAX_IN_FLIGHT_FILES;
+            }
+            orderingKeyGroup = ParamUtils.getOptionalParamInt(params,
+                    VFSConstants.TRANSPORT_FILE_ORDERING_KEY_GROUP, -1);
+            if (orderingKeyGroup >= 0 && fileNamePattern != null) {
+                try {
+                    compiledFileNamePattern = Pattern.compile(fileNamePattern);
+                } catch (PatternSyntaxException e) {
+                    log.warn("Invalid file name pattern : " + fileNamePattern +
+                            ". Files will be processed without an ordering key");
+                }
+            }
+
+            watchDirectory = ParamUtils.getOptionalParamBoolean(params,
+                    VFSConstants.TRANSPORT_FILE_WATCH_DIRECTORY, false);
+
+            chunkLines = ParamUtils.getOptionalParamInt(params,
+                    VFSConstants.TRANSPORT_FILE_CHUNK_LINES, 0);
+            if (chunkLines < 0) {
+                log.warn("Invalid value for " + VFSConstants.TRANSPORT_FILE_CHUNK_LINES +
+                        " : " + chunkLines + ". Chunks will not be limited by lines");
+                chunkLines = 0;
+            }
+            chunkBytes = ParamUtils.getOptionalParamInt(params,
+                    VFSConstants.TRANSPORT_FILE_CHUNK_BYTES, 0);
+            if (chunkBytes < 0) {
+                log.warn("Invalid value for " + VFSConstants.TRANSPORT_FILE_CHUNK_BYTES +
+                        " : " + chunkBytes + ". Chunks will not be limited by size");
+                chunkBytes = 0;
+            }
+
             return super.loadConfiguration(params);
         }
     }
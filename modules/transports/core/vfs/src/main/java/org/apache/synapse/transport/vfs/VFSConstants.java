@@ -67,6 +67,9 @@ public final class VFSConstants {
     public static final String FILE_NAME = "FILE_NAME";
     public static final String FILE_LENGTH = "FILE_LENGTH";
     public static final String LAST_MODIFIED = "LAST_MODIFIED";
+    public static final String CHUNK_CORRELATION_ID = "CHUNK_CORRELATION_ID";
+    public static final String CHUNK_SEQUENCE_NUMBER = "CHUNK_SEQUENCE_NUMBER";
+    public static final String CHUNK_LAST = "CHUNK_LAST";
 
       /**
        * If a rename/move operation failed, we'll keep track of a list in a text file and this will
@@ -120,4 +123,43 @@ public final class VFSConstants {
               "dd/MM/yyyy/ HH:mm:ss";
 
       public static final String FAILED_RECORD_DELIMITER = " ";
+
+      /**
+       * Process the files found by a directory poll concurrently on the worker pool
+       */
+      public static final String TRANSPORT_FILE_PARALLEL_PROCESSING =
+              "transport.vfs.ParallelProcessing";
+
+      /**
+       * Maximum number of files of a single poll which are processed at the same time
+       */
+      public static final String TRANSPORT_FILE_MAX_IN_FLIGHT_FILES =
+              "transport.vfs.MaxInFlightFiles";
+
+      public static final int DEFAULT_MAX_IN_FLIGHT_FILES = 10;
+
+      /**
+       * Index of the capturing group of the file name pattern which yields the ordering key of
+       * a file. Files with the same key are processed one after the other, in file name order.
+       */
+      public static final String TRANSPORT_FILE_ORDERING_KEY_GROUP =
+              "transport.vfs.OrderingKeyGroup";
+
+      /**
+       * Pick up the files of a local directory as soon as they are written, using the file
+       * change notifications of the operating system. The regular polls become a fallback
+       * rescan of the directory.
+       */
+      public static final String TRANSPORT_FILE_WATCH_DIRECTORY =
+              "transport.vfs.WatchDirectory";
+
+      /**
+       * Maximum number of lines of a chunk, when a file is injected as a sequence of chunks
+       */
+      public static final String TRANSPORT_FILE_CHUNK_LINES = "transport.vfs.ChunkLines";
+
+      /**
+       * Maximum size in bytes of a chunk, when a file is injected as a sequence of chunks
+       */
+      public static final String TRANSPORT_FILE_CHUNK_BYTES = "transport.vfs.ChunkBytes";
 }
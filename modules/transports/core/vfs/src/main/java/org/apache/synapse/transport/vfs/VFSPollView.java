@@ -0,0 +1,125 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.vfs;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the polls of a VFS poll table entry: the number of files and the time taken
+ * by the last poll, and the files of the current poll which are still waiting or being
+ * processed.
+ */
+public class VFSPollView implements VFSPollViewMBean {
+
+    private final AtomicLong totalPolls = new AtomicLong(0);
+    private final AtomicLong totalFilesProcessed = new AtomicLong(0);
+    private final AtomicInteger backlog = new AtomicInteger(0);
+    private final AtomicInteger inFlightFiles = new AtomicInteger(0);
+
+    private volatile int lastPollFileCount = 0;
+    private volatile long lastPollDuration = 0;
+
+    /**
+     * Notify the start of a poll
+     *
+     * @param files number of files found by the poll
+     */
+    public void pollStarted(int files) {
+        backlog.set(files);
+    }
+
+    public void fileStarted() {
+        backlog.decrementAndGet();
+        inFlightFiles.incrementAndGet();
+    }
+
+    public void fileSkipped() {
+        backlog.decrementAndGet();
+    }
+
+    public void fileCompleted() {
+        inFlightFiles.decrementAndGet();
+        totalFilesProcessed.incrementAndGet();
+    }
+
+    /**
+     * Notify the completion of a poll
+     *
+     * @param files    number of files processed by the poll
+     * @param duration time taken by the poll in nanoseconds
+     */
+    public void pollCompleted(int files, long duration) {
+        totalPolls.incrementAndGet();
+        lastPollFileCount = files;
+        lastPollDuration = duration;
+        backlog.set(0);
+    }
+
+    @Override
+    public long getTotalPolls() {
+        return totalPolls.get();
+    }
+
+    @Override
+    public long getTotalFilesProcessed() {
+        return totalFilesProcessed.get();
+    }
+
+    @Override
+    public int getLastPollFileCount() {
+        return lastPollFileCount;
+    }
+
+    /**
+     * @return time taken by the last poll in milliseconds
+     */
+    @Override
+    public double getLastPollDuration() {
+        return lastPollDuration / 1000000.0;
+    }
+
+    /**
+     * @return files processed per second by the last poll
+     */
+    @Override
+    public double getLastPollThroughput() {
+        long duration = lastPollDuration;
+        return duration == 0 ? 0 : lastPollFileCount * 1000000000.0 / duration;
+    }
+
+    @Override
+    public int getBacklog() {
+        return Math.max(0, backlog.get());
+    }
+
+    @Override
+    public int getInFlightFiles() {
+        return inFlightFiles.get();
+    }
+
+    @Override
+    public void reset() {
+        totalPolls.set(0);
+        totalFilesProcessed.set(0);
+        lastPollFileCount = 0;
+        lastPollDuration = 0;
+    }
+}
@@ -39,7 +39,16 @@ import org.apache.commons.vfs2.FileSystemManager;
 import org.apache.commons.vfs2.FileType;
 import org.apache.commons.vfs2.impl.StandardFileSystemManager;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
 
 /**
  * axis2.xml - transport definition
@@ -261,10 +270,16 @@ public class VFSTransportSender extends AbstractTransportSender implements Manag
         
         MessageFormatter messageFormatter = MessageProcessorSelector.getMessageFormatter(msgContext);
         OMOutputFormat format = BaseUtils.getOMOutputFormat(msgContext);
-        
+
+        // the chunks of a file are assembled again, starting over with the first chunk
+        String chunkSequenceNumber = getChunkSequenceNumber(msgContext);
+        if (chunkSequenceNumber != null && !"1".equals(chunkSequenceNumber)) {
+            append = true;
+        }
+
         try {
             CountingOutputStream os = new CountingOutputStream(
-                    responseFile.getContent().getOutputStream(append));
+                    getOutputStream(responseFile, append));
             try {
                 messageFormatter.writeTo(msgContext, format, os, false);
             } finally {
@@ -292,6 +307,38 @@ public class VFSTransportSender extends AbstractTransportSender implements Manag
         }
     }
 
+    /**
+     * Open the stream to write a message to a file. Appends to a local file are written
+     * through a FileChannel, so that a file which is assembled from many chunks is never
+     * buffered as a whole.
+     */
+    private OutputStream getOutputStream(FileObject responseFile, boolean append)
+            throws IOException {
+
+        if (append && "file".equals(responseFile.getName().getScheme())) {
+            try {
+                Path path = Paths.get(responseFile.getURL().toURI());
+                FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                return new BufferedOutputStream(Channels.newOutputStream(channel));
+            } catch (URISyntaxException e) {
+                throw new IOException("Invalid local file : " + responseFile.getURL(), e);
+            }
+        }
+        return responseFile.getContent().getOutputStream(append);
+    }
+
+    private String getChunkSequenceNumber(MessageContext msgContext) {
+        Object headers = msgContext.getProperty(MessageContext.TRANSPORT_HEADERS);
+        if (headers instanceof Map) {
+            Object sequenceNumber = ((Map) headers).get(VFSConstants.CHUNK_SEQUENCE_NUMBER);
+            if (sequenceNumber != null) {
+                return sequenceNumber.toString();
+            }
+        }
+        return null;
+    }
+
     private void acquireLockForSending(FileObject responseFile, VFSOutTransportInfo vfsOutInfo)
             throws AxisFault {
         
@@ -0,0 +1,84 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.vfs;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class DirectoryWatcherTest extends TestCase {
+
+    public void testFilesChanged() throws Exception {
+        File directory = Files.createTempDirectory("vfs-watch").toFile();
+        final Set<String> changed = new HashSet<String>();
+        final CountDownLatch done = new CountDownLatch(1);
+        final PollTableEntry entry = new PollTableEntry(false);
+
+        DirectoryWatcher watcher = new DirectoryWatcher(new DirectoryWatcher.Callback() {
+            @Override
+            public void filesChanged(PollTableEntry e, Set<String> fileNames) {
+                assertSame(entry, e);
+                synchronized (changed) {
+                    changed.addAll(fileNames);
+                    if (changed.size() == 2) {
+                        done.countDown();
+                    }
+                }
+            }
+
+            @Override
+            public void eventsLost(PollTableEntry e) {
+                done.countDown();
+            }
+        });
+        watcher.start();
+        try {
+            watcher.register(entry, directory.toPath());
+            write(new File(directory, "a.xml"));
+            write(new File(directory, "b.xml"));
+            assertTrue("Timed out waiting for the file events", done.await(30, TimeUnit.SECONDS));
+            synchronized (changed) {
+                assertTrue(changed.contains("a.xml"));
+                assertTrue(changed.contains("b.xml"));
+            }
+        } finally {
+            watcher.stop();
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    private void write(File file) throws Exception {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write("<test/>".getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+}
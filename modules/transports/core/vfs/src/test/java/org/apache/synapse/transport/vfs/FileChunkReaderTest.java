@@ -0,0 +1,93 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.vfs;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+public class FileChunkReaderTest extends TestCase {
+
+    public void testLines() throws Exception {
+        List<String> chunks = split("a,1\nb,2\nc,3\nd,4\ne,5", 2, 0);
+        assertEquals(3, chunks.size());
+        assertEquals("a,1\nb,2\n", chunks.get(0));
+        assertEquals("c,3\nd,4\n", chunks.get(1));
+        assertEquals("e,5", chunks.get(2));
+    }
+
+    public void testBytesBreakAtLines() throws Exception {
+        List<String> chunks = split("aaa\nbbb\nccc\n", 0, 9);
+        assertEquals(2, chunks.size());
+        assertEquals("aaa\nbbb\n", chunks.get(0));
+        assertEquals("ccc\n", chunks.get(1));
+    }
+
+    public void testLongLineIsSplit() throws Exception {
+        List<String> chunks = split("aaaaaaaaaa\nb\n", 0, 4);
+        assertEquals("aaaa", chunks.get(0));
+        assertEquals("aaaa", chunks.get(1));
+        assertEquals("aa\n", chunks.get(2));
+        assertEquals("b\n", chunks.get(3));
+        assertEquals(4, chunks.size());
+    }
+
+    public void testLinesAndBytes() throws Exception {
+        List<String> chunks = split("a\nb\nc\nlonger line\n", 2, 8);
+        assertEquals(4, chunks.size());
+        assertEquals("a\nb\n", chunks.get(0));
+        assertEquals("c\n", chunks.get(1));
+        assertEquals("longer l", chunks.get(2));
+        assertEquals("ine\n", chunks.get(3));
+    }
+
+    public void testLargeInput() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            sb.append("record-").append(i).append("\r\n");
+        }
+        List<String> chunks = split(sb.toString(), 1000, 0);
+        assertEquals(10, chunks.size());
+        StringBuilder joined = new StringBuilder();
+        for (String chunk : chunks) {
+            assertTrue(chunk.endsWith("\r\n"));
+            joined.append(chunk);
+        }
+        assertEquals(sb.toString(), joined.toString());
+    }
+
+    public void testEmpty() throws Exception {
+        assertTrue(split("", 10, 0).isEmpty());
+    }
+
+    private List<String> split(String content, int lines, int bytes) throws Exception {
+        FileChunkReader reader = new FileChunkReader(
+                new ByteArrayInputStream(content.getBytes("UTF-8")), lines, bytes);
+        List<String> chunks = new ArrayList<String>();
+        byte[] chunk;
+        while ((chunk = reader.nextChunk()) != null) {
+            chunks.add(new String(chunk, "UTF-8"));
+        }
+        reader.close();
+        return chunks;
+    }
+}
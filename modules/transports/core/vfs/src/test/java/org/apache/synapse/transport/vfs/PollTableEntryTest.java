@@ -0,0 +1,88 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.vfs;
+
+import junit.framework.TestCase;
+import org.apache.axis2.description.AxisService;
+
+public class PollTableEntryTest extends TestCase {
+
+    public void testSequentialByDefault() throws Exception {
+        PollTableEntry entry = createEntry("order-(\\d+)-\\d+\\.xml", null, null);
+        assertFalse(entry.isParallelProcessing());
+        assertEquals(VFSConstants.DEFAULT_MAX_IN_FLIGHT_FILES, entry.getMaxInFlightFiles());
+        assertNull(entry.getOrderingKey("order-1-1.xml"));
+    }
+
+    public void testOrderingKey() throws Exception {
+        PollTableEntry entry = createEntry("order-(\\d+)-\\d+\\.xml", "4", "1");
+        assertTrue(entry.isParallelProcessing());
+        assertEquals(4, entry.getMaxInFlightFiles());
+        assertEquals("12", entry.getOrderingKey("order-12-1.xml"));
+        assertEquals("12", entry.getOrderingKey("order-12-2.xml"));
+        assertEquals("7", entry.getOrderingKey("order-7-1.xml"));
+        // files which do not match the pattern are not ordered
+        assertNull(entry.getOrderingKey("invoice-1.xml"));
+    }
+
+    public void testInvalidOrderingKeyGroup() throws Exception {
+        PollTableEntry entry = createEntry("order-(\\d+)-\\d+\\.xml", "0", "3");
+        assertEquals(VFSConstants.DEFAULT_MAX_IN_FLIGHT_FILES, entry.getMaxInFlightFiles());
+        assertNull(entry.getOrderingKey("order-12-1.xml"));
+    }
+
+    public void testPollView() {
+        VFSPollView view = new VFSPollView();
+        view.pollStarted(3);
+        view.fileStarted();
+        view.fileSkipped();
+        assertEquals(1, view.getBacklog());
+        assertEquals(1, view.getInFlightFiles());
+        view.fileCompleted();
+        view.fileStarted();
+        view.fileCompleted();
+        view.pollCompleted(2, 500000000L);
+
+        assertEquals(0, view.getBacklog());
+        assertEquals(0, view.getInFlightFiles());
+        assertEquals(1, view.getTotalPolls());
+        assertEquals(2, view.getTotalFilesProcessed());
+        assertEquals(500.0, view.getLastPollDuration(), 0.001);
+        assertEquals(4.0, view.getLastPollThroughput(), 0.001);
+    }
+
+    private PollTableEntry createEntry(String pattern, String maxInFlight,
+                                       String orderingKeyGroup) throws Exception {
+        AxisService service = new AxisService("test");
+        service.addParameter(VFSConstants.TRANSPORT_FILE_FILE_URI, "file:///tmp/in");
+        service.addParameter(VFSConstants.TRANSPORT_FILE_CONTENT_TYPE, "text/xml");
+        service.addParameter(VFSConstants.TRANSPORT_FILE_FILE_NAME_PATTERN, pattern);
+        if (maxInFlight != null) {
+            service.addParameter(VFSConstants.TRANSPORT_FILE_PARALLEL_PROCESSING, "true");
+            service.addParameter(VFSConstants.TRANSPORT_FILE_MAX_IN_FLIGHT_FILES, maxInFlight);
+        }
+        if (orderingKeyGroup != null) {
+            service.addParameter(VFSConstants.TRANSPORT_FILE_ORDERING_KEY_GROUP, orderingKeyGroup);
+        }
+        PollTableEntry entry = new PollTableEntry(false);
+        assertTrue(entry.loadConfiguration(service));
+        return entry;
+    }
+}
@@ -31,8 +31,7 @@ public class AMQPTransportBuffers {
     /**
      * The request message buffer which holds the request messages
      */
-    private BlockingQueue<AMQPTransportMessage> requestBuffer =
-            new LinkedBlockingQueue<AMQPTransportMessage>();
+    private BlockingQueue<AMQPTransportMessage> requestBuffer;
 
     /**
      * The response message buffer which holds the responses for processed messages
@@ -40,6 +39,24 @@ public class AMQPTransportBuffers {
     private BlockingQueue<AMQPTransportMessage> responseBuffer =
             new LinkedBlockingQueue<AMQPTransportMessage>();
 
+    /**
+     * Create buffers with an unbounded request buffer
+     */
+    public AMQPTransportBuffers() {
+        requestBuffer = new LinkedBlockingQueue<AMQPTransportMessage>();
+    }
+
+    /**
+     * Create buffers with a bounded request buffer. Adding a request message blocks while the
+     * buffer is full, which holds back the acknowledgements of the consumers and hence the
+     * deliveries of the broker.
+     *
+     * @param requestBufferSize the capacity of the request buffer
+     */
+    public AMQPTransportBuffers(int requestBufferSize) {
+        requestBuffer = new LinkedBlockingQueue<AMQPTransportMessage>(requestBufferSize);
+    }
+
     /**
      * Returns the response messages as a list
      *
@@ -76,12 +93,14 @@ public class AMQPTransportBuffers {
     }
 
     /**
-     * Add a message to the request message buffer
+     * Add a message to the request message buffer, waiting for space to become available if
+     * the buffer is bounded and full
      *
      * @param msg the message to add into the buffer
+     * @throws InterruptedException if interrupted while waiting for space
      */
-    public void addRequestMessage(AMQPTransportMessage msg) {
-        requestBuffer.add(msg);
+    public void addRequestMessage(AMQPTransportMessage msg) throws InterruptedException {
+        requestBuffer.put(msg);
     }
 
     /**
@@ -73,6 +73,37 @@ public final class AMQPTransportConstant {
      */
     public static final String PARAMETER_CHANNEL_QOS_GLOBAL = "transport.amqp.IsQoSGlobally";
 
+    /**
+     * Maximum number of deliveries a consumer acknowledges with a single basic.ack
+     * (multiple=true). Only used when a prefetch count is set, since consumers then acknowledge
+     * deliveries explicitly. Defaults to half of the prefetch count.
+     */
+    public static final String PARAMETER_CONSUMER_ACK_BATCH_SIZE =
+            "transport.amqp.ConsumerAckBatchSize";
+
+    /**
+     * Capacity of the buffer which holds the received messages until they are processed.
+     * When the buffer is full, the consumers stop acknowledging and the broker stops delivering
+     * once the prefetch count has been reached. Unbounded by default.
+     */
+    public static final String PARAMETER_REQUEST_BUFFER_SIZE = "transport.amqp.RequestBufferSize";
+
+    /**
+     * Maximum number of published messages which may wait for a publisher confirm from the
+     * broker. Setting this puts the channel of the sender into confirm mode, and confirms are
+     * then processed asynchronously instead of waiting on each message.
+     */
+    public static final String PARAMETER_PUBLISHER_CONFIRM_WINDOW =
+            "transport.amqp.PublisherConfirmWindow";
+
+    /**
+     * Time in milliseconds a publisher waits for room in a full confirm window.
+     */
+    public static final String PARAMETER_PUBLISHER_CONFIRM_TIMEOUT =
+            "transport.amqp.PublisherConfirmTimeout";
+
+    public static final long DEFAULT_PUBLISHER_CONFIRM_TIMEOUT = 30000;
+
     /**
      * The type of the exchange. One of fanout, direct, header or topic.
      */
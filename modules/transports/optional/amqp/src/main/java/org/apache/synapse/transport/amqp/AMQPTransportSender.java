@@ -202,6 +202,15 @@ public class AMQPTransportSender extends AbstractTransportSender {
                 tx = null;
             }
 
+            if (tx != null && amqpSender.getConfirmWindow() != null) {
+                // the channel is already in confirm mode, confirms are handled by its window
+                if (log.isDebugEnabled()) {
+                    log.debug("Ignoring the producer tx of message '" + msgCtx.getMessageID() +
+                            "', publisher confirms are enabled for its destination");
+                }
+                tx = null;
+            }
+
             if (tx != null) {
                 try {
                     tx.start();
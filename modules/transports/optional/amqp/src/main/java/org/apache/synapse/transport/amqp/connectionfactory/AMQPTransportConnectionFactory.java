@@ -246,7 +246,6 @@ public class AMQPTransportConnectionFactory {
             try {
                 prefetchCount = Integer.parseInt(
                         parameters.get(AMQPTransportConstant.PARAMETER_CHANNEL_PREFETCH_COUNT));
-                ch.basicQos(prefetchCount);
             } catch (NumberFormatException e) {
                 prefetchCount = 0; // assume default
             }
@@ -257,6 +256,10 @@ public class AMQPTransportConnectionFactory {
             useGlobally = Boolean.parseBoolean(parameters.get(
                     AMQPTransportConstant.PARAMETER_CHANNEL_QOS_GLOBAL));
         }
+        if (prefetchCount > 0) {
+            // the broker does not support a prefetch size, hence only the count is applied
+            ch.basicQos(0, prefetchCount, useGlobally);
+        }
         return ch;
     }
 }
\ No newline at end of file
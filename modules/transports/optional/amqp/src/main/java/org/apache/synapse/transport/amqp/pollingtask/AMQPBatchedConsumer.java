@@ -0,0 +1,84 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.synapse.transport.amqp.pollingtask;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.QueueingConsumer;
+import org.apache.synapse.transport.amqp.AMQPTransportBuffers;
+import org.apache.synapse.transport.amqp.AMQPTransportMessage;
+
+import java.io.IOException;
+
+/**
+ * Moves the deliveries of a consumer into the request buffer in batches, acknowledging each
+ * batch with a single basic.ack. Since a multiple ack covers every earlier delivery of the
+ * channel, the consumer must have a channel of its own.
+ */
+public final class AMQPBatchedConsumer {
+
+    private final QueueingConsumer consumer;
+
+    private final Channel channel;
+
+    private final AMQPTransportBuffers buffers;
+
+    private final int batchSize;
+
+    /**
+     * @param consumer  the consumer receiving the deliveries
+     * @param channel   the channel of the consumer, used for the acknowledgements
+     * @param buffers   the buffers to add the request messages to
+     * @param batchSize maximum number of deliveries acknowledged at once
+     */
+    public AMQPBatchedConsumer(QueueingConsumer consumer, Channel channel,
+                               AMQPTransportBuffers buffers, int batchSize) {
+        this.consumer = consumer;
+        this.channel = channel;
+        this.buffers = buffers;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Wait for a delivery, take whatever else has already arrived up to the batch size,
+     * and acknowledge all of them with a single basic.ack once they are in the request
+     * buffer. Adding to a full buffer blocks, which holds back the acknowledgement and
+     * hence further deliveries beyond the prefetch count.
+     *
+     * @return the number of deliveries added to the request buffer
+     * @throws InterruptedException if interrupted while waiting for a delivery or for room in
+     *                              the buffer, the deliveries buffered so far are acknowledged
+     * @throws IOException          if the acknowledgement cannot be sent
+     */
+    public int consume() throws InterruptedException, IOException {
+        long lastDeliveryTag = -1;
+        int count = 0;
+        try {
+            QueueingConsumer.Delivery delivery = consumer.nextDelivery();
+            while (delivery != null) {
+                buffers.addRequestMessage(new AMQPTransportMessage(delivery));
+                lastDeliveryTag = delivery.getEnvelope().getDeliveryTag();
+                if (++count >= batchSize) {
+                    break;
+                }
+                delivery = consumer.nextDelivery(0);
+            }
+        } finally {
+            // the buffered messages will be processed, even if the batch was cut short
+            if (lastDeliveryTag >= 0) {
+                channel.basicAck(lastDeliveryTag, true);
+            }
+        }
+        return count;
+    }
+}
@@ -153,6 +153,25 @@ public class AMQPTransportPollingTask {
      */
     private int noOfConcurrentConsumers = 2;
 
+    /**
+     * Maximum number of unacknowledged deliveries per consumer, 0 for no limit. When set, the
+     * consumers acknowledge deliveries explicitly in batches instead of using auto
+     * acknowledgment. {@link AMQPTransportConstant#PARAMETER_CHANNEL_PREFETCH_COUNT}
+     */
+    private int prefetchCount = 0;
+
+    /**
+     * Should the prefetch count be applied to the whole channel.
+     * {@link AMQPTransportConstant#PARAMETER_CHANNEL_QOS_GLOBAL}
+     */
+    private boolean isQosGlobal = false;
+
+    /**
+     * Maximum number of deliveries acknowledged at once, defaults to half of the prefetch
+     * count. {@link AMQPTransportConstant#PARAMETER_CONSUMER_ACK_BATCH_SIZE}
+     */
+    private int ackBatchSize = 0;
+
     /**
      * The name of the connectionFactory this service is bound to.
      * {@link AMQPTransportConstant#PARAMETER_CONNECTION_FACTORY_NAME}
@@ -210,6 +229,11 @@ public class AMQPTransportPollingTask {
 
     private List<ScheduledFuture<?>> taskFutureList = new ArrayList<ScheduledFuture<?>>();
 
+    /**
+     * Channels opened for the additional consumers, when acknowledging in batches
+     */
+    private List<Channel> consumerChannels = new ArrayList<Channel>();
+
 
     private AMQPTransportReconnectHandler haHandler;
 
@@ -289,6 +313,18 @@ public class AMQPTransportPollingTask {
         this.noOfConcurrentConsumers = noOfConcurrentConsumers;
     }
 
+    public void setPrefetchCount(int prefetchCount) {
+        this.prefetchCount = prefetchCount;
+    }
+
+    public void setQosGlobal(boolean qosGlobal) {
+        isQosGlobal = qosGlobal;
+    }
+
+    public void setAckBatchSize(int ackBatchSize) {
+        this.ackBatchSize = ackBatchSize;
+    }
+
     public void setConnectionFactoryName(String connectionFactoryName) {
         this.connectionFactoryName = connectionFactoryName;
     }
@@ -369,6 +405,17 @@ public class AMQPTransportPollingTask {
         return noOfConcurrentConsumers;
     }
 
+    public int getPrefetchCount() {
+        return prefetchCount;
+    }
+
+    public int getAckBatchSize() {
+        if (ackBatchSize > 0) {
+            return Math.min(ackBatchSize, prefetchCount);
+        }
+        return Math.max(1, prefetchCount / 2);
+    }
+
     public TimeUnit getScheduledTaskTimeUnit() {
         return scheduledTaskTimeUnit;
     }
@@ -443,15 +490,31 @@ public class AMQPTransportPollingTask {
             pollingTaskScheduler.execute(new MessageDispatchTask(buffers));
         }
 
+        // with a prefetch count, the consumers acknowledge the deliveries themselves in batches,
+        // so that the broker stops delivering while the request buffer is full
+        boolean isBatchedAck = !isUseTx && prefetchCount > 0;
+        int batchSize = isBatchedAck ? getAckBatchSize() : 0;
+
         // schedule IO task to pull messages from the broker
         for (int i = 0; i < noOfConcurrentConsumers; i++) {
             // only channels are thread safe, so create consumer per thread
             try {
-                QueueingConsumer consumer = new QueueingConsumer(channel);
-                boolean isAutoAck = isUseTx == true ? false : true; // increase readability
-                channel.basicConsume(queueName, isAutoAck, consumer);
+                Channel consumerChannel = channel;
+                if (isBatchedAck && i > 0) {
+                    // a multiple ack covers all the earlier deliveries of a channel, so
+                    // consumers acknowledging in batches must not share one
+                    consumerChannel = channel.getConnection().createChannel();
+                    consumerChannels.add(consumerChannel);
+                }
+                if (prefetchCount > 0) {
+                    consumerChannel.basicQos(0, prefetchCount, isQosGlobal);
+                }
+
+                QueueingConsumer consumer = new QueueingConsumer(consumerChannel);
+                boolean isAutoAck = !isUseTx && !isBatchedAck;
+                consumerChannel.basicConsume(queueName, isAutoAck, consumer);
                 ScheduledFuture<?> pollingTaskFuture = pollingTaskScheduler.scheduleWithFixedDelay(
-                        new MessageIOTask(consumer, buffers, isUseTx),
+                        new MessageIOTask(consumer, consumerChannel, buffers, isUseTx, batchSize),
                         scheduledTaskInitialDelay,
                         scheduledTaskDelay,
                         scheduledTaskTimeUnit);
@@ -475,6 +538,21 @@ public class AMQPTransportPollingTask {
         for (ScheduledFuture<?> pollingTaskFuture : taskFutureList) {
             pollingTaskFuture.cancel(false);
         }
+        taskFutureList.clear();
+
+        for (Channel consumerChannel : consumerChannels) {
+            try {
+                if (consumerChannel.isOpen()) {
+                    consumerChannel.close();
+                }
+            } catch (IOException e) {
+                log.warn("Error while closing a consumer channel of service '" +
+                        serviceName + "'", e);
+            } catch (ShutdownSignalException ignore) {
+                // already closed by the broker
+            }
+        }
+        consumerChannels.clear();
     }
 
     /**
@@ -485,31 +563,44 @@ public class AMQPTransportPollingTask {
 
         private AMQPTransportBuffers buffers;
         private QueueingConsumer queueingConsumer;
+        private Channel consumerChannel;
         private boolean isUseTx;
+        private AMQPBatchedConsumer batchedConsumer;
 
         private MessageIOTask(QueueingConsumer queueingConsumer,
+                              Channel consumerChannel,
                               AMQPTransportBuffers buffers,
-                              boolean isAutoAck) {
+                              boolean isUseTx,
+                              int ackBatchSize) {
             this.queueingConsumer = queueingConsumer;
+            this.consumerChannel = consumerChannel;
             this.buffers = buffers;
-            this.isUseTx = isAutoAck;
+            this.isUseTx = isUseTx;
+            if (ackBatchSize > 0) {
+                this.batchedConsumer = new AMQPBatchedConsumer(
+                        queueingConsumer, consumerChannel, buffers, ackBatchSize);
+            }
         }
 
         public void run() {
             try {
+                if (batchedConsumer != null) {
+                    batchedConsumer.consume();
+                    return;
+                }
                 if (isUseTx) {
-                    channel.txSelect();
+                    consumerChannel.txSelect();
                 }
                 QueueingConsumer.Delivery delivery = queueingConsumer.nextDelivery();
                 if (delivery != null) {
                     buffers.addRequestMessage(new AMQPTransportMessage(delivery));
                     if (isUseTx) {
-                        channel.basicAck(delivery.getEnvelope().getDeliveryTag(), false);
-                        channel.txCommit();
+                        consumerChannel.basicAck(delivery.getEnvelope().getDeliveryTag(), false);
+                        consumerChannel.txCommit();
                     }
                 } else {
                     if (isUseTx) {
-                        channel.txRollback();
+                        consumerChannel.txRollback();
                     }
                 }
             } catch (InterruptedException e) {
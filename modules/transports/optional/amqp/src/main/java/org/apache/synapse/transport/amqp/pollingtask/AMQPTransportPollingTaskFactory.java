@@ -53,7 +53,17 @@ public class AMQPTransportPollingTaskFactory {
         pt.setHaHandler(haHandler);
 
         // set buffers to hold request/response messages for this task
-        pt.setBuffers(new AMQPTransportBuffers());
+        try {
+            Integer bufferSize = AMQPTransportUtils.getOptionalIntParameter(
+                    AMQPTransportConstant.PARAMETER_REQUEST_BUFFER_SIZE, svcParam, conFacParam);
+            if (bufferSize != null && bufferSize > 0) {
+                pt.setBuffers(new AMQPTransportBuffers(bufferSize));
+            } else {
+                pt.setBuffers(new AMQPTransportBuffers());
+            }
+        } catch (AMQPTransportException e) {
+            throw new AxisFault("Could not assign the request buffer size", e);
+        }
 
         String exchangeName = AMQPTransportUtils.getOptionalStringParameter(
                 AMQPTransportConstant.PARAMETER_EXCHANGE_NAME, svcParam, conFacParam);
@@ -180,6 +190,29 @@ public class AMQPTransportPollingTaskFactory {
             throw new AxisFault("Could not assign number of dispatching task value", e);
         }
 
+        try {
+            Integer prefetchCount = AMQPTransportUtils.getOptionalIntParameter(
+                    AMQPTransportConstant.PARAMETER_CHANNEL_PREFETCH_COUNT,
+                    svcParam, conFacParam);
+            if (prefetchCount != null) {
+                pt.setPrefetchCount(prefetchCount);
+            }
+            Integer ackBatchSize = AMQPTransportUtils.getOptionalIntParameter(
+                    AMQPTransportConstant.PARAMETER_CONSUMER_ACK_BATCH_SIZE,
+                    svcParam, conFacParam);
+            if (ackBatchSize != null) {
+                pt.setAckBatchSize(ackBatchSize);
+            }
+        } catch (AMQPTransportException e) {
+            throw new AxisFault("Could not assign the consumer prefetch settings", e);
+        }
+
+        Boolean isQosGlobal = AMQPTransportUtils.getOptionalBooleanParameter(
+                AMQPTransportConstant.PARAMETER_CHANNEL_QOS_GLOBAL, svcParam, conFacParam);
+        if (isQosGlobal != null) {
+            pt.setQosGlobal(isQosGlobal);
+        }
+
         Boolean isUseTx = AMQPTransportUtils.getOptionalBooleanParameter(
                 AMQPTransportConstant.PARAMETER_CONSUMER_TX, svcParam, conFacParam);
         if (isUseTx != null) {
@@ -232,6 +265,7 @@ public class AMQPTransportPollingTaskFactory {
                     "Is queue auto deleted: '" + pt.isQueueAutoDelete() + "'\n" +
                     "Is blocking mode: '" + pt.isBlockingMode() + "'\n" +
                     "Number of concurrent consumers: '" + pt.getNoOfConcurrentConsumers() + "'\n" +
+                    "Prefetch count: '" + pt.getPrefetchCount() + "'\n" +
                     "Number of dispatching task: '" + pt.getNoOfDispatchingTask() + "'");
         }
 
@@ -37,6 +37,7 @@ import org.apache.axis2.transport.base.BaseUtils;
 import org.apache.axis2.util.MessageProcessorSelector;
 import org.apache.synapse.transport.amqp.AMQPTransportConstant;
 import org.apache.synapse.transport.amqp.AMQPTransportException;
+import org.apache.synapse.transport.amqp.tx.AMQPPublisherConfirmWindow;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -59,6 +60,11 @@ public class AMQPSender {
 
     private String routingKey = null;
 
+    /**
+     * Confirm window of the channel, if the messages are published with publisher confirms
+     */
+    private AMQPPublisherConfirmWindow confirmWindow = null;
+
     public void setChannel(Channel channel) {
         this.channel = channel;
     }
@@ -79,6 +85,14 @@ public class AMQPSender {
         return channel;
     }
 
+    public void setConfirmWindow(AMQPPublisherConfirmWindow confirmWindow) {
+        this.confirmWindow = confirmWindow;
+    }
+
+    public AMQPPublisherConfirmWindow getConfirmWindow() {
+        return confirmWindow;
+    }
+
     public void sendAMQPMessage(MessageContext mc, String correlationId, String replyTo)
             throws AMQPTransportException, IOException {
 
@@ -180,12 +194,21 @@ public class AMQPSender {
 
         if (exchangeName != null) {
             if (routingKey != null) {
-                channel.basicPublish(exchangeName, routingKey, builder.build(), msg);
+                publish(exchangeName, routingKey, builder.build(), msg);
             } else {
-                channel.basicPublish(exchangeName, "", builder.build(), msg);
+                publish(exchangeName, "", builder.build(), msg);
             }
         } else {
-            channel.basicPublish("", queueName, builder.build(), msg);
+            publish("", queueName, builder.build(), msg);
+        }
+    }
+
+    private void publish(String exchange, String routingKey, AMQP.BasicProperties properties,
+                         byte[] msg) throws IOException {
+        if (confirmWindow != null) {
+            confirmWindow.publish(exchange, routingKey, properties, msg);
+        } else {
+            channel.basicPublish(exchange, routingKey, properties, msg);
         }
     }
 
@@ -27,6 +27,8 @@
 package org.apache.synapse.transport.amqp.sendertask;
 
 import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
 import org.apache.axis2.AxisFault;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -35,14 +37,24 @@ import org.apache.synapse.transport.amqp.AMQPTransportException;
 import org.apache.synapse.transport.amqp.AMQPTransportUtils;
 import org.apache.synapse.transport.amqp.connectionfactory.AMQPTransportConnectionFactory;
 import org.apache.synapse.transport.amqp.connectionfactory.AMQPTransportConnectionFactoryManager;
+import org.apache.synapse.transport.amqp.tx.AMQPPublisherConfirmWindow;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class AMQPSenderFactory {
 
     private static Log log = LogFactory.getLog(AMQPSenderFactory.class);
 
+    /**
+     * The confirm windows of the channels in confirm mode, shared by all the senders of a
+     * channel. A window is removed once its channel is closed, from the connection thread,
+     * which must not wait for the senders being created.
+     */
+    private static Map<Channel, AMQPPublisherConfirmWindow> confirmWindows =
+            new ConcurrentHashMap<Channel, AMQPPublisherConfirmWindow>();
+
     public synchronized static AMQPSender createAMQPSender(
             AMQPTransportConnectionFactoryManager connectionFactoryManager,
             Map<String, String> params) throws IOException {
@@ -117,6 +129,37 @@ public class AMQPSenderFactory {
             as.setRoutingKey(routingKey);
         }
 
+        try {
+            Integer confirmWindow = AMQPTransportUtils.getOptionalIntParameter(
+                    AMQPTransportConstant.PARAMETER_PUBLISHER_CONFIRM_WINDOW, params, conFacParam);
+            if (confirmWindow != null && confirmWindow > 0) {
+                AMQPPublisherConfirmWindow window = confirmWindows.get(channel);
+                if (window == null) {
+                    Integer timeout = AMQPTransportUtils.getOptionalIntParameter(
+                            AMQPTransportConstant.PARAMETER_PUBLISHER_CONFIRM_TIMEOUT,
+                            params, conFacParam);
+                    window = new AMQPPublisherConfirmWindow(channel, confirmWindow,
+                            timeout != null ? timeout :
+                                    AMQPTransportConstant.DEFAULT_PUBLISHER_CONFIRM_TIMEOUT);
+                    confirmWindows.put(channel, window);
+                    final Channel confirmChannel = channel;
+                    channel.addShutdownListener(new ShutdownListener() {
+                        @Override
+                        public void shutdownCompleted(ShutdownSignalException cause) {
+                            confirmWindows.remove(confirmChannel);
+                        }
+                    });
+                    if (log.isDebugEnabled()) {
+                        log.debug("Publisher confirms enabled with a window of " + confirmWindow +
+                                " messages for the connection factory '" + connFac.getName() + "'");
+                    }
+                }
+                as.setConfirmWindow(window);
+            }
+        } catch (AMQPTransportException e) {
+            throw new AxisFault("Could not assign the publisher confirm window", e);
+        }
+
         value = AMQPTransportUtils.getOptionalBooleanParameter(
                 AMQPTransportConstant.PARAMETER_QUEUE_DURABLE, params, conFacParam);
         if (value != null) {
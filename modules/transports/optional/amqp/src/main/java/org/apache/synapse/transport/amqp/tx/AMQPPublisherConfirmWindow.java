@@ -0,0 +1,199 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.synapse.transport.amqp.tx;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes messages on a channel in confirm mode, without waiting for the confirm of each
+ * message. The broker acknowledges the published messages asynchronously (usually many at a
+ * time), and at most a window of messages may be waiting for their confirms. A publisher
+ * blocks while the window is full, which bounds the number of messages that can be lost
+ * without notice when the broker goes away.
+ * <p/>
+ * A channel must have a single confirm window, since the confirms of a channel cover all the
+ * messages published on it.
+ */
+public class AMQPPublisherConfirmWindow implements ConfirmListener, ShutdownListener {
+
+    private static Log log = LogFactory.getLog(AMQPPublisherConfirmWindow.class);
+
+    private final Channel channel;
+
+    private final int windowSize;
+
+    private final long timeout;
+
+    private final Semaphore window;
+
+    /**
+     * The message ids of the published messages waiting for a confirm, by sequence number
+     */
+    private final ConcurrentNavigableMap<Long, String> unconfirmed =
+            new ConcurrentSkipListMap<Long, String>();
+
+    private final AtomicLong confirmedCount = new AtomicLong(0);
+
+    private final AtomicLong rejectedCount = new AtomicLong(0);
+
+    /**
+     * Put the channel into confirm mode
+     *
+     * @param channel    the channel to publish on
+     * @param windowSize maximum number of messages waiting for a confirm
+     * @param timeout    time in milliseconds a publisher waits for room in the window
+     * @throws IOException if the channel cannot be put into confirm mode
+     */
+    public AMQPPublisherConfirmWindow(Channel channel, int windowSize, long timeout)
+            throws IOException {
+        this.channel = channel;
+        this.windowSize = windowSize;
+        this.timeout = timeout;
+        this.window = new Semaphore(windowSize);
+        channel.confirmSelect();
+        channel.addConfirmListener(this);
+        channel.addShutdownListener(this);
+    }
+
+    /**
+     * Publish a message once there is room in the window. Returns as soon as the message has
+     * been written to the channel, without waiting for its confirm.
+     *
+     * @param exchangeName the exchange to publish to
+     * @param routingKey   the routing key
+     * @param properties   the properties of the message
+     * @param body         the body of the message
+     * @throws IOException if the window stays full for the timeout, or on error publishing
+     */
+    public void publish(String exchangeName, String routingKey, AMQP.BasicProperties properties,
+                        byte[] body) throws IOException {
+        try {
+            if (!window.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                throw new IOException("No publisher confirms received for " + timeout +
+                        " ms, " + windowSize + " messages are waiting to be confirmed");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for publisher confirms");
+        }
+
+        long seqNo = -1;
+        boolean published = false;
+        try {
+            // the sequence number must be the one the channel assigns to this very message
+            synchronized (this) {
+                seqNo = channel.getNextPublishSeqNo();
+                String messageId = properties.getMessageId();
+                unconfirmed.put(seqNo, messageId != null ? messageId : "");
+                channel.basicPublish(exchangeName, routingKey, properties, body);
+                published = true;
+            }
+        } finally {
+            if (!published) {
+                if (seqNo >= 0) {
+                    unconfirmed.remove(seqNo);
+                }
+                window.release();
+            }
+        }
+    }
+
+    @Override
+    public void handleAck(long deliveryTag, boolean multiple) throws IOException {
+        confirmedCount.addAndGet(confirm(deliveryTag, multiple));
+    }
+
+    @Override
+    public void handleNack(long deliveryTag, boolean multiple) throws IOException {
+        String messageId = unconfirmed.get(deliveryTag);
+        int count = confirm(deliveryTag, multiple);
+        rejectedCount.addAndGet(count);
+        log.error("The broker rejected " + count + " published message(s), up to the message " +
+                "with id '" + messageId + "'");
+    }
+
+    @Override
+    public void shutdownCompleted(ShutdownSignalException cause) {
+        int count = unconfirmed.size();
+        if (count > 0) {
+            log.warn("Channel closed while " + count + " published message(s) were waiting " +
+                    "for a confirm. They may not have reached the broker");
+        }
+        // release the waiting publishers, their next publish fails on the closed channel
+        confirm(Long.MAX_VALUE, true);
+    }
+
+    /**
+     * Remove the confirmed messages from the window, and make room for as many publishers
+     *
+     * @return the number of confirmed messages
+     */
+    private int confirm(long deliveryTag, boolean multiple) {
+        int count = 0;
+        if (multiple) {
+            Iterator<Long> it = unconfirmed.headMap(deliveryTag, true).keySet().iterator();
+            while (it.hasNext()) {
+                it.next();
+                it.remove();
+                count++;
+            }
+        } else if (unconfirmed.remove(deliveryTag) != null) {
+            count = 1;
+        }
+        if (count > 0) {
+            window.release(count);
+        }
+        return count;
+    }
+
+    public int getUnconfirmedCount() {
+        return unconfirmed.size();
+    }
+
+    public long getConfirmedCount() {
+        return confirmedCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.synapse.tranport.amqp;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.QueueingConsumer;
+import junit.framework.TestCase;
+import org.apache.synapse.transport.amqp.AMQPTransportBuffers;
+import org.apache.synapse.transport.amqp.pollingtask.AMQPBatchedConsumer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the batched consumer against a stand-in for a consumer channel, which records the
+ * acknowledgements sent by the consumer.
+ */
+public class AMQPBatchedConsumerTest extends TestCase {
+
+    private final List<String> acks = Collections.synchronizedList(new ArrayList<String>());
+
+    private final Channel channel = (Channel) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class<?>[]{Channel.class}, new InvocationHandler() {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("basicAck".equals(method.getName())) {
+                acks.add(args[0] + (Boolean.TRUE.equals(args[1]) ? "+" : ""));
+            }
+            return null;
+        }
+    });
+
+    public void testDeliveriesAreAcknowledgedInBatches() throws Exception {
+        QueueingConsumer consumer = new QueueingConsumer(channel);
+        AMQPTransportBuffers buffers = new AMQPTransportBuffers();
+        AMQPBatchedConsumer batchedConsumer = new AMQPBatchedConsumer(consumer, channel,
+                buffers, 3);
+        for (int i = 1; i <= 5; i++) {
+            deliver(consumer, i);
+        }
+
+        assertEquals(3, batchedConsumer.consume());
+        assertEquals(2, batchedConsumer.consume());
+        // one multiple ack for each batch, covering the last delivery of the batch
+        assertEquals(Arrays.asList("3+", "5+"), acks);
+        for (int i = 0; i < 5; i++) {
+            assertNotNull(buffers.getRequestMessage());
+        }
+    }
+
+    public void testPartialBatchIsNotHeldBack() throws Exception {
+        QueueingConsumer consumer = new QueueingConsumer(channel);
+        AMQPBatchedConsumer batchedConsumer = new AMQPBatchedConsumer(consumer, channel,
+                new AMQPTransportBuffers(), 10);
+        deliver(consumer, 1);
+
+        // the deliveries already received are acknowledged without waiting for a full batch
+        assertEquals(1, batchedConsumer.consume());
+        assertEquals(Arrays.asList("1+"), acks);
+    }
+
+    public void testFullBufferHoldsBackTheAck() throws Exception {
+        QueueingConsumer consumer = new QueueingConsumer(channel);
+        final AMQPTransportBuffers buffers = new AMQPTransportBuffers(1);
+        final AMQPBatchedConsumer batchedConsumer = new AMQPBatchedConsumer(consumer, channel,
+                buffers, 2);
+        deliver(consumer, 1);
+        deliver(consumer, 2);
+
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicInteger consumed = new AtomicInteger();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    consumed.set(batchedConsumer.consume());
+                } catch (Exception ignore) {
+                } finally {
+                    done.countDown();
+                }
+            }
+        }).start();
+
+        // the second delivery waits for room in the buffer, and nothing is acknowledged yet
+        assertFalse(done.await(200, TimeUnit.MILLISECONDS));
+        assertTrue(acks.isEmpty());
+
+        assertNotNull(buffers.getRequestMessage());
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(2, consumed.get());
+        assertEquals(Arrays.asList("2+"), acks);
+    }
+
+    public void testInterruptedBatchIsAcknowledged() throws Exception {
+        QueueingConsumer consumer = new QueueingConsumer(channel);
+        final AMQPBatchedConsumer batchedConsumer = new AMQPBatchedConsumer(consumer, channel,
+                new AMQPTransportBuffers(1), 5);
+        deliver(consumer, 1);
+        deliver(consumer, 2);
+
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicInteger interrupted = new AtomicInteger();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    batchedConsumer.consume();
+                } catch (InterruptedException e) {
+                    interrupted.incrementAndGet();
+                } catch (Exception ignore) {
+                } finally {
+                    done.countDown();
+                }
+            }
+        });
+        thread.start();
+
+        // the first delivery fills the buffer, and the wait for room for the second is cut short
+        assertFalse(done.await(200, TimeUnit.MILLISECONDS));
+        thread.interrupt();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(1, interrupted.get());
+        assertEquals(Arrays.asList("1+"), acks);
+    }
+
+    private static void deliver(QueueingConsumer consumer, long deliveryTag) throws Exception {
+        consumer.handleDelivery("consumer", new Envelope(deliveryTag, false, "", "queue"),
+                new AMQP.BasicProperties(), new byte[1]);
+    }
+}
@@ -0,0 +1,369 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.synapse.tranport.amqp;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.DefaultSaslConfig;
+import com.rabbitmq.client.impl.AMQConnection;
+import com.rabbitmq.client.impl.AMQImpl;
+import com.rabbitmq.client.impl.Frame;
+import com.rabbitmq.client.impl.FrameHandler;
+import com.rabbitmq.client.impl.LongStringHelper;
+import junit.framework.TestCase;
+import org.apache.synapse.transport.amqp.AMQPTransportBuffers;
+import org.apache.synapse.transport.amqp.AMQPTransportMessage;
+import org.apache.synapse.transport.amqp.tx.AMQPPublisherConfirmWindow;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the publisher confirm window against a stand-in for a broker, which confirms the
+ * published messages in batches from a thread of its own.
+ */
+public class AMQPPublisherConfirmWindowTest extends TestCase {
+
+    public void testConfirmsInBatches() throws Exception {
+        final int windowSize = 100;
+        final int publishers = 4;
+        final int messages = 5000;
+
+        BrokerStandIn broker = new BrokerStandIn(true);
+        final AMQPPublisherConfirmWindow window =
+                new AMQPPublisherConfirmWindow(broker.channel, windowSize, 10000);
+        broker.window = window;
+        broker.start();
+
+        final CountDownLatch done = new CountDownLatch(publishers);
+        final AtomicInteger errors = new AtomicInteger();
+        for (int i = 0; i < publishers; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < messages; j++) {
+                            window.publish("", "queue", new AMQP.BasicProperties(),
+                                    new byte[128]);
+                        }
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 10000;
+        while (window.getUnconfirmedCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        broker.stop();
+
+        assertEquals(0, errors.get());
+        assertEquals(0, window.getUnconfirmedCount());
+        assertEquals(publishers * messages, window.getConfirmedCount());
+        assertTrue("Window exceeded : " + broker.maxUnconfirmed.get(),
+                broker.maxUnconfirmed.get() <= windowSize);
+    }
+
+    public void testFullWindowTimesOut() throws Exception {
+        BrokerStandIn broker = new BrokerStandIn(false);
+        AMQPPublisherConfirmWindow window = new AMQPPublisherConfirmWindow(broker.channel, 2, 100);
+
+        window.publish("", "queue", new AMQP.BasicProperties(), new byte[1]);
+        window.publish("", "queue", new AMQP.BasicProperties(), new byte[1]);
+        try {
+            window.publish("", "queue", new AMQP.BasicProperties(), new byte[1]);
+            fail("Publishing into a full window must time out");
+        } catch (IOException expected) {
+        }
+
+        // a single confirm for both messages makes room again
+        broker.listener.handleAck(2, true);
+        assertEquals(0, window.getUnconfirmedCount());
+        window.publish("", "queue", new AMQP.BasicProperties(), new byte[1]);
+        assertEquals(1, window.getUnconfirmedCount());
+
+        broker.listener.handleNack(3, false);
+        assertEquals(0, window.getUnconfirmedCount());
+        assertEquals(2, window.getConfirmedCount());
+        assertEquals(1, window.getRejectedCount());
+    }
+
+    public void testConfirmsOnClientChannel() throws Exception {
+        ScriptedBroker broker = new ScriptedBroker();
+        try {
+            Channel channel = broker.connection.createChannel();
+            AMQPPublisherConfirmWindow window = new AMQPPublisherConfirmWindow(channel, 3, 100);
+            assertTrue(broker.confirmSelected);
+
+            for (int i = 0; i < 3; i++) {
+                window.publish("", "queue", new AMQP.BasicProperties(), new byte[1]);
+            }
+            assertEquals(3, broker.published);
+            assertEquals(3, window.getUnconfirmedCount());
+
+            // the confirms are dispatched by the client, with the sequence numbers the
+            // channel has given to the messages
+            broker.send(channel, new AMQImpl.Basic.Ack(2, true));
+            awaitUnconfirmed(window, 1);
+            assertEquals(2, window.getConfirmedCount());
+            broker.send(channel, new AMQImpl.Basic.Nack(3, false, false));
+            awaitUnconfirmed(window, 0);
+            assertEquals(1, window.getRejectedCount());
+
+            window.publish("", "queue", new AMQP.BasicProperties(), new byte[1]);
+            assertEquals(5, channel.getNextPublishSeqNo());
+            broker.send(channel, new AMQImpl.Basic.Ack(4, false));
+            awaitUnconfirmed(window, 0);
+            assertEquals(3, window.getConfirmedCount());
+        } finally {
+            broker.connection.abort();
+        }
+    }
+
+    private void awaitUnconfirmed(AMQPPublisherConfirmWindow window, int count)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (window.getUnconfirmedCount() != count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, window.getUnconfirmedCount());
+    }
+
+    public void testBoundedRequestBuffer() throws Exception {
+        final AMQPTransportBuffers buffers = new AMQPTransportBuffers(1);
+        buffers.addRequestMessage(new AMQPTransportMessage(new AMQP.BasicProperties(),
+                new byte[1]));
+
+        final CountDownLatch added = new CountDownLatch(1);
+        Thread consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    buffers.addRequestMessage(new AMQPTransportMessage(
+                            new AMQP.BasicProperties(), new byte[1]));
+                    added.countDown();
+                } catch (InterruptedException ignore) {
+                }
+            }
+        });
+        consumer.start();
+
+        // the second message waits for the first one to be taken
+        assertFalse(added.await(200, TimeUnit.MILLISECONDS));
+        assertNotNull(buffers.getRequestMessage());
+        assertTrue(added.await(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Implements just enough of a channel in confirm mode. Published messages are confirmed
+     * with a single multiple ack every millisecond when auto confirm is on.
+     */
+    private static class BrokerStandIn implements InvocationHandler, Runnable {
+
+        private final Channel channel;
+        private final boolean autoConfirm;
+        private final AtomicLong nextSeqNo = new AtomicLong(1);
+        private final AtomicInteger maxUnconfirmed = new AtomicInteger();
+
+        private volatile ConfirmListener listener;
+        private volatile AMQPPublisherConfirmWindow window;
+        private volatile boolean running = true;
+        private Thread thread;
+
+        BrokerStandIn(boolean autoConfirm) {
+            this.autoConfirm = autoConfirm;
+            this.channel = (Channel) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{Channel.class}, this);
+        }
+
+        void start() {
+            thread = new Thread(this);
+            thread.start();
+        }
+
+        void stop() throws InterruptedException {
+            running = false;
+            thread.join();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("addConfirmListener".equals(name)) {
+                listener = (ConfirmListener) args[0];
+            } else if ("getNextPublishSeqNo".equals(name)) {
+                return nextSeqNo.get();
+            } else if ("basicPublish".equals(name)) {
+                nextSeqNo.incrementAndGet();
+                if (window != null) {
+                    int unconfirmed = window.getUnconfirmedCount();
+                    if (unconfirmed > maxUnconfirmed.get()) {
+                        maxUnconfirmed.set(unconfirmed);
+                    }
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void run() {
+            long confirmed = 0;
+            while (running) {
+                long published = nextSeqNo.get() - 1;
+                if (autoConfirm && published > confirmed) {
+                    try {
+                        listener.handleAck(published, true);
+                    } catch (IOException ignore) {
+                    }
+                    confirmed = published;
+                }
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Plays the part of the broker for a connection of the AMQP client itself. Answers the
+     * handshake, the opening of channels and confirm.select, and counts the published messages.
+     */
+    private static class ScriptedBroker implements FrameHandler {
+
+        private final BlockingQueue<Frame> frames = new LinkedBlockingQueue<Frame>();
+        private final AMQConnection connection;
+
+        private volatile boolean closed = false;
+        private volatile boolean confirmSelected = false;
+        private volatile int published = 0;
+
+        ScriptedBroker() throws IOException {
+            connection = new AMQConnection("guest", "guest", this,
+                    Executors.newSingleThreadExecutor(), "/",
+                    AMQConnection.defaultClientProperties(), 0, 0, 0, DefaultSaslConfig.PLAIN);
+            connection.start();
+        }
+
+        void send(Channel channel, com.rabbitmq.client.impl.Method method) throws IOException {
+            frames.add(method.toFrame(channel.getChannelNumber()));
+        }
+
+        @Override
+        public void sendHeader() throws IOException {
+            frames.add(new AMQImpl.Connection.Start(0, 9, new HashMap<String, Object>(),
+                    LongStringHelper.asLongString("PLAIN"),
+                    LongStringHelper.asLongString("en_US")).toFrame(0));
+        }
+
+        @Override
+        public Frame readFrame() throws IOException {
+            try {
+                while (!closed) {
+                    Frame frame = frames.poll(100, TimeUnit.MILLISECONDS);
+                    if (frame != null) {
+                        return frame;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new EOFException("Connection closed");
+        }
+
+        @Override
+        public void writeFrame(Frame frame) throws IOException {
+            if (frame.type != AMQP.FRAME_METHOD) {
+                return;
+            }
+            DataInputStream in = frame.getInputStream();
+            int classId = in.readUnsignedShort();
+            int methodId = in.readUnsignedShort();
+            com.rabbitmq.client.impl.Method reply = null;
+            if (classId == AMQImpl.Connection.INDEX) {
+                if (methodId == AMQImpl.Connection.StartOk.INDEX) {
+                    reply = new AMQImpl.Connection.Tune(0, 0, 0);
+                } else if (methodId == AMQImpl.Connection.Open.INDEX) {
+                    reply = new AMQImpl.Connection.OpenOk("");
+                } else if (methodId == AMQImpl.Connection.Close.INDEX) {
+                    reply = new AMQImpl.Connection.CloseOk();
+                }
+            } else if (classId == AMQImpl.Channel.INDEX) {
+                if (methodId == AMQImpl.Channel.Open.INDEX) {
+                    reply = new AMQImpl.Channel.OpenOk(LongStringHelper.asLongString(""));
+                } else if (methodId == AMQImpl.Channel.Close.INDEX) {
+                    reply = new AMQImpl.Channel.CloseOk();
+                }
+            } else if (classId == AMQImpl.Confirm.INDEX &&
+                    methodId == AMQImpl.Confirm.Select.INDEX) {
+                confirmSelected = true;
+                reply = new AMQImpl.Confirm.SelectOk();
+            } else if (classId == AMQImpl.Basic.INDEX &&
+                    methodId == AMQImpl.Basic.Publish.INDEX) {
+                published++;
+            }
+            if (reply != null) {
+                frames.add(reply.toFrame(frame.channel));
+            }
+        }
+
+        @Override
+        public InetAddress getAddress() {
+            return null;
+        }
+
+        @Override
+        public int getPort() {
+            return 0;
+        }
+
+        @Override
+        public void setTimeout(int timeoutMs) {
+        }
+
+        @Override
+        public int getTimeout() {
+            return 0;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -41,6 +41,7 @@ public class FIXConstants {
     public static final String FIX_MESSAGE_REFERENCE = "href";
     public static final String FIX_MESSAGE_COUNTER = "counter";
     public static final String FIX_MESSAGE_INCOMING_SESSION = "inSession";
+    public static final String FIX_MESSAGE_TYPE = "fixMsgType";
 
     public static final String FILE_BASED_MESSAGE_LOGGING = "file";
     public static final String JDBC_BASED_MESSAGE_LOGGING = "jdbc";
@@ -115,6 +116,8 @@ public class FIXConstants {
     public static final String FIX_USE_THREADED_ACCEPTOR = "transport.fix.UseThreadedAcceptor";
     public static final String FIX_USE_THREADED_INITIATOR = "transport.fix.UseThreadedInitiator";
 
+    public static final String FIX_LEAN_MESSAGES = "transport.fix.LeanMessages";
+
     //--------------------------- Message level properties -----------------------------------
 
     public static final String FIX_IGNORE_ORDER = "transport.fix.IgnoreOrder";
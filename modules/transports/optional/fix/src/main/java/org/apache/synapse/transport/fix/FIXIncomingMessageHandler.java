@@ -72,6 +72,7 @@ public class FIXIncomingMessageHandler implements Application {
     private Semaphore semaphore;
     private SessionEventHandler eventHandler;
     private boolean singleThreaded;
+    private boolean leanMessages;
 
     public FIXIncomingMessageHandler(ConfigurationContext cfgCtx, WorkerPool workerPool,
                                      AxisService service, boolean acceptor) {
@@ -108,6 +109,14 @@ public class FIXIncomingMessageHandler implements Application {
         }
 
         singleThreaded = isSingleThreaded();
+
+        Parameter leanMessagesParam = service.getParameter(FIXConstants.FIX_LEAN_MESSAGES);
+        if (leanMessagesParam != null &&
+                JavaUtils.isTrueExplicitly(leanMessagesParam.getValue())) {
+            log.info("FIX messages of the service: " + service.getName() + " are mediated " +
+                    "without building the XML infoset up front");
+            leanMessages = true;
+        }
     }
 
     private void getResponseHandlingApproach() {
@@ -424,10 +433,10 @@ public class FIXIncomingMessageHandler implements Application {
 
         try {
             //Put the FIX message in a SOAPEnvelope
-            FIXUtils.getInstance().setSOAPEnvelope(message, counter, sessionID.toString(), msgCtx);
+            setSOAPEnvelope(message, counter, sessionID, msgCtx);
             trpListener.handleIncomingMessage(
                     msgCtx,
-                    FIXUtils.getTransportHeaders(service.getName(), fixApplication),
+                    getTransportHeaders(fixApplication, message),
                     null,
                     FIXConstants.FIX_DEFAULT_CONTENT_TYPE
             );
@@ -445,11 +454,11 @@ public class FIXIncomingMessageHandler implements Application {
 
         try {
             //Put the FIX message in a SOAPEnvelope
-            FIXUtils.getInstance().setSOAPEnvelope(message, counter, sessionID.toString(), msgCtx);
+            setSOAPEnvelope(message, counter, sessionID, msgCtx);
             msgCtx.setServerSide(true);
             trpSender.handleIncomingMessage(
                     msgCtx,
-                    FIXUtils.getTransportHeaders(service.getName(), FIXConstants.FIX_INITIATOR),
+                    getTransportHeaders(FIXConstants.FIX_INITIATOR, message),
                     null,
                     FIXConstants.FIX_DEFAULT_CONTENT_TYPE
             );
@@ -458,6 +467,24 @@ public class FIXIncomingMessageHandler implements Application {
         }
     }
 
+    private void setSOAPEnvelope(Message message, int counter, SessionID sessionID,
+                                 MessageContext msgCtx) throws AxisFault {
+        if (leanMessages) {
+            FIXUtils.getInstance().setLeanSOAPEnvelope(message, counter, sessionID.toString(),
+                    msgCtx);
+        } else {
+            FIXUtils.getInstance().setSOAPEnvelope(message, counter, sessionID.toString(),
+                    msgCtx);
+        }
+    }
+
+    private Map<String, String> getTransportHeaders(String fixApplication, Message message) {
+        if (leanMessages) {
+            return FIXUtils.getTransportHeaders(service.getName(), fixApplication, message);
+        }
+        return FIXUtils.getTransportHeaders(service.getName(), fixApplication);
+    }
+
     /**
      * This Runnable class can be used when it is required to process each incoming message
      * using separate threads.
@@ -0,0 +1,143 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.fix;
+
+import org.apache.axiom.om.OMDataSourceExt;
+import org.apache.axiom.om.ds.AbstractPushOMDataSource;
+import org.quickfixj.CharsetSupport;
+import quickfix.Field;
+import quickfix.FieldMap;
+import quickfix.Group;
+import quickfix.Message;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.util.Iterator;
+
+/**
+ * An OMDataSource backed by a QuickFIX message. The message element is only expanded into
+ * an XML tree when the mediation actually navigates into it (e.g. an XPath over the FIX
+ * fields), and it is streamed straight from the QuickFIX fields when it is serialized.
+ * As long as the element has not been expanded, the transport can keep using the original
+ * QuickFIX message instead of rebuilding it from the XML infoset.
+ * <p/>
+ * The generated infoset has the same layout as the one created by
+ * {@link FIXUtils#setSOAPEnvelope(Message, int, String, org.apache.axis2.context.MessageContext)},
+ * except that binary fields are written inline instead of as attachments. They are decoded
+ * with the charset QuickFIX uses for the wire format, so that setting them back as strings
+ * reproduces the original bytes.
+ */
+public class FIXMessageDataSource extends AbstractPushOMDataSource {
+
+    private final Message message;
+    private final int counter;
+    private final String sessionID;
+
+    public FIXMessageDataSource(Message message, int counter, String sessionID) {
+        this.message = message;
+        this.counter = counter;
+        this.sessionID = sessionID;
+    }
+
+    public Message getMessage() {
+        return message;
+    }
+
+    public int getCounter() {
+        return counter;
+    }
+
+    public String getSessionID() {
+        return sessionID;
+    }
+
+    @Override
+    public void serialize(XMLStreamWriter writer) throws XMLStreamException {
+        writer.writeStartElement("", FIXConstants.FIX_MESSAGE, "");
+        writer.writeAttribute("", "", FIXConstants.FIX_MESSAGE_INCOMING_SESSION, sessionID);
+        writer.writeAttribute("", "", FIXConstants.FIX_MESSAGE_COUNTER, String.valueOf(counter));
+
+        writer.writeStartElement("", FIXConstants.FIX_HEADER, "");
+        writeFields(writer, message.getHeader());
+        writer.writeEndElement();
+
+        writer.writeStartElement("", FIXConstants.FIX_BODY, "");
+        writeFields(writer, message);
+        writeGroups(writer, message);
+        writer.writeEndElement();
+
+        writer.writeStartElement("", FIXConstants.FIX_TRAILER, "");
+        writeFields(writer, message.getTrailer());
+        writer.writeEndElement();
+
+        writer.writeEndElement();
+    }
+
+    private void writeFields(XMLStreamWriter writer, FieldMap fields) throws XMLStreamException {
+        Iterator<Field<?>> iter = fields.iterator();
+        while (iter.hasNext()) {
+            Field<?> field = iter.next();
+            writer.writeStartElement("", FIXConstants.FIX_FIELD, "");
+            writer.writeAttribute("", "", FIXConstants.FIX_FIELD_ID,
+                    String.valueOf(field.getTag()));
+            Object value = field.getObject();
+            String text = value instanceof byte[] ?
+                    new String((byte[]) value, CharsetSupport.getCharsetInstance()) :
+                    value.toString();
+            if (text.indexOf('<') == -1 && text.indexOf('&') == -1 && text.indexOf('>') == -1) {
+                writer.writeCharacters(text);
+            } else {
+                writer.writeCData(text);
+            }
+            writer.writeEndElement();
+        }
+    }
+
+    private void writeGroups(XMLStreamWriter writer, FieldMap fields) throws XMLStreamException {
+        Iterator<Integer> groupKeyItr = fields.groupKeyIterator();
+        while (groupKeyItr.hasNext()) {
+            int groupKey = groupKeyItr.next();
+            writer.writeStartElement("", FIXConstants.FIX_GROUPS, "");
+            writer.writeAttribute("", "", FIXConstants.FIX_FIELD_ID, String.valueOf(groupKey));
+            for (Group group : fields.getGroups(groupKey)) {
+                writer.writeStartElement("", FIXConstants.FIX_GROUP, "");
+                writeFields(writer, group);
+                writeGroups(writer, group);
+                writer.writeEndElement();
+            }
+            writer.writeEndElement();
+        }
+    }
+
+    @Override
+    public Object getObject() {
+        return message;
+    }
+
+    @Override
+    public boolean isDestructiveWrite() {
+        return false;
+    }
+
+    @Override
+    public OMDataSourceExt copy() {
+        return new FIXMessageDataSource((Message) message.clone(), counter, sessionID);
+    }
+}
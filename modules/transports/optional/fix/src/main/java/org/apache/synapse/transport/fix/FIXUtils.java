@@ -23,6 +23,7 @@ import org.apache.axiom.attachments.ByteArrayDataSource;
 import org.apache.axiom.om.OMAbstractFactory;
 import org.apache.axiom.om.OMElement;
 import org.apache.axiom.om.OMNamespace;
+import org.apache.axiom.om.OMSourcedElement;
 import org.apache.axiom.soap.SOAPBody;
 import org.apache.axiom.soap.SOAPEnvelope;
 import org.apache.axiom.soap.SOAPFactory;
@@ -155,6 +156,59 @@ public class FIXUtils {
     }
     
 
+    /**
+     * Puts the FIX message into an Axis2 MessageContext without building its XML infoset.
+     * The message element of the SOAP body is backed by a {@link FIXMessageDataSource}, which
+     * is only expanded when the mediation navigates into the FIX fields. If the element is
+     * still unexpanded when the message is sent, the original FIX message is reused by
+     * {@link #createFIXMessage(MessageContext)}.
+     *
+     * @param message   the FIX message
+     * @param counter   application level sequence number of the message
+     * @param sessionID the incoming session
+     * @param msgCtx    the Axis2 MessageContext to hold the FIX message
+     * @throws AxisFault the exception thrown when invalid soap envelopes are set to the msgCtx
+     */
+    public void setLeanSOAPEnvelope(Message message, int counter, String sessionID,
+                                    MessageContext msgCtx) throws AxisFault {
+
+        if (log.isDebugEnabled()) {
+            log.debug("Creating lean SOAP envelope for FIX message...");
+        }
+
+        SOAPFactory soapFactory = OMAbstractFactory.getSOAP11Factory();
+        OMElement msg = soapFactory.createOMElement(
+                new FIXMessageDataSource(message, counter, sessionID),
+                FIXConstants.FIX_MESSAGE, null);
+        SOAPEnvelope envelope = soapFactory.getDefaultEnvelope();
+        envelope.getBody().addChild(msg);
+        msgCtx.setEnvelope(envelope);
+    }
+
+    /**
+     * Finds the data source of a FIX message put into the message context by
+     * {@link #setLeanSOAPEnvelope(Message, int, String, MessageContext)}, as long as the
+     * message element has not been expanded (and possibly modified) by the mediation.
+     *
+     * @param msgCtx the Axis2 MessageContext
+     * @return the FIX message data source or null if the XML infoset has to be used
+     */
+    public static FIXMessageDataSource getLeanMessage(MessageContext msgCtx) {
+        SOAPEnvelope envelope = msgCtx.getEnvelope();
+        if (envelope == null || envelope.getBody() == null) {
+            return null;
+        }
+        OMElement messageNode = envelope.getBody().getFirstElement();
+        if (messageNode instanceof OMSourcedElement) {
+            OMSourcedElement sourcedElement = (OMSourcedElement) messageNode;
+            if (!sourcedElement.isExpanded() &&
+                    sourcedElement.getDataSource() instanceof FIXMessageDataSource) {
+                return (FIXMessageDataSource) sourcedElement.getDataSource();
+            }
+        }
+        return null;
+    }
+
     /**
      * Constructs the XML infoset for the FIX message body
      *
@@ -311,6 +365,13 @@ public class FIXUtils {
                     msgCtx.getMessageID() + ")");
         }
 
+        FIXMessageDataSource leanMessage = getLeanMessage(msgCtx);
+        if (leanMessage != null) {
+            // the body has not been touched, so there is no need to rebuild the message. The
+            // sender modifies the header fields, hence it gets a copy of the original
+            return (Message) leanMessage.getMessage().clone();
+        }
+
         boolean withNs = false;
         String nsPrefix = null;
         String nsURI = null;
@@ -690,6 +751,29 @@ public class FIXUtils {
         return trpHeaders;
     }
 
+    /**
+     * Creates a Map of transport headers for a message, including the FIX message type
+     * so that messages can be routed without looking into the message payload
+     *
+     * @param serviceName    name of the service to which the message belongs to
+     * @param fixApplication FIX application type
+     * @param message        the FIX message
+     * @return a Map of transport headers
+     */
+    public static Map<String, String> getTransportHeaders(String serviceName,
+                                                          String fixApplication,
+                                                          Message message) {
+
+        Map<String, String> trpHeaders = getTransportHeaders(serviceName, fixApplication);
+        try {
+            trpHeaders.put(FIXConstants.FIX_MESSAGE_TYPE,
+                    message.getHeader().getString(MsgType.FIELD));
+        } catch (FieldNotFound ignore) {
+            // the message type is not mandatory for the mediation
+        }
+        return trpHeaders;
+    }
+
     /**
      * Reads a FIX EPR and returns the host and port on a String array
      *
@@ -718,6 +802,10 @@ public class FIXUtils {
      */
     public static int getSequenceNumber(MessageContext msgCtx) {
         int seqNum;
+        FIXMessageDataSource leanMessage = getLeanMessage(msgCtx);
+        if (leanMessage != null) {
+            return leanMessage.getCounter();
+        }
         SOAPBody body = msgCtx.getEnvelope().getBody();
         OMNamespace ns = getNamespaceOfFIXPayload(body);
         if (ns == null) {
@@ -763,6 +851,10 @@ public class FIXUtils {
      */
     public static String getSourceSession(MessageContext msgCtx) {
         String srcSession;
+        FIXMessageDataSource leanMessage = getLeanMessage(msgCtx);
+        if (leanMessage != null) {
+            return leanMessage.getSessionID();
+        }
         SOAPBody body = msgCtx.getEnvelope().getBody();
         OMNamespace ns = getNamespaceOfFIXPayload(body);
         if (ns == null) {
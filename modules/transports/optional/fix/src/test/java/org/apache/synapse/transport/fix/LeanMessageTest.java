@@ -0,0 +1,121 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.fix;
+
+import quickfix.BytesField;
+import quickfix.Message;
+import quickfix.Group;
+import quickfix.fix41.NewOrderSingle;
+import quickfix.field.*;
+import org.apache.axiom.om.OMElement;
+import org.apache.axis2.context.MessageContext;
+import org.custommonkey.xmlunit.XMLTestCase;
+import org.quickfixj.CharsetSupport;
+
+import javax.xml.namespace.QName;
+import java.util.Arrays;
+
+public class LeanMessageTest extends XMLTestCase {
+
+    private static final int SEQ_NUM            = 5;
+    private static final String SESSION_ID      = "FIX.4.1:BANZAI->SYNAPSE";
+
+    public void testInfosetMatchesFullEnvelope() throws Exception {
+        MessageContext fullCtx = new MessageContext();
+        FIXUtils.getInstance().setSOAPEnvelope(createMessage(), SEQ_NUM, SESSION_ID, fullCtx);
+        MessageContext leanCtx = new MessageContext();
+        FIXUtils.getInstance().setLeanSOAPEnvelope(createMessage(), SEQ_NUM, SESSION_ID, leanCtx);
+
+        assertXMLEqual(fullCtx.getEnvelope().getBody().getFirstElement().toString(),
+                leanCtx.getEnvelope().getBody().getFirstElement().toString());
+    }
+
+    public void testUntouchedMessageIsReused() throws Exception {
+        Message message = createMessage();
+        MessageContext msgCtx = new MessageContext();
+        FIXUtils.getInstance().setLeanSOAPEnvelope(message, SEQ_NUM, SESSION_ID, msgCtx);
+
+        assertEquals(SEQ_NUM, FIXUtils.getSequenceNumber(msgCtx));
+        assertEquals(SESSION_ID, FIXUtils.getSourceSession(msgCtx));
+        Message result = FIXUtils.getInstance().createFIXMessage(msgCtx);
+        assertNotSame(message, result);
+        assertEquals(message.toString(), result.toString());
+
+        // none of the above should have expanded the message element
+        assertNotNull(FIXUtils.getLeanMessage(msgCtx));
+    }
+
+    public void testModifiedMessageIsRebuilt() throws Exception {
+        MessageContext msgCtx = new MessageContext();
+        FIXUtils.getInstance().setLeanSOAPEnvelope(createMessage(), SEQ_NUM, SESSION_ID, msgCtx);
+
+        OMElement body = msgCtx.getEnvelope().getBody().getFirstElement().getFirstChildWithName(
+                new QName(FIXConstants.FIX_BODY));
+        OMElement symbol = (OMElement) body.getChildElements().next();
+        assertEquals(String.valueOf(ClOrdID.FIELD),
+                symbol.getAttributeValue(new QName(FIXConstants.FIX_FIELD_ID)));
+        symbol.setText("54321");
+
+        assertNull(FIXUtils.getLeanMessage(msgCtx));
+        assertEquals(SEQ_NUM, FIXUtils.getSequenceNumber(msgCtx));
+        assertEquals(SESSION_ID, FIXUtils.getSourceSession(msgCtx));
+        Message result = FIXUtils.getInstance().createFIXMessage(msgCtx);
+        assertEquals("54321", result.getString(ClOrdID.FIELD));
+        assertEquals("APACHE", result.getString(Symbol.FIELD));
+        assertEquals(2, result.getGroupCount(NoAllocs.FIELD));
+    }
+
+    public void testBinaryFieldIsRestoredOnRebuild() throws Exception {
+        // bytes which are not valid in UTF-8, but are in the charset of the wire format
+        byte[] data = new byte[] {(byte) 0x80, (byte) 0xC3, (byte) 0xFF, 'a'};
+        Message message = createMessage();
+        message.setField(new BytesField(RawData.FIELD, data));
+        MessageContext msgCtx = new MessageContext();
+        FIXUtils.getInstance().setLeanSOAPEnvelope(message, SEQ_NUM, SESSION_ID, msgCtx);
+
+        // expand the element, so that the message is rebuilt from the infoset
+        msgCtx.getEnvelope().getBody().getFirstElement().getFirstElement();
+        assertNull(FIXUtils.getLeanMessage(msgCtx));
+        Message result = FIXUtils.getInstance().createFIXMessage(msgCtx);
+        assertTrue(Arrays.equals(data, result.getString(RawData.FIELD).getBytes(
+                CharsetSupport.getCharsetInstance())));
+    }
+
+    private Message createMessage() {
+        Message message = new NewOrderSingle();
+        message.getHeader().setField(new BeginString("FIX.4.1"));
+        message.getHeader().setField(new SenderCompID("BANZAI"));
+        message.getHeader().setField(new TargetCompID("SYNAPSE"));
+        message.getHeader().setField(new MsgSeqNum(SEQ_NUM));
+
+        message.setField(new Symbol("APACHE"));
+        message.setField(new ClOrdID("12345"));
+
+        Group g1 = new Group(NoAllocs.FIELD, AllocAccount.FIELD);
+        g1.setField(new AllocAccount("ABC"));
+        g1.setField(new IndividualAllocID("PQR"));
+        message.addGroup(g1);
+        Group g2 = new Group(NoAllocs.FIELD, AllocAccount.FIELD);
+        g2.setField(new AllocAccount("MNO"));
+        g2.setField(new IndividualAllocID("X&Y"));
+        message.addGroup(g2);
+        return message;
+    }
+}